@@ -2,6 +2,8 @@
 USE flogin_db;
 
 -- XÓA BỎ CÁC BẢNG CŨ ĐỂ TRÁNH XUNG ĐỘT
+DROP TABLE IF EXISTS id_generators;
+DROP TABLE IF EXISTS product_tombstones;
 DROP TABLE IF EXISTS products;
 DROP TABLE IF EXISTS login_history;
 DROP TABLE IF EXISTS users;
@@ -59,7 +61,10 @@ CREATE TABLE products (
     created_by BIGINT NOT NULL,
     
     created_at DATETIME NOT NULL,
-    updated_at DATETIME,
+    -- DATETIME(6): nguồn của ETag và đồng bộ thay đổi (GET /api/products/changes), cần micro giây
+    updated_at DATETIME(6),
+    -- Optimistic lock (@Version): mỗi UPDATE kiểm tra và tăng; PATCH/PUT gửi version cũ -> 409
+    version BIGINT NOT NULL DEFAULT 0,
     
     -- Ràng buộc khóa ngoại
     FOREIGN KEY (category_id) REFERENCES categories(id),
@@ -70,11 +75,28 @@ CREATE TABLE products (
     INDEX idx_category (category_id),
     INDEX idx_price (price),
     INDEX idx_created_by (created_by),
-    INDEX idx_created_at (created_at)
+    INDEX idx_created_at (created_at),
+    INDEX idx_updated_at (updated_at)
+);
+
+-- Sản phẩm đã xóa, cho client đồng bộ thay đổi (dọn định kỳ sau thời gian giữ)
+CREATE TABLE product_tombstones (
+    product_id BIGINT PRIMARY KEY,
+    deleted_at DATETIME(6) NOT NULL,
+    INDEX idx_deleted_at (deleted_at)
+);
+
+-- Cấp id theo khối cho Product (@TableGenerator, 50 id mỗi lần) để INSERT gom batch được;
+-- ứng dụng tự nâng next_val lên trên MAX(products.id) lúc khởi động (IdGeneratorInitializer)
+CREATE TABLE id_generators (
+    name VARCHAR(255) NOT NULL PRIMARY KEY,
+    next_val BIGINT
 );
+INSERT INTO id_generators (name, next_val) VALUES ('products', 1);
 
 -- Thêm sản phẩm mẫu (tạo bởi user 1, thuộc category 1 và 2)
-INSERT INTO products (name, price, quantity, description, category_id, created_by, created_at)
+-- updated_at phải có giá trị: dòng NULL không xuất hiện trong đồng bộ thay đổi
+INSERT INTO products (name, price, quantity, description, category_id, created_by, created_at, updated_at)
 VALUES 
-('Laptop Pro X1', 35000000.00, 50, 'Laptop cấu hình mạnh', 1, 1, NOW()),
-('Bàn phím cơ K10', 1800000.00, 120, 'Bàn phím cơ Blue switch', 2, 1, NOW());
\ No newline at end of file
+('Laptop Pro X1', 35000000.00, 50, 'Laptop cấu hình mạnh', 1, 1, NOW(), NOW(6)),
+('Bàn phím cơ K10', 1800000.00, 120, 'Bàn phím cơ Blue switch', 2, 1, NOW(), NOW(6));
\ No newline at end of file
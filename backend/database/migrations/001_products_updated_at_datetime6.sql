@@ -0,0 +1,17 @@
+-- =========================================================================================
+-- NÂNG CẤP DATABASE TẠO TỪ flogin_db.sql CŨ (updated_at DATETIME) - CHẠY MỘT LẦN, CHẠY LẠI VẪN AN TOÀN
+-- =========================================================================================
+-- - ETag và đồng bộ thay đổi (GET /api/products/changes) so sánh updated_at tới micro giây.
+--   Cột DATETIME cũ làm tròn về giây: hai lần sửa trong cùng một giây cho cùng ETag, client đồng bộ
+--   có thể bỏ sót thay đổi. spring.jpa.hibernate.ddl-auto=update KHÔNG đổi kiểu cột đã có.
+-- - Dòng có updated_at NULL (dữ liệu mẫu cũ) không bao giờ xuất hiện trong dòng thay đổi:
+--   lấy created_at làm mốc.
+-- - Bảng product_tombstones, cột version, index idx_updated_at: ddl-auto=update tự tạo khi khởi động.
+--
+-- Cách chạy: mysql -u root -p flogin_db < database/migrations/001_products_updated_at_datetime6.sql
+-- =========================================================================================
+USE flogin_db;
+
+ALTER TABLE products MODIFY updated_at DATETIME(6);
+
+UPDATE products SET updated_at = created_at WHERE updated_at IS NULL;
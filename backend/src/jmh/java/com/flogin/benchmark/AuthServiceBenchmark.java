@@ -0,0 +1,111 @@
+package com.flogin.benchmark;
+
+import com.flogin.dto.LoginRequest;
+import com.flogin.dto.LoginResponse;
+import com.flogin.entity.User;
+import com.flogin.repository.LoginHistoryRepository;
+import com.flogin.repository.UserRepository;
+import com.flogin.security.PasswordHasher;
+import com.flogin.security.SigningKeyRing;
+import com.flogin.security.TokenService;
+import com.flogin.security.UserCredentials;
+import com.flogin.service.AuthService;
+import com.flogin.service.CredentialCache;
+import com.flogin.service.LoginAttemptTracker;
+import com.flogin.service.LoginHistoryWriter;
+import com.flogin.service.UsernameBloomFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * =========================================================================================
+ * BENCHMARK AuthService.authenticate VỚI USER REPOSITORY TRONG BỘ NHỚ
+ * =========================================================================================
+ * - Toàn bộ đường đăng nhập thành công: lockout -> cache/Bloom -> BCrypt -> ký token.
+ * - UserRepository là HashMap, LoginHistoryWriter không chạy thread nền (bản ghi bị bỏ),
+ *   nên kết quả không phụ thuộc MySQL.
+ * - BCrypt cost 4 để phần còn lại của đường đăng nhập không bị che khuất;
+ *   chi phí theo cost xem PasswordHasherBenchmark.
+ * - cacheEntries = 0 tắt CredentialCache (mỗi lần đều tra repository).
+ * =========================================================================================
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthServiceBenchmark {
+
+    @Param({"0", "1000"})
+    private int cacheEntries;
+
+    private AuthService authService;
+    private PasswordHasher passwordHasher;
+    private LoginRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        passwordHasher = new PasswordHasher(4, 0, 1024, 60_000);
+
+        Map<String, UserCredentials> users = new HashMap<>();
+        for (long i = 0; i < 1000; i++) {
+            users.put("user" + i, new UserCredentials(i, "user" + i, passwordHasher.hash("Test123"),
+                    User.Role.USER, true));
+        }
+        UserRepository userRepository = RepositoryStandIn.of(UserRepository.class)
+                .answer("findCredentialsByUsername", args -> Optional.ofNullable(users.get((String) args[0])))
+                .build();
+        LoginHistoryRepository loginHistoryRepository = RepositoryStandIn.of(LoginHistoryRepository.class)
+                .answer("countFailedAttempts", args -> 0L)
+                .build();
+
+        authService = new AuthService();
+        ReflectionTestUtils.setField(authService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(authService, "tokenService",
+                new TokenService(new SigningKeyRing("benchmark-secret", 21600, 2), 3600));
+        // Không gọi start(): record() chỉ đếm bản ghi bị bỏ, không cần JdbcTemplate
+        ReflectionTestUtils.setField(authService, "loginHistoryWriter",
+                new LoginHistoryWriter(null, meterRegistry, 8192, 200, 500,
+                        LoginHistoryWriter.OverflowPolicy.DROP, 50));
+        ReflectionTestUtils.setField(authService, "passwordHasher", passwordHasher);
+        // Chưa build -> mightContain luôn true (fail-open), giống lúc vừa khởi động
+        ReflectionTestUtils.setField(authService, "usernameBloomFilter",
+                new UsernameBloomFilter(null, 100_000, 0.01));
+        ReflectionTestUtils.setField(authService, "credentialCache",
+                new CredentialCache(cacheEntries, 300, meterRegistry));
+        ReflectionTestUtils.setField(authService, "loginAttemptTracker",
+                new LoginAttemptTracker(loginHistoryRepository, meterRegistry, 900, 15, 5, 50, 100_000));
+
+        request = new LoginRequest("user500", "Test123");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        passwordHasher.shutdown();
+    }
+
+    @Benchmark
+    public LoginResponse authenticate() {
+        return authService.authenticate(request);
+    }
+}
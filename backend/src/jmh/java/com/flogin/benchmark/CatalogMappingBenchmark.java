@@ -0,0 +1,123 @@
+package com.flogin.benchmark;
+
+import com.flogin.dto.CategoryDto;
+import com.flogin.dto.ProductDto;
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import com.flogin.entity.User;
+import com.flogin.repository.CategoryRepository;
+import com.flogin.repository.ProductRepository;
+import com.flogin.repository.UserRepository;
+import com.flogin.service.CategoryService;
+import com.flogin.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * =========================================================================================
+ * BENCHMARK MAPPING ENTITY <-> DTO CỦA DANH MỤC SẢN PHẨM
+ * =========================================================================================
+ * - getAllProducts: findAll (List có sẵn) + convertToDto cho từng Product.
+ * - getProductById / createProduct: convertToDto / convertToEntity cho một sản phẩm
+ *   (findById và save trả về object có sẵn).
+ * - getAllCategories: mapping Category -> CategoryDto.
+ * - Repository là proxy trong bộ nhớ nên số đo chỉ gồm service + mapping.
+ * =========================================================================================
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogMappingBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private ProductService productService;
+    private CategoryService categoryService;
+    private ProductDto newProduct;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        User user = new User("admin", "hash", "admin@flogin.com", "Admin", User.Role.ADMIN);
+        user.setId(1L);
+
+        List<Category> categories = new ArrayList<>();
+        for (long i = 1; i <= 20; i++) {
+            Category category = new Category("Danh mục " + i);
+            category.setId(i);
+            categories.add(category);
+        }
+
+        List<Product> products = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            Product product = new Product("Sản phẩm " + i, BigDecimal.valueOf(i * 1000, 2), (int) (i % 100),
+                    "Mô tả " + i, categories.get((int) (i % categories.size())), user);
+            product.setId(i);
+            products.add(product);
+        }
+        Product first = products.get(0);
+
+        ProductRepository productRepository = RepositoryStandIn.of(ProductRepository.class)
+                .answer("findAll", args -> products)
+                .answer("findById", args -> Optional.of(first))
+                .answer("save", args -> args[0])
+                .build();
+        CategoryRepository categoryRepository = RepositoryStandIn.of(CategoryRepository.class)
+                .answer("findAll", args -> categories)
+                .answer("findById", args -> Optional.of(categories.get(0)))
+                .build();
+        UserRepository userRepository = RepositoryStandIn.of(UserRepository.class)
+                .answer("findById", args -> Optional.of(user))
+                .build();
+
+        productService = new ProductService();
+        ReflectionTestUtils.setField(productService, "productRepository", productRepository);
+        ReflectionTestUtils.setField(productService, "categoryRepository", categoryRepository);
+        ReflectionTestUtils.setField(productService, "userRepository", userRepository);
+
+        categoryService = new CategoryService();
+        ReflectionTestUtils.setField(categoryService, "categoryRepository", categoryRepository);
+
+        newProduct = new ProductDto(null, "Sản phẩm mới", new BigDecimal("199000.00"), 10, "Mô tả", 1L, 1L);
+    }
+
+    @Benchmark
+    public List<ProductDto> getAllProducts() {
+        return productService.getAllProducts();
+    }
+
+    @Benchmark
+    public ProductDto getProductById() {
+        return productService.getProductById(1L);
+    }
+
+    @Benchmark
+    public ProductDto createProduct() {
+        return productService.createProduct(newProduct);
+    }
+
+    @Benchmark
+    public List<CategoryDto> getAllCategories() {
+        return categoryService.getAllCategories();
+    }
+}
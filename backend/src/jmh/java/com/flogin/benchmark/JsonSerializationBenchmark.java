@@ -0,0 +1,79 @@
+package com.flogin.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.flogin.dto.LoginResponse;
+import com.flogin.dto.ProductDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * =========================================================================================
+ * BENCHMARK SERIALIZE JSON CỦA RESPONSE
+ * =========================================================================================
+ * - ObjectMapper dựng bằng Jackson2ObjectMapperBuilder như MappingJackson2HttpMessageConverter.
+ * - loginResponse: body của POST /api/auth/login.
+ * - productList: body của GET /api/products với size sản phẩm, dùng ObjectWriter
+ *   cho List<ProductDto> (giống converter khi biết kiểu generic).
+ * =========================================================================================
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter productListWriter;
+    private LoginResponse loginResponse;
+    private List<ProductDto> products;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        productListWriter = objectMapper.writerFor(new TypeReference<List<ProductDto>>() { });
+
+        loginResponse = new LoginResponse("Đăng nhập thành công",
+                "djE.eyJzdWIiOiIxIiwidXNlcm5hbWUiOiJhZG1pbiIsInJvbGUiOiJBRE1JTiIsImV4cCI6MTcwMDAwMDAwMH0."
+                        + "c2lnbmF0dXJlLXNpZ25hdHVyZS1zaWduYXR1cmUtc2lnbmF0dXJl");
+
+        products = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            products.add(new ProductDto(i, "Sản phẩm " + i, BigDecimal.valueOf(i * 1000, 2), (int) (i % 100),
+                    "Mô tả sản phẩm " + i, i % 20 + 1, 1L));
+        }
+    }
+
+    @Benchmark
+    public byte[] loginResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(loginResponse);
+    }
+
+    @Benchmark
+    public byte[] productList() throws JsonProcessingException {
+        return productListWriter.writeValueAsBytes(products);
+    }
+}
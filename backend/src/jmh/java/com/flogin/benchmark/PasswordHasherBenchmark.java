@@ -0,0 +1,60 @@
+package com.flogin.benchmark;
+
+import com.flogin.security.PasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * =========================================================================================
+ * BENCHMARK XÁC MINH MẬT KHẨU BCRYPT THEO COST FACTOR
+ * =========================================================================================
+ * - verifyOnPool: nhiều thread "Tomcat" cùng gọi PasswordHasher.matches, CPU bị giới hạn
+ *   bởi pool BCrypt (số CPU) -> throughput tối đa của endpoint đăng nhập.
+ * - Mỗi lần tăng cost thêm 1 thì throughput giảm khoảng một nửa.
+ * =========================================================================================
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PasswordHasherBenchmark {
+
+    @Param({"4", "8", "10", "12"})
+    private int cost;
+
+    private PasswordHasher hasher;
+    private String hash;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        hasher = new PasswordHasher(cost, 0, 1024, 60_000);
+        hash = hasher.hash("Test123");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hasher.shutdown();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean verifyOnPool() {
+        return hasher.matches("Test123", hash);
+    }
+}
@@ -0,0 +1,135 @@
+package com.flogin.benchmark;
+
+import com.flogin.FloginApplication;
+import com.flogin.dto.ProductBatchResult;
+import com.flogin.dto.ProductDto;
+import com.flogin.entity.Category;
+import com.flogin.entity.User;
+import com.flogin.repository.CategoryRepository;
+import com.flogin.repository.UserRepository;
+import com.flogin.service.ProductService;
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * =========================================================================================
+ * BENCHMARK TẠO NHIỀU SẢN PHẨM: POST /batch (JDBC BATCH) vs GỌI POST TỪNG SẢN PHẨM
+ * =========================================================================================
+ * - Mỗi op tạo 500 sản phẩm; so thời gian trung bình mỗi op (ms) giữa hai cách.
+ * - single: 500 lần createProduct, mỗi lần một transaction (như client gửi 500 request POST).
+ * - batch: một lần batchUpsert (một transaction, INSERT gom theo hibernate.jdbc.batch_size).
+ * - db=mem: H2 trong cùng JVM, mỗi câu lệnh gần như không tốn round trip -> chỉ đo phần CPU.
+ *   db=tcp: H2 qua socket localhost, mỗi câu lệnh / commit là một round trip thật như với MySQL
+ *   (MySQL còn gộp batch thành một INSERT nhiều dòng nhờ rewriteBatchedStatements=true, H2 thì không).
+ * - Chạy: mvn -P benchmark -DskipTests verify -Djmh.include=ProductBatchBenchmark
+ * =========================================================================================
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductBatchBenchmark {
+
+    private static final int PRODUCTS = 500;
+
+    @Param({"mem", "tcp"})
+    private String db;
+
+    private Server server;
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private JdbcTemplate jdbcTemplate;
+    private List<ProductDto> products;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String url = "jdbc:h2:mem:product_batch_benchmark;DB_CLOSE_DELAY=-1";
+        if ("tcp".equals(db)) {
+            server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+            url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:product_batch_benchmark;DB_CLOSE_DELAY=-1";
+        }
+        context = new SpringApplicationBuilder(FloginApplication.class)
+                .web(WebApplicationType.NONE)
+                // Tham số dòng lệnh ghi đè application.properties (MySQL)
+                .run(
+                        "--spring.datasource.url=" + url,
+                        "--spring.datasource.driverClassName=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.flogin=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "--logging.file.name=",
+                        "--app.product.reservation.wal-path=");
+        productService = context.getBean(ProductService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        User user = context.getBean(UserRepository.class).save(new User("admin",
+                "$2a$10$abcdefghijklmnopqrstuuabcdefghijklmnopqrstuvwxyz01234", "admin@flogin.com", "Admin",
+                User.Role.ADMIN));
+        Category category = context.getBean(CategoryRepository.class).save(new Category("Electronics"));
+        products = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new ProductDto(null, "Sản phẩm " + i, new BigDecimal("9.90"), 100, "Mô tả sản phẩm " + i,
+                    category.getId(), user.getId()));
+        }
+    }
+
+    // Bảng không lớn dần giữa các iteration
+    @TearDown(Level.Iteration)
+    public void clearProducts() {
+        jdbcTemplate.update("DELETE FROM products");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Benchmark
+    public int single() {
+        int created = 0;
+        for (ProductDto product : products) {
+            productService.createProduct(product);
+            created++;
+        }
+        return created;
+    }
+
+    @Benchmark
+    public int batch() {
+        ProductBatchResult result = productService.batchUpsert(products);
+        return result.created();
+    }
+}
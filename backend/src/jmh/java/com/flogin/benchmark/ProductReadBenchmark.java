@@ -0,0 +1,127 @@
+package com.flogin.benchmark;
+
+import com.flogin.FloginApplication;
+import com.flogin.dto.ProductDto;
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import com.flogin.entity.User;
+import com.flogin.repository.CategoryRepository;
+import com.flogin.repository.ProductRepository;
+import com.flogin.repository.UserRepository;
+import com.flogin.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * =========================================================================================
+ * BENCHMARK ĐỌC SẢN PHẨM: ENTITY + convertToDto vs DTO PROJECTION
+ * =========================================================================================
+ * - entity*: đường đọc cũ, findAll / findById nạp Product vào persistence context
+ *   (snapshot dirty-check, proxy Category/User) rồi mới chép sang ProductDto.
+ * - projection*: ProductService hiện tại, JPQL "SELECT new ProductDto(...)" trong transaction read-only.
+ * - Chạy trên Spring context thật với H2 in-memory; -prof gc cho biết byte cấp phát mỗi op.
+ * =========================================================================================
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductReadBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private ProductService productService;
+    private Long middleId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FloginApplication.class)
+                .web(WebApplicationType.NONE)
+                // Tham số dòng lệnh ghi đè application.properties (MySQL)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:product_read_benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driverClassName=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.flogin=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "--logging.file.name=");
+        productRepository = context.getBean(ProductRepository.class);
+        productService = context.getBean(ProductService.class);
+
+        User user = context.getBean(UserRepository.class).save(new User("admin",
+                "$2a$10$abcdefghijklmnopqrstuuabcdefghijklmnopqrstuvwxyz01234", "admin@flogin.com", "Admin",
+                User.Role.ADMIN));
+        Category category = context.getBean(CategoryRepository.class).save(new Category("Electronics"));
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            products.add(new Product("Sản phẩm " + i, new BigDecimal(i + 1).movePointLeft(1), i % 100,
+                    "Mô tả sản phẩm " + i, category, user));
+        }
+        middleId = productRepository.saveAll(products).get(size / 2).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ProductDto> entityList() {
+        List<Product> products = productRepository.findAll();
+        List<ProductDto> dtos = new ArrayList<>(products.size());
+        for (Product product : products) {
+            dtos.add(toDto(product));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public List<ProductDto> projectionList() {
+        return productService.getAllProducts();
+    }
+
+    @Benchmark
+    public ProductDto entityById() {
+        return toDto(productRepository.findById(middleId).orElseThrow());
+    }
+
+    @Benchmark
+    public ProductDto projectionById() {
+        return productService.getProductById(middleId);
+    }
+
+    private static ProductDto toDto(Product product) {
+        return new ProductDto(product.getId(), product.getTen(), product.getGia(), product.getSoLuong(),
+                product.getDescription(), product.getCategory().getId(), product.getCreatedBy().getId());
+    }
+}
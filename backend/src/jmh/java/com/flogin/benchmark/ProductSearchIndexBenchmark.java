@@ -0,0 +1,78 @@
+package com.flogin.benchmark;
+
+import com.flogin.util.TrigramIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * =========================================================================================
+ * BENCHMARK CHỈ MỤC TRIGRAM TÊN SẢN PHẨM (1M SẢN PHẨM)
+ * =========================================================================================
+ * - Danh mục tổng hợp: loại sản phẩm + thương hiệu + đặc tính + mã số, có dấu tiếng Việt.
+ * - rareQuery: mã số gần như duy nhất; commonQuery: loại sản phẩm chiếm 1/12 danh mục
+ *   (posting list dài, top-k heap làm việc nhiều nhất); accentQuery: gõ không dấu nhiều từ.
+ * - In bộ nhớ ước lượng sau khi dựng để đối chiếu với /actuator/productsearch.
+ * =========================================================================================
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ProductSearchIndexBenchmark {
+
+    private static final String[] KINDS = {"Bàn phím cơ", "Chuột không dây", "Màn hình cong", "Tai nghe",
+            "Loa bluetooth", "Ổ cứng SSD", "Cáp sạc nhanh", "Đèn bàn", "Máy lọc không khí", "Sạc dự phòng",
+            "Ghế công thái học", "Bình giữ nhiệt"};
+    private static final String[] BRANDS = {"Logitech", "Razer", "Dell", "Xiaomi", "Sony", "Anker", "Sunhouse",
+            "Điện Quang", "Rạng Đông", "Kangaroo"};
+    private static final String[] TRAITS = {"đen", "trắng", "chính hãng", "cao cấp", "mini", "pro", "giảm giá",
+            "bảo hành 24 tháng"};
+
+    @Param({"1000000"})
+    private int products;
+
+    private TrigramIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        index = new TrigramIndex(products);
+        for (int i = 1; i <= products; i++) {
+            index.put(i, KINDS[random.nextInt(KINDS.length)] + " " + BRANDS[random.nextInt(BRANDS.length)] + " "
+                    + TRAITS[random.nextInt(TRAITS.length)] + " " + Integer.toString(i, 36).toUpperCase());
+        }
+        System.out.printf("%n[trigram index] products=%d trigrams=%d postings=%d memory=%.1f MB%n",
+                index.size(), index.trigramCount(), index.postingCount(),
+                index.estimatedMemoryBytes() / 1024.0 / 1024.0);
+    }
+
+    @Benchmark
+    public long[] rareQuery() {
+        return index.search("lk3f", 20);
+    }
+
+    @Benchmark
+    public long[] commonQuery() {
+        return index.search("tai nghe", 20);
+    }
+
+    @Benchmark
+    public long[] accentQuery() {
+        return index.search("dien quang chinh hang", 20);
+    }
+}
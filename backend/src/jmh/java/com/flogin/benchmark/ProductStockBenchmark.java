@@ -0,0 +1,133 @@
+package com.flogin.benchmark;
+
+import com.flogin.FloginApplication;
+import com.flogin.dto.ProductPatch;
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import com.flogin.entity.User;
+import com.flogin.repository.CategoryRepository;
+import com.flogin.repository.ProductRepository;
+import com.flogin.repository.UserRepository;
+import com.flogin.service.ProductService;
+import com.flogin.service.StockConflictException;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * =========================================================================================
+ * BENCHMARK TRỪ TỒN KHO TRÊN SẢN PHẨM BÁN CHẠY: DIRECT vs STRIPED (KÝ QUỸ TRONG BỘ NHỚ)
+ * =========================================================================================
+ * - 8 thread cùng trừ 1 đơn vị trên một nhóm nhỏ sản phẩm "nóng" (hotProducts).
+ * - direct: mỗi lần trừ một câu UPDATE ... WHERE quantity >= 1 (khóa dòng nóng bị tranh chấp).
+ * - striped: rút khối 50 đơn vị vào ký quỹ, các lần trừ sau không chạm DB; flush mỗi giây.
+ * - Mỗi iteration nạp lại tồn kho tối đa (PATCH) để không hết hàng giữa chừng; "conflicts" phải = 0.
+ * - Chạy: mvn -P benchmark -DskipTests verify -Djmh.include=ProductStockBenchmark
+ * =========================================================================================
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class ProductStockBenchmark {
+
+    @Param({"direct", "striped"})
+    private String mode;
+
+    @Param({"1", "16"})
+    private int hotProducts;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private List<Long> ids;
+
+    /** Kết quả theo thread: JMH cộng dồn và in thành cột riêng cạnh throughput */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+        public long sold;
+        public long conflicts;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FloginApplication.class)
+                .web(WebApplicationType.NONE)
+                // Tham số dòng lệnh ghi đè application.properties (MySQL)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:product_stock_benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driverClassName=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--app.product.stock.mode=" + mode,
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.flogin=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "--logging.file.name=");
+        productService = context.getBean(ProductService.class);
+
+        User user = context.getBean(UserRepository.class).save(new User("admin",
+                "$2a$10$abcdefghijklmnopqrstuuabcdefghijklmnopqrstuvwxyz01234", "admin@flogin.com", "Admin",
+                User.Role.ADMIN));
+        Category category = context.getBean(CategoryRepository.class).save(new Category("Electronics"));
+        List<Product> products = new ArrayList<>(hotProducts);
+        for (int i = 0; i < hotProducts; i++) {
+            products.add(new Product("Sản phẩm " + i, new BigDecimal("9.90"), Product.MAX_QUANTITY,
+                    "Mô tả sản phẩm " + i, category, user));
+        }
+        ids = new ArrayList<>();
+        for (Product product : context.getBean(ProductRepository.class).saveAll(products)) {
+            ids.add(product.getId());
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void restock() {
+        for (Long id : ids) {
+            productService.patchProduct(id, new ProductPatch(null, null, Product.MAX_QUANTITY, null, null, null));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void decrement(Outcomes outcomes) {
+        try {
+            productService.decrementStock(ids.get(ThreadLocalRandom.current().nextInt(ids.size())), 1);
+            outcomes.sold++;
+        } catch (StockConflictException e) {
+            outcomes.conflicts++;
+        }
+    }
+}
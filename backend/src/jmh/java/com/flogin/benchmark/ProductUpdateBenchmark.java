@@ -0,0 +1,151 @@
+package com.flogin.benchmark;
+
+import com.flogin.FloginApplication;
+import com.flogin.dto.ProductDto;
+import com.flogin.dto.ProductPatch;
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import com.flogin.entity.User;
+import com.flogin.repository.CategoryRepository;
+import com.flogin.repository.ProductRepository;
+import com.flogin.repository.UserRepository;
+import com.flogin.service.ProductService;
+import com.flogin.service.ProductVersionConflictException;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * =========================================================================================
+ * BENCHMARK CẬP NHẬT SẢN PHẨM BỊ TRANH CHẤP: PUT (ENTITY) vs PATCH (MỘT CÂU UPDATE)
+ * =========================================================================================
+ * - 8 thread cùng sửa một nhóm nhỏ sản phẩm "nóng" (hotProducts) để tạo tranh chấp.
+ * - put: updateProduct - findById rồi save() entity tách rời (merge = SELECT lại + UPDATE),
+ *   người đến sau bị @Version từ chối -> đếm ở cột "conflicts" (op không thành công).
+ * - patchName: PATCH chỉ đổi tên -> một câu UPDATE có điều kiện, không đọc trước.
+ * - patchQuantity: PATCH đổi số lượng -> cũng một câu UPDATE (thống kê tồn kho đối soát trên thread nền).
+ * - PATCH không gửi version nên không bao giờ xung đột; so "updates" (op thành công) giữa các benchmark.
+ * - Chạy: mvn -P benchmark -DskipTests verify -Djmh.include=ProductUpdateBenchmark
+ * =========================================================================================
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class ProductUpdateBenchmark {
+
+    @Param({"1", "16"})
+    private int hotProducts;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private List<Long> ids;
+    private Long categoryId;
+
+    /** Kết quả theo thread: JMH cộng dồn và in thành cột riêng cạnh throughput */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+        public long updates;
+        public long conflicts;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FloginApplication.class)
+                .web(WebApplicationType.NONE)
+                // Tham số dòng lệnh ghi đè application.properties (MySQL)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:product_update_benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driverClassName=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.flogin=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "--logging.file.name=");
+        productService = context.getBean(ProductService.class);
+
+        User user = context.getBean(UserRepository.class).save(new User("admin",
+                "$2a$10$abcdefghijklmnopqrstuuabcdefghijklmnopqrstuvwxyz01234", "admin@flogin.com", "Admin",
+                User.Role.ADMIN));
+        Category category = context.getBean(CategoryRepository.class).save(new Category("Electronics"));
+        categoryId = category.getId();
+        List<Product> products = new ArrayList<>(hotProducts);
+        for (int i = 0; i < hotProducts; i++) {
+            products.add(new Product("Sản phẩm " + i, new BigDecimal("9.90"), 100, "Mô tả sản phẩm " + i,
+                    category, user));
+        }
+        ids = new ArrayList<>();
+        for (Product product : context.getBean(ProductRepository.class).saveAll(products)) {
+            ids.add(product.getId());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private Long pick() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    @Benchmark
+    public void put(Outcomes outcomes) {
+        Long id = pick();
+        // Giống client: đọc version hiện tại rồi gửi lại cùng PUT
+        ProductDto current = productService.getProductById(id);
+        ProductDto dto = new ProductDto(id, "Sản phẩm " + ThreadLocalRandom.current().nextInt(1000),
+                current.getGia(), current.getSoLuong(), current.getMoTa(), categoryId, null, current.getVersion());
+        try {
+            productService.updateProduct(id, dto);
+            outcomes.updates++;
+        } catch (OptimisticLockingFailureException | ProductVersionConflictException e) {
+            outcomes.conflicts++;
+        }
+    }
+
+    @Benchmark
+    public void patchName(Outcomes outcomes) {
+        productService.patchProduct(pick(), new ProductPatch(
+                "Sản phẩm " + ThreadLocalRandom.current().nextInt(1000), null, null, null, null, null));
+        outcomes.updates++;
+    }
+
+    @Benchmark
+    public void patchQuantity(Outcomes outcomes) {
+        productService.patchProduct(pick(), new ProductPatch(
+                null, null, ThreadLocalRandom.current().nextInt(1, 1000), null, null, null));
+        outcomes.updates++;
+    }
+}
@@ -0,0 +1,54 @@
+package com.flogin.benchmark;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * =========================================================================================
+ * REPOSITORY GIẢ TRONG BỘ NHỚ CHO BENCHMARK
+ * =========================================================================================
+ * - Tạo proxy của một interface Spring Data, chỉ trả lời các method được khai báo
+ *   (tra HashMap/List có sẵn) -> benchmark đo phần service/mapping, không đo JDBC hay Mockito.
+ * - Gọi method chưa khai báo sẽ ném UnsupportedOperationException để lộ ngay đường đi ngoài dự kiến.
+ * =========================================================================================
+ */
+final class RepositoryStandIn<R> {
+
+    private final Class<R> type;
+    private final Map<String, Function<Object[], Object>> answers = new HashMap<>();
+
+    private RepositoryStandIn(Class<R> type) {
+        this.type = type;
+    }
+
+    static <R> RepositoryStandIn<R> of(Class<R> type) {
+        return new RepositoryStandIn<>(type);
+    }
+
+    RepositoryStandIn<R> answer(String methodName, Function<Object[], Object> answer) {
+        answers.put(methodName, answer);
+        return this;
+    }
+
+    R build() {
+        Map<String, Function<Object[], Object>> table = Map.copyOf(answers);
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                try {
+                    return method.invoke(this, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+            }
+            Function<Object[], Object> answer = table.get(method.getName());
+            if (answer == null) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            }
+            return answer.apply(args);
+        });
+        return type.cast(proxy);
+    }
+}
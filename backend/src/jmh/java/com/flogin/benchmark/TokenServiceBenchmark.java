@@ -0,0 +1,60 @@
+package com.flogin.benchmark;
+
+import com.flogin.entity.User;
+import com.flogin.security.SigningKeyRing;
+import com.flogin.security.TokenPrincipal;
+import com.flogin.security.TokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * =========================================================================================
+ * BENCHMARK XÁC MINH TOKEN HMAC (TokenAuthenticationFilter)
+ * =========================================================================================
+ * - verifySingleThread: chi phí một lần xác minh (giải mã base64 + HMAC-SHA256 + so sánh).
+ * - verifyContended: 8 thread dùng chung pool Mac của SigningKeyRing như các thread Tomcat.
+ * =========================================================================================
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenServiceBenchmark {
+
+    private static final long HOUR = 3600;
+
+    private TokenService tokenService;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tokenService = new TokenService(new SigningKeyRing("benchmark-secret", HOUR, 2), HOUR);
+        token = tokenService.issueToken(1L, "testuser", User.Role.USER);
+    }
+
+    @Benchmark
+    public Optional<TokenPrincipal> verifySingleThread() {
+        return tokenService.verify(token);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<TokenPrincipal> verifyContended() {
+        return tokenService.verify(token);
+    }
+}
@@ -0,0 +1,88 @@
+package com.flogin.benchmark;
+
+import com.flogin.FloginApplication;
+import com.flogin.entity.User;
+import com.flogin.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * =========================================================================================
+ * BENCHMARK TRA CỨU USER CHO ĐĂNG NHẬP: ENTITY vs PROJECTION
+ * =========================================================================================
+ * - entityLookup: findByUsername nạp toàn bộ entity User (snapshot dirty-check, collection lazy).
+ * - projectionLookup: findCredentialsByUsername chỉ lấy 5 cột vào record UserCredentials.
+ * - Chạy trên Spring context thật với H2 in-memory; -prof gc cho biết byte cấp phát mỗi op.
+ * =========================================================================================
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserLookupBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FloginApplication.class)
+                .web(WebApplicationType.NONE)
+                // Tham số dòng lệnh ghi đè application.properties (MySQL)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:user_lookup_benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driverClassName=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.flogin=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "--logging.file.name=");
+        userRepository = context.getBean(UserRepository.class);
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            users.add(new User("user" + i, "$2a$10$abcdefghijklmnopqrstuuabcdefghijklmnopqrstuvwxyz01234",
+                    "user" + i + "@flogin.com", "User " + i, User.Role.USER));
+        }
+        userRepository.saveAll(users);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String entityLookup() {
+        return userRepository.findByUsername("user500").orElseThrow().getPassword();
+    }
+
+    @Benchmark
+    public String projectionLookup() {
+        return userRepository.findCredentialsByUsername("user500").orElseThrow().passwordHash();
+    }
+}
@@ -0,0 +1,142 @@
+package com.flogin.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * =========================================================================================
+ * GIỚI HẠN SỐ KẾT NỐI DB ĐỒNG THỜI (SEMAPHORE DATASOURCE LIMITER)
+ * =========================================================================================
+ * - Mỗi getConnection() phải lấy một permit (semaphore công bằng), trả lại khi close().
+ * - Với virtual thread có thể có hàng nghìn request cùng chờ; semaphore xếp hàng theo thứ tự
+ *   và hết acquire-timeout thì báo lỗi ngay (503) thay vì để tất cả dồn vào HikariCP.
+ * - Kết nối lồng nhau: thread đang giữ kết nối xin thêm một kết nối nữa (Hibernate lấy khối id từ
+ *   id_generators trên kết nối riêng trong lúc transaction của request vẫn giữ kết nối của nó). Nếu
+ *   lấy từ cùng semaphore thì khi mọi permit đều do các thread đang chờ khối id giữ, không ai trả
+ *   permit -> tự khóa tới acquire-timeout (503). Kết nối lồng nhau lấy từ phần dự phòng riêng
+ *   (reservedConnections); pool gốc phải có ít nhất maxConcurrent + reservedConnections kết nối.
+ * - reservedConnections = 0: không có phần dự phòng, kết nối lồng nhau dùng chung semaphore.
+ * - Chỉ bật khi app.db.concurrency-limit.enabled=true.
+ * =========================================================================================
+ */
+public class ConcurrencyLimitedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    /** Phần dự phòng cho kết nối lồng nhau; null nếu reservedConnections = 0 */
+    private final Semaphore reserved;
+    private final int maxConcurrent;
+    private final long acquireTimeoutNanos;
+    private final AtomicLong rejected = new AtomicLong();
+    /** Số kết nối thread hiện tại đang giữ (AtomicInteger: close() có thể chạy trên thread khác) */
+    private final ThreadLocal<AtomicInteger> held = ThreadLocal.withInitial(AtomicInteger::new);
+
+    public ConcurrencyLimitedDataSource(DataSource target, int maxConcurrent, long acquireTimeoutMillis) {
+        this(target, maxConcurrent, 0, acquireTimeoutMillis);
+    }
+
+    public ConcurrencyLimitedDataSource(DataSource target, int maxConcurrent, int reservedConnections,
+                                        long acquireTimeoutMillis) {
+        super(target);
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.reserved = reservedConnections > 0 ? new Semaphore(reservedConnections, true) : null;
+        this.acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        AtomicInteger count = held.get();
+        Semaphore semaphore = acquire(count);
+        try {
+            return limited(super.getConnection(), semaphore, count);
+        } catch (SQLException | RuntimeException e) {
+            semaphore.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        AtomicInteger count = held.get();
+        Semaphore semaphore = acquire(count);
+        try {
+            return limited(super.getConnection(username, password), semaphore, count);
+        } catch (SQLException | RuntimeException e) {
+            semaphore.release();
+            throw e;
+        }
+    }
+
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Lấy permit thường, hoặc từ phần dự phòng nếu thread này đã giữ kết nối
+     */
+    private Semaphore acquire(AtomicInteger count) throws SQLException {
+        Semaphore semaphore = reserved != null && count.get() > 0 ? reserved : permits;
+        try {
+            if (!semaphore.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                rejected.incrementAndGet();
+                throw new SQLTransientConnectionException("Quá nhiều truy vấn DB đồng thời, vui lòng thử lại sau!");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Bị ngắt khi chờ kết nối DB", e);
+        }
+        return semaphore;
+    }
+
+    /**
+     * Bọc Connection để trả permit (thường hoặc dự phòng) đúng một lần khi close()
+     */
+    private Connection limited(Connection connection, Semaphore semaphore, AtomicInteger count) {
+        AtomicBoolean released = new AtomicBoolean();
+        count.incrementAndGet();
+        InvocationHandler handler = (proxy, method, args) -> {
+            if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                try {
+                    return invoke(connection, method, args);
+                } finally {
+                    if (released.compareAndSet(false, true)) {
+                        count.decrementAndGet();
+                        semaphore.release();
+                    }
+                }
+            }
+            return invoke(connection, method, args);
+        };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    private static Object invoke(Connection connection, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.flogin.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * =========================================================================================
+ * CẤU HÌNH GIỚI HẠN TRUY VẤN DB ĐỒNG THỜI
+ * =========================================================================================
+ * - Bọc DataSource (HikariCP) bằng ConcurrencyLimitedDataSource khi
+ *   app.db.concurrency-limit.enabled=true.
+ * - app.db.concurrency-limit.reserved-connections (mặc định 2) kết nối của pool để dành cho kết nối
+ *   lồng nhau (khối id của Product); số permit mặc định = maximum-pool-size - reserved-connections.
+ * - Metrics: flogin.db.limiter.active, .waiting, .rejected
+ * =========================================================================================
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.db.concurrency-limit.enabled", havingValue = "true")
+public class DatabaseConcurrencyConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseConcurrencyConfig.class);
+
+    /**
+     * static để BeanPostProcessor được tạo sớm mà không kéo theo các bean khác
+     */
+    @Bean
+    public static BeanPostProcessor databaseConcurrencyLimiter(Environment environment) {
+        int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        int reserved = environment.getProperty("app.db.concurrency-limit.reserved-connections", Integer.class, 2);
+        int maxConcurrent = environment.getProperty("app.db.concurrency-limit.max-concurrent", Integer.class,
+                Math.max(1, poolSize - reserved));
+        long acquireTimeoutMs = environment.getProperty("app.db.concurrency-limit.acquire-timeout-ms", Long.class, 2000L);
+        if (maxConcurrent + reserved > poolSize) {
+            log.warn("app.db.concurrency-limit: max-concurrent ({}) + reserved-connections ({}) > maximum-pool-size ({}):"
+                    + " kết nối lồng nhau (cấp khối id) có thể phải chờ pool", maxConcurrent, reserved, poolSize);
+        }
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitedDataSource)) {
+                    return new ConcurrencyLimitedDataSource(dataSource, maxConcurrent, reserved, acquireTimeoutMs);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder databaseConcurrencyMetrics(ObjectProvider<DataSource> dataSources) {
+        return registry -> dataSources.orderedStream()
+                .filter(ConcurrencyLimitedDataSource.class::isInstance)
+                .map(ConcurrencyLimitedDataSource.class::cast)
+                .findFirst()
+                .ifPresent(dataSource -> {
+                    Gauge.builder("flogin.db.limiter.active", dataSource, ConcurrencyLimitedDataSource::getActive)
+                            .description("Số kết nối DB đang được giữ")
+                            .register(registry);
+                    Gauge.builder("flogin.db.limiter.waiting", dataSource, ConcurrencyLimitedDataSource::getWaiting)
+                            .description("Số thread đang chờ permit DB")
+                            .register(registry);
+                    FunctionCounter.builder("flogin.db.limiter.rejected", dataSource,
+                                    ConcurrencyLimitedDataSource::getRejected)
+                            .description("Số lần hết thời gian chờ permit DB")
+                            .register(registry);
+                });
+    }
+}
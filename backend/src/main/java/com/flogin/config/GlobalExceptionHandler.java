@@ -1,10 +1,22 @@
 package com.flogin.config;
 
+import com.flogin.security.ServiceBusyException;
+import com.flogin.security.TooManyAttemptsException;
+import com.flogin.service.ProductVersionConflictException;
+import com.flogin.service.StockConflictException;
+import com.flogin.service.SyncCursorExpiredException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.sql.SQLTransientConnectionException;
+
 /**
  * =========================================================================================
  * XỬ LÝ NGOẠI LỆ TẬP TRUNG (GLOBAL EXCEPTION HANDLER)
@@ -17,6 +29,68 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    /**
+     * Tài nguyên xử lý đang quá tải -> 503 SERVICE UNAVAILABLE kèm Retry-After
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<String> handleServiceBusy(ServiceBusyException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ex.getMessage());
+    }
+
+    /**
+     * Không lấy được kết nối DB (pool/semaphore hết chỗ) -> 503 kèm Retry-After thay vì 400.
+     * Với @Transactional lỗi đến dưới dạng CannotCreateTransactionException (lúc mở transaction),
+     * với JdbcTemplate là TransientDataAccessResourceException (SQLTransientConnectionException).
+     */
+    @ExceptionHandler({
+            DataAccessResourceFailureException.class,
+            TransientDataAccessResourceException.class,
+            CannotCreateTransactionException.class
+    })
+    public ResponseEntity<String> handleDataAccessResourceFailure(RuntimeException ex) {
+        return serviceUnavailable();
+    }
+
+    /**
+     * Cursor đồng bộ cũ hơn thời gian giữ tombstone -> 410 GONE, client tải lại toàn bộ danh sách
+     */
+    @ExceptionHandler(SyncCursorExpiredException.class)
+    public ResponseEntity<String> handleSyncCursorExpired(SyncCursorExpiredException ex) {
+        return ResponseEntity.status(HttpStatus.GONE).body(ex.getMessage());
+    }
+
+    /**
+     * Sản phẩm đã bị sửa sau version client đã đọc (PATCH/PUT gửi version cũ, hoặc hai lần sửa
+     * đồng thời đụng @Version) -> 409 CONFLICT, client tải lại rồi áp lại thay đổi
+     */
+    @ExceptionHandler({ProductVersionConflictException.class, OptimisticLockingFailureException.class})
+    public ResponseEntity<String> handleVersionConflict(RuntimeException ex) {
+        String message = ex instanceof ProductVersionConflictException
+                ? ex.getMessage()
+                : "Dữ liệu đã được người khác cập nhật, vui lòng tải lại";
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(message);
+    }
+
+    /**
+     * Không đủ hàng để trừ / cộng vượt giới hạn tồn kho -> 409 CONFLICT (trạng thái hiện tại không cho phép)
+     */
+    @ExceptionHandler(StockConflictException.class)
+    public ResponseEntity<String> handleStockConflict(StockConflictException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    /**
+     * Sai quá nhiều lần trong cửa sổ thời gian -> 429 TOO MANY REQUESTS kèm Retry-After
+     */
+    @ExceptionHandler(TooManyAttemptsException.class)
+    public ResponseEntity<String> handleTooManyAttempts(TooManyAttemptsException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ex.getMessage());
+    }
+
     /**
      * Xử lý các lỗi RuntimeException chung
      * Phân loại lỗi dựa trên nội dung message để trả về status code đúng:
@@ -25,14 +99,40 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<String> handleRuntimeException(RuntimeException ex) {
-        String message = ex.getMessage();
+        // Lỗi hạ tầng chưa được Spring dịch (ví dụ Hibernate JDBCConnectionException) không phải lỗi client
+        if (isConnectionUnavailable(ex)) {
+            return serviceUnavailable();
+        }
+        String message = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
 
         // Kiểm tra các từ khóa lỗi đặc thù của nghiệp vụ
         if (message.contains("Không tìm thấy sản phẩm") ||
-                message.contains("Không tìm thấy Category")) {
+                message.contains("Không tìm thấy Category") ||
+                message.contains("Không tìm thấy giữ hàng")) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(message);
         }
 
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(message);
     }
-}
\ No newline at end of file
+
+    /**
+     * Chuỗi cause có SQLTransientConnectionException (limiter/HikariCP hết thời gian chờ kết nối)
+     */
+    static boolean isConnectionUnavailable(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientConnectionException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static ResponseEntity<String> serviceUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Hệ thống đang quá tải, vui lòng thử lại sau!");
+    }
+}
@@ -0,0 +1,67 @@
+package com.flogin.config;
+
+import com.flogin.entity.Product;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * =========================================================================================
+ * KHỞI TẠO BẢNG CẤP ID THEO KHỐI (id_generators)
+ * =========================================================================================
+ * - Product lấy id từ bảng id_generators (pooled, mỗi lần ID_ALLOCATION_SIZE id) để INSERT
+ *   được gom batch. Dòng products trong bảng này do Hibernate tạo với giá trị khởi đầu 1,
+ *   trong khi bảng products đã có dữ liệu cấp bằng AUTO_INCREMENT -> trùng khóa.
+ * - Lúc khởi động (sau khi Hibernate tạo/cập nhật schema): đẩy next_val lên trên MAX(id) cộng
+ *   thêm một khối, nên khối đầu tiên Hibernate cấp luôn nằm trên mọi id đã có.
+ *   Chỉ tăng, không bao giờ giảm: chạy lại hay nhiều node cùng khởi động đều an toàn.
+ * - Sản phẩm chèn thẳng bằng SQL (không qua JPA) phải tự lấy id khác vùng này hoặc khởi động lại.
+ * =========================================================================================
+ */
+@Component
+public class IdGeneratorInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(IdGeneratorInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // EntityManagerFactory: chỉ để bảo đảm schema (id_generators) đã được Hibernate tạo trước
+    @Autowired
+    public IdGeneratorInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        ensureAbove("products", "products", Product.ID_ALLOCATION_SIZE);
+    }
+
+    /**
+     * next_val của generatorName >= MAX(id) của table + allocationSize + 1
+     */
+    void ensureAbove(String generatorName, String table, int allocationSize) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        long floor = (maxId != null ? maxId : 0) + allocationSize + 1;
+        int raised = jdbcTemplate.update("UPDATE id_generators SET next_val = ? WHERE name = ? AND next_val < ?",
+                floor, generatorName, floor);
+        if (raised == 0) {
+            Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM id_generators WHERE name = ?",
+                    Integer.class, generatorName);
+            if (rows == null || rows == 0) {
+                try {
+                    jdbcTemplate.update("INSERT INTO id_generators (name, next_val) VALUES (?, ?)", generatorName, floor);
+                } catch (DuplicateKeyException e) {
+                    // Node khác vừa chèn cùng lúc -> chỉ cần nâng lên nếu còn thấp
+                    jdbcTemplate.update("UPDATE id_generators SET next_val = ? WHERE name = ? AND next_val < ?",
+                            floor, generatorName, floor);
+                }
+            }
+        }
+        log.info("id_generators[{}]: next_val >= {} (MAX(id) = {})", generatorName, floor, maxId);
+    }
+}
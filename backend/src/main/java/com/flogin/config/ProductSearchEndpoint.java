@@ -0,0 +1,30 @@
+package com.flogin.config;
+
+import com.flogin.service.ProductSearchIndex;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint /actuator/productsearch
+ * - GET: số sản phẩm, số trigram/posting, bộ nhớ ước lượng, thời gian truy vấn trung bình
+ *   và thống kê dựng lại của chỉ mục tên sản phẩm
+ * - Chỉ đọc, cùng lý do với /actuator/usernamefilter: dựng lại là quét toàn bảng products
+ */
+@Component
+@Endpoint(id = "productsearch")
+public class ProductSearchEndpoint {
+
+    private final ProductSearchIndex productSearchIndex;
+
+    public ProductSearchEndpoint(ProductSearchIndex productSearchIndex) {
+        this.productSearchIndex = productSearchIndex;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        return productSearchIndex.getStats();
+    }
+}
@@ -0,0 +1,258 @@
+package com.flogin.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * =========================================================================================
+ * BỘ LỌC GIỚI HẠN TẦN SUẤT (RATE LIMIT FILTER)
+ * =========================================================================================
+ * MỤC TIÊU (CHECKLIST III.9 - Module Interface):
+ * - Chặn client gửi quá nhiều request trước khi tới controller/repository (429 + Retry-After).
+ * - Mỗi route (theo tiền tố path, so khớp theo từng segment: /api/products khớp
+ *   /api/products/1 nhưng không khớp /api/productsX) có token bucket riêng cho từng IP,
+ *   cấu hình trong app.rate-limit.rules dạng "path:capacity:refill-per-second".
+ * - Token bucket lưu dưới dạng GCRA: một AtomicLong "thời điểm bucket đầy trở lại",
+ *   cập nhật bằng CAS -> không khóa, không cấp phát object trên đường đi bình thường.
+ * - Mỗi route giữ tối đa max-clients IP; bucket đã đầy lại được dọn định kỳ.
+ *   Khi vẫn đầy, IP mới rơi vào bucket dự phòng theo dải mạng (/24 với IPv4, /64 với IPv6),
+ *   băm vào một mảng cố định -> một dải mạng tấn công không chặn được client ở mạng khác.
+ * =========================================================================================
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final boolean enabled;
+    private final int maxClients;
+    private final LongSupplier clock;
+    private final Rule[] rules;
+
+    @Autowired
+    public RateLimitFilter(@Value("${app.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${app.rate-limit.rules:/api/auth/login:20:1,/api/products:200:100,/api/categories:200:100}") String[] rules,
+                           @Value("${app.rate-limit.max-clients:100000}") int maxClients,
+                           ObjectProvider<MeterRegistry> meterRegistry) {
+        this(enabled, rules, maxClients, meterRegistry.getIfAvailable(SimpleMeterRegistry::new), System::nanoTime);
+    }
+
+    RateLimitFilter(boolean enabled, String[] rules, int maxClients, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.enabled = enabled;
+        this.maxClients = Math.max(1, maxClients);
+        this.clock = clock;
+        // Tiền tố dài nhất được so khớp trước (ví dụ /api/products/export trước /api/products)
+        this.rules = Arrays.stream(rules)
+                .map(String::trim)
+                .filter(rule -> !rule.isEmpty())
+                .map(rule -> Rule.parse(rule, meterRegistry, clock.getAsLong()))
+                .sorted(Comparator.comparingInt((Rule rule) -> rule.pathPrefix.length()).reversed())
+                .toArray(Rule[]::new);
+
+        Gauge.builder("flogin.rate_limit.tracked_clients", this, RateLimitFilter::getTrackedClients)
+                .description("Số bucket (route, IP) đang được giữ trong bộ nhớ")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || "OPTIONS".equalsIgnoreCase(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+
+        Rule rule = match(request.getRequestURI());
+        if (rule != null) {
+            String clientIp = request.getRemoteAddr();
+            long waitNanos = rule.tryAcquire(clientIp != null ? clientIp : "", clock.getAsLong(), maxClients);
+            if (waitNanos > 0) {
+                rule.rejected.increment();
+                reject(response, waitNanos);
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Dọn các bucket đã đầy lại (IP không còn gửi request) để giải phóng bộ nhớ
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        for (Rule rule : rules) {
+            rule.evictIdle(now);
+        }
+    }
+
+    public int getTrackedClients() {
+        int size = 0;
+        for (Rule rule : rules) {
+            size += rule.buckets.size();
+        }
+        return size;
+    }
+
+    private Rule match(String path) {
+        for (Rule rule : rules) {
+            if (matchesSegments(path, rule.pathPrefix)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tiền tố phải kết thúc đúng ở ranh giới segment ("/api/products" không khớp "/api/productsX")
+     */
+    static boolean matchesSegments(String path, String prefix) {
+        if (!path.startsWith(prefix)) {
+            return false;
+        }
+        return path.length() == prefix.length()
+                || prefix.endsWith("/")
+                || path.charAt(prefix.length()) == '/';
+    }
+
+    /**
+     * Dải mạng của IP: /24 với IPv4, /64 với IPv6 (chỉ gọi trên đường dự phòng khi map đã đầy)
+     */
+    static String networkOf(String clientIp) {
+        if (clientIp.indexOf(':') >= 0) {
+            try {
+                // Chuỗi có ':' là IPv6 literal -> getByName chỉ parse, không tra DNS
+                byte[] address = InetAddress.getByName(clientIp).getAddress();
+                if (address.length == 16) {
+                    return HexFormat.of().formatHex(address, 0, 8);
+                }
+            } catch (UnknownHostException e) {
+                return clientIp;
+            }
+        }
+        int lastDot = clientIp.lastIndexOf('.');
+        return lastDot > 0 ? clientIp.substring(0, lastDot) : clientIp;
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("Quá nhiều yêu cầu, vui lòng thử lại sau!");
+    }
+
+    /**
+     * Giới hạn của một route: capacity request liên tiếp, nạp lại refillPerSecond request/giây
+     */
+    private static final class Rule {
+        // Số bucket dự phòng (lũy thừa của 2) cho IP mới khi route đã giữ đủ max-clients
+        static final int OVERFLOW_BUCKETS = 1024;
+
+        final String pathPrefix;
+        // GCRA: mỗi request "tốn" interval; cho phép đi trước tối đa tolerance (= capacity - 1 request)
+        final long intervalNanos;
+        final long toleranceNanos;
+        final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        final AtomicLong[] overflow = new AtomicLong[OVERFLOW_BUCKETS];
+        final AtomicLong lastSweep;
+        final Counter rejected;
+
+        private Rule(String pathPrefix, long capacity, double refillPerSecond, MeterRegistry meterRegistry, long now) {
+            if (capacity < 1 || refillPerSecond <= 0) {
+                throw new IllegalArgumentException("Invalid rate limit for " + pathPrefix);
+            }
+            this.pathPrefix = pathPrefix;
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+            this.toleranceNanos = (capacity - 1) * intervalNanos;
+            this.lastSweep = new AtomicLong(now - TimeUnit.SECONDS.toNanos(1));
+            this.rejected = meterRegistry.counter("flogin.rate_limit.rejected", "route", pathPrefix);
+            for (int i = 0; i < OVERFLOW_BUCKETS; i++) {
+                overflow[i] = new AtomicLong(Long.MIN_VALUE);
+            }
+        }
+
+        static Rule parse(String rule, MeterRegistry meterRegistry, long now) {
+            String[] parts = rule.split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Rate limit rule must be path:capacity:refill-per-second: " + rule);
+            }
+            return new Rule(parts[0].trim(), Long.parseLong(parts[1].trim()),
+                    Double.parseDouble(parts[2].trim()), meterRegistry, now);
+        }
+
+        /**
+         * @return 0 nếu được phép, ngược lại số nano giây cần chờ
+         */
+        long tryAcquire(String clientIp, long now, int maxClients) {
+            AtomicLong bucket = buckets.get(clientIp);
+            if (bucket == null) {
+                bucket = newBucket(clientIp, now, maxClients);
+            }
+            while (true) {
+                long fullAt = bucket.get();
+                long start = Math.max(fullAt, now);
+                if (start - now > toleranceNanos) {
+                    return start - toleranceNanos - now;
+                }
+                if (bucket.compareAndSet(fullAt, start + intervalNanos)) {
+                    return 0;
+                }
+            }
+        }
+
+        private AtomicLong newBucket(String clientIp, long now, int maxClients) {
+            if (buckets.size() >= maxClients) {
+                // Dọn tối đa mỗi giây một lần để không quét map trên mọi request
+                long last = lastSweep.get();
+                if (now - last >= TimeUnit.SECONDS.toNanos(1) && lastSweep.compareAndSet(last, now)) {
+                    evictIdle(now);
+                }
+                if (buckets.size() >= maxClients) {
+                    int hash = networkOf(clientIp).hashCode();
+                    return overflow[(hash ^ (hash >>> 16)) & (OVERFLOW_BUCKETS - 1)];
+                }
+            }
+            AtomicLong created = new AtomicLong(now);
+            AtomicLong existing = buckets.putIfAbsent(clientIp, created);
+            return existing != null ? existing : created;
+        }
+
+        void evictIdle(long now) {
+            // Bucket đã đầy lại thì xóa đi cũng không thay đổi giới hạn
+            for (Map.Entry<String, AtomicLong> entry : buckets.entrySet()) {
+                if (entry.getValue().get() <= now) {
+                    buckets.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.flogin.config;
+
+import com.flogin.security.TokenPrincipal;
+import com.flogin.security.TokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * =========================================================================================
+ * BỘ LỌC XÁC THỰC TOKEN (TOKEN AUTHENTICATION FILTER)
+ * =========================================================================================
+ * MỤC TIÊU (CHECKLIST III.9 - Module Interface):
+ * - Xác minh token ký HMAC trước khi request tới ProductController và CategoryController.
+ * - Việc xác minh diễn ra hoàn toàn trong bộ nhớ, không truy vấn DB hay cache.
+ * - Thiếu token, token sai hoặc hết hạn đều bị từ chối (401).
+ * - app.auth.token.required=false chỉ dành cho môi trường dev: cho qua request không có token
+ *   (token gửi kèm vẫn được xác minh).
+ * =========================================================================================
+ */
+@Component
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    /** Tên attribute chứa TokenPrincipal để controller có thể đọc nếu cần */
+    public static final String PRINCIPAL_ATTRIBUTE = "flogin.auth.principal";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Value("${app.auth.token.required:true}")
+    private boolean tokenRequired;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        // Bỏ qua CORS preflight và các endpoint không thuộc phạm vi bảo vệ
+        return "OPTIONS".equalsIgnoreCase(request.getMethod())
+                || !(path.startsWith("/api/products") || path.startsWith("/api/categories"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+
+        if (header == null || !header.startsWith(BEARER_PREFIX)) {
+            if (tokenRequired) {
+                reject(response, "Thiếu token xác thực!");
+                return;
+            }
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Optional<TokenPrincipal> principal = tokenService.verify(header.substring(BEARER_PREFIX.length()));
+        if (principal.isEmpty()) {
+            reject(response, "Token không hợp lệ hoặc đã hết hạn!");
+            return;
+        }
+
+        request.setAttribute(PRINCIPAL_ATTRIBUTE, principal.get());
+        filterChain.doFilter(request, response);
+    }
+
+    private void reject(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(message);
+    }
+}
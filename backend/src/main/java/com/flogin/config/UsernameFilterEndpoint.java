@@ -0,0 +1,30 @@
+package com.flogin.config;
+
+import com.flogin.service.UsernameBloomFilter;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint /actuator/usernamefilter
+ * - GET: kích thước, tỉ lệ dương tính giả ước lượng, số lần từ chối và thống kê dựng lại
+ * - Chỉ đọc: Actuator không có xác thực, nên không mở thao tác dựng lại (quét toàn bảng users)
+ *   qua HTTP; filter tự dựng lại theo app.auth.username-filter.rebuild-interval-ms
+ */
+@Component
+@Endpoint(id = "usernamefilter")
+public class UsernameFilterEndpoint {
+
+    private final UsernameBloomFilter usernameBloomFilter;
+
+    public UsernameFilterEndpoint(UsernameBloomFilter usernameBloomFilter) {
+        this.usernameBloomFilter = usernameBloomFilter;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        return usernameBloomFilter.getStats();
+    }
+}
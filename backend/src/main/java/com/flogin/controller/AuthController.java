@@ -2,12 +2,18 @@ package com.flogin.controller;
 
 import com.flogin.dto.LoginRequest;
 import com.flogin.dto.LoginResponse;
+import com.flogin.security.ServiceBusyException;
+import com.flogin.security.TooManyAttemptsException;
 import com.flogin.service.AuthService;
 
 import jakarta.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionException;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
@@ -57,6 +63,19 @@ public class AuthController {
         try {
             LoginResponse response = authService.authenticate(request);
             return ResponseEntity.ok(response);
+        } catch (TooManyAttemptsException e) {
+            // Sai quá nhiều lần trong cửa sổ thời gian -> 429 kèm số giây cần chờ
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(new LoginResponse(e.getMessage(), null));
+        } catch (ServiceBusyException e) {
+            // Pool BCrypt quá tải -> từ chối nhanh với 503 để client thử lại sau
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(new LoginResponse(e.getMessage(), null));
+        } catch (DataAccessException | TransactionException e) {
+            // Lỗi hạ tầng (DB/limiter hết kết nối...) không phải sai mật khẩu -> để GlobalExceptionHandler trả 503/4xx
+            throw e;
         } catch (RuntimeException e) {
             // Bắt lỗi nghiệp vụ từ Service (ví dụ: sai pass, khóa acc) và trả về 401
             return ResponseEntity.status(401).body(new LoginResponse(e.getMessage(), null));
@@ -0,0 +1,57 @@
+package com.flogin.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * ETag mạnh + Cache-Control cho các endpoint đọc danh mục (sản phẩm, category)
+ * - Sản phẩm: "p{id}-{updated_at tính bằng micro giây}"
+ * - Danh sách: "c{catalogVersion}" (cache của client gắn với URL nên query string không cần nằm trong ETag)
+ * - private, no-cache: trình duyệt được giữ bản sao nhưng phải hỏi lại (If-None-Match) mỗi lần dùng,
+ *   sửa sản phẩm là thấy ngay; private vì response cần Bearer token
+ */
+final class CatalogEtags {
+
+    static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private CatalogEtags() {
+    }
+
+    static String product(Long id, long version) {
+        return "\"p" + id + "-" + version + "\"";
+    }
+
+    static String catalog(long version) {
+        return "\"c" + version + "\"";
+    }
+
+    /**
+     * If-None-Match dùng so sánh yếu (RFC 9110 13.1.2): bỏ tiền tố W/; "*" khớp mọi tài nguyên tồn tại
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 304 kèm lại ETag và Cache-Control như response 200 tương ứng, không có body
+     */
+    static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CACHE_CONTROL).build();
+    }
+}
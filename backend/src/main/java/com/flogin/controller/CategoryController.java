@@ -1,8 +1,10 @@
 package com.flogin.controller;
 
 import com.flogin.dto.CategoryDto;
+import com.flogin.service.CatalogVersions;
 import com.flogin.service.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -16,8 +18,18 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    // ETag theo version danh mục: If-None-Match khớp -> 304, không truy vấn DB
     @GetMapping
-    public ResponseEntity<List<CategoryDto>> getAllCategories() {
-        return ResponseEntity.ok(categoryService.getAllCategories());
+    public ResponseEntity<List<CategoryDto>> getAllCategories(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = CatalogEtags.catalog(catalogVersions.catalogVersion());
+        if (CatalogEtags.matches(ifNoneMatch, etag)) {
+            return CatalogEtags.notModified(etag);
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CatalogEtags.CACHE_CONTROL)
+                .body(categoryService.getAllCategories());
     }
-}
\ No newline at end of file
+}
@@ -1,33 +1,283 @@
 package com.flogin.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flogin.dto.InventoryStats;
+import com.flogin.dto.ProductBatchResult;
+import com.flogin.dto.ProductChanges;
+import com.flogin.dto.ProductDeleteResult;
 import com.flogin.dto.ProductDto;
+import com.flogin.dto.ProductPage;
+import com.flogin.dto.ProductPatch;
+import com.flogin.dto.StockLevel;
+import com.flogin.dto.StockReservation;
+import com.flogin.repository.ProductRepositoryCustom;
+import com.flogin.service.CatalogVersions;
+import com.flogin.service.ProductChangeFeed;
+import com.flogin.service.ProductExportFormat;
+import com.flogin.service.ProductListSnapshot;
 import com.flogin.service.ProductService;
+import com.flogin.service.StockReservations;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/api/products")
 // Cho phép CORS (lấy từ file properties của bạn)
-@CrossOrigin(origins = "${cors.allowed.origins}") 
+// Cho phép frontend đọc header phân trang
+@CrossOrigin(origins = "${cors.allowed.origins}", exposedHeaders = {ProductController.NEXT_CURSOR_HEADER,
+        ProductController.CHANGES_CURSOR_HEADER, HttpHeaders.LINK})
 public class ProductController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    // Điểm bắt đầu GET /api/products/changes cho client vừa tải danh sách
+    static final String CHANGES_CURSOR_HEADER = "X-Changes-Cursor";
+
+    private static final Object EXPORT_TIMEOUT_KEY = ProductController.class.getName() + ".exportTimeout";
+
+    @Value("${app.product.export.timeout-ms:600000}")
+    private long exportTimeoutMs;
+
     @Autowired
     private ProductService productService;
 
-    // API: GET /api/products
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private ProductChangeFeed productChangeFeed;
+
+    @Autowired
+    private StockReservations stockReservations;
+
+    // API: GET /api/products?size=&sort=id|created_at|price|name&direction=asc|desc&cursor=
+    // Trả về một trang (mảng JSON); trang sau nằm trong header X-Next-Cursor và Link rel="next".
+    // Thêm ?page= để dùng phân trang offset kiểu cũ.
+    // ETag theo version danh mục: If-None-Match khớp -> 304, không truy vấn DB
+    // Header X-Changes-Cursor: từ đây gọi /changes để cập nhật danh sách thay vì tải lại
     @GetMapping
-    public ResponseEntity<List<ProductDto>> getAllProducts() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<?> getAllProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        // Trang đầu: trả thẳng byte JSON/gzip dựng sẵn, không truy vấn, không serialize
+        if (cursor == null && page == null) {
+            ProductListSnapshot snapshot = productService.getListSnapshot(size, sort, direction);
+            if (snapshot != null) {
+                return snapshotResponse(snapshot, ifNoneMatch, acceptEncoding);
+            }
+        }
+
+        // Lấy version TRƯỚC khi đọc: thay đổi commit trong lúc đọc làm ETag này cũ đi, không bao giờ ngược lại
+        String etag = CatalogEtags.catalog(catalogVersions.catalogVersion());
+        if (CatalogEtags.matches(ifNoneMatch, etag)) {
+            return CatalogEtags.notModified(etag);
+        }
+        String changesCursor = productChangeFeed.currentCursor();
+        ProductPage result = page != null && cursor == null
+                ? productService.getProductsByOffset(page, size, sort, direction)
+                : productService.getProductsPage(cursor, size, sort, direction);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag).cacheControl(CatalogEtags.CACHE_CONTROL);
+        if (result.hasNext()) {
+            addNextPageHeaders(response, result.nextCursor(), page);
+        }
+        addChangesCursorHeader(response, changesCursor);
+        return response.body(result.items());
+    }
+
+    // ETag là version của chính ảnh chụp (có thể cũ hơn danh mục trong lúc đang dựng lại)
+    private ResponseEntity<?> snapshotResponse(ProductListSnapshot snapshot, String ifNoneMatch,
+                                               String acceptEncoding) {
+        String etag = CatalogEtags.catalog(snapshot.version());
+        if (CatalogEtags.matches(ifNoneMatch, etag)) {
+            return CatalogEtags.notModified(etag);
+        }
+        boolean gzip = acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CatalogEtags.CACHE_CONTROL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        if (snapshot.hasNext()) {
+            addNextPageHeaders(response, snapshot.nextCursor(), null);
+        }
+        addChangesCursorHeader(response, snapshot.changesCursor());
+        return response.body(gzip ? snapshot.gzip() : snapshot.json());
+    }
+
+    private static void addChangesCursorHeader(ResponseEntity.BodyBuilder response, String changesCursor) {
+        if (changesCursor != null) {
+            response.header(CHANGES_CURSOR_HEADER, changesCursor);
+        }
+    }
+
+    private static void addNextPageHeaders(ResponseEntity.BodyBuilder response, String nextCursor, Integer page) {
+        UriComponentsBuilder next = ServletUriComponentsBuilder.fromCurrentRequest();
+        if (nextCursor != null) {
+            // Cursor đã chứa thứ tự sắp xếp
+            next.replaceQueryParam("cursor", nextCursor)
+                    .replaceQueryParam("sort")
+                    .replaceQueryParam("direction");
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        } else {
+            next.replaceQueryParam("page", page + 1);
+        }
+        response.header(HttpHeaders.LINK, "<" + next.build().toUriString() + ">; rel=\"next\"");
+    }
+
+    /**
+     * Accept-Encoding có gzip (hoặc *) với q > 0
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim();
+            if (!coding.equalsIgnoreCase("gzip") && !coding.equals("*")) {
+                continue;
+            }
+            double quality = 1.0;
+            for (int i = 1; i < tokens.length; i++) {
+                String parameter = tokens[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (quality > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // API: GET /api/products/search?name=&categoryId=&minPrice=&maxPrice=&page=&size=
+    // name tìm theo tiền tố; trang sau nằm trong header Link rel="next"
+    // ?q= tìm chuỗi con trong tên (không phân biệt dấu) qua chỉ mục trigram, không kết hợp với bộ lọc khác
+    @GetMapping("/search")
+    public ResponseEntity<List<ProductDto>> searchProducts(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+
+        ProductPage result;
+        if (q != null) {
+            if (name != null || categoryId != null || minPrice != null || maxPrice != null) {
+                throw new IllegalArgumentException("Tham số q không dùng chung với name, categoryId, minPrice, maxPrice");
+            }
+            result = productService.searchProductsByText(q, page, size);
+        } else {
+            result = productService.searchProducts(name, categoryId, minPrice, maxPrice, page, size);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (result.hasNext()) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("page", (page != null ? page : 0) + 1)
+                    .build().toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(result.items());
+    }
+
+    // API: GET /api/products/changes?since=&size=
+    // Sản phẩm được tạo/sửa và id bị xóa sau cursor since (bỏ trống = toàn bộ danh mục).
+    // hasMore = gọi lại ngay với nextCursor; cursor quá hạn giữ tombstone -> 410, tải lại toàn bộ
+    @GetMapping("/changes")
+    public ResponseEntity<ProductChanges> getProductChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(productChangeFeed.getChanges(since, size));
+    }
+
+    // API: GET /api/products/stats
+    // Số sản phẩm và giá trị tồn kho (tổng + theo category) từ số liệu giữ sẵn trong bộ nhớ
+    @GetMapping("/stats")
+    public ResponseEntity<InventoryStats> getInventoryStats() {
+        return ResponseEntity.ok(productService.getInventoryStats());
+    }
+
+    // API: GET /api/products/export?format=ndjson|csv
+    // Ghi thẳng từng sản phẩm xuống response trên luồng async, không giữ cả danh mục trong heap
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(required = false) String format,
+            HttpServletRequest request) {
+        ProductExportFormat exportFormat = ProductExportFormat.fromKey(format);
+        // Chỉ request export được chờ lâu; timeout async mặc định của các endpoint khác giữ nguyên
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(EXPORT_TIMEOUT_KEY,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                        if (webRequest instanceof AsyncWebRequest asyncWebRequest) {
+                            asyncWebRequest.setTimeout(exportTimeoutMs);
+                        }
+                    }
+                });
+        StreamingResponseBody body = out ->
+                productService.exportProducts(exportFormat.open(out, objectMapper));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"products." + exportFormat.getKey() + "\"")
+                .body(body);
     }
 
     // API: GET /api/products/{id}
+    // ETag lấy từ updated_at; version đã biết trong bộ nhớ và khớp If-None-Match -> 304, không truy vấn DB
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDto> getProductById(@PathVariable Long id) {
-        return ResponseEntity.ok(productService.getProductById(id));
+    public ResponseEntity<ProductDto> getProductById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Long known = catalogVersions.productVersion(id);
+        if (known != null && CatalogEtags.matches(ifNoneMatch, CatalogEtags.product(id, known))) {
+            return CatalogEtags.notModified(CatalogEtags.product(id, known));
+        }
+        ProductRepositoryCustom.Versioned versioned = productService.getVersionedProduct(id);
+        String etag = CatalogEtags.product(id, CatalogVersions.versionOf(versioned.updatedAt()));
+        if (CatalogEtags.matches(ifNoneMatch, etag)) {
+            // Đã phải đọc DB nhưng vẫn bỏ qua được JSON serialization và băng thông
+            return CatalogEtags.notModified(etag);
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CatalogEtags.CACHE_CONTROL).body(versioned.product());
     }
 
     // API: POST /api/products
@@ -37,13 +287,93 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.CREATED).body(newProduct);
     }
 
+    // API: POST /api/products/batch
+    // Mảng ProductDto: có id -> cập nhật, không id -> tạo mới. Luôn 200 kèm kết quả từng phần tử;
+    // phần tử lỗi nằm trong items (FAILED + error), các phần tử hợp lệ vẫn được ghi
+    @PostMapping("/batch")
+    public ResponseEntity<ProductBatchResult> batchUpsertProducts(@RequestBody List<ProductDto> productDtos) {
+        return ResponseEntity.ok(productService.batchUpsert(productDtos));
+    }
+
     // API: PUT /api/products/{id}
     @PutMapping("/{id}")
     public ResponseEntity<ProductDto> updateProduct(@PathVariable Long id, @RequestBody ProductDto productDto) {
         return ResponseEntity.ok(productService.updateProduct(id, productDto));
     }
 
+    // API: PATCH /api/products/{id}
+    // Chỉ ghi các trường gửi lên, một câu UPDATE; "version" đã đọc lệch với DB -> 409.
+    // 204 kèm ETag mới (không đọc lại sản phẩm)
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> patchProduct(@PathVariable Long id, @RequestBody ProductPatch patch) {
+        LocalDateTime updatedAt = productService.patchProduct(id, patch);
+        return ResponseEntity.noContent().eTag(CatalogEtags.product(id, CatalogVersions.versionOf(updatedAt))).build();
+    }
+
+    // API: POST /api/products/{id}/stock/decrement?amount=1
+    // Trừ tồn kho bằng một câu UPDATE có điều kiện (không đọc trước); không đủ hàng -> 409, 204 khi thành công
+    @PostMapping("/{id}/stock/decrement")
+    public ResponseEntity<Void> decrementStock(@PathVariable Long id, @RequestParam(defaultValue = "1") int amount) {
+        productService.decrementStock(id, amount);
+        return ResponseEntity.noContent().build();
+    }
+
+    // API: POST /api/products/{id}/stock/increment?amount=1
+    // Cộng tồn kho; vượt quá giới hạn số lượng -> 409
+    @PostMapping("/{id}/stock/increment")
+    public ResponseEntity<Void> incrementStock(@PathVariable Long id, @RequestParam(defaultValue = "1") int amount) {
+        productService.incrementStock(id, amount);
+        return ResponseEntity.noContent().build();
+    }
+
+    // API: GET /api/products/{id}/stock
+    // available = quantity - hàng đang giữ; quantity cache trong bộ nhớ, reserved đọc từ bộ nhớ
+    @GetMapping("/{id}/stock")
+    public ResponseEntity<StockLevel> getStockLevel(@PathVariable Long id) {
+        return ResponseEntity.ok(stockReservations.stockLevel(id));
+    }
+
+    // API: POST /api/products/{id}/reservations?amount=1&ttlSeconds=300
+    // Giữ hàng cho checkout (trong bộ nhớ, không ghi DB), tự hết hiệu lực sau ttlSeconds nếu không xác nhận.
+    // 201 kèm id giữ hàng; không đủ hàng -> 409
+    @PostMapping("/{id}/reservations")
+    public ResponseEntity<StockReservation> reserveStock(@PathVariable Long id,
+                                                         @RequestParam(defaultValue = "1") int amount,
+                                                         @RequestParam(required = false) Long ttlSeconds) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(stockReservations.reserve(id, amount, ttlSeconds));
+    }
+
+    // API: POST /api/products/reservations/{reservationId}/confirm
+    // Hàng đã bán: trừ quantity trong DB; giữ hàng không tồn tại / đã hết hạn -> 404;
+    // hàng đang giữ đã bị bán trực tiếp -> 409 (giữ hàng còn nguyên đến khi hủy / hết hạn)
+    @PostMapping("/reservations/{reservationId}/confirm")
+    public ResponseEntity<Void> confirmReservation(@PathVariable String reservationId) {
+        stockReservations.confirm(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // API: DELETE /api/products/reservations/{reservationId}
+    // Hủy giữ hàng: hàng lại bán được ngay
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<Void> releaseReservation(@PathVariable String reservationId) {
+        stockReservations.release(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // API: DELETE /api/products?ids=1,2,3 hoặc ?categoryId=&createdBefore=2024-01-01T00:00:00
+    // Danh sách id HOẶC bộ lọc (ít nhất một điều kiện, không bao giờ xóa toàn bộ); xóa theo khối bằng
+    // các câu DELETE theo tập. 200 kèm số sản phẩm đã xóa
+    @DeleteMapping
+    public ResponseEntity<ProductDeleteResult> deleteProducts(
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            LocalDateTime createdBefore) {
+        return ResponseEntity.ok(new ProductDeleteResult(productService.deleteProducts(ids, categoryId, createdBefore)));
+    }
+
     // API: DELETE /api/products/{id}
+    // Một câu DELETE; 404 khi không có dòng nào bị xóa
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProduct(@PathVariable Long id) {
         productService.deleteProduct(id);
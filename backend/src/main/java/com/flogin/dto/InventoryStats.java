@@ -0,0 +1,17 @@
+package com.flogin.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Thống kê tồn kho của GET /api/products/stats: số sản phẩm và giá trị tồn kho (giá x số lượng,
+ * BigDecimal chính xác) trên toàn danh mục và theo từng category.
+ * reconciledAt: lần cuối số liệu được đối soát lại với DB.
+ */
+public record InventoryStats(long totalProducts, BigDecimal totalValue, List<CategoryStats> categories,
+                             LocalDateTime reconciledAt) {
+
+    public record CategoryStats(Long categoryId, long products, BigDecimal value) {
+    }
+}
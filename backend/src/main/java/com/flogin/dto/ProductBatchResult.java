@@ -0,0 +1,18 @@
+package com.flogin.dto;
+
+import java.util.List;
+
+/**
+ * Kết quả POST /api/products/batch: mỗi phần tử gửi lên có đúng một Item cùng index.
+ * Phần tử lỗi (FAILED) không được ghi và không làm hỏng các phần tử còn lại.
+ */
+public record ProductBatchResult(List<Item> items, int created, int updated, int failed) {
+
+    public enum Status { CREATED, UPDATED, FAILED }
+
+    /**
+     * index = vị trí trong mảng gửi lên; id = id đã cấp (CREATED) hoặc id gửi lên; error chỉ có khi FAILED
+     */
+    public record Item(int index, Long id, Status status, String error) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.flogin.dto;
+
+import java.util.List;
+
+/**
+ * Một trang thay đổi của GET /api/products/changes: sản phẩm được tạo/sửa (trạng thái hiện tại)
+ * và id sản phẩm đã xóa sau cursor. hasMore = gọi tiếp ngay với nextCursor;
+ * ngược lại lưu nextCursor cho lần đồng bộ sau.
+ */
+public record ProductChanges(List<ProductDto> updated, List<Long> deleted, boolean hasMore, String nextCursor) {
+}
@@ -0,0 +1,8 @@
+package com.flogin.dto;
+
+/**
+ * Kết quả DELETE /api/products (xóa hàng loạt): số sản phẩm thực sự bị xóa.
+ * Id gửi lên nhưng không tồn tại không được tính.
+ */
+public record ProductDeleteResult(int deleted) {
+}
@@ -2,14 +2,11 @@ package com.flogin.dto;
 
 import java.math.BigDecimal;
 
-// Import thêm AllArgsConstructor
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class ProductDto {
     private Long id;
     
@@ -23,4 +20,30 @@ public class ProductDto {
     // private String danhMuc;
     private Long categoryId;
     private Long createdById;
-}
\ No newline at end of file
+
+    // Version (optimistic lock) đã đọc: gửi lại trong PATCH/PUT để chặn ghi đè thay đổi của người khác
+    private Long version;
+
+    public ProductDto(Long id, String ten, BigDecimal gia, int soLuong, String moTa,
+                      Long categoryId, Long createdById) {
+        this(id, ten, gia, soLuong, moTa, categoryId, createdById, null);
+    }
+
+    /**
+     * Constructor dùng cho JPQL projection Product.DTO_PROJECTION:
+     * "new ProductDto(p.id, p.name, p.price, p.quantity, p.description, p.category.id, p.createdBy.id, p.version)".
+     * Khai báo tường minh (không dùng @AllArgsConstructor) để thứ tự tham số không phụ thuộc
+     * thứ tự khai báo field - thêm/đổi chỗ field sẽ không âm thầm làm lệch cột.
+     */
+    public ProductDto(Long id, String ten, BigDecimal gia, int soLuong, String moTa,
+                      Long categoryId, Long createdById, Long version) {
+        this.id = id;
+        this.ten = ten;
+        this.gia = gia;
+        this.soLuong = soLuong;
+        this.moTa = moTa;
+        this.categoryId = categoryId;
+        this.createdById = createdById;
+        this.version = version;
+    }
+}
@@ -0,0 +1,10 @@
+package com.flogin.dto;
+
+import java.util.List;
+
+/**
+ * Một trang sản phẩm.
+ * nextCursor chỉ có ở chế độ keyset; ở chế độ offset client tự tăng page khi hasNext.
+ */
+public record ProductPage(List<ProductDto> items, boolean hasNext, String nextCursor) {
+}
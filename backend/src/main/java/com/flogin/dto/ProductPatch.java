@@ -0,0 +1,19 @@
+package com.flogin.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Body của PATCH /api/products/{id}: chỉ các trường khác null được ghi.
+ * version (tùy chọn) = version đã đọc; lệch với DB -> 409, không ghi gì.
+ */
+public record ProductPatch(String ten, BigDecimal gia, Integer soLuong, String moTa, Long categoryId, Long version) {
+
+    public boolean isEmpty() {
+        return ten == null && gia == null && soLuong == null && moTa == null && categoryId == null;
+    }
+
+    /** Có đổi giá trị tồn kho (giá, số lượng, category) -> InventoryStatistics phải đối soát lại */
+    public boolean touchesInventory() {
+        return gia != null || soLuong != null || categoryId != null;
+    }
+}
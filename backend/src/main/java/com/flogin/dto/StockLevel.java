@@ -0,0 +1,8 @@
+package com.flogin.dto;
+
+/**
+ * Tồn kho của GET /api/products/{id}/stock: onHand = quantity trong DB,
+ * reserved = đang được giữ chưa xác nhận, available = onHand - reserved (không âm).
+ */
+public record StockLevel(Long productId, int available, int reserved, int onHand) {
+}
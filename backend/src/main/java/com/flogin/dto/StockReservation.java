@@ -0,0 +1,10 @@
+package com.flogin.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Giữ hàng có thời hạn (POST /api/products/{id}/reservations): id dùng để xác nhận hoặc hủy,
+ * sau expiresAt giữ hàng tự hết hiệu lực.
+ */
+public record StockReservation(String id, Long productId, int amount, LocalDateTime expiresAt) {
+}
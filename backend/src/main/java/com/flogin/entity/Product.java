@@ -5,7 +5,9 @@ import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -16,20 +18,50 @@ import java.time.LocalDateTime;
  * Manages product information and inventory
  */
 @Entity
+@NamedQuery(name = "Product.findDtoById",
+        query = "SELECT " + Product.DTO_PROJECTION + " FROM Product p WHERE p.id = :id")
+@NamedQuery(name = "Product.findAllDtos",
+        query = "SELECT " + Product.DTO_PROJECTION + " FROM Product p ORDER BY p.id")
 @Table(name = "products", indexes = {
     @Index(name = "idx_name", columnList = "name"),
     @Index(name = "idx_category", columnList = "category_id"),
     @Index(name = "idx_price", columnList = "price"),
     @Index(name = "idx_created_by", columnList = "created_by"),
-    @Index(name = "idx_created_at", columnList = "created_at")
+    @Index(name = "idx_created_at", columnList = "created_at"),
+    @Index(name = "idx_updated_at", columnList = "updated_at")
 })
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
 
+    /**
+     * JPQL constructor expression mapping a product row straight into ProductDto
+     * (category/createdBy ids come from the FK columns, no join)
+     */
+    public static final String DTO_PROJECTION = "new com.flogin.dto.ProductDto(p.id, p.name, p.price, p.quantity, "
+            + "p.description, p.category.id, p.createdBy.id, p.version)";
+
+    /**
+     * Ids reserved per round trip to the id_generators table (pooled optimizer)
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * Upper bound of quantity (@Max below, stock adjustments)
+     */
+    public static final int MAX_QUANTITY = 99999;
+
+    // IDENTITY buộc Hibernate INSERT từng dòng ngay lúc persist để lấy id -> tắt JDBC batching.
+    // Bảng id_generators cấp id theo khối ID_ALLOCATION_SIZE nên INSERT được gom thành batch
+    // (hibernate.jdbc.batch_size); IdGeneratorInitializer đẩy khối đầu tiên lên trên MAX(id) hiện có.
+    // Khối id được lấy trên một kết nối thứ hai trong lúc transaction vẫn giữ kết nối của nó -> pool cần
+    // kết nối dự phòng (app.db.concurrency-limit.reserved-connections).
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "product_id")
+    @TableGenerator(name = "product_id", table = "id_generators", pkColumnName = "name",
+            valueColumnName = "next_val", pkColumnValue = "products", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @NotBlank(message = "Product name is required")
@@ -45,7 +77,7 @@ public class Product {
 
     @NotNull(message = "Quantity is required")
     @Min(value = 0, message = "Quantity cannot be negative")
-    @Max(value = 99999, message = "Quantity must not exceed 99,999")
+    @Max(value = MAX_QUANTITY, message = "Quantity must not exceed 99,999")
     @Column(nullable = false)
     private Integer quantity = 0;
 
@@ -74,6 +106,16 @@ public class Product {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Optimistic lock version: every UPDATE (entity path or PATCH) checks and increments it.
+     * Left null on new instances so Spring Data still treats them as new (persist, not merge);
+     * existing rows get 0 from the column default.
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     /**
      * Constructor for testing purposes
      */
@@ -170,7 +212,7 @@ public class Product {
         if (amount < 0) {
             throw new IllegalArgumentException("Amount cannot be negative");
         }
-        if (this.quantity + amount > 99999) {
+        if (this.quantity + amount > MAX_QUANTITY) {
             throw new IllegalArgumentException("Stock cannot exceed 99,999");
         }
         this.quantity += amount;
@@ -185,7 +227,7 @@ public class Product {
         if (price != null && price.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("Price must be greater than 0");
         }
-        if (quantity != null && (quantity < 0 || quantity > 99999)) {
+        if (quantity != null && (quantity < 0 || quantity > MAX_QUANTITY)) {
             throw new IllegalArgumentException("Quantity must be between 0 and 99,999");
         }
         if (name != null && (name.length() < 3 || name.length() > 100)) {
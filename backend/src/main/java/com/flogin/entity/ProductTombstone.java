@@ -0,0 +1,62 @@
+package com.flogin.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity class recording that a product was deleted
+ * Lets delta sync clients (GET /api/products/changes) remove it from their local copy;
+ * rows older than the retention period are purged.
+ * The id is assigned (never generated), so the entity reports itself as new until loaded or
+ * persisted: save() then persists directly instead of merging (no SELECT before each INSERT),
+ * and tombstones for a bulk delete go out as one JDBC batch
+ */
+@Entity
+@Table(name = "product_tombstones", indexes = {
+    @Index(name = "idx_deleted_at", columnList = "deleted_at")
+})
+@Data
+@NoArgsConstructor
+public class ProductTombstone implements Persistable<Long> {
+
+    // Id của sản phẩm đã xóa (AUTO_INCREMENT không cấp lại id cũ nên dùng luôn làm khóa)
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @CreationTimestamp
+    @Column(name = "deleted_at", nullable = false, updatable = false)
+    private LocalDateTime deletedAt;
+
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean persisted;
+
+    public ProductTombstone(Long productId) {
+        this.productId = productId;
+    }
+
+    @Override
+    public Long getId() {
+        return productId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+}
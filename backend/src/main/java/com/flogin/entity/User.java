@@ -20,6 +20,9 @@ import java.util.List;
  * Manages authentication and user information
  */
 @Entity
+@NamedQuery(name = "User.findCredentialsByUsername",
+        query = "SELECT new com.flogin.security.UserCredentials(u.id, u.username, u.password, u.role, u.isActive) "
+                + "FROM User u WHERE u.username = :username")
 @Table(name = "users", indexes = {
     @Index(name = "idx_username", columnList = "username"),
     @Index(name = "idx_email", columnList = "email"),
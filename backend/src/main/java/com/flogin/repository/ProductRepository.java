@@ -1,21 +1,65 @@
 package com.flogin.repository;
 
+import com.flogin.dto.ProductDto;
 import com.flogin.entity.Category;
 import com.flogin.entity.Product;
 import com.flogin.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+
+    /**
+     * Rows fetched per JDBC round trip when streaming the catalog on drivers that
+     * honour a positive fetch size (MySQL streams row by row instead, see ProductRepositoryImpl)
+     */
+    int EXPORT_FETCH_SIZE = 1000;
+
+    /**
+     * Read-only DTO projection by id: no managed entity, no dirty-check snapshot,
+     * no Category/User proxies. JPQL lives in @NamedQuery on Product.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    Optional<ProductDto> findDtoById(@Param("id") Long id);
+    
+    /**
+     * Whole catalog as DTO projections (JPQL in @NamedQuery on Product)
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    List<ProductDto> findAllDtos();
+    
+    /**
+     * Offset page of DTO projections, as a Slice (no COUNT(*) query)
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query("SELECT " + Product.DTO_PROJECTION + " FROM Product p")
+    Slice<ProductDto> findDtosBy(Pageable pageable);
+
+    /**
+     * DTO projections for a set of ids (unordered; callers restore their own order)
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query("SELECT " + Product.DTO_PROJECTION + " FROM Product p WHERE p.id IN :ids")
+    List<ProductDto> findDtosByIdIn(@Param("ids") Collection<Long> ids);
     
     /**
      * Find product by name
@@ -75,22 +119,6 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.quantity > 0 AND p.quantity < 10")
     List<Product> findLowStockProducts();
     
-    /**
-     * Custom query: Search products with filters
-     */
-    @Query("SELECT p FROM Product p WHERE " +
-           "(:name IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
-           "(:categoryId IS NULL OR p.category.id = :categoryId) AND " +
-           "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
-           "(:maxPrice IS NULL OR p.price <= :maxPrice)")
-    Page<Product> searchProducts(
-        @Param("name") String name,
-        @Param("categoryId") Long categoryId,
-        @Param("minPrice") BigDecimal minPrice,
-        @Param("maxPrice") BigDecimal maxPrice,
-        Pageable pageable
-    );
-    
     /**
      * Find top products by price
      */
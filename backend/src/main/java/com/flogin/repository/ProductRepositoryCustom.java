@@ -0,0 +1,134 @@
+package com.flogin.repository;
+
+import com.flogin.dto.ProductDto;
+import com.flogin.dto.ProductPatch;
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Custom queries for ProductRepository (implemented in ProductRepositoryImpl)
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Keyset (seek) page of DTO projections: at most limit products strictly after
+     * (afterValue, afterId) in (sort, id) order. afterId null = first page.
+     * Cost depends only on limit, not on how deep the page is.
+     */
+    List<Row> findDtoPageAfter(ProductSort sort, boolean descending, Object afterValue, Long afterId, int limit);
+
+    /**
+     * DTO projection by id plus its last modification time (updated_at, or created_at for rows
+     * never updated), the source of the product's ETag
+     */
+    Optional<Versioned> findVersionedDtoById(Long id);
+
+    /**
+     * Products created or updated strictly after (afterTime, afterId) in (updated_at, id) order,
+     * at most limit, each with its updated_at (delta sync). A range scan on idx_updated_at.
+     */
+    List<Versioned> findChangedAfter(LocalDateTime afterTime, Long afterId, int limit);
+
+    /**
+     * Search page of DTO projections. Only the filters present in criteria become predicates,
+     * each written so MySQL can range-scan its index (idx_name, idx_category, idx_price).
+     */
+    List<ProductDto> searchDtos(SearchCriteria criteria, int offset, int limit);
+
+    /**
+     * Forward-only scroll over the whole catalog for streaming export.
+     * Must be consumed inside a transaction and closed after use.
+     */
+    Stream<Product> streamAllOrderById();
+
+    /**
+     * Partial update in a single UPDATE statement: only the non-null fields of patch (category =
+     * the resolved reference for patch.categoryId) plus updated_at; version is incremented.
+     * expectedVersion non-null adds "AND version = :expectedVersion". Bypasses entity listeners.
+     *
+     * @return rows updated: 0 = no such product or version mismatch
+     */
+    int patch(Long id, ProductPatch patch, Category category, Long expectedVersion, LocalDateTime updatedAt);
+
+    /**
+     * Atomic stock change in a single conditional UPDATE, without reading the row first:
+     * quantity = quantity + delta only if the result stays within 0..Product.MAX_QUANTITY.
+     * Also bumps version and sets updated_at. Bypasses entity listeners.
+     *
+     * @return rows updated: 0 = no such product, or not enough stock / over the limit
+     */
+    int adjustStock(Long id, int delta, LocalDateTime updatedAt);
+
+    /**
+     * Delete one product with a single DELETE statement (nothing is loaded first).
+     * Bypasses entity listeners.
+     *
+     * @return rows deleted: 0 = no such product
+     */
+    int deleteRowById(Long id);
+
+    /**
+     * Set-based DELETE ... WHERE id IN (:ids). Bypasses entity listeners.
+     *
+     * @return rows deleted
+     */
+    int deleteRowsByIdIn(Collection<Long> ids);
+
+    /**
+     * The given products that exist, with the columns they contribute to the inventory statistics,
+     * locked (SELECT ... FOR UPDATE) so a following deleteRowsByIdIn removes exactly these values
+     */
+    List<Removal> lockForRemoval(Collection<Long> ids);
+
+    /**
+     * Next chunk of products matching a bulk-delete filter: at most limit with id > afterId
+     * (null = from the start) in id order, locked like lockForRemoval(ids).
+     * categoryId uses idx_category, createdBefore alone uses idx_created_at.
+     */
+    List<Removal> lockForRemoval(DeleteCriteria criteria, Long afterId, int limit);
+
+    /**
+     * A projected product plus its sort key value (the seek position for the next page)
+     */
+    record Row(ProductDto product, Object sortValue) {
+    }
+
+    /**
+     * A product about to be deleted and the columns it contributes to the inventory statistics
+     */
+    record Removal(Long id, Long categoryId, BigDecimal price, Integer quantity) {
+    }
+
+    /**
+     * A projected product plus the time it was last modified
+     */
+    record Versioned(ProductDto product, LocalDateTime updatedAt) {
+    }
+
+    /**
+     * Search filters; null (or blank namePrefix) = filter not supplied
+     */
+    record SearchCriteria(String namePrefix, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice) {
+
+        public boolean hasName() {
+            return namePrefix != null && !namePrefix.isBlank();
+        }
+    }
+
+    /**
+     * Bulk-delete filters; null = filter not supplied (at least one is required)
+     */
+    record DeleteCriteria(Long categoryId, LocalDateTime createdBefore) {
+
+        public boolean isEmpty() {
+            return categoryId == null && createdBefore == null;
+        }
+    }
+}
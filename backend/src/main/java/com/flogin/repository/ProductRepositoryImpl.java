@@ -0,0 +1,325 @@
+package com.flogin.repository;
+
+import com.flogin.dto.ProductDto;
+import com.flogin.dto.ProductPatch;
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.Query;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Keyset pagination for products.
+ * WHERE key > :v OR (key = :v AND id > :id) ORDER BY key, id lets MySQL seek
+ * into idx_price / idx_name / idx_created_at (InnoDB appends the primary key
+ * to every secondary index) instead of scanning and discarding OFFSET rows.
+ * Rows are projected straight into ProductDto, so nothing enters the persistence context.
+ *
+ * Search builds its WHERE clause from the supplied filters only: a "(:x IS NULL OR ...)" predicate
+ * or LOWER(name) LIKE '%x%' hides the column from the optimizer and forces a full scan.
+ *
+ * The export scroll picks its fetch size per query instead of relying on useCursorFetch=true
+ * in the JDBC URL (which would switch every statement to server-side cursors): Connector/J
+ * streams a result set row by row only when the fetch size is Integer.MIN_VALUE.
+ *
+ * PATCH writes only the supplied columns in one UPDATE guarded by the version column
+ * (UPDATE ... WHERE id = :id AND version = :v), instead of loading the entity first.
+ *
+ * Deletes are set-based DELETE statements; bulk deletes first lock the chunk they are about to
+ * remove to learn the ids and inventory columns (tombstones, statistics) without loading entities.
+ */
+class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    private static final String REMOVAL_SELECT = "SELECT p.id, p.category.id, p.price, p.quantity FROM Product p";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Row> findDtoPageAfter(ProductSort sort, boolean descending, Object afterValue, Long afterId,
+                                      int limit) {
+        String key = "p." + sort.getProperty();
+        String comparison = descending ? " < " : " > ";
+        String order = descending ? " DESC" : " ASC";
+
+        StringBuilder jpql = new StringBuilder("SELECT ").append(Product.DTO_PROJECTION).append(", ").append(key)
+                .append(" FROM Product p");
+        if (afterId != null) {
+            if (sort == ProductSort.ID) {
+                jpql.append(" WHERE p.id").append(comparison).append(":afterId");
+            } else {
+                jpql.append(" WHERE ").append(key).append(comparison).append(":afterValue")
+                        .append(" OR (").append(key).append(" = :afterValue AND p.id")
+                        .append(comparison).append(":afterId)");
+            }
+        }
+        jpql.append(" ORDER BY ").append(key).append(order);
+        if (sort != ProductSort.ID) {
+            jpql.append(", p.id").append(order);
+        }
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class)
+                .setFlushMode(FlushModeType.COMMIT)
+                .setMaxResults(limit);
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+            if (sort != ProductSort.ID) {
+                query.setParameter("afterValue", afterValue);
+            }
+        }
+        List<Object[]> tuples = query.getResultList();
+        List<Row> rows = new ArrayList<>(tuples.size());
+        for (Object[] tuple : tuples) {
+            rows.add(new Row((ProductDto) tuple[0], tuple[1]));
+        }
+        return rows;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Versioned> findVersionedDtoById(Long id) {
+        List<Object[]> tuples = entityManager.createQuery("SELECT " + Product.DTO_PROJECTION
+                        + ", COALESCE(p.updatedAt, p.createdAt) FROM Product p WHERE p.id = :id", Object[].class)
+                .setFlushMode(FlushModeType.COMMIT)
+                .setParameter("id", id)
+                .getResultList();
+        return tuples.stream().findFirst()
+                .map(tuple -> new Versioned((ProductDto) tuple[0], (LocalDateTime) tuple[1]));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Versioned> findChangedAfter(LocalDateTime afterTime, Long afterId, int limit) {
+        List<Object[]> tuples = entityManager.createQuery("SELECT " + Product.DTO_PROJECTION + ", p.updatedAt"
+                        + " FROM Product p WHERE p.updatedAt > :afterTime"
+                        + " OR (p.updatedAt = :afterTime AND p.id > :afterId)"
+                        + " ORDER BY p.updatedAt, p.id", Object[].class)
+                .setFlushMode(FlushModeType.COMMIT)
+                .setParameter("afterTime", afterTime)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+        List<Versioned> changed = new ArrayList<>(tuples.size());
+        for (Object[] tuple : tuples) {
+            changed.add(new Versioned((ProductDto) tuple[0], (LocalDateTime) tuple[1]));
+        }
+        return changed;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductDto> searchDtos(SearchCriteria criteria, int offset, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT ").append(Product.DTO_PROJECTION).append(" FROM Product p");
+        String separator = " WHERE ";
+        if (criteria.hasName()) {
+            // Prefix LIKE là range scan trên idx_name; collation *_ci của MySQL đã không phân biệt hoa thường
+            jpql.append(separator).append("p.name LIKE :namePrefix ESCAPE '!'");
+            separator = " AND ";
+        }
+        if (criteria.categoryId() != null) {
+            jpql.append(separator).append("p.category.id = :categoryId");
+            separator = " AND ";
+        }
+        if (criteria.minPrice() != null) {
+            jpql.append(separator).append("p.price >= :minPrice");
+            separator = " AND ";
+        }
+        if (criteria.maxPrice() != null) {
+            jpql.append(separator).append("p.price <= :maxPrice");
+        }
+        // Sắp xếp theo cột của index đang lọc (InnoDB nối khóa chính vào mọi secondary index)
+        // để index vừa lọc vừa trả đúng thứ tự, không cần filesort
+        if (criteria.hasName()) {
+            jpql.append(" ORDER BY p.name, p.id");
+        } else if (criteria.minPrice() != null || criteria.maxPrice() != null) {
+            jpql.append(" ORDER BY p.price, p.id");
+        } else {
+            jpql.append(" ORDER BY p.id");
+        }
+
+        TypedQuery<ProductDto> query = entityManager.createQuery(jpql.toString(), ProductDto.class)
+                .setFlushMode(FlushModeType.COMMIT)
+                .setFirstResult(offset)
+                .setMaxResults(limit);
+        if (criteria.hasName()) {
+            query.setParameter("namePrefix", escapeLike(criteria.namePrefix().trim()) + "%");
+        }
+        if (criteria.categoryId() != null) {
+            query.setParameter("categoryId", criteria.categoryId());
+        }
+        if (criteria.minPrice() != null) {
+            query.setParameter("minPrice", criteria.minPrice());
+        }
+        if (criteria.maxPrice() != null) {
+            query.setParameter("maxPrice", criteria.maxPrice());
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * '!' làm ký tự escape: '\' trong literal SQL bị MySQL hiểu là escape của chính chuỗi
+     */
+    static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    @Override
+    public Stream<Product> streamAllOrderById() {
+        Dialect dialect = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect();
+        return entityManager.createQuery("SELECT p FROM Product p ORDER BY p.id", Product.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, exportFetchSize(dialect))
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    static int exportFetchSize(Dialect dialect) {
+        return dialect instanceof MySQLDialect ? Integer.MIN_VALUE : ProductRepository.EXPORT_FETCH_SIZE;
+    }
+
+    @Override
+    @Transactional
+    public int patch(Long id, ProductPatch patch, Category category, Long expectedVersion, LocalDateTime updatedAt) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (patch.ten() != null) {
+            values.put("name", patch.ten());
+        }
+        if (patch.gia() != null) {
+            values.put("price", patch.gia());
+        }
+        if (patch.soLuong() != null) {
+            values.put("quantity", patch.soLuong());
+        }
+        if (patch.moTa() != null) {
+            values.put("description", patch.moTa());
+        }
+        if (category != null) {
+            values.put("category", category);
+        }
+
+        StringBuilder jpql = new StringBuilder("UPDATE Product p SET");
+        values.keySet().forEach(field -> jpql.append(" p.").append(field).append(" = :").append(field).append(','));
+        jpql.append(" p.updatedAt = :updatedAt, p.version = p.version + 1 WHERE p.id = :id");
+        if (expectedVersion != null) {
+            jpql.append(" AND p.version = :expectedVersion");
+        }
+
+        Query query = entityManager.createQuery(jpql.toString())
+                .setParameter("updatedAt", updatedAt)
+                .setParameter("id", id);
+        values.forEach(query::setParameter);
+        if (expectedVersion != null) {
+            query.setParameter("expectedVersion", expectedVersion);
+        }
+        return query.executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public int adjustStock(Long id, int delta, LocalDateTime updatedAt) {
+        // Điều kiện nằm trong WHERE nên hai request đồng thời không thể cùng thấy đủ hàng:
+        // request sau chờ khóa dòng rồi đánh giá lại điều kiện trên giá trị đã commit
+        String bound = delta < 0 ? " AND p.quantity >= :amount" : " AND p.quantity <= :limit";
+        Query query = entityManager.createQuery("UPDATE Product p SET p.quantity = p.quantity + :delta,"
+                        + " p.updatedAt = :updatedAt, p.version = p.version + 1 WHERE p.id = :id" + bound)
+                .setParameter("delta", delta)
+                .setParameter("updatedAt", updatedAt)
+                .setParameter("id", id);
+        if (delta < 0) {
+            query.setParameter("amount", -delta);
+        } else {
+            query.setParameter("limit", Product.MAX_QUANTITY - delta);
+        }
+        return query.executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public int deleteRowById(Long id) {
+        return entityManager.createQuery("DELETE FROM Product p WHERE p.id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public int deleteRowsByIdIn(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createQuery("DELETE FROM Product p WHERE p.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    @Override
+    public List<Removal> lockForRemoval(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return toRemovals(entityManager.createQuery(REMOVAL_SELECT + " WHERE p.id IN :ids ORDER BY p.id",
+                        Object[].class)
+                .setParameter("ids", ids)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList());
+    }
+
+    @Override
+    public List<Removal> lockForRemoval(DeleteCriteria criteria, Long afterId, int limit) {
+        StringBuilder jpql = new StringBuilder(REMOVAL_SELECT);
+        String separator = " WHERE ";
+        if (criteria.categoryId() != null) {
+            jpql.append(separator).append("p.category.id = :categoryId");
+            separator = " AND ";
+        }
+        if (criteria.createdBefore() != null) {
+            jpql.append(separator).append("p.createdAt < :createdBefore");
+            separator = " AND ";
+        }
+        if (afterId != null) {
+            jpql.append(separator).append("p.id > :afterId");
+        }
+        jpql.append(" ORDER BY p.id");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class)
+                .setMaxResults(limit)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        if (criteria.categoryId() != null) {
+            query.setParameter("categoryId", criteria.categoryId());
+        }
+        if (criteria.createdBefore() != null) {
+            query.setParameter("createdBefore", criteria.createdBefore());
+        }
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+        }
+        return toRemovals(query.getResultList());
+    }
+
+    private static List<Removal> toRemovals(List<Object[]> tuples) {
+        List<Removal> removals = new ArrayList<>(tuples.size());
+        for (Object[] tuple : tuples) {
+            removals.add(new Removal((Long) tuple[0], (Long) tuple[1], (BigDecimal) tuple[2], (Integer) tuple[3]));
+        }
+        return removals;
+    }
+}
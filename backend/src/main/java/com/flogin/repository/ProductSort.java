@@ -0,0 +1,65 @@
+package com.flogin.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Sort keys supported by product pagination.
+ * Every key is backed by an index (PRIMARY, idx_created_at, idx_price, idx_name)
+ * and ties are broken by id, so (key, id) is a unique, stable order.
+ */
+public enum ProductSort {
+    ID("id", "id"),
+    CREATED_AT("created_at", "createdAt"),
+    PRICE("price", "price"),
+    NAME("name", "name");
+
+    private final String key;
+    private final String property;
+
+    ProductSort(String key, String property) {
+        this.key = key;
+        this.property = property;
+    }
+
+    /**
+     * Key used in the API (?sort=created_at)
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Entity property used in JPQL / Spring Data Sort
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    public static ProductSort fromKey(String key) {
+        if (key == null || key.isBlank()) {
+            return ID;
+        }
+        String normalized = key.trim().toLowerCase(Locale.ROOT);
+        for (ProductSort sort : values()) {
+            if (sort.key.equals(normalized) || sort.property.toLowerCase(Locale.ROOT).equals(normalized)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Không hỗ trợ sắp xếp theo: " + key);
+    }
+
+    public String format(Object value) {
+        return value instanceof BigDecimal decimal ? decimal.toPlainString() : String.valueOf(value);
+    }
+
+    public Object parse(String value) {
+        return switch (this) {
+            case ID -> Long.valueOf(value);
+            case CREATED_AT -> LocalDateTime.parse(value);
+            case PRICE -> new BigDecimal(value);
+            case NAME -> value;
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package com.flogin.repository;
+
+import com.flogin.entity.ProductTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProductTombstoneRepository extends JpaRepository<ProductTombstone, Long> {
+
+    /**
+     * Keyset page of deletions strictly after (afterTime, afterId) in (deleted_at, product_id) order;
+     * a range scan on idx_deleted_at (InnoDB appends the primary key to it)
+     */
+    @Query("SELECT t FROM ProductTombstone t WHERE t.deletedAt > :afterTime " +
+           "OR (t.deletedAt = :afterTime AND t.productId > :afterId) " +
+           "ORDER BY t.deletedAt, t.productId")
+    List<ProductTombstone> findAfter(
+        @Param("afterTime") LocalDateTime afterTime,
+        @Param("afterId") Long afterId,
+        Pageable pageable
+    );
+
+    /**
+     * Purge deletions older than the retention cutoff
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ProductTombstone t WHERE t.deletedAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,10 +1,16 @@
 package com.flogin.repository;
 
 import com.flogin.entity.User;
+import com.flogin.security.UserCredentials;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -18,6 +24,19 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     Optional<User> findByUsername(String username);
     
+    /**
+     * Credential-only projection for login: no managed entity, no dirty-check snapshot,
+     * no lazy collection wrappers.
+     * JPQL lives in @NamedQuery on User so it is compiled once at startup
+     * instead of being re-processed by @Query on every call.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
+    Optional<UserCredentials> findCredentialsByUsername(@Param("username") String username);
+    
     /**
      * Find user by email
      */
@@ -53,4 +72,14 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.products WHERE u.isActive = true")
     List<User> findActiveUsersWithProducts();
-}
\ No newline at end of file
+    
+    /**
+     * Replace the password hash only if it is still oldHash (used for rehash-on-login).
+     * Returns 0 when the password changed in the meantime or another login already
+     * rehashed it; callers ignore that case instead of overwriting the newer hash.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.id = :id AND u.password = :oldHash")
+    int updatePassword(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("password") String password);
+}
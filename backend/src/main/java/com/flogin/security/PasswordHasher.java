@@ -0,0 +1,169 @@
+package com.flogin.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * =========================================================================================
+ * BĂM / XÁC MINH MẬT KHẨU BCRYPT TRÊN POOL RIÊNG (BOUNDED BCRYPT EXECUTOR)
+ * =========================================================================================
+ * - BCrypt tốn hàng chục ms CPU mỗi lần; chạy trên pool cố định = số CPU để không chiếm
+ *   hết thread Tomcat và làm chậm các API sản phẩm.
+ * - Hàng đợi có giới hạn: khi đầy ném ServiceBusyException ngay (controller trả 503).
+ * - Mật khẩu cũ lưu dạng plain text (dữ liệu seed) vẫn đăng nhập được và sẽ được
+ *   băm lại; hash có cost khác cấu hình hiện tại cũng được băm lại sau khi đăng nhập.
+ * =========================================================================================
+ */
+@Component
+public class PasswordHasher {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHasher.class);
+
+    private final BCryptPasswordEncoder encoder;
+    private final int cost;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    @Autowired
+    public PasswordHasher(@Value("${app.auth.password.bcrypt-cost:10}") int cost,
+                          @Value("${app.auth.password.pool-size:0}") int poolSize,
+                          @Value("${app.auth.password.queue-capacity:64}") int queueCapacity,
+                          @Value("${app.auth.password.timeout-ms:5000}") long timeoutMillis,
+                          MeterRegistry meterRegistry) {
+        this(cost, poolSize, queueCapacity, timeoutMillis);
+        meterRegistry.gauge("flogin.password.queue.depth", executor, e -> e.getQueue().size());
+        meterRegistry.gauge("flogin.password.active", executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    public PasswordHasher(int cost, int poolSize, int queueCapacity, long timeoutMillis) {
+        this.cost = cost;
+        this.encoder = new BCryptPasswordEncoder(cost);
+        this.timeoutMillis = timeoutMillis;
+
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new HasherThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Băm mật khẩu với cost hiện tại (chạy trên pool BCrypt)
+     */
+    public String hash(String rawPassword) {
+        return await(() -> encoder.encode(rawPassword));
+    }
+
+    /**
+     * So khớp mật khẩu người dùng nhập với giá trị đã lưu (chạy trên pool BCrypt)
+     *
+     * @throws ServiceBusyException khi pool quá tải
+     */
+    public boolean matches(String rawPassword, String storedPassword) {
+        if (rawPassword == null || storedPassword == null) {
+            return false;
+        }
+        if (!isBcryptHash(storedPassword)) {
+            // Dữ liệu cũ chưa băm: so sánh thời gian hằng, không cần lên pool
+            return MessageDigest.isEqual(
+                    rawPassword.getBytes(StandardCharsets.UTF_8),
+                    storedPassword.getBytes(StandardCharsets.UTF_8));
+        }
+        return await(() -> encoder.matches(rawPassword, storedPassword));
+    }
+
+    /**
+     * Giá trị đã lưu có cần băm lại không (plain text hoặc cost khác cấu hình)
+     */
+    public boolean needsRehash(String storedPassword) {
+        if (storedPassword == null || !isBcryptHash(storedPassword)) {
+            return true;
+        }
+        return parseCost(storedPassword) != cost;
+    }
+
+    /**
+     * Băm lại nền sau khi đăng nhập thành công; bỏ qua nếu pool đang bận
+     */
+    public void rehashAsync(String rawPassword, Consumer<String> onHashed) {
+        try {
+            executor.execute(() -> {
+                try {
+                    onHashed.accept(encoder.encode(rawPassword));
+                } catch (RuntimeException e) {
+                    log.warn("Không cập nhật được hash mật khẩu: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Lần đăng nhập sau sẽ thử lại
+        }
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    private <T> T await(java.util.concurrent.Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceBusyException("Hệ thống đang bận, vui lòng thử lại sau!");
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ServiceBusyException("Hệ thống đang bận, vui lòng thử lại sau!");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Hệ thống đang bận, vui lòng thử lại sau!");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Lỗi khi xử lý mật khẩu", e.getCause());
+        }
+    }
+
+    static boolean isBcryptHash(String value) {
+        return value.length() == 60 && value.charAt(0) == '$' && value.charAt(1) == '2'
+                && value.charAt(3) == '$' && value.charAt(6) == '$';
+    }
+
+    private static int parseCost(String hash) {
+        return (hash.charAt(4) - '0') * 10 + (hash.charAt(5) - '0');
+    }
+
+    private static final class HasherThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "bcrypt-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
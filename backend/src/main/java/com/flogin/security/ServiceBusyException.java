@@ -0,0 +1,11 @@
+package com.flogin.security;
+
+/**
+ * Ném ra khi tài nguyên xử lý (ví dụ pool BCrypt) đã quá tải; được map sang HTTP 503
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
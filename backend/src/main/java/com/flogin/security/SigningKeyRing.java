@@ -0,0 +1,147 @@
+package com.flogin.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * =========================================================================================
+ * VÒNG KHÓA KÝ TOKEN (SIGNING KEY RING)
+ * =========================================================================================
+ * - Mỗi khoảng thời gian (rotation period) dùng một khóa HMAC riêng, định danh bằng kid.
+ * - Khóa được dẫn xuất từ secret chung: HMAC(secret, "flogin-token-key:" + kid), nên mọi
+ *   node có cùng secret tự tính ra cùng khóa mà không cần chia sẻ trạng thái hay truy vấn DB.
+ * - Giữ lại vài khóa cũ để token phát hành trước khi xoay khóa vẫn xác minh được.
+ * =========================================================================================
+ */
+@Component
+public class SigningKeyRing {
+
+    static final String ALGORITHM = "HmacSHA256";
+
+    private final byte[] masterSecret;
+    private final long rotationMillis;
+    private final int retainedKeys;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<Long, SigningKey> keys = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SigningKeyRing(@Value("${app.auth.token.secret:}") String secret,
+                          @Value("${app.auth.token.rotation-seconds:21600}") long rotationSeconds,
+                          @Value("${app.auth.token.retained-keys:2}") int retainedKeys) {
+        this(secret, rotationSeconds, retainedKeys, System::currentTimeMillis);
+    }
+
+    SigningKeyRing(String secret, long rotationSeconds, int retainedKeys, LongSupplier clock) {
+        if (rotationSeconds <= 0) {
+            throw new IllegalArgumentException("Rotation period must be positive");
+        }
+        // Không cấu hình secret -> sinh ngẫu nhiên (chỉ phù hợp khi chạy 1 node)
+        this.masterSecret = (secret == null || secret.isBlank())
+                ? randomSecret()
+                : secret.getBytes(StandardCharsets.UTF_8);
+        this.rotationMillis = rotationSeconds * 1000L;
+        this.retainedKeys = Math.max(0, retainedKeys);
+        this.clock = clock;
+    }
+
+    /**
+     * Khóa đang hoạt động, dùng để ký token mới
+     */
+    public SigningKey currentKey() {
+        long kid = currentKid();
+        SigningKey key = keys.get(kid);
+        if (key == null) {
+            key = keys.computeIfAbsent(kid, this::deriveKey);
+            // Vừa sang chu kỳ mới: loại bỏ các khóa đã quá hạn giữ lại
+            keys.keySet().removeIf(k -> k < kid - retainedKeys);
+        }
+        return key;
+    }
+
+    /**
+     * Khóa theo kid trong token, null nếu kid nằm ngoài cửa sổ còn hiệu lực
+     */
+    public SigningKey keyFor(long kid) {
+        long current = currentKid();
+        if (kid > current || kid < current - retainedKeys) {
+            return null;
+        }
+        SigningKey key = keys.get(kid);
+        return key != null ? key : keys.computeIfAbsent(kid, this::deriveKey);
+    }
+
+    long currentKid() {
+        return clock.getAsLong() / rotationMillis;
+    }
+
+    private SigningKey deriveKey(long kid) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(masterSecret, ALGORITHM));
+            byte[] material = mac.doFinal(("flogin-token-key:" + kid).getBytes(StandardCharsets.UTF_8));
+            return new SigningKey(kid, new SecretKeySpec(material, ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Không thể tạo khóa ký token", e);
+        }
+    }
+
+    private static byte[] randomSecret() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Một khóa HMAC; các instance Mac đã init được tái sử dụng qua một pool nhỏ.
+     * Không dùng ThreadLocal: với virtual thread mỗi request là một thread mới nên
+     * ThreadLocal sẽ khởi tạo lại Mac ở mọi lần ký.
+     */
+    public static final class SigningKey {
+
+        private static final int MAX_POOLED_MACS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+        private final long kid;
+        private final SecretKeySpec spec;
+        private final ArrayBlockingQueue<Mac> macs = new ArrayBlockingQueue<>(MAX_POOLED_MACS);
+
+        SigningKey(long kid, SecretKeySpec spec) {
+            this.kid = kid;
+            this.spec = spec;
+        }
+
+        public long getKid() {
+            return kid;
+        }
+
+        public byte[] sign(byte[] data) {
+            Mac mac = macs.poll();
+            if (mac == null) {
+                mac = newMac();
+            }
+            // doFinal tự reset Mac nên có thể trả lại pool cho lần ký kế tiếp
+            byte[] signature = mac.doFinal(data);
+            macs.offer(mac);
+            return signature;
+        }
+
+        private Mac newMac() {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(spec);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Không thể khởi tạo HMAC", e);
+            }
+        }
+    }
+}
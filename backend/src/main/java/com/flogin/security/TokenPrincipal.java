@@ -0,0 +1,9 @@
+package com.flogin.security;
+
+import com.flogin.entity.User;
+
+/**
+ * Thông tin người dùng được giải mã từ token đã xác minh chữ ký
+ */
+public record TokenPrincipal(Long userId, String username, User.Role role, long expiresAt) {
+}
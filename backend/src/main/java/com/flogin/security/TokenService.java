@@ -0,0 +1,117 @@
+package com.flogin.security;
+
+import com.flogin.entity.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * =========================================================================================
+ * DỊCH VỤ TOKEN PHIÊN ĐĂNG NHẬP (SIGNED SESSION TOKEN)
+ * =========================================================================================
+ * Định dạng: {kid}.{base64url(payload)}.{base64url(HMAC-SHA256)}
+ * payload  : {userId}:{role}:{expEpochSeconds}:{username}
+ *
+ * - Token tự chứa thông tin, node nào có cùng secret cũng xác minh được tại chỗ
+ *   (không cần session store, không truy vấn DB hay cache).
+ * - So sánh chữ ký bằng MessageDigest.isEqual để tránh timing attack.
+ * =========================================================================================
+ */
+@Service
+public class TokenService {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SigningKeyRing keyRing;
+    private final long ttlSeconds;
+    private final LongSupplier clock;
+
+    @Autowired
+    public TokenService(SigningKeyRing keyRing,
+                        @Value("${app.auth.token.ttl-seconds:3600}") long ttlSeconds) {
+        this(keyRing, ttlSeconds, System::currentTimeMillis);
+    }
+
+    TokenService(SigningKeyRing keyRing, long ttlSeconds, LongSupplier clock) {
+        this.keyRing = keyRing;
+        this.ttlSeconds = ttlSeconds;
+        this.clock = clock;
+    }
+
+    /**
+     * Phát hành token cho người dùng đã xác thực thành công
+     */
+    public String issueToken(Long userId, String username, User.Role role) {
+        long expiresAt = clock.getAsLong() / 1000L + ttlSeconds;
+        String payload = (userId != null ? userId : "") + ":"
+                + (role != null ? role.name() : "") + ":"
+                + expiresAt + ":"
+                + username;
+
+        SigningKeyRing.SigningKey key = keyRing.currentKey();
+        String signingInput = key.getKid() + "." + ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        byte[] signature = key.sign(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + "." + ENCODER.encodeToString(signature);
+    }
+
+    /**
+     * Xác minh chữ ký và hạn dùng của token.
+     *
+     * @return principal nếu token hợp lệ, Optional.empty() nếu sai định dạng, sai chữ ký hoặc hết hạn
+     */
+    public Optional<TokenPrincipal> verify(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot <= firstDot + 1 || lastDot == token.length() - 1) {
+            return Optional.empty();
+        }
+
+        try {
+            long kid = Long.parseLong(token, 0, firstDot, 10);
+            SigningKeyRing.SigningKey key = keyRing.keyFor(kid);
+            if (key == null) {
+                return Optional.empty();
+            }
+
+            byte[] expected = key.sign(token.substring(0, lastDot).getBytes(StandardCharsets.US_ASCII));
+            byte[] actual = DECODER.decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(expected, actual)) {
+                return Optional.empty();
+            }
+
+            String payload = new String(DECODER.decode(token.substring(firstDot + 1, lastDot)), StandardCharsets.UTF_8);
+            return parsePayload(payload);
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException / Base64 không hợp lệ
+            return Optional.empty();
+        }
+    }
+
+    private Optional<TokenPrincipal> parsePayload(String payload) {
+        int p1 = payload.indexOf(':');
+        int p2 = payload.indexOf(':', p1 + 1);
+        int p3 = payload.indexOf(':', p2 + 1);
+        if (p1 < 0 || p2 < 0 || p3 < 0) {
+            return Optional.empty();
+        }
+
+        long expiresAt = Long.parseLong(payload, p2 + 1, p3, 10);
+        if (expiresAt <= clock.getAsLong() / 1000L) {
+            return Optional.empty();
+        }
+
+        Long userId = p1 == 0 ? null : Long.parseLong(payload, 0, p1, 10);
+        User.Role role = p2 == p1 + 1 ? null : User.Role.valueOf(payload.substring(p1 + 1, p2));
+        return Optional.of(new TokenPrincipal(userId, payload.substring(p3 + 1), role, expiresAt));
+    }
+}
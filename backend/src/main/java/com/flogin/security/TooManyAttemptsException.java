@@ -0,0 +1,18 @@
+package com.flogin.security;
+
+/**
+ * Ném ra khi username hoặc IP đã sai quá số lần cho phép trong cửa sổ thời gian; được map sang HTTP 429
+ */
+public class TooManyAttemptsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyAttemptsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,26 @@
+package com.flogin.security;
+
+import com.flogin.entity.User;
+
+/**
+ * Các trường cần cho đăng nhập, tách khỏi entity User (không giữ collection lazy, không gắn Session)
+ */
+public record UserCredentials(Long id, String username, String passwordHash, User.Role role, boolean active) {
+
+    public static UserCredentials from(User user) {
+        return new UserCredentials(user.getId(), user.getUsername(), user.getPassword(),
+                user.getRole(), user.isActive());
+    }
+
+    /**
+     * User chỉ có id/username/role, đủ để ghi login_history mà không cần nạp lại entity
+     */
+    public User toUserReference() {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setRole(role);
+        user.setIsActive(active);
+        return user;
+    }
+}
@@ -2,10 +2,19 @@ package com.flogin.service;
 
 import com.flogin.dto.LoginRequest;
 import com.flogin.dto.LoginResponse;
-import com.flogin.entity.User;
+import com.flogin.entity.LoginHistory;
 import com.flogin.repository.UserRepository;
+import com.flogin.security.PasswordHasher;
+import com.flogin.security.TokenService;
+import com.flogin.security.TooManyAttemptsException;
+import com.flogin.security.UserCredentials;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import java.util.Optional;
 
 @Service
@@ -14,29 +23,105 @@ public class AuthService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private LoginHistoryWriter loginHistoryWriter;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private UsernameBloomFilter usernameBloomFilter;
+
+    @Autowired
+    private CredentialCache credentialCache;
+
+    @Autowired
+    private LoginAttemptTracker loginAttemptTracker;
+
     public LoginResponse authenticate(LoginRequest request) {
-        // 1. Tìm user trong database
-        Optional<User> userOptional = userRepository.findByUsername(request.username());
+        HttpServletRequest httpRequest = currentHttpRequest();
+        String ipAddress = httpRequest != null ? httpRequest.getRemoteAddr() : null;
+        String userAgent = httpRequest != null ? httpRequest.getHeader(HttpHeaders.USER_AGENT) : null;
 
-        if (userOptional.isEmpty()) {
-            throw new RuntimeException("Sai tên tài khoản hoặc mật khẩu!");
+        // 0. Username hoặc IP đã sai quá nhiều lần -> từ chối trước khi chạm DB hay BCrypt
+        long retryAfterSeconds = loginAttemptTracker.retryAfterSeconds(request.username(), ipAddress);
+        if (retryAfterSeconds > 0) {
+            loginHistoryWriter.record(LoginHistory.createFailureHistory(
+                    request.username(), ipAddress, userAgent, LoginHistory.FailureReason.TOO_MANY_ATTEMPTS));
+            throw new TooManyAttemptsException(
+                    "Bạn đã đăng nhập sai quá nhiều lần, vui lòng thử lại sau!", retryAfterSeconds);
         }
 
-        User user = userOptional.get();
+        // 1. Tìm user: cache credentials trước, sau đó Bloom filter loại username chắc chắn
+        //    không tồn tại, cuối cùng mới truy vấn database
+        UserCredentials user = credentialCache.get(request.username());
+        if (user == null) {
+            long loadToken = credentialCache.beginLoad();
+            // Projection chỉ lấy các cột cần cho đăng nhập, không nạp entity vào persistence context
+            Optional<UserCredentials> credentials = usernameBloomFilter.mightContain(request.username())
+                    ? userRepository.findCredentialsByUsername(request.username())
+                    : Optional.empty();
+
+            if (credentials.isEmpty()) {
+                loginHistoryWriter.record(LoginHistory.createFailureHistory(
+                        request.username(), ipAddress, userAgent, LoginHistory.FailureReason.USERNAME_NOT_FOUND));
+                loginAttemptTracker.recordFailure(request.username(), ipAddress);
+                throw new RuntimeException("Sai tên tài khoản hoặc mật khẩu!");
+            }
+            user = credentials.get();
+            credentialCache.put(request.username(), user, loadToken);
+        }
 
-        // 2. KIỂM TRA MẬT KHẨU
-        if (!user.getPassword().equals(request.password())) {
+        // 2. KIỂM TRA MẬT KHẨU (BCrypt chạy trên pool riêng, quá tải -> ServiceBusyException)
+        if (!passwordHasher.matches(request.password(), user.passwordHash())) {
+            loginHistoryWriter.record(LoginHistory.createFailureHistory(
+                    request.username(), ipAddress, userAgent, LoginHistory.FailureReason.INVALID_PASSWORD));
+            loginAttemptTracker.recordFailure(request.username(), ipAddress);
             throw new RuntimeException("Sai tên tài khoản hoặc mật khẩu!");
         }
 
         // 3. THÊM BƯỚC KIỂM TRA NÀY
-        // (Sử dụng hàm isActive() từ file User.java của bạn)
-        if (!user.isActive()) {
+        // (Sử dụng trường active của UserCredentials, lấy từ isActive() trong User.java)
+        if (!user.active()) {
+            loginHistoryWriter.record(LoginHistory.createFailureHistory(
+                    request.username(), ipAddress, userAgent, LoginHistory.FailureReason.ACCOUNT_DISABLED));
             throw new RuntimeException("Tài khoản của bạn đã bị khóa!");
         }
 
-        // 4. Tạo token nếu mọi thứ đều ổn
-        String token = "dummy-token-for-" + user.getUsername();
+        // Mật khẩu còn plain text hoặc cost cũ -> băm lại nền, không làm chậm lần đăng nhập này
+        if (passwordHasher.needsRehash(user.passwordHash())) {
+            Long userId = user.id();
+            String username = user.username();
+            String oldHash = user.passwordHash();
+            passwordHasher.rehashAsync(request.password(), hash -> {
+                // Chỉ thay khi hash chưa đổi: mật khẩu vừa được đổi hoặc lần đăng nhập khác đã băm lại
+                // thì 0 dòng được cập nhật và bỏ qua, không ghi đè bằng mật khẩu cũ
+                if (userRepository.updatePassword(userId, oldHash, hash) > 0) {
+                    // UPDATE JPQL không kích hoạt entity listener -> tự xóa cache
+                    credentialCache.invalidate(userId, username);
+                }
+            });
+        }
+
+        // 4. Tạo token ký HMAC nếu mọi thứ đều ổn
+        loginAttemptTracker.recordSuccess(request.username());
+        String token = tokenService.issueToken(user.id(), user.username(), user.role());
+        // Ghi lịch sử bất đồng bộ, không chờ INSERT trên luồng đăng nhập
+        loginHistoryWriter.record(LoginHistory.createSuccessHistory(user.toUserReference(), ipAddress, userAgent));
         return new LoginResponse("Đăng nhập thành công", token);
     }
-}
\ No newline at end of file
+
+    /**
+     * Lấy HTTP request hiện tại (nếu được gọi từ controller) để ghi IP và User-Agent
+     */
+    private static HttpServletRequest currentHttpRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            return servletAttributes.getRequest();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,61 @@
+package com.flogin.service;
+
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import static com.flogin.util.TransactionCallbacks.afterCommit;
+
+/**
+ * JPA listener cho Product và Category:
+ * - Vô hiệu hóa version trong CatalogVersions sau khi INSERT/UPDATE/DELETE commit, để ETag cũ
+ *   không còn khớp (vô hiệu hóa lúc flush thì request đồng thời vẫn đọc được dòng cũ đã commit
+ *   và ghi nhận lại version cũ)
+ * - Category được tạo/xóa -> cập nhật ReferenceIdIndex sau commit (tạo sản phẩm không cần SELECT category)
+ * - Rollback -> không làm gì, ETag đang phát vẫn đúng
+ * - Gắn vào Product/Category qua META-INF/orm.xml: entity không phụ thuộc tầng service
+ */
+@Component
+public class CatalogEntityListener {
+
+    private final ObjectProvider<CatalogVersions> catalogVersions;
+    private final ObjectProvider<ReferenceIdIndex> referenceIdIndex;
+
+    public CatalogEntityListener(ObjectProvider<CatalogVersions> catalogVersions,
+                                 ObjectProvider<ReferenceIdIndex> referenceIdIndex) {
+        this.catalogVersions = catalogVersions;
+        this.referenceIdIndex = referenceIdIndex;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onChanged(Object entity) {
+        if (entity instanceof Product product) {
+            Long productId = product.getId();
+            afterCommit(() -> catalogVersions.ifAvailable(versions -> versions.productChanged(productId)));
+        } else {
+            Long categoryId = entity instanceof Category category ? category.getId() : null;
+            afterCommit(() -> {
+                catalogVersions.ifAvailable(CatalogVersions::catalogChanged);
+                referenceIdIndex.ifAvailable(index -> index.categorySaved(categoryId));
+            });
+        }
+    }
+
+    @PostRemove
+    public void onRemoved(Object entity) {
+        if (entity instanceof Product product) {
+            onChanged(product);
+            return;
+        }
+        Long categoryId = entity instanceof Category category ? category.getId() : null;
+        afterCommit(() -> {
+            catalogVersions.ifAvailable(CatalogVersions::catalogChanged);
+            referenceIdIndex.ifAvailable(index -> index.categoryRemoved(categoryId));
+        });
+    }
+}
@@ -0,0 +1,116 @@
+package com.flogin.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * =========================================================================================
+ * PHIÊN BẢN DANH MỤC TRONG BỘ NHỚ (NGUỒN CỦA ETAG / CONDITIONAL GET)
+ * =========================================================================================
+ * - catalogVersion: tăng mỗi khi một Product/Category thay đổi và commit; dùng làm ETag cho
+ *   các endpoint danh sách. Khởi tạo bằng thời điểm khởi động để ETag cũ không còn khớp sau
+ *   khi restart (thay đổi lúc ứng dụng tắt không được ghi nhận).
+ * - productVersion: updated_at (micro giây, khớp DATETIME(6)) của sản phẩm đã đọc gần đây;
+ *   biết version thì GET /api/products/{id} trả 304 mà không truy vấn MySQL.
+ * - Ghi nhận từ đường đọc chỉ được giữ nếu không có thay đổi nào commit trong lúc đọc, nên
+ *   một lần đọc chậm không thể ghi đè version cũ lên mục vừa bị vô hiệu hóa.
+ * - Các cache khác theo sản phẩm (ví dụ tồn kho của StockReservations) đăng ký listener để được
+ *   vô hiệu hóa cùng lúc, thay vì mỗi nơi ghi sản phẩm phải gọi riêng.
+ * - Chỉ thấy thay đổi đi qua JPA của chính node này (CatalogEntityListener); khi chạy nhiều node
+ *   hoặc sửa DB bằng tay thì mỗi node cần được vô hiệu hóa riêng.
+ * =========================================================================================
+ */
+@Component
+public class CatalogVersions {
+
+    private final AtomicLong catalogVersion = new AtomicLong(System.currentTimeMillis());
+    private final Map<Long, Long> productVersions = new ConcurrentHashMap<>();
+    private final int maxTrackedProducts;
+    private final List<Consumer<Long>> listeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public CatalogVersions(@Value("${app.catalog.etag.max-tracked-products:100000}") int maxTrackedProducts) {
+        this.maxTrackedProducts = maxTrackedProducts;
+    }
+
+    public long catalogVersion() {
+        return catalogVersion.get();
+    }
+
+    /**
+     * Version đã biết của sản phẩm, null nếu chưa đọc hoặc đã bị vô hiệu hóa
+     */
+    public Long productVersion(Long id) {
+        return id != null ? productVersions.get(id) : null;
+    }
+
+    /**
+     * Ghi nhận version vừa đọc từ DB. seenCatalogVersion lấy TRƯỚC khi truy vấn:
+     * có thay đổi commit trong lúc đọc thì giá trị đọc được có thể đã cũ -> không giữ lại
+     */
+    public void rememberProduct(Long id, long version, long seenCatalogVersion) {
+        if (id == null || catalogVersion.get() != seenCatalogVersion) {
+            return;
+        }
+        if (productVersions.size() >= maxTrackedProducts && !productVersions.containsKey(id)) {
+            return;
+        }
+        productVersions.put(id, version);
+        // Thay đổi commit xen giữa lần kiểm tra ở trên và put() -> gỡ lại chính giá trị vừa ghi
+        if (catalogVersion.get() != seenCatalogVersion) {
+            productVersions.remove(id, version);
+        }
+    }
+
+    /**
+     * Gọi sau khi thay đổi sản phẩm commit: version của nó và của danh mục không còn đúng
+     */
+    public void productChanged(Long id) {
+        catalogVersion.incrementAndGet();
+        if (id != null) {
+            productVersions.remove(id);
+        }
+        listeners.forEach(listener -> listener.accept(id));
+    }
+
+    /**
+     * Gọi sau khi thay đổi danh mục (Category) hoặc thay đổi hàng loạt không theo từng id commit
+     */
+    public void catalogChanged() {
+        catalogVersion.incrementAndGet();
+        productVersions.clear();
+        listeners.forEach(listener -> listener.accept(null));
+    }
+
+    /**
+     * Nhận id sản phẩm sau mỗi productChanged, null sau catalogChanged (mọi sản phẩm); gọi sau khi
+     * catalogVersion đã tăng, trên thread vừa commit
+     */
+    public void addListener(Consumer<Long> listener) {
+        listeners.add(listener);
+    }
+
+    public int trackedProducts() {
+        return productVersions.size();
+    }
+
+    /**
+     * updated_at -> version: số micro giây (DATETIME(6) của MySQL giữ đúng độ chính xác này)
+     */
+    public static long versionOf(LocalDateTime updatedAt) {
+        if (updatedAt == null) {
+            return 0;
+        }
+        return updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + updatedAt.getNano() / 1_000;
+    }
+}
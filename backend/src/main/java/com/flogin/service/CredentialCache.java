@@ -0,0 +1,260 @@
+package com.flogin.service;
+
+import com.flogin.security.UserCredentials;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * =========================================================================================
+ * CACHE THÔNG TIN ĐĂNG NHẬP (BOUNDED CREDENTIAL CACHE)
+ * =========================================================================================
+ * - Chỉ giữ UserCredentials (id, username, hash mật khẩu, role, isActive), không giữ entity.
+ * - Giới hạn max-entries: vượt quá thì loại theo CLOCK (FIFO + bit "vừa được dùng"),
+ *   mục nào được đọc kể từ lần quét trước sẽ được giữ thêm một vòng.
+ * - TTL tính từ lúc nạp; hết hạn thì lần đọc kế tiếp coi như miss.
+ * - Xóa khi User bị cập nhật/khóa/xóa (UserEntityListener, sau commit) hoặc đổi mật khẩu.
+ * - Chống nạp lại dữ liệu cũ: lần đọc DB bắt đầu trước một lần invalidate cùng key/id
+ *   (theo stripe) thì kết quả không được cache (beginLoad() -> put(..., loadToken)).
+ * - Metrics: flogin.credential_cache.hits, .misses, .evictions{cause}, .size
+ * =========================================================================================
+ */
+@Component
+public class CredentialCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, String> keysById = new ConcurrentHashMap<>();
+    // Thứ tự nạp cho CLOCK; có thể chứa mục đã bị xóa, dọn định kỳ theo staleCount
+    private final ConcurrentLinkedQueue<Entry> clockQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger staleCount = new AtomicInteger();
+
+    // Thế hệ invalidate: mỗi lần invalidate lấy số mới và ghi vào stripe của username và của id
+    private static final int GENERATION_STRIPES = 1024;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLongArray keyGenerations = new AtomicLongArray(GENERATION_STRIPES);
+    private final AtomicLongArray idGenerations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter sizeEvictionCounter;
+    private final Counter expiredEvictionCounter;
+    private final Counter invalidationCounter;
+
+    @Autowired
+    public CredentialCache(@Value("${app.auth.credential-cache.max-entries:100000}") int maxEntries,
+                           @Value("${app.auth.credential-cache.ttl-seconds:300}") long ttlSeconds,
+                           MeterRegistry meterRegistry) {
+        this(maxEntries, TimeUnit.SECONDS.toNanos(ttlSeconds), meterRegistry, System::nanoTime);
+    }
+
+    CredentialCache(int maxEntries, long ttlNanos, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+
+        Gauge.builder("flogin.credential_cache.size", entries, Map::size)
+                .description("Số tài khoản đang được cache")
+                .register(meterRegistry);
+        this.hitCounter = meterRegistry.counter("flogin.credential_cache.hits");
+        this.missCounter = meterRegistry.counter("flogin.credential_cache.misses");
+        this.sizeEvictionCounter = meterRegistry.counter("flogin.credential_cache.evictions", "cause", "size");
+        this.expiredEvictionCounter = meterRegistry.counter("flogin.credential_cache.evictions", "cause", "expired");
+        this.invalidationCounter = meterRegistry.counter("flogin.credential_cache.evictions", "cause", "invalidated");
+    }
+
+    /**
+     * @return null nếu chưa có trong cache hoặc đã hết hạn
+     */
+    public UserCredentials get(String username) {
+        if (maxEntries <= 0 || username == null) {
+            return null;
+        }
+        String key = key(username);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            missCounter.increment();
+            return null;
+        }
+        if (clock.getAsLong() - entry.loadedAt >= ttlNanos) {
+            if (removeEntry(entry)) {
+                expiredEvictionCounter.increment();
+            }
+            missCounter.increment();
+            return null;
+        }
+        entry.referenced = true;
+        hitCounter.increment();
+        return entry.credentials;
+    }
+
+    /**
+     * Gọi trước khi đọc DB; truyền kết quả vào put()
+     */
+    public long beginLoad() {
+        return generation.get();
+    }
+
+    /**
+     * Nạp credentials vừa đọc từ DB cho username đã nhập.
+     * Bỏ qua nếu username/id đó bị invalidate sau beginLoad(): dòng đọc được có thể đã cũ
+     * (ví dụ active=true của tài khoản vừa bị khóa).
+     */
+    public void put(String requestedUsername, UserCredentials credentials, long loadToken) {
+        if (maxEntries <= 0 || requestedUsername == null || credentials.id() == null) {
+            return;
+        }
+        String key = key(requestedUsername);
+        // MySQL so khớp không phân biệt dấu: chỉ cache khi tên nhập trùng tên thật (trừ hoa/thường)
+        // để mỗi user có đúng một key và invalidate theo id luôn tìm được
+        if (!key.equals(key(credentials.username())) || invalidatedSince(key, credentials.id(), loadToken)) {
+            return;
+        }
+        Entry entry = new Entry(key, credentials, clock.getAsLong());
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            staleCount.incrementAndGet();
+        }
+        String previousKey = keysById.put(credentials.id(), key);
+        if (previousKey != null && !previousKey.equals(key)) {
+            // User đã đổi tên: bỏ mục cũ còn sót
+            Entry old = entries.get(previousKey);
+            if (old != null && credentials.id().equals(old.credentials.id()) && removeEntry(old)) {
+                invalidationCounter.increment();
+            }
+        }
+        // invalidate() ghi thế hệ trước rồi mới xóa, put() ghi mục trước rồi mới kiểm tra lại:
+        // invalidate chen vào giữa thì một trong hai phía chắc chắn thấy phía kia
+        if (invalidatedSince(key, credentials.id(), loadToken)) {
+            removeEntry(entry);
+            return;
+        }
+        clockQueue.offer(entry);
+        evictIfNeeded();
+    }
+
+    /**
+     * Xóa theo id và username (gọi khi User được cập nhật, bị khóa hoặc bị xóa)
+     */
+    public void invalidate(Long userId, String username) {
+        long next = generation.incrementAndGet();
+        if (userId != null) {
+            idGenerations.accumulateAndGet(stripe(userId.hashCode()), next, Math::max);
+        }
+        if (username != null) {
+            keyGenerations.accumulateAndGet(stripe(key(username).hashCode()), next, Math::max);
+        }
+        if (userId != null) {
+            String key = keysById.get(userId);
+            if (key != null) {
+                invalidateKey(key);
+            }
+        }
+        if (username != null) {
+            invalidateKey(key(username));
+        }
+    }
+
+    public void invalidateAll() {
+        long next = generation.incrementAndGet();
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            keyGenerations.accumulateAndGet(i, next, Math::max);
+            idGenerations.accumulateAndGet(i, next, Math::max);
+        }
+        entries.clear();
+        keysById.clear();
+        clockQueue.clear();
+        staleCount.set(0);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private boolean invalidatedSince(String key, Long userId, long loadToken) {
+        return keyGenerations.get(stripe(key.hashCode())) > loadToken
+                || idGenerations.get(stripe(userId.hashCode())) > loadToken;
+    }
+
+    private static int stripe(int hash) {
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    private void invalidateKey(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && removeEntry(entry)) {
+            invalidationCounter.increment();
+        }
+    }
+
+    private boolean removeEntry(Entry entry) {
+        if (!entries.remove(entry.key, entry)) {
+            return false;
+        }
+        keysById.remove(entry.credentials.id(), entry.key);
+        staleCount.incrementAndGet();
+        return true;
+    }
+
+    private void evictIfNeeded() {
+        // Mỗi lần nạp chỉ quét một lượng giới hạn: mục được đọc gần đây được đưa về cuối hàng
+        int budget = 2 * (entries.size() - maxEntries) + 8;
+        while (entries.size() > maxEntries && budget-- > 0) {
+            Entry candidate = clockQueue.poll();
+            if (candidate == null) {
+                break;
+            }
+            if (entries.get(candidate.key) != candidate) {
+                staleCount.decrementAndGet();
+                continue;
+            }
+            if (candidate.referenced) {
+                candidate.referenced = false;
+                clockQueue.offer(candidate);
+                continue;
+            }
+            if (removeEntry(candidate)) {
+                staleCount.decrementAndGet();
+                sizeEvictionCounter.increment();
+            }
+        }
+        // Quá nhiều mục chết trong hàng đợi (do invalidate) -> dọn một lượt để heap không phình
+        if (staleCount.get() > Math.max(maxEntries, 1024)) {
+            staleCount.set(0);
+            clockQueue.removeIf(candidate -> entries.get(candidate.key) != candidate);
+        }
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        final String key;
+        final UserCredentials credentials;
+        final long loadedAt;
+        volatile boolean referenced;
+
+        Entry(String key, UserCredentials credentials, long loadedAt) {
+            this.key = key;
+            this.credentials = credentials;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
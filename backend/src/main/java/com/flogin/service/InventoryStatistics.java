@@ -0,0 +1,282 @@
+package com.flogin.service;
+
+import com.flogin.dto.InventoryStats;
+import com.flogin.entity.Product;
+import com.flogin.security.ServiceBusyException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * =========================================================================================
+ * THỐNG KÊ TỒN KHO TRONG BỘ NHỚ (CẬP NHẬT TĂNG DẦN + ĐỐI SOÁT ĐỊNH KỲ)
+ * =========================================================================================
+ * - COUNT / SUM(price * quantity) / COUNT theo category đều quét bảng products; dashboard gọi
+ *   liên tục thì mỗi lần làm mới là vài lần quét. Ở đây số liệu được giữ sẵn: đọc chỉ trả về
+ *   một đối tượng bất biến đã dựng (O(1)).
+ * - ProductService báo phần đóng góp (category, giá x số lượng) TRƯỚC và SAU mỗi lần tạo/sửa/xóa,
+ *   sau khi transaction commit; mỗi thay đổi dựng lại ảnh số liệu O(số category).
+ * - Đối soát: định kỳ (và lúc khởi động) chạy một câu GROUP BY category_id rồi thay toàn bộ;
+ *   thay đổi commit trong lúc đang đối soát được phát lại lên kết quả mới như ProductSearchIndex.
+ *   Sai lệch (sửa DB ngoài ứng dụng, hai lần sửa đồng thời cùng một sản phẩm) được sửa ở lần sau.
+ * - Thay đổi không biết phần đóng góp (xóa một sản phẩm bằng một câu DELETE, không đọc trước)
+ *   gọi reconcileAsync(): đối soát trên một thread nền sau một khoảng trễ ngắn, mọi lần gọi trong
+ *   khoảng đó (vd. trừ tồn kho liên tục) gộp thành một lượt.
+ * - Giá trị dùng BigDecimal (price DECIMAL(12,2) x quantity) nên cộng trừ không mất chính xác.
+ * =========================================================================================
+ */
+@Component
+public class InventoryStatistics {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryStatistics.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Số liệu theo category; chỉ đọc/ghi khi giữ lock, null trước lần đối soát đầu tiên */
+    private Map<Long, Totals> totals;
+    /** Thay đổi xảy ra trong lúc reconcile() đang chạy (null khi không đối soát); chỉ truy cập khi giữ lock */
+    private List<Change> changedDuringReconcile;
+    private LocalDateTime reconciledAt;
+    // ReentrantLock thay cho synchronized: giữ lock trong lúc chờ JDBC không ghim (pin) virtual thread
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+
+    /** Ảnh số liệu đã dựng sẵn cho người đọc */
+    private volatile InventoryStats current;
+
+    /** Thread nền cho reconcileAsync(); reconcilePending bảo đảm tối đa 1 lượt chờ */
+    private final ScheduledExecutorService reconciler;
+    private final long reconcileDelayMs;
+    private final AtomicBoolean reconcilePending = new AtomicBoolean();
+
+    private final AtomicLong reconcileCount = new AtomicLong();
+    private final AtomicLong driftCorrections = new AtomicLong();
+
+    public InventoryStatistics(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, 0);
+    }
+
+    @Autowired
+    public InventoryStatistics(JdbcTemplate jdbcTemplate,
+                               @Value("${app.product.stats.async-reconcile-delay-ms:1000}") long reconcileDelayMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reconcileDelayMs = reconcileDelayMs;
+        this.reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-stats-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Số liệu hiện tại; chưa đối soát lần nào -> ServiceBusyException (503)
+     */
+    public InventoryStats getStats() {
+        InventoryStats stats = current;
+        if (stats == null) {
+            throw new ServiceBusyException("Thống kê tồn kho đang được khởi tạo, vui lòng thử lại sau");
+        }
+        return stats;
+    }
+
+    /**
+     * Gọi sau khi thay đổi sản phẩm commit. before = null khi tạo mới, after = null khi xóa
+     */
+    public void changed(Contribution before, Contribution after) {
+        Change change = new Change(before, after);
+        lock.lock();
+        try {
+            if (changedDuringReconcile != null) {
+                changedDuringReconcile.add(change);
+            }
+            if (totals != null) {
+                change.applyTo(totals);
+                publish();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tính lại toàn bộ từ bảng products; chạy lúc khởi động và định kỳ trên thread scheduler
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.product.stats.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        reconcileLock.lock();
+        try {
+            // Mở danh sách phát lại trước khi SELECT: thay đổi commit sau thời điểm này được phát lại
+            lock.lock();
+            try {
+                changedDuringReconcile = new ArrayList<>();
+            } finally {
+                lock.unlock();
+            }
+
+            Map<Long, Totals> fresh = new HashMap<>();
+            jdbcTemplate.query("SELECT category_id, COUNT(*), SUM(price * quantity) FROM products GROUP BY category_id",
+                    (RowCallbackHandler) resultSet -> fresh.put(resultSet.getLong(1),
+                            new Totals(resultSet.getLong(2), resultSet.getBigDecimal(3))));
+
+            lock.lock();
+            try {
+                for (Change change : changedDuringReconcile) {
+                    change.applyTo(fresh);
+                }
+                if (totals != null && !sameTotals(totals, fresh)) {
+                    driftCorrections.incrementAndGet();
+                    log.info("Đối soát thống kê tồn kho: số liệu trong bộ nhớ lệch với DB, đã thay bằng số liệu DB");
+                }
+                totals = fresh;
+                changedDuringReconcile = null;
+                reconciledAt = LocalDateTime.now();
+                publish();
+            } finally {
+                lock.unlock();
+            }
+            reconcileCount.incrementAndGet();
+        } catch (DataAccessException e) {
+            // Giữ số liệu cũ (hoặc 503 nếu chưa có) khi DB chưa sẵn sàng
+            log.warn("Không đối soát được thống kê tồn kho: {}", e.getMessage());
+        } finally {
+            lock.lock();
+            try {
+                changedDuringReconcile = null;
+            } finally {
+                lock.unlock();
+            }
+            reconcileLock.unlock();
+        }
+    }
+
+    /**
+     * Yêu cầu đối soát trên thread nền sau reconcileDelayMs; trả về ngay. Gọi sau khi thay đổi commit
+     */
+    public void reconcileAsync() {
+        if (!reconcilePending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            reconciler.schedule(() -> {
+                // Hạ cờ TRƯỚC khi SELECT: thay đổi commit trong lúc đối soát sẽ xếp thêm một lượt
+                reconcilePending.set(false);
+                reconcile();
+            }, reconcileDelayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Đã shutdown
+            reconcilePending.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconciler.shutdownNow();
+    }
+
+    public long getReconcileCount() {
+        return reconcileCount.get();
+    }
+
+    public long getDriftCorrections() {
+        return driftCorrections.get();
+    }
+
+    // Gọi khi giữ lock
+    private void publish() {
+        long totalProducts = 0;
+        BigDecimal totalValue = BigDecimal.ZERO;
+        List<InventoryStats.CategoryStats> categories = new ArrayList<>(totals.size());
+        for (Map.Entry<Long, Totals> entry : totals.entrySet()) {
+            Totals category = entry.getValue();
+            totalProducts += category.products();
+            totalValue = totalValue.add(category.value());
+            categories.add(new InventoryStats.CategoryStats(entry.getKey(), category.products(), category.value()));
+        }
+        categories.sort(Comparator.comparing(InventoryStats.CategoryStats::categoryId,
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+        current = new InventoryStats(totalProducts, totalValue, List.copyOf(categories), reconciledAt);
+    }
+
+    // BigDecimal.equals so cả scale (1.0 != 1.00) -> so bằng compareTo
+    private static boolean sameTotals(Map<Long, Totals> a, Map<Long, Totals> b) {
+        if (!a.keySet().equals(b.keySet())) {
+            return false;
+        }
+        for (Map.Entry<Long, Totals> entry : a.entrySet()) {
+            Totals other = b.get(entry.getKey());
+            if (entry.getValue().products() != other.products()
+                    || entry.getValue().value().compareTo(other.value()) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Phần đóng góp của một sản phẩm vào thống kê: category và giá trị tồn kho (giá x số lượng)
+     */
+    public record Contribution(Long categoryId, BigDecimal value) {
+
+        public static Contribution of(Product product) {
+            return of(product.getCategory() != null ? product.getCategory().getId() : null,
+                    product.getPrice(), product.getQuantity());
+        }
+
+        public static Contribution of(Long categoryId, BigDecimal price, Integer quantity) {
+            BigDecimal value = (price != null ? price : BigDecimal.ZERO)
+                    .multiply(BigDecimal.valueOf(quantity != null ? quantity : 0));
+            return new Contribution(categoryId, value);
+        }
+    }
+
+    private record Totals(long products, BigDecimal value) {
+
+        Totals plus(long deltaProducts, BigDecimal deltaValue) {
+            return new Totals(products + deltaProducts, value.add(deltaValue));
+        }
+    }
+
+    private record Change(Contribution before, Contribution after) {
+
+        void applyTo(Map<Long, Totals> totals) {
+            if (before != null) {
+                add(totals, before.categoryId(), -1, before.value().negate());
+            }
+            if (after != null) {
+                add(totals, after.categoryId(), 1, after.value());
+            }
+        }
+
+        private static void add(Map<Long, Totals> totals, Long categoryId, long products, BigDecimal value) {
+            Totals next = totals.getOrDefault(categoryId, new Totals(0, BigDecimal.ZERO)).plus(products, value);
+            // Category không còn sản phẩm nào thì bỏ khỏi thống kê (giống GROUP BY)
+            if (next.products() == 0) {
+                totals.remove(categoryId);
+            } else {
+                totals.put(categoryId, next);
+            }
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package com.flogin.service;
+
+import com.flogin.repository.LoginHistoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * =========================================================================================
+ * ĐẾM ĐĂNG NHẬP SAI THEO CỬA SỔ TRƯỢT (SLIDING-WINDOW FAILED-ATTEMPT COUNTERS)
+ * =========================================================================================
+ * - Hai bộ đếm độc lập: theo username (đã chuẩn hóa như UsernameBloomFilter) và theo IP.
+ * - Mỗi key là một vòng bucket (window-seconds / buckets mỗi ô), mỗi ô là một long
+ *   [số thứ tự bucket | số lần sai] cập nhật bằng CAS -> không khóa.
+ * - Map chia thành nhiều stripe, mỗi stripe giới hạn số key; key không còn lần sai nào
+ *   trong cửa sổ bị dọn định kỳ. Stripe đầy thì kim CLOCK (hàng đợi theo thứ tự tạo key)
+ *   chỉ xét tối đa EVICTION_SAMPLE key ở đầu hàng: key idle bị loại ngay, không thì loại
+ *   key cũ nhất trong số đó -> chi phí mỗi key mới là hằng số, kể cả khi bị password spray.
+ * - LoginHistoryRepository.countFailedAttempts chỉ dùng khi vừa khởi động (chưa đủ một
+ *   cửa sổ dữ liệu trong bộ nhớ), mỗi username tối đa một lần.
+ * - Metrics: flogin.login_attempts.tracked_keys, .blocked, .fallback_queries, .evicted
+ * =========================================================================================
+ */
+@Component
+public class LoginAttemptTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginAttemptTracker.class);
+
+    private static final int STRIPES = 16;
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final int EVICTION_SAMPLE = 16;
+
+    private final long windowMillis;
+    private final int buckets;
+    private final long bucketMillis;
+    private final int maxFailuresPerUsername;
+    private final int maxFailuresPerIp;
+    private final int maxKeysPerStripe;
+    private final LongSupplier clock;
+    private final long startedAt;
+    private final BiFunction<String, LocalDateTime, Long> coldStartFallback;
+
+    private final Stripes byUsername = new Stripes();
+    private final Stripes byIp = new Stripes();
+
+    private final Counter blockedCounter;
+    private final Counter fallbackCounter;
+    private final Counter evictedCounter;
+
+    @Autowired
+    public LoginAttemptTracker(LoginHistoryRepository loginHistoryRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.auth.lockout.window-seconds:900}") long windowSeconds,
+                               @Value("${app.auth.lockout.buckets:15}") int buckets,
+                               @Value("${app.auth.lockout.max-failures-per-username:5}") int maxFailuresPerUsername,
+                               @Value("${app.auth.lockout.max-failures-per-ip:50}") int maxFailuresPerIp,
+                               @Value("${app.auth.lockout.max-tracked-keys:100000}") int maxTrackedKeys) {
+        this(loginHistoryRepository::countFailedAttempts, meterRegistry, TimeUnit.SECONDS.toMillis(windowSeconds),
+                buckets, maxFailuresPerUsername, maxFailuresPerIp, maxTrackedKeys, System::currentTimeMillis);
+    }
+
+    LoginAttemptTracker(BiFunction<String, LocalDateTime, Long> coldStartFallback,
+                        MeterRegistry meterRegistry,
+                        long windowMillis,
+                        int buckets,
+                        int maxFailuresPerUsername,
+                        int maxFailuresPerIp,
+                        int maxTrackedKeys,
+                        LongSupplier clock) {
+        this.coldStartFallback = coldStartFallback;
+        this.buckets = Math.max(1, buckets);
+        this.bucketMillis = Math.max(1, windowMillis / this.buckets);
+        this.windowMillis = this.bucketMillis * this.buckets;
+        this.maxFailuresPerUsername = maxFailuresPerUsername;
+        this.maxFailuresPerIp = maxFailuresPerIp;
+        // Mỗi loại key (username, IP) được một nửa ngân sách
+        this.maxKeysPerStripe = Math.max(1, maxTrackedKeys / 2 / STRIPES);
+        this.clock = clock;
+        this.startedAt = clock.getAsLong();
+
+        Gauge.builder("flogin.login_attempts.tracked_keys", this, tracker -> tracker.getTrackedKeys())
+                .description("Số username/IP đang có lần đăng nhập sai trong cửa sổ")
+                .register(meterRegistry);
+        this.blockedCounter = meterRegistry.counter("flogin.login_attempts.blocked");
+        this.fallbackCounter = meterRegistry.counter("flogin.login_attempts.fallback_queries");
+        this.evictedCounter = meterRegistry.counter("flogin.login_attempts.evicted");
+    }
+
+    /**
+     * @return số giây cần chờ nếu username hoặc IP đang bị khóa, 0 nếu được phép thử
+     */
+    public long retryAfterSeconds(String username, String ipAddress) {
+        long now = clock.getAsLong();
+        long epoch = now / bucketMillis;
+        long waitMillis = 0;
+
+        if (username != null && maxFailuresPerUsername > 0) {
+            String key = UsernameBloomFilter.normalize(username);
+            SlidingWindow window = byUsername.get(key);
+            if (window == null && now - startedAt < windowMillis && coldStartFallback != null) {
+                window = seedFromDatabase(key, username, epoch);
+            }
+            if (window != null) {
+                waitMillis = window.millisUntilBelow(maxFailuresPerUsername, epoch, now, bucketMillis);
+            }
+        }
+        if (ipAddress != null && maxFailuresPerIp > 0) {
+            SlidingWindow window = byIp.get(ipAddress);
+            if (window != null) {
+                waitMillis = Math.max(waitMillis, window.millisUntilBelow(maxFailuresPerIp, epoch, now, bucketMillis));
+            }
+        }
+        if (waitMillis <= 0) {
+            return 0;
+        }
+        blockedCounter.increment();
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitMillis + 999));
+    }
+
+    public void recordFailure(String username, String ipAddress) {
+        long epoch = clock.getAsLong() / bucketMillis;
+        if (username != null) {
+            byUsername.getOrCreate(UsernameBloomFilter.normalize(username), epoch).add(epoch, 1);
+        }
+        if (ipAddress != null) {
+            byIp.getOrCreate(ipAddress, epoch).add(epoch, 1);
+        }
+    }
+
+    /**
+     * Đăng nhập thành công -> xóa bộ đếm của username (bộ đếm IP giữ nguyên)
+     */
+    public void recordSuccess(String username) {
+        if (username == null) {
+            return;
+        }
+        String key = UsernameBloomFilter.normalize(username);
+        long now = clock.getAsLong();
+        if (now - startedAt < windowMillis) {
+            // Còn trong giai đoạn khởi động: giữ window rỗng để không nạp lại số lần sai cũ từ DB
+            byUsername.put(key, new SlidingWindow(buckets, now / bucketMillis));
+        } else {
+            byUsername.remove(key);
+        }
+    }
+
+    /**
+     * Dọn các key không còn lần sai nào trong cửa sổ
+     */
+    @Scheduled(fixedDelayString = "${app.auth.lockout.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long epoch = clock.getAsLong() / bucketMillis;
+        byUsername.evictIdle(epoch);
+        byIp.evictIdle(epoch);
+    }
+
+    public int getTrackedKeys() {
+        return byUsername.size() + byIp.size();
+    }
+
+    private SlidingWindow seedFromDatabase(String key, String username, long epoch) {
+        SlidingWindow window = new SlidingWindow(buckets, epoch);
+        SlidingWindow existing = byUsername.putIfAbsent(key, window, epoch);
+        if (existing != null) {
+            return existing;
+        }
+        // Chỉ thread tạo window mới truy vấn DB; các lần sau đọc từ bộ nhớ
+        fallbackCounter.increment();
+        try {
+            LocalDateTime since = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(windowMillis));
+            Long failures = coldStartFallback.apply(username, since);
+            if (failures != null && failures > 0) {
+                window.add(epoch, (int) Math.min(failures, COUNT_MASK));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Không đọc được số lần đăng nhập sai từ DB: {}", e.getMessage());
+        }
+        return window;
+    }
+
+    /**
+     * Vòng bucket của một key: mỗi ô lưu (số thứ tự bucket << 24) | số lần sai
+     */
+    private static final class SlidingWindow {
+        private final AtomicLongArray cells;
+        private volatile long lastEpoch;
+
+        SlidingWindow(int buckets, long epoch) {
+            this.cells = new AtomicLongArray(buckets);
+            this.lastEpoch = epoch;
+        }
+
+        void add(long epoch, int count) {
+            int index = (int) (epoch % cells.length());
+            while (true) {
+                long current = cells.get(index);
+                long next;
+                if (current >>> COUNT_BITS == epoch) {
+                    next = (current & COUNT_MASK) + count >= COUNT_MASK ? current | COUNT_MASK : current + count;
+                } else {
+                    next = (epoch << COUNT_BITS) | Math.min(count, COUNT_MASK);
+                }
+                if (cells.compareAndSet(index, current, next)) {
+                    break;
+                }
+            }
+            lastEpoch = epoch;
+        }
+
+        /**
+         * Thời gian (ms) đến khi tổng số lần sai trong cửa sổ xuống dưới limit; 0 nếu đã dưới limit
+         */
+        long millisUntilBelow(int limit, long epoch, long now, long bucketMillis) {
+            int length = cells.length();
+            long total = 0;
+            for (int i = 0; i < length; i++) {
+                long cell = cells.get(i);
+                if (epoch - (cell >>> COUNT_BITS) < length) {
+                    total += cell & COUNT_MASK;
+                }
+            }
+            if (total < limit) {
+                return 0;
+            }
+            // Duyệt từ bucket cũ nhất: bucket e hết hạn tại thời điểm (e + length) * bucketMillis
+            for (long e = Math.max(0, epoch - length + 1); e <= epoch; e++) {
+                long cell = cells.get((int) (e % length));
+                if (cell >>> COUNT_BITS == e) {
+                    total -= cell & COUNT_MASK;
+                    if (total < limit) {
+                        return (e + length) * bucketMillis - now;
+                    }
+                }
+            }
+            return length * bucketMillis;
+        }
+
+        boolean isIdle(long epoch) {
+            return epoch - lastEpoch >= cells.length();
+        }
+    }
+
+    /**
+     * Nhiều ConcurrentHashMap nhỏ, mỗi map có giới hạn số key riêng
+     */
+    private final class Stripes {
+        private final Stripe[] stripes = new Stripe[STRIPES];
+
+        Stripes() {
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new Stripe();
+            }
+        }
+
+        private Stripe stripe(String key) {
+            int hash = key.hashCode();
+            return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+        }
+
+        SlidingWindow get(String key) {
+            return stripe(key).map.get(key);
+        }
+
+        SlidingWindow getOrCreate(String key, long epoch) {
+            Stripe stripe = stripe(key);
+            SlidingWindow window = stripe.map.get(key);
+            if (window != null) {
+                return window;
+            }
+            stripe.makeRoom(epoch);
+            SlidingWindow created = new SlidingWindow(buckets, epoch);
+            SlidingWindow existing = stripe.map.putIfAbsent(key, created);
+            if (existing != null) {
+                return existing;
+            }
+            stripe.hand.offer(new Slot(key, created));
+            return created;
+        }
+
+        SlidingWindow putIfAbsent(String key, SlidingWindow window, long epoch) {
+            Stripe stripe = stripe(key);
+            stripe.makeRoom(epoch);
+            SlidingWindow existing = stripe.map.putIfAbsent(key, window);
+            if (existing == null) {
+                stripe.hand.offer(new Slot(key, window));
+            }
+            return existing;
+        }
+
+        void put(String key, SlidingWindow window) {
+            Stripe stripe = stripe(key);
+            stripe.map.put(key, window);
+            stripe.hand.offer(new Slot(key, window));
+        }
+
+        void remove(String key) {
+            stripe(key).map.remove(key);
+        }
+
+        void evictIdle(long epoch) {
+            for (Stripe stripe : stripes) {
+                stripe.evictIdle(epoch);
+            }
+        }
+
+        int size() {
+            int size = 0;
+            for (Stripe stripe : stripes) {
+                size += stripe.map.size();
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Một key trong hàng đợi CLOCK; hết hiệu lực khi map không còn trỏ tới đúng window này
+     */
+    private record Slot(String key, SlidingWindow window) {
+    }
+
+    private final class Stripe {
+        private final ConcurrentHashMap<String, SlidingWindow> map = new ConcurrentHashMap<>();
+        // Kim CLOCK: key theo thứ tự tạo; slot hết hiệu lực được bỏ qua khi tới lượt
+        private final ConcurrentLinkedQueue<Slot> hand = new ConcurrentLinkedQueue<>();
+
+        private boolean isLive(Slot slot) {
+            return map.get(slot.key()) == slot.window();
+        }
+
+        /**
+         * Quét toàn stripe (chỉ chạy định kỳ trên thread scheduler, không chạy theo từng request)
+         */
+        void evictIdle(long epoch) {
+            for (Iterator<SlidingWindow> it = map.values().iterator(); it.hasNext(); ) {
+                if (it.next().isIdle(epoch)) {
+                    it.remove();
+                    evictedCounter.increment();
+                }
+            }
+            hand.removeIf(slot -> !isLive(slot));
+        }
+
+        /**
+         * Stripe đầy -> giải phóng chỗ bằng một lượt quét có giới hạn từ đầu hàng đợi
+         */
+        void makeRoom(long epoch) {
+            while (map.size() >= maxKeysPerStripe) {
+                Slot oldest = null;
+                boolean evicted = false;
+                for (int i = 0; i < EVICTION_SAMPLE && !evicted; i++) {
+                    Slot slot = hand.poll();
+                    if (slot == null) {
+                        break;
+                    }
+                    if (!isLive(slot)) {
+                        continue;
+                    }
+                    if (slot.window().isIdle(epoch)) {
+                        evicted = evict(slot);
+                    } else if (oldest == null || slot.window().lastEpoch < oldest.window().lastEpoch) {
+                        if (oldest != null) {
+                            hand.offer(oldest);
+                        }
+                        oldest = slot;
+                    } else {
+                        // Còn hoạt động và mới hơn ứng viên -> về cuối hàng (cơ hội thứ hai)
+                        hand.offer(slot);
+                    }
+                }
+                if (evicted) {
+                    if (oldest != null) {
+                        hand.offer(oldest);
+                    }
+                    continue;
+                }
+                if (oldest == null) {
+                    // Hàng đợi rỗng (chỉ còn slot hết hiệu lực đã bị bỏ) -> không còn gì để loại
+                    return;
+                }
+                evict(oldest);
+            }
+        }
+
+        private boolean evict(Slot slot) {
+            if (map.remove(slot.key(), slot.window())) {
+                evictedCounter.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.flogin.service;
+
+import com.flogin.entity.LoginHistory;
+import com.flogin.util.MpscRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * =========================================================================================
+ * GHI LỊCH SỬ ĐĂNG NHẬP BẤT ĐỒNG BỘ THEO LÔ (ASYNC BATCHED LOGIN HISTORY WRITER)
+ * =========================================================================================
+ * - AuthService chỉ đẩy sự kiện vào ring buffer (không khóa, không chờ DB).
+ * - Một thread nền gom sự kiện và ghi bằng JDBC batch khi đủ batch-size
+ *   hoặc khi lô cũ nhất chờ quá flush-interval-ms.
+ * - Khi đầy hàng đợi: DROP (bỏ và đếm) hoặc BLOCK (chờ tối đa block-timeout-ms rồi mới bỏ).
+ * - Khi tắt ứng dụng: chờ các record() đang chạy dở rồi ghi nốt toàn bộ sự kiện còn trong hàng đợi,
+ *   nên record() đã trả true thì bản ghi không bị mất.
+ * - Lỗi khi ghi một lô chỉ làm hỏng lô đó (đếm vào .failed), thread nền vẫn chạy tiếp.
+ * - Metrics: flogin.login_history.queue.depth, .written, .dropped, .failed, .flush
+ * =========================================================================================
+ */
+@Component
+public class LoginHistoryWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginHistoryWriter.class);
+
+    static final String INSERT_SQL = "INSERT INTO login_history "
+            + "(user_id, username, ip_address, user_agent, is_success, failure_reason, login_time) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    public enum OverflowPolicy { DROP, BLOCK }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MpscRingBuffer<LoginHistory> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+    private volatile Thread worker;
+    /** Số lời gọi record() đang chạy; shutdown chờ về 0 trước lượt ghi cuối */
+    private final AtomicInteger activeProducers = new AtomicInteger();
+
+    @Autowired
+    public LoginHistoryWriter(JdbcTemplate jdbcTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.login-history.queue-capacity:8192}") int queueCapacity,
+                              @Value("${app.login-history.batch-size:200}") int batchSize,
+                              @Value("${app.login-history.flush-interval-ms:500}") long flushIntervalMs,
+                              @Value("${app.login-history.overflow-policy:DROP}") OverflowPolicy overflowPolicy,
+                              @Value("${app.login-history.block-timeout-ms:50}") long blockTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new MpscRingBuffer<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+
+        Gauge.builder("flogin.login_history.queue.depth", queue, MpscRingBuffer::size)
+                .description("Số sự kiện đăng nhập đang chờ ghi")
+                .register(meterRegistry);
+        this.writtenCounter = meterRegistry.counter("flogin.login_history.written");
+        this.droppedCounter = meterRegistry.counter("flogin.login_history.dropped");
+        this.failedCounter = meterRegistry.counter("flogin.login_history.failed");
+        this.flushTimer = Timer.builder("flogin.login_history.flush")
+                .description("Thời gian ghi một lô lịch sử đăng nhập")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::runLoop, "login-history-writer");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    /**
+     * Dừng nhận sự kiện mới và chờ thread nền ghi hết phần còn lại.
+     * record() nào đã vượt qua kiểm tra running trước lúc dừng có thể enqueue sau lượt
+     * drain cuối của thread nền -> chờ chúng xong rồi tự ghi nốt trên thread gọi shutdown.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        Thread thread = worker;
+        running = false;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+        if (thread.isAlive()) {
+            // Hàng đợi chỉ cho phép một consumer -> không drain song song với thread nền
+            log.warn("Thread ghi lịch sử đăng nhập chưa dừng, còn {} bản ghi chưa ghi", queue.size());
+            return;
+        }
+        while (activeProducers.get() > 0) {
+            LockSupport.parkNanos(100_000L);
+        }
+        List<LoginHistory> batch = new ArrayList<>(batchSize);
+        LoginHistory next;
+        while ((next = queue.poll()) != null) {
+            batch.add(next);
+            if (batch.size() == batchSize) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    /**
+     * Đưa một bản ghi vào hàng đợi (không bao giờ chạm DB trên thread gọi).
+     *
+     * @return false nếu bản ghi bị bỏ do hàng đợi đầy hoặc writer đã dừng
+     */
+    public boolean record(LoginHistory history) {
+        // Đăng ký trước rồi mới đọc running (cặp ngược với shutdown) để shutdown thấy được lời gọi này
+        activeProducers.incrementAndGet();
+        try {
+            return offer(history);
+        } finally {
+            activeProducers.decrementAndGet();
+        }
+    }
+
+    private boolean offer(LoginHistory history) {
+        if (!running) {
+            droppedCounter.increment();
+            return false;
+        }
+        if (history.getLoginTime() == null) {
+            // Ghi bằng JDBC nên @CreationTimestamp không được áp dụng
+            history.setLoginTime(LocalDateTime.now());
+        }
+
+        if (enqueue(history)) {
+            return true;
+        }
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            long deadline = System.nanoTime() + blockTimeoutNanos;
+            while (System.nanoTime() < deadline) {
+                LockSupport.unpark(worker);
+                LockSupport.parkNanos(50_000L);
+                if (enqueue(history)) {
+                    return true;
+                }
+            }
+        }
+        droppedCounter.increment();
+        return false;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private boolean enqueue(LoginHistory history) {
+        if (!queue.offer(history)) {
+            return false;
+        }
+        if (queue.size() >= batchSize) {
+            // Đủ một lô -> đánh thức thread nền ghi ngay, không chờ hết flush-interval
+            LockSupport.unpark(worker);
+        }
+        return true;
+    }
+
+    private void runLoop() {
+        List<LoginHistory> batch = new ArrayList<>(batchSize);
+        long batchStartedAt = 0L;
+
+        while (running || !queue.isEmpty()) {
+            LoginHistory next;
+            while (batch.size() < batchSize && (next = queue.poll()) != null) {
+                if (batch.isEmpty()) {
+                    batchStartedAt = System.nanoTime();
+                }
+                batch.add(next);
+            }
+
+            long waited = System.nanoTime() - batchStartedAt;
+            if (batch.size() >= batchSize || (!batch.isEmpty() && (waited >= flushIntervalNanos || !running))) {
+                flush(batch);
+                batch.clear();
+                continue;
+            }
+
+            LockSupport.parkNanos(this, batch.isEmpty() ? flushIntervalNanos : flushIntervalNanos - waited);
+        }
+
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    private void flush(List<LoginHistory> batch) {
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, history) -> {
+                if (history.getUser() != null && history.getUser().getId() != null) {
+                    ps.setLong(1, history.getUser().getId());
+                } else {
+                    ps.setNull(1, Types.BIGINT);
+                }
+                // Cắt theo độ dài cột để một bản ghi quá dài không làm hỏng cả lô
+                ps.setString(2, truncate(history.getUsername() != null ? history.getUsername() : "", 50));
+                ps.setString(3, truncate(history.getIpAddress(), 45));
+                ps.setString(4, truncate(history.getUserAgent(), 255));
+                ps.setBoolean(5, history.isSuccessful());
+                ps.setString(6, truncate(history.getFailureReason(), 255));
+                ps.setTimestamp(7, Timestamp.valueOf(history.getLoginTime()));
+            });
+            writtenCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            // Bắt mọi RuntimeException: nếu để thoát ra, thread nền chết và mọi sự kiện sau đó bị bỏ âm thầm
+            failedCounter.increment(batch.size());
+            log.warn("Không ghi được {} bản ghi lịch sử đăng nhập: {}", batch.size(), e.toString());
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+}
@@ -0,0 +1,46 @@
+package com.flogin.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * =========================================================================================
+ * CON TRỎ ĐỒNG BỘ THAY ĐỔI (DELTA SYNC CURSOR)
+ * =========================================================================================
+ * - Vị trí (thời điểm thay đổi, id) trong dòng thời gian thay đổi của danh mục; lần đồng bộ
+ *   sau trả mọi thay đổi SAU vị trí này.
+ * - Thời điểm lưu theo micro giây (độ chính xác của DATETIME(6)).
+ * - Client chỉ gửi lại nguyên chuỗi (base64url); chuỗi hỏng -> IllegalArgumentException (400).
+ * =========================================================================================
+ */
+public record ProductChangeCursor(LocalDateTime time, long lastId) {
+
+    private static final String VERSION = "v1";
+
+    /** Trước mọi thay đổi: đồng bộ toàn bộ */
+    public static final ProductChangeCursor START = new ProductChangeCursor(LocalDateTime.of(1970, 1, 1, 0, 0), 0);
+
+    public String encode() {
+        String raw = VERSION + ':' + CatalogVersions.versionOf(time) + ':' + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductChangeCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Cursor không hợp lệ");
+            }
+            long micros = Long.parseLong(parts[1]);
+            LocalDateTime time = LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                    (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+            return new ProductChangeCursor(time, Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ", e);
+        }
+    }
+}
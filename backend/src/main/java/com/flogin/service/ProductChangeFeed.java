@@ -0,0 +1,166 @@
+package com.flogin.service;
+
+import com.flogin.dto.ProductChanges;
+import com.flogin.dto.ProductDto;
+import com.flogin.entity.ProductTombstone;
+import com.flogin.repository.ProductRepository;
+import com.flogin.repository.ProductRepositoryCustom;
+import com.flogin.repository.ProductTombstoneRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * =========================================================================================
+ * ĐỒNG BỘ THAY ĐỔI DANH MỤC (DELTA SYNC - GET /api/products/changes?since=)
+ * =========================================================================================
+ * - Client giữ bản sao danh sách, mỗi lần chỉ tải sản phẩm được tạo/sửa (theo updated_at,
+ *   idx_updated_at) và id bị xóa (bảng product_tombstones) sau cursor, thay vì tải lại tất cả.
+ * - Hai nguồn được trộn theo (thời điểm, id) trong cùng một transaction đọc (cùng snapshot MVCC);
+ *   mỗi trang tối đa size sự kiện, cursor trỏ tới sự kiện cuối.
+ * - updated_at được đóng dấu TRƯỚC khi commit: transaction đóng dấu sớm nhưng commit muộn có thể
+ *   rơi vào phía sau cursor của client khác. Vì vậy trang cuối không trả cursor "bây giờ" mà lùi
+ *   lại settle-ms: lần đồng bộ sau gửi lại các thay đổi trong khoảng này (ghi đè/xóa theo id nên
+ *   nhận lại không sao) và bắt được transaction commit muộn ngắn hơn settle-ms.
+ * - Tombstone cũ hơn thời gian giữ bị xóa định kỳ; cursor cũ hơn mốc đó -> 410, client tải lại toàn bộ.
+ * - Dòng có updated_at NULL (chèn ngoài JPA) không xuất hiện trong dòng thay đổi.
+ * - Thời điểm lấy theo đồng hồ JVM như @UpdateTimestamp/@CreationTimestamp; nhiều node cần
+ *   đồng bộ đồng hồ với sai lệch nhỏ hơn settle-ms.
+ * =========================================================================================
+ */
+@Service
+public class ProductChangeFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductChangeFeed.class);
+
+    private final ProductRepository productRepository;
+    private final ProductTombstoneRepository tombstoneRepository;
+    private final long settleMs;
+    private final long tombstoneRetentionMs;
+    private final int maxPageSize;
+    private final Clock clock;
+
+    @Autowired
+    public ProductChangeFeed(ProductRepository productRepository,
+                             ProductTombstoneRepository tombstoneRepository,
+                             @Value("${app.product.changes.settle-ms:5000}") long settleMs,
+                             @Value("${app.product.changes.tombstone-retention-ms:604800000}") long tombstoneRetentionMs,
+                             @Value("${app.product.changes.max-page-size:500}") int maxPageSize) {
+        this(productRepository, tombstoneRepository, settleMs, tombstoneRetentionMs, maxPageSize,
+                Clock.systemDefaultZone());
+    }
+
+    ProductChangeFeed(ProductRepository productRepository, ProductTombstoneRepository tombstoneRepository,
+                      long settleMs, long tombstoneRetentionMs, int maxPageSize, Clock clock) {
+        this.productRepository = productRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.settleMs = settleMs;
+        this.tombstoneRetentionMs = tombstoneRetentionMs;
+        this.maxPageSize = maxPageSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Cursor cho client vừa tải danh sách: lấy TRƯỚC khi đọc, đồng bộ từ đây không bỏ sót thay đổi nào
+     */
+    public String currentCursor() {
+        return settledCursor(LocalDateTime.now(clock)).encode();
+    }
+
+    /**
+     * Thay đổi sau cursor since (null/rỗng = toàn bộ danh mục), tối đa size sự kiện
+     */
+    @Transactional(readOnly = true)
+    public ProductChanges getChanges(String since, Integer size) {
+        if (size != null && size < 1) {
+            throw new IllegalArgumentException("Kích thước trang phải lớn hơn 0");
+        }
+        int limit = size != null ? Math.min(size, maxPageSize) : maxPageSize;
+        LocalDateTime now = LocalDateTime.now(clock);
+        ProductChangeCursor after = ProductChangeCursor.START;
+        if (since != null && !since.isBlank()) {
+            after = ProductChangeCursor.decode(since);
+            if (after.time().isBefore(now.minus(tombstoneRetentionMs, ChronoUnit.MILLIS))) {
+                throw new SyncCursorExpiredException("Cursor đồng bộ đã hết hạn, cần tải lại toàn bộ danh sách");
+            }
+        }
+
+        // Lấy dư 1 dòng mỗi nguồn để biết còn trang sau
+        List<ProductRepositoryCustom.Versioned> products =
+                productRepository.findChangedAfter(after.time(), after.lastId(), limit + 1);
+        List<ProductTombstone> tombstones =
+                tombstoneRepository.findAfter(after.time(), after.lastId(), PageRequest.of(0, limit + 1));
+
+        List<ProductDto> updated = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        ProductChangeCursor last = after;
+        int p = 0;
+        int t = 0;
+        while (updated.size() + deleted.size() < limit && (p < products.size() || t < tombstones.size())) {
+            ProductRepositoryCustom.Versioned product = p < products.size() ? products.get(p) : null;
+            ProductTombstone tombstone = t < tombstones.size() ? tombstones.get(t) : null;
+            if (tombstone == null || (product != null && comesFirst(product, tombstone))) {
+                updated.add(product.product());
+                last = new ProductChangeCursor(product.updatedAt(), product.product().getId());
+                p++;
+            } else {
+                deleted.add(tombstone.getProductId());
+                last = new ProductChangeCursor(tombstone.getDeletedAt(), tombstone.getProductId());
+                t++;
+            }
+        }
+        boolean hasMore = p < products.size() || t < tombstones.size();
+        ProductChangeCursor next = hasMore ? last : settledCursor(now);
+        return new ProductChanges(updated, deleted, hasMore, next.encode());
+    }
+
+    /**
+     * Ghi tombstone trong transaction xóa sản phẩm (rollback thì không có tombstone)
+     */
+    public void recordDeletion(Long productId) {
+        tombstoneRepository.save(new ProductTombstone(productId));
+    }
+
+    /**
+     * Như recordDeletion cho xóa hàng loạt: các INSERT được gom thành JDBC batch lúc flush
+     */
+    public void recordDeletions(Collection<Long> productIds) {
+        List<ProductTombstone> tombstones = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            tombstones.add(new ProductTombstone(productId));
+        }
+        tombstoneRepository.saveAll(tombstones);
+    }
+
+    @Scheduled(fixedDelayString = "${app.product.changes.purge-interval-ms:3600000}",
+            initialDelayString = "${app.product.changes.purge-interval-ms:3600000}")
+    public void purgeTombstones() {
+        LocalDateTime cutoff = LocalDateTime.now(clock).minus(tombstoneRetentionMs, ChronoUnit.MILLIS);
+        int purged = tombstoneRepository.deleteOlderThan(cutoff);
+        if (purged > 0) {
+            log.info("Purged {} product tombstones older than {}", purged, cutoff);
+        }
+    }
+
+    private ProductChangeCursor settledCursor(LocalDateTime now) {
+        return new ProductChangeCursor(now.minus(settleMs, ChronoUnit.MILLIS), 0);
+    }
+
+    // Id sản phẩm không bao giờ trùng với id đã xóa nên (thời điểm, id) không hòa
+    private static boolean comesFirst(ProductRepositoryCustom.Versioned product, ProductTombstone tombstone) {
+        int byTime = product.updatedAt().compareTo(tombstone.getDeletedAt());
+        return byTime < 0 || (byTime == 0 && product.product().getId() < tombstone.getProductId());
+    }
+}
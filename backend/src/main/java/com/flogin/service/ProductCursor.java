@@ -0,0 +1,48 @@
+package com.flogin.service;
+
+import com.flogin.repository.ProductRepositoryCustom;
+import com.flogin.repository.ProductSort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.Base64;
+
+/**
+ * =========================================================================================
+ * CON TRỎ PHÂN TRANG KEYSET (CONTINUATION TOKEN)
+ * =========================================================================================
+ * - Ghi lại thứ tự sắp xếp và vị trí (giá trị khóa, id) của sản phẩm cuối trang.
+ * - Client chỉ gửi lại nguyên chuỗi (base64url), không cần hiểu nội dung;
+ *   chuỗi hỏng hoặc bị sửa -> IllegalArgumentException (400).
+ * =========================================================================================
+ */
+public record ProductCursor(ProductSort sort, boolean descending, Object lastValue, Long lastId) {
+
+    private static final String VERSION = "v1";
+
+    public static ProductCursor after(ProductRepositoryCustom.Row row, ProductSort sort, boolean descending) {
+        return new ProductCursor(sort, descending, row.sortValue(), row.product().getId());
+    }
+
+    public String encode() {
+        // Giá trị đặt cuối cùng vì tên sản phẩm có thể chứa ':'
+        String raw = VERSION + ':' + sort.getKey() + ':' + (descending ? "desc" : "asc") + ':' + lastId + ':'
+                + sort.format(lastValue);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 5);
+            if (parts.length != 5 || !VERSION.equals(parts[0])
+                    || !("asc".equals(parts[2]) || "desc".equals(parts[2]))) {
+                throw new IllegalArgumentException("Cursor không hợp lệ");
+            }
+            ProductSort sort = ProductSort.fromKey(parts[1]);
+            return new ProductCursor(sort, "desc".equals(parts[2]), sort.parse(parts[4]), Long.valueOf(parts[3]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ", e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.flogin.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.flogin.dto.ProductDto;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * =========================================================================================
+ * ĐỊNH DẠNG XUẤT DANH MỤC SẢN PHẨM (NDJSON / CSV)
+ * =========================================================================================
+ * - Mỗi sản phẩm được ghi ngay xuống output stream của response rồi bỏ đi,
+ *   không gom thành List hay String lớn.
+ * - Không flush sau từng dòng; Tomcat tự đẩy khi buffer của nó đầy.
+ * =========================================================================================
+ */
+public enum ProductExportFormat {
+    NDJSON("ndjson", "application/x-ndjson"),
+    CSV("csv", "text/csv;charset=UTF-8");
+
+    private final String key;
+    private final String contentType;
+
+    ProductExportFormat(String key, String contentType) {
+        this.key = key;
+        this.contentType = contentType;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static ProductExportFormat fromKey(String key) {
+        if (key == null || key.isBlank()) {
+            return NDJSON;
+        }
+        String normalized = key.trim().toLowerCase(Locale.ROOT);
+        for (ProductExportFormat format : values()) {
+            if (format.key.equals(normalized)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Không hỗ trợ định dạng xuất: " + key);
+    }
+
+    /**
+     * Mở bộ ghi trên output stream (không đóng stream khi finish)
+     */
+    public RowWriter open(OutputStream out, ObjectMapper objectMapper) throws IOException {
+        return this == CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out, objectMapper);
+    }
+
+    public interface RowWriter {
+        void write(ProductDto product) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private final ObjectWriter writer;
+
+        NdjsonRowWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setRootValueSeparator(null);
+            this.writer = objectMapper.writerFor(ProductDto.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        }
+
+        @Override
+        public void write(ProductDto product) throws IOException {
+            writer.writeValue(generator, product);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+            writer.write("id,ten,gia,soLuong,moTa,categoryId,createdById\r\n");
+        }
+
+        @Override
+        public void write(ProductDto product) throws IOException {
+            writer.write(String.valueOf(product.getId()));
+            writer.write(',');
+            writeText(product.getTen());
+            writer.write(',');
+            writer.write(product.getGia() != null ? product.getGia().toPlainString() : "");
+            writer.write(',');
+            writer.write(Integer.toString(product.getSoLuong()));
+            writer.write(',');
+            writeText(product.getMoTa());
+            writer.write(',');
+            writer.write(product.getCategoryId() != null ? product.getCategoryId().toString() : "");
+            writer.write(',');
+            writer.write(product.getCreatedById() != null ? product.getCreatedById().toString() : "");
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        /**
+         * RFC 4180: bọc trong dấu nháy kép khi có dấu phẩy, nháy kép hoặc xuống dòng
+         */
+        private void writeText(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
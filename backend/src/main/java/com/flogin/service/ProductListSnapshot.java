@@ -0,0 +1,20 @@
+package com.flogin.service;
+
+import com.flogin.repository.ProductSort;
+
+/**
+ * Ảnh chụp bất biến của trang đầu GET /api/products cho một cách xem (size, sort, direction):
+ * JSON đã serialize sẵn + bản gzip, cùng thông tin phân trang cho header.
+ * version là version danh mục (CatalogVersions) lấy trước khi truy vấn -> ETag của đúng nội dung này;
+ * changesCursor (ProductChangeFeed) cũng lấy trước khi truy vấn -> điểm bắt đầu đồng bộ thay đổi cho client.
+ * Mảng byte không bao giờ bị sửa sau khi dựng; chỉ đọc.
+ */
+public record ProductListSnapshot(long version, byte[] json, byte[] gzip, boolean hasNext, String nextCursor,
+                                  String changesCursor) {
+
+    /**
+     * Khóa của ảnh chụp, đã chuẩn hóa (size đã áp giới hạn, sort/direction đã parse)
+     */
+    public record View(int size, ProductSort sort, boolean descending) {
+    }
+}
@@ -0,0 +1,235 @@
+package com.flogin.service;
+
+import com.flogin.security.ServiceBusyException;
+import com.flogin.util.TrigramIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * =========================================================================================
+ * CHỈ MỤC TÌM KIẾM TÊN SẢN PHẨM TRONG BỘ NHỚ (TRIGRAM, GỘP DẤU TIẾNG VIỆT)
+ * =========================================================================================
+ * - LIKE '%...%' trên products.name không dùng được index -> quét toàn bảng; chỉ mục này
+ *   trả về id sản phẩm đã xếp hạng mà không chạm MySQL. "ban phim", "BÀN PHÍM", "bàn phím"
+ *   cho cùng kết quả.
+ * - Dựng lúc khởi động bằng cách stream bảng products (chỉ id, name), dựng lại định kỳ
+ *   để tự sửa lệch nếu bảng bị sửa ngoài ứng dụng.
+ * - ProductService cập nhật từng sản phẩm sau khi transaction tạo/sửa/xóa đã commit.
+ * - Thay đổi xảy ra trong lúc đang dựng lại được ghi nhận riêng và phát lại vào chỉ mục mới
+ *   trước khi hoán đổi (dưới write lock), nên không mất cập nhật quanh thời điểm hoán đổi.
+ * - Truy vấn giữ read lock (nhiều luồng đọc song song); cập nhật giữ write lock rất ngắn.
+ * =========================================================================================
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    /** Fetch size khi stream bảng products trên driver khác MySQL */
+    private static final int REBUILD_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Chỉ đọc/ghi khi giữ lock */
+    private TrigramIndex active;
+    /** Thay đổi xảy ra trong lúc rebuild() đang chạy (null khi không dựng lại); chỉ truy cập khi giữ write lock */
+    private List<Change> changedDuringRebuild;
+    // ReentrantLock thay cho synchronized: giữ lock trong lúc chờ JDBC không ghim (pin) virtual thread
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong queryNanos = new AtomicLong();
+    private final AtomicLong rebuildCount = new AtomicLong();
+    private volatile long lastRebuildMillis;
+    private volatile long lastRebuildProducts;
+    private volatile LocalDateTime lastRebuildAt;
+
+    /** Một thay đổi cần phát lại: name == null nghĩa là xóa */
+    private record Change(long id, String name) {
+        void applyTo(TrigramIndex index) {
+            if (name == null) {
+                index.remove(id);
+            } else {
+                index.put(id, name);
+            }
+        }
+    }
+
+    @Autowired
+    public ProductSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Id sản phẩm có tên chứa query (không phân biệt hoa/thường và dấu), tốt nhất trước.
+     * Chỉ mục chưa dựng xong -> ServiceBusyException (503) thay vì trả rỗng sai
+     */
+    public List<Long> search(String query, int limit) {
+        long start = System.nanoTime();
+        long[] ids;
+        lock.readLock().lock();
+        try {
+            if (active == null) {
+                throw new ServiceBusyException("Chỉ mục tìm kiếm sản phẩm đang được dựng, vui lòng thử lại sau");
+            }
+            ids = active.search(query, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        queries.incrementAndGet();
+        queryNanos.addAndGet(System.nanoTime() - start);
+        List<Long> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    /**
+     * Ghi nhận sản phẩm mới hoặc tên mới (gọi sau khi transaction đã commit)
+     */
+    public void index(Long id, String name) {
+        if (id != null && name != null) {
+            apply(new Change(id, name));
+        }
+    }
+
+    /**
+     * Gỡ sản phẩm đã xóa (gọi sau khi transaction DELETE đã commit)
+     */
+    public void remove(Long id) {
+        if (id != null) {
+            apply(new Change(id, null));
+        }
+    }
+
+    private void apply(Change change) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(change);
+            }
+            if (active != null) {
+                change.applyTo(active);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Dựng lại chỉ mục từ bảng products; chạy lúc khởi động và định kỳ trên thread scheduler
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.product.search-index.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        rebuildLock.lock();
+        long start = System.currentTimeMillis();
+        try {
+            Long productCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products", Long.class);
+            TrigramIndex next = new TrigramIndex((int) Math.min(Integer.MAX_VALUE,
+                    productCount != null ? productCount : 0));
+            // Mở danh sách phát lại trước khi SELECT: thay đổi commit trước thời điểm này thì SELECT thấy,
+            // commit sau thì apply() ghi vào danh sách
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            AtomicLong streamed = new AtomicLong();
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement("SELECT id, name FROM products",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                // Connector/J chỉ stream từng dòng với fetch size MIN_VALUE; giá trị khác vẫn nạp hết kết quả
+                boolean mysql = "MySQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+                statement.setFetchSize(mysql ? Integer.MIN_VALUE : REBUILD_FETCH_SIZE);
+                return statement;
+            }, resultSet -> {
+                next.put(resultSet.getLong(1), resultSet.getString(2));
+                streamed.incrementAndGet();
+            });
+
+            lock.writeLock().lock();
+            try {
+                // Phát lại theo đúng thứ tự commit rồi mới hoán đổi -> không có cập nhật nào chen giữa
+                for (Change change : changedDuringRebuild) {
+                    change.applyTo(next);
+                }
+                active = next;
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            lastRebuildProducts = streamed.get();
+            lastRebuildAt = LocalDateTime.now();
+            lastRebuildMillis = System.currentTimeMillis() - start;
+            rebuildCount.incrementAndGet();
+        } catch (DataAccessException e) {
+            // Giữ chỉ mục cũ (hoặc 503 nếu chưa có) khi DB chưa sẵn sàng
+            log.warn("Không dựng được chỉ mục tìm kiếm sản phẩm: {}", e.getMessage());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            rebuildLock.unlock();
+        }
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return active != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Số liệu cho Actuator endpoint /actuator/productsearch
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("ready", active != null);
+            if (active != null) {
+                stats.put("products", active.size());
+                stats.put("trigrams", active.trigramCount());
+                stats.put("postings", active.postingCount());
+                stats.put("memoryBytes", active.estimatedMemoryBytes());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        long count = queries.get();
+        stats.put("queries", count);
+        stats.put("averageQueryMicros", count > 0 ? queryNanos.get() / 1000.0 / count : 0.0);
+        stats.put("rebuildCount", rebuildCount.get());
+        stats.put("lastRebuildAt", lastRebuildAt);
+        stats.put("lastRebuildDurationMs", lastRebuildMillis);
+        stats.put("lastRebuildProducts", lastRebuildProducts);
+        return stats;
+    }
+}
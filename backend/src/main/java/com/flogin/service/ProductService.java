@@ -1,17 +1,57 @@
 package com.flogin.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flogin.dto.InventoryStats;
+import com.flogin.dto.ProductBatchResult;
 import com.flogin.dto.ProductDto;
+import com.flogin.dto.ProductPage;
+import com.flogin.dto.ProductPatch;
 import com.flogin.entity.Category;
 import com.flogin.entity.Product;
 import com.flogin.entity.User;
 import com.flogin.repository.CategoryRepository;
 import com.flogin.repository.ProductRepository;
+import com.flogin.repository.ProductRepositoryCustom;
+import com.flogin.repository.ProductSort;
 import com.flogin.repository.UserRepository; 
+import com.flogin.util.SnapshotCache;
+import com.flogin.util.StockAccumulator;
+import com.flogin.util.TransactionCallbacks;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 public class ProductService {
@@ -25,24 +65,250 @@ public class ProductService {
     @Autowired
     private CategoryRepository categoryRepository; // <-- 4. AUTOWIRE
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private ProductChangeFeed productChangeFeed;
+
+    @Autowired
+    private InventoryStatistics inventoryStatistics;
+
+    @Autowired
+    private ReferenceIdIndex referenceIdIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.pagination.default-page-size:10}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-page-size:100}")
+    private int maxPageSize;
+
+    // Số cách xem (size, sort, direction) tối đa được giữ ảnh chụp trang đầu
+    @Value("${app.product.snapshot.max-views:16}")
+    private int maxSnapshotViews;
+
+    // Số phần tử tối đa của một lần POST /api/products/batch (cả batch nằm trong một transaction)
+    @Value("${app.product.batch.max-items:1000}")
+    private int maxBatchItems;
+
+    // Số sản phẩm mỗi câu DELETE ... WHERE id IN của xóa hàng loạt
+    static final int DELETE_CHUNK_SIZE = 500;
+
+    // Trừ/cộng tồn kho: direct = mỗi lần một câu UPDATE có điều kiện; striped = gom qua StockAccumulator
+    @Value("${app.product.stock.mode:direct}")
+    private String stockMode;
+
+    @Value("${app.product.stock.block-size:50}")
+    private int stockBlockSize;
+
+    @Value("${app.product.stock.stripes:64}")
+    private int stockStripes;
+
+    @Value("${app.product.stock.flush-interval-ms:1000}")
+    private long stockFlushIntervalMs;
+
+    /** null ở chế độ direct */
+    private StockAccumulator stockAccumulator;
+
+    private final SnapshotCache<ProductListSnapshot.View, ProductListSnapshot> listSnapshots =
+            new SnapshotCache<>("product-list-snapshot", this::buildListSnapshot);
+
     // LẤY TẤT CẢ SẢN PHẨM (READ ALL)
+    // Đọc thẳng vào ProductDto bằng constructor projection: không tạo entity, không snapshot dirty-check
+    @Transactional(readOnly = true)
     public List<ProductDto> getAllProducts() {
-        return productRepository.findAll().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return productRepository.findAllDtos();
+    }
+
+    // LẤY MỘT TRANG SẢN PHẨM THEO KEYSET (mặc định của GET /api/products)
+    // Chi phí chỉ phụ thuộc kích thước trang, không phụ thuộc trang nằm sâu tới đâu
+    @Transactional(readOnly = true)
+    public ProductPage getProductsPage(String cursor, Integer size, String sort, String direction) {
+        int limit = pageSize(size);
+        // Có cursor thì thứ tự sắp xếp lấy từ cursor để các trang luôn nối tiếp nhau
+        ProductCursor after = cursor != null && !cursor.isBlank() ? ProductCursor.decode(cursor) : null;
+        ProductSort productSort = after != null ? after.sort() : ProductSort.fromKey(sort);
+        boolean descending = after != null ? after.descending() : isDescending(direction);
+        return loadPage(productSort, descending, after, limit);
+    }
+
+    // ẢNH CHỤP TRANG ĐẦU (GET /api/products không cursor/page)
+    // JSON + gzip dựng sẵn trong bộ nhớ; sau khi ghi, ảnh được dựng lại trên thread nền và
+    // người đọc nhận ảnh cũ cho tới khi ảnh mới được hoán đổi. null nếu cách xem này không được giữ ảnh
+    public ProductListSnapshot getListSnapshot(Integer size, String sort, String direction) {
+        ProductListSnapshot.View view = new ProductListSnapshot.View(pageSize(size), ProductSort.fromKey(sort),
+                isDescending(direction));
+        ProductListSnapshot snapshot = listSnapshots.get(view, maxSnapshotViews);
+        if (snapshot != null && snapshot.version() != catalogVersions.catalogVersion()) {
+            // Danh mục đổi qua đường không gọi ProductService (ví dụ sửa category) -> vẫn trả ảnh cũ, dựng lại nền
+            listSnapshots.refreshAsync();
+        }
+        return snapshot;
+    }
+
+    private ProductListSnapshot buildListSnapshot(ProductListSnapshot.View view) {
+        // Lấy version và cursor đồng bộ TRƯỚC khi đọc: thay đổi commit trong lúc dựng làm ảnh này lỗi thời,
+        // không bao giờ ngược lại
+        long version = catalogVersions.catalogVersion();
+        String changesCursor = productChangeFeed.currentCursor();
+        ProductPage page = loadPage(view.sort(), view.descending(), null, view.size());
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(page.items());
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+                out.write(json);
+            }
+            return new ProductListSnapshot(version, json, gzip.toByteArray(), page.hasNext(), page.nextCursor(),
+                    changesCursor);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không serialize được ảnh chụp danh sách sản phẩm", e);
+        }
+    }
+
+    // Lấy dư 1 dòng để biết còn trang sau mà không cần COUNT(*)
+    private ProductPage loadPage(ProductSort productSort, boolean descending, ProductCursor after, int limit) {
+        List<ProductRepositoryCustom.Row> rows = productRepository.findDtoPageAfter(productSort, descending,
+                after != null ? after.lastValue() : null, after != null ? after.lastId() : null, limit + 1);
+        boolean hasNext = rows.size() > limit;
+        List<ProductRepositoryCustom.Row> page = hasNext ? rows.subList(0, limit) : rows;
+        String nextCursor = hasNext
+                ? ProductCursor.after(page.get(page.size() - 1), productSort, descending).encode()
+                : null;
+
+        return new ProductPage(page.stream().map(ProductRepositoryCustom.Row::product).collect(Collectors.toList()),
+                hasNext, nextCursor);
+    }
+
+    // LẤY MỘT TRANG SẢN PHẨM THEO OFFSET (?page=), giữ cho client cũ
+    // Database vẫn phải đọc bỏ page * size dòng nên trang càng sâu càng chậm
+    @Transactional(readOnly = true)
+    public ProductPage getProductsByOffset(int page, Integer size, String sort, String direction) {
+        ProductSort productSort = ProductSort.fromKey(sort);
+        Sort.Direction order = isDescending(direction) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sortBy = productSort == ProductSort.ID
+                ? Sort.by(order, "id")
+                : Sort.by(order, productSort.getProperty(), "id");
+
+        // Slice không chạy COUNT(*) như Page
+        Slice<ProductDto> slice = productRepository.findDtosBy(PageRequest.of(page, pageSize(size), sortBy));
+        return new ProductPage(slice.getContent(), slice.hasNext(), null);
+    }
+
+    // TÌM KIẾM SẢN PHẨM (GET /api/products/search)
+    // Chỉ bộ lọc nào được gửi mới thành điều kiện WHERE; tên là tìm theo tiền tố để dùng được idx_name
+    @Transactional(readOnly = true)
+    public ProductPage searchProducts(String name, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                      Integer page, Integer size) {
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("Giá tối thiểu không được lớn hơn giá tối đa");
+        }
+        int pageNumber = page != null ? page : 0;
+        if (pageNumber < 0) {
+            throw new IllegalArgumentException("Số trang không được âm");
+        }
+        int limit = pageSize(size);
+
+        // Lấy dư 1 dòng để biết còn trang sau mà không cần COUNT(*)
+        List<ProductDto> rows = productRepository.searchDtos(
+                new ProductRepositoryCustom.SearchCriteria(name, categoryId, minPrice, maxPrice),
+                Math.multiplyExact(pageNumber, limit), limit + 1);
+        boolean hasNext = rows.size() > limit;
+        return new ProductPage(hasNext ? rows.subList(0, limit) : rows, hasNext, null);
+    }
+
+    // TÌM SẢN PHẨM THEO CHUỖI CON CỦA TÊN (GET /api/products/search?q=)
+    // Xếp hạng và lọc trên chỉ mục trigram trong bộ nhớ; DB chỉ đọc đúng các id của trang theo khóa chính
+    @Transactional(readOnly = true)
+    public ProductPage searchProductsByText(String query, Integer page, Integer size) {
+        int pageNumber = page != null ? page : 0;
+        if (pageNumber < 0) {
+            throw new IllegalArgumentException("Số trang không được âm");
+        }
+        int limit = pageSize(size);
+        int offset = Math.multiplyExact(pageNumber, limit);
+
+        // Lấy dư 1 id để biết còn trang sau
+        List<Long> ranked = productSearchIndex.search(query, Math.addExact(offset, limit + 1));
+        boolean hasNext = ranked.size() > offset + limit;
+        List<Long> ids = ranked.subList(Math.min(offset, ranked.size()), Math.min(offset + limit, ranked.size()));
+        if (ids.isEmpty()) {
+            return new ProductPage(List.of(), false, null);
+        }
+        Map<Long, ProductDto> byId = productRepository.findDtosByIdIn(ids).stream()
+                .collect(Collectors.toMap(ProductDto::getId, Function.identity()));
+        // Giữ thứ tự xếp hạng; id vừa bị xóa (chỉ mục chưa kịp gỡ) thì bỏ qua
+        List<ProductDto> items = ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+        return new ProductPage(items, hasNext, null);
+    }
+
+    // XUẤT TOÀN BỘ SẢN PHẨM DẠNG LUỒNG (EXPORT)
+    // Cursor chỉ-tiến (MySQL stream từng dòng, driver khác đọc theo lô EXPORT_FETCH_SIZE);
+    // mỗi dòng ghi xong là tách khỏi persistence context,
+    // nên bộ nhớ không tăng theo số sản phẩm
+    @Transactional(readOnly = true)
+    public long exportProducts(ProductExportFormat.RowWriter writer) throws IOException {
+        long count = 0;
+        try (Stream<Product> products = productRepository.streamAllOrderById()) {
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                Product product = iterator.next();
+                writer.write(convertToDto(product));
+                entityManager.detach(product);
+                // Proxy Category/User không bị detach theo Product -> dọn định kỳ theo lô
+                if (++count % ProductRepository.EXPORT_FETCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        writer.finish();
+        return count;
     }
 
     // LẤY 1 SẢN PHẨM (READ ONE)
+    @Transactional(readOnly = true)
     public ProductDto getProductById(Long id) {
-        Product product = productRepository.findById(id)
+        return productRepository.findDtoById(id)
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy sản phẩm với id: " + id));
+    }
+
+    // LẤY 1 SẢN PHẨM KÈM THỜI ĐIỂM SỬA CUỐI (GET /api/products/{id} có ETag)
+    // Version đọc được được ghi nhớ để lần If-None-Match sau trả 304 không cần truy vấn
+    @Transactional(readOnly = true)
+    public ProductRepositoryCustom.Versioned getVersionedProduct(Long id) {
+        long seenCatalogVersion = catalogVersions.catalogVersion();
+        ProductRepositoryCustom.Versioned versioned = productRepository.findVersionedDtoById(id)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy sản phẩm với id: " + id));
-        return convertToDto(product);
+        catalogVersions.rememberProduct(id, CatalogVersions.versionOf(versioned.updatedAt()), seenCatalogVersion);
+        return versioned;
     }
 
     // TẠO SẢN PHẨM (CREATE)
+    // Đường thường chỉ tốn đúng 1 INSERT: category/người tạo gắn bằng tham chiếu (ReferenceIdIndex),
+    // id lấy từ khối đã cấp sẵn. Lỗi khóa ngoại (chỉ mục cũ) xuất hiện lúc save() commit
     public ProductDto createProduct(ProductDto productDto) {
         Product product = convertToEntity(productDto); // 5. SỬ DỤNG HÀM MỚI
-        Product savedProduct = productRepository.save(product);
+        Product savedProduct;
+        try {
+            savedProduct = productRepository.save(product);
+        } catch (DataIntegrityViolationException e) {
+            throw missingReference(product, productDto, e);
+        }
+        afterCommit(savedProduct, null);
         return convertToDto(savedProduct);
     }
 
@@ -50,6 +316,10 @@ public class ProductService {
     public ProductDto updateProduct(Long id, ProductDto productDto) {
         Product existingProduct = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy sản phẩm với id: " + id));
+        // Client gửi version đã đọc -> từ chối nếu đã có người sửa (không âm thầm ghi đè);
+        // sửa đồng thời giữa findById và commit bị @Version chặn (OptimisticLockingFailureException -> 409)
+        checkVersion(id, productDto.getVersion(), existingProduct.getVersion());
+        InventoryStatistics.Contribution before = InventoryStatistics.Contribution.of(existingProduct);
 
         // Cập nhật các trường
         existingProduct.setTen(productDto.getTen());
@@ -58,23 +328,490 @@ public class ProductService {
 
         // 6. CẬP NHẬT CATEGORY VÀ USER (NẾU CẦN)
         if(productDto.getCategoryId() != null) {
-            Category category = categoryRepository.findById(productDto.getCategoryId())
-                    .orElseThrow(() -> new RuntimeException("Không tìm thấy Category ID: " + productDto.getCategoryId()));
-            existingProduct.setCategory(category);
+            existingProduct.setCategory(categoryReference(productDto.getCategoryId()));
         }
         
         // (Không cho phép cập nhật người tạo sản phẩm)
 
         Product updatedProduct = productRepository.save(existingProduct);
+        afterCommit(updatedProduct, before);
         return convertToDto(updatedProduct);
     }
 
-    // XÓA SẢN PHẨM (DELETE)
+    // TẠO/CẬP NHẬT HÀNG LOẠT (POST /api/products/batch)
+    // Phần tử có id -> cập nhật như updateProduct, không id -> tạo như createProduct.
+    // Category/User/sản phẩm cần sửa được nạp bằng một truy vấn IN mỗi loại; id lấy theo khối từ
+    // id_generators nên INSERT/UPDATE được Hibernate gom thành JDBC batch lúc commit (hibernate.jdbc.batch_size).
+    // Phần tử lỗi được kiểm tra TRƯỚC khi chạm vào entity nên bị bỏ qua riêng, không rollback cả batch
+    @Transactional
+    public ProductBatchResult batchUpsert(List<ProductDto> dtos) {
+        if (dtos == null || dtos.isEmpty()) {
+            throw new IllegalArgumentException("Danh sách sản phẩm không được rỗng");
+        }
+        if (dtos.size() > maxBatchItems) {
+            throw new IllegalArgumentException("Tối đa " + maxBatchItems + " sản phẩm mỗi lần");
+        }
+
+        Set<Long> categoryIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> productIds = new HashSet<>();
+        for (ProductDto dto : dtos) {
+            if (dto == null) {
+                continue;
+            }
+            if (dto.getCategoryId() != null) {
+                categoryIds.add(dto.getCategoryId());
+            }
+            if (dto.getId() != null) {
+                productIds.add(dto.getId());
+            } else if (dto.getCreatedById() != null) {
+                userIds.add(dto.getCreatedById());
+            }
+        }
+        Map<Long, Category> categories = byId(categoryRepository.findAllById(categoryIds), Category::getId);
+        Map<Long, User> users = byId(userRepository.findAllById(userIds), User::getId);
+        Map<Long, Product> existing = byId(productRepository.findAllById(productIds), Product::getId);
+
+        List<ProductBatchResult.Item> items = new ArrayList<>(dtos.size());
+        List<Product> toCreate = new ArrayList<>();
+        List<Integer> createIndexes = new ArrayList<>();
+        List<Product> changed = new ArrayList<>();
+        List<InventoryStatistics.Contribution> befores = new ArrayList<>();
+        Set<Long> seenIds = new HashSet<>();
+        int updated = 0;
+        for (int i = 0; i < dtos.size(); i++) {
+            ProductDto dto = dtos.get(i);
+            String error = dto == null ? "Phần tử rỗng" : validateBatchItem(dto, categories, users, existing, seenIds);
+            if (error != null) {
+                items.add(new ProductBatchResult.Item(i, dto != null ? dto.getId() : null,
+                        ProductBatchResult.Status.FAILED, error));
+                continue;
+            }
+            if (dto.getId() != null) {
+                Product product = existing.get(dto.getId());
+                befores.add(InventoryStatistics.Contribution.of(product));
+                product.setTen(dto.getTen());
+                product.setGia(dto.getGia());
+                product.setSoLuong(dto.getSoLuong());
+                if (dto.getCategoryId() != null) {
+                    product.setCategory(categories.get(dto.getCategoryId()));
+                }
+                changed.add(product);
+                items.add(new ProductBatchResult.Item(i, product.getId(), ProductBatchResult.Status.UPDATED, null));
+                updated++;
+            } else {
+                Product product = new Product(dto.getTen(), dto.getGia(), dto.getSoLuong(),
+                        categories.get(dto.getCategoryId()), users.get(dto.getCreatedById()));
+                toCreate.add(product);
+                createIndexes.add(i);
+                items.add(null);
+            }
+        }
+
+        // persist cấp id (theo khối) nhưng chưa INSERT; sản phẩm sửa là entity managed -> UPDATE khi flush
+        List<Product> created = productRepository.saveAll(toCreate);
+        for (int k = 0; k < created.size(); k++) {
+            Product product = created.get(k);
+            items.set(createIndexes.get(k), new ProductBatchResult.Item(createIndexes.get(k), product.getId(),
+                    ProductBatchResult.Status.CREATED, null));
+            changed.add(product);
+            befores.add(null);
+        }
+        afterBatchCommit(changed, befores);
+
+        return new ProductBatchResult(items, created.size(), updated, dtos.size() - created.size() - updated);
+    }
+
+    // Lỗi của một phần tử (ràng buộc của Product, category/user/sản phẩm không tồn tại), null nếu hợp lệ
+    private String validateBatchItem(ProductDto dto, Map<Long, Category> categories, Map<Long, User> users,
+                                     Map<Long, Product> existing, Set<Long> seenIds) {
+        if (dto.getId() != null) {
+            if (!existing.containsKey(dto.getId())) {
+                return "Không tìm thấy sản phẩm với id: " + dto.getId();
+            }
+            if (!seenIds.add(dto.getId())) {
+                return "Sản phẩm id " + dto.getId() + " xuất hiện nhiều lần trong batch";
+            }
+            Long version = existing.get(dto.getId()).getVersion();
+            if (dto.getVersion() != null && !dto.getVersion().equals(version)) {
+                return conflictMessage(dto.getId());
+            }
+        } else {
+            if (dto.getCategoryId() == null) {
+                return "Category is required";
+            }
+            if (dto.getCreatedById() == null) {
+                return "Creator is required";
+            }
+            if (!users.containsKey(dto.getCreatedById())) {
+                return "Không tìm thấy User ID: " + dto.getCreatedById();
+            }
+        }
+        if (dto.getCategoryId() != null && !categories.containsKey(dto.getCategoryId())) {
+            return "Không tìm thấy Category ID: " + dto.getCategoryId();
+        }
+        // Kiểm tra trên giá trị thay vì entity: sản phẩm cần sửa là entity managed, sửa rồi mới thấy lỗi
+        // thì Hibernate vẫn flush thay đổi đó
+        List<String> errors = new ArrayList<>();
+        checkField(errors, "name", dto.getTen());
+        checkField(errors, "price", dto.getGia());
+        checkField(errors, "quantity", dto.getSoLuong());
+        return errors.isEmpty() ? null : String.join("; ", errors);
+    }
+
+    // Ràng buộc Bean Validation của một trường Product, kiểm tra trên giá trị (không cần entity)
+    private void checkField(List<String> errors, String property, Object value) {
+        for (ConstraintViolation<Product> violation : validator.validateValue(Product.class, property, value)) {
+            errors.add(violation.getMessage());
+        }
+    }
+
+    private static <T> Map<Long, T> byId(List<T> entities, Function<T, Long> id) {
+        return entities.stream().collect(Collectors.toMap(id, Function.identity()));
+    }
+
+    // SỬA MỘT PHẦN (PATCH /api/products/{id})
+    // Chỉ các trường gửi lên được ghi, trong MỘT câu UPDATE có điều kiện version (không SELECT entity trước).
+    // Đổi giá/số lượng/category cần giá trị cũ cho thống kê tồn kho -> đọc thêm các cột đó với khóa dòng.
+    // Trả về updated_at mới (nguồn ETag)
+    @Transactional
+    public LocalDateTime patchProduct(Long id, ProductPatch patch) {
+        if (patch == null || patch.isEmpty()) {
+            throw new IllegalArgumentException("Không có trường nào để cập nhật");
+        }
+        // Trường không gửi (null) được giữ nguyên nên không kiểm tra @NotNull
+        List<String> errors = new ArrayList<>();
+        if (patch.ten() != null) {
+            checkField(errors, "name", patch.ten());
+        }
+        if (patch.gia() != null) {
+            checkField(errors, "price", patch.gia());
+        }
+        if (patch.soLuong() != null) {
+            checkField(errors, "quantity", patch.soLuong());
+        }
+        checkField(errors, "description", patch.moTa());
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", errors));
+        }
+
+        Category category = patch.categoryId() != null ? categoryReference(patch.categoryId()) : null;
+        // Cắt về micro giây cho khớp DATETIME(6) và ETag (CatalogVersions.versionOf)
+        LocalDateTime updatedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+
+        // Một câu UPDATE có điều kiện version, không đọc/khóa dòng trước
+        if (productRepository.patch(id, patch, category, patch.version(), updatedAt) == 0) {
+            if (productRepository.existsById(id)) {
+                throw new ProductVersionConflictException(conflictMessage(id));
+            }
+            throw new RuntimeException("Không tìm thấy sản phẩm với id: " + id);
+        }
+
+        // UPDATE hàng loạt không qua entity listener -> tự vô hiệu hóa ETag và cập nhật các chỉ mục.
+        // Không có giá trị cũ cho thống kê tồn kho -> đối soát lại trên thread nền (như trừ/cộng tồn kho)
+        String name = patch.ten();
+        boolean touchesInventory = patch.touchesInventory();
+        TransactionCallbacks.afterCommit(() -> {
+            catalogVersions.productChanged(id);
+            if (name != null) {
+                productSearchIndex.index(id, name);
+            }
+            if (touchesInventory) {
+                inventoryStatistics.reconcileAsync();
+            }
+            if (patch.soLuong() != null) {
+                discardStockEscrow(id);
+            }
+            listSnapshots.refreshAsync();
+        });
+        return updatedAt;
+    }
+
+    private static void checkVersion(Long id, Long expected, Long actual) {
+        if (expected != null && !expected.equals(actual)) {
+            throw new ProductVersionConflictException(conflictMessage(id));
+        }
+    }
+
+    private static String conflictMessage(Long id) {
+        return "Sản phẩm id " + id + " đã được người khác cập nhật, vui lòng tải lại";
+    }
+
+    // XÓA SẢN PHẨM (DELETE /api/products/{id})
+    // Một câu DELETE, không nạp sản phẩm trước; không có dòng nào bị xóa -> 404.
+    // Tombstone ghi cùng transaction với lệnh xóa để client đồng bộ thay đổi biết sản phẩm đã mất
+    @Transactional
     public void deleteProduct(Long id) {
-        if (!productRepository.existsById(id)) {
+        if (productRepository.deleteRowById(id) == 0) {
             throw new RuntimeException("Không tìm thấy sản phẩm với id: " + id);
         }
-        productRepository.deleteById(id);
+        productChangeFeed.recordDeletion(id);
+        // DELETE không qua entity listener -> tự vô hiệu hóa ETag và cập nhật các chỉ mục
+        TransactionCallbacks.afterCommit(() -> {
+            catalogVersions.productChanged(id);
+            productSearchIndex.remove(id);
+            discardStockEscrow(id);
+            // Không đọc giá/số lượng trước khi xóa -> thống kê tồn kho được đối soát lại trên thread nền
+            inventoryStatistics.reconcileAsync();
+            listSnapshots.refreshAsync();
+        });
+    }
+
+    // XÓA HÀNG LOẠT (DELETE /api/products?ids=... hoặc ?categoryId=&createdBefore=)
+    // Theo từng khối DELETE_CHUNK_SIZE sản phẩm: khóa các dòng sắp xóa (id + cột thống kê), một câu
+    // DELETE ... WHERE id IN, tombstone gom thành JDBC batch. Id không tồn tại bị bỏ qua.
+    // - Theo danh sách id (tối đa maxBatchItems): cả danh sách trong một transaction.
+    // - Theo bộ lọc (số dòng không giới hạn): mỗi khối một transaction riêng, commit xong mới sang khối
+    //   sau -> khóa dòng và bộ nhớ chỉ theo một khối. Không nguyên tử: lỗi giữa chừng thì các khối trước
+    //   đã xóa (kèm tombstone); gửi lại cùng bộ lọc để xóa nốt.
+    // Trả về số sản phẩm đã xóa
+    public int deleteProducts(List<Long> ids, Long categoryId, LocalDateTime createdBefore) {
+        ProductRepositoryCustom.DeleteCriteria criteria =
+                new ProductRepositoryCustom.DeleteCriteria(categoryId, createdBefore);
+        boolean byIds = ids != null && !ids.isEmpty();
+        if (byIds == !criteria.isEmpty()) {
+            throw new IllegalArgumentException("Cần danh sách id hoặc bộ lọc (categoryId, createdBefore), không dùng cả hai");
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        if (byIds) {
+            if (ids.size() > maxBatchItems) {
+                throw new IllegalArgumentException("Tối đa " + maxBatchItems + " sản phẩm mỗi lần");
+            }
+            List<Long> distinct = ids.stream().filter(Objects::nonNull).distinct().toList();
+            Integer deleted = transaction.execute(status -> {
+                List<ProductRepositoryCustom.Removal> removed = new ArrayList<>();
+                for (int from = 0; from < distinct.size(); from += DELETE_CHUNK_SIZE) {
+                    List<Long> chunk = distinct.subList(from, Math.min(from + DELETE_CHUNK_SIZE, distinct.size()));
+                    removed.addAll(deleteChunk(productRepository.lockForRemoval(chunk)));
+                }
+                afterRemovalCommit(removed);
+                return removed.size();
+            });
+            return deleted != null ? deleted : 0;
+        }
+
+        int deleted = 0;
+        Long afterId = null;
+        List<ProductRepositoryCustom.Removal> chunk;
+        do {
+            Long after = afterId;
+            chunk = transaction.execute(status -> {
+                List<ProductRepositoryCustom.Removal> removed =
+                        deleteChunk(productRepository.lockForRemoval(criteria, after, DELETE_CHUNK_SIZE));
+                afterRemovalCommit(removed);
+                return removed;
+            });
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+            deleted += chunk.size();
+            afterId = chunk.get(chunk.size() - 1).id();
+        } while (chunk.size() == DELETE_CHUNK_SIZE);
+        return deleted;
+    }
+
+    private List<ProductRepositoryCustom.Removal> deleteChunk(List<ProductRepositoryCustom.Removal> chunk) {
+        if (chunk.isEmpty()) {
+            return chunk;
+        }
+        List<Long> ids = chunk.stream().map(ProductRepositoryCustom.Removal::id).toList();
+        // Các dòng đã bị khóa ở trên nên DELETE xóa đúng chừng này dòng
+        productRepository.deleteRowsByIdIn(ids);
+        productChangeFeed.recordDeletions(ids);
+        // Ghi tombstone của khối này xuống DB rồi bỏ khỏi persistence context
+        entityManager.flush();
+        entityManager.clear();
+        return chunk;
+    }
+
+    // DELETE không qua entity listener -> sau commit tự vô hiệu hóa ETag, cập nhật chỉ mục và thống kê
+    private void afterRemovalCommit(List<ProductRepositoryCustom.Removal> removed) {
+        if (removed.isEmpty()) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            catalogVersions.catalogChanged();
+            for (ProductRepositoryCustom.Removal removal : removed) {
+                productSearchIndex.remove(removal.id());
+                inventoryStatistics.changed(InventoryStatistics.Contribution.of(removal.categoryId(), removal.price(),
+                        removal.quantity()), null);
+                discardStockEscrow(removal.id());
+            }
+            listSnapshots.refreshAsync();
+        });
+    }
+
+    // THỐNG KÊ TỒN KHO: đọc từ số liệu giữ sẵn trong bộ nhớ, không quét bảng products
+    public InventoryStats getInventoryStats() {
+        return inventoryStatistics.getStats();
+    }
+
+    // TRỪ TỒN KHO (POST /api/products/{id}/stock/decrement)
+    // Một câu UPDATE có điều kiện quantity >= amount, không đọc trước: nhiều request đồng thời trên cùng
+    // sản phẩm được DB tuần tự hóa theo khóa dòng, không bao giờ bán quá. Không đủ hàng -> 409.
+    // Không @Transactional: câu UPDATE tự là một transaction ngắn (khóa dòng giữ ít nhất có thể)
+    // Chế độ striped: ETag, thống kê và ảnh chụp danh sách thấy quantity mới ở lần flush kế tiếp
+    public void decrementStock(Long id, int amount) {
+        checkStockAmount(amount);
+        boolean applied = stockAccumulator != null
+                ? stockAccumulator.decrement(id, amount)
+                : adjustStock(id, -amount);
+        if (!applied) {
+            throw stockFailure(id, "Không đủ hàng cho sản phẩm id " + id);
+        }
+    }
+
+    // CỘNG TỒN KHO (POST /api/products/{id}/stock/increment): như trên với quantity + amount <= MAX_QUANTITY
+    public void incrementStock(Long id, int amount) {
+        checkStockAmount(amount);
+        boolean applied = stockAccumulator != null
+                ? stockAccumulator.increment(id, amount)
+                : adjustStock(id, amount);
+        if (!applied) {
+            throw stockFailure(id, "Tồn kho không được vượt quá " + Product.MAX_QUANTITY);
+        }
+    }
+
+    private static void checkStockAmount(int amount) {
+        if (amount < 1 || amount > Product.MAX_QUANTITY) {
+            throw new IllegalArgumentException("Số lượng phải từ 1 đến " + Product.MAX_QUANTITY);
+        }
+    }
+
+    private boolean adjustStock(long id, int delta) {
+        if (!updateStock(id, delta)) {
+            return false;
+        }
+        TransactionCallbacks.afterCommit(() -> stockChanged(List.of(id)));
+        return true;
+    }
+
+    private boolean updateStock(long id, int delta) {
+        return productRepository.adjustStock(id, delta, LocalDateTime.now().truncatedTo(ChronoUnit.MICROS)) > 0;
+    }
+
+    // UPDATE hàng loạt không qua entity listener; không đọc giá -> thống kê đối soát lại trên thread nền
+    private void stockChanged(Collection<Long> ids) {
+        ids.forEach(catalogVersions::productChanged);
+        inventoryStatistics.reconcileAsync();
+        listSnapshots.refreshAsync();
+    }
+
+    // Chỉ khi UPDATE không khớp dòng nào mới tra xem sản phẩm có tồn tại không (404 hay 409)
+    private RuntimeException stockFailure(Long id, String conflict) {
+        if (!productRepository.existsById(id)) {
+            return new RuntimeException("Không tìm thấy sản phẩm với id: " + id);
+        }
+        return new StockConflictException(conflict);
+    }
+
+    @PostConstruct
+    void initStockMode() {
+        if ("striped".equalsIgnoreCase(stockMode)) {
+            // take/add chạy khi giữ khóa sọc -> chỉ câu UPDATE; ETag, thống kê, ảnh chụp cập nhật một lần mỗi flush
+            stockAccumulator = new StockAccumulator(new StockAccumulator.Store() {
+                @Override
+                public boolean take(long productId, int amount) {
+                    return updateStock(productId, -amount);
+                }
+
+                @Override
+                public boolean add(long productId, int amount) {
+                    return updateStock(productId, amount);
+                }
+
+                @Override
+                public boolean exists(long productId) {
+                    return productRepository.existsById(productId);
+                }
+
+                @Override
+                public void changed(Collection<Long> productIds) {
+                    stockChanged(productIds);
+                }
+            }, stockBlockSize, stockStripes, stockFlushIntervalMs);
+        } else if (!"direct".equalsIgnoreCase(stockMode)) {
+            throw new IllegalStateException("app.product.stock.mode phải là direct hoặc striped: " + stockMode);
+        }
+    }
+
+    // Số lượng bị ghi tuyệt đối (PUT/PATCH/batch) hoặc sản phẩm bị xóa: số dư ký quỹ thuộc giá trị cũ, bỏ đi
+    private void discardStockEscrow(Long id) {
+        if (stockAccumulator != null) {
+            stockAccumulator.discard(id);
+        }
+    }
+
+    // Chỉ mục tìm kiếm, thống kê và ảnh chụp danh sách chỉ thấy dữ liệu đã commit; rollback thì không cập nhật.
+    // before = phần đóng góp vào thống kê trước khi sửa (null khi tạo mới)
+    private void afterCommit(Product product, InventoryStatistics.Contribution before) {
+        Long id = product.getId();
+        String name = product.getTen();
+        InventoryStatistics.Contribution after = InventoryStatistics.Contribution.of(product);
+        TransactionCallbacks.afterCommit(() -> {
+            productSearchIndex.index(id, name);
+            inventoryStatistics.changed(before, after);
+            if (before != null) {
+                discardStockEscrow(id);
+            }
+            listSnapshots.refreshAsync();
+        });
+    }
+
+    // Như afterCommit nhưng cho cả batch: một callback, ảnh chụp danh sách chỉ dựng lại một lần
+    private void afterBatchCommit(List<Product> products, List<InventoryStatistics.Contribution> befores) {
+        List<Long> ids = new ArrayList<>(products.size());
+        List<String> names = new ArrayList<>(products.size());
+        List<InventoryStatistics.Contribution> afters = new ArrayList<>(products.size());
+        for (Product product : products) {
+            ids.add(product.getId());
+            names.add(product.getTen());
+            afters.add(InventoryStatistics.Contribution.of(product));
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            for (int i = 0; i < ids.size(); i++) {
+                productSearchIndex.index(ids.get(i), names.get(i));
+                inventoryStatistics.changed(befores.get(i), afters.get(i));
+                if (befores.get(i) != null) {
+                    discardStockEscrow(ids.get(i));
+                }
+            }
+            if (!ids.isEmpty()) {
+                listSnapshots.refreshAsync();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Trả số dư ký quỹ về DB trước khi tắt (chế độ striped)
+        if (stockAccumulator != null) {
+            stockAccumulator.shutdown();
+        }
+        listSnapshots.shutdown();
+    }
+
+    // --- CÁC HÀM TIỆN ÍCH PHÂN TRANG ---
+
+    private int pageSize(Integer size) {
+        if (size == null) {
+            return Math.max(1, defaultPageSize);
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Kích thước trang phải lớn hơn 0");
+        }
+        return Math.min(size, Math.max(1, maxPageSize));
+    }
+
+    private static boolean isDescending(String direction) {
+        if (direction == null || direction.isBlank() || "asc".equalsIgnoreCase(direction)) {
+            return false;
+        }
+        if ("desc".equalsIgnoreCase(direction)) {
+            return true;
+        }
+        throw new IllegalArgumentException("Chiều sắp xếp phải là asc hoặc desc");
     }
 
     // --- CÁC HÀM TIỆN ÍCH CHUYỂN ĐỔI ---
@@ -85,6 +822,8 @@ public class ProductService {
         dto.setTen(product.getTen());     // Dùng getTen() để lấy 'name'
         dto.setGia(product.getGia());     // Dùng getGia() để lấy 'price'
         dto.setSoLuong(product.getSoLuong()); // Dùng getSoLuong() để lấy 'quantity'
+        dto.setMoTa(product.getDescription()); // Cùng các trường với projection ProductDto
+        dto.setVersion(product.getVersion());
         
         if (product.getCategory() != null) {
             dto.setCategoryId(product.getCategory().getId());
@@ -104,16 +843,45 @@ public class ProductService {
         product.setSoLuong(dto.getSoLuong()); // Dùng setSoLuong() để set 'quantity'
 
         // Lấy Category từ ID
-        Category category = categoryRepository.findById(dto.getCategoryId())
-                .orElseThrow(() -> new RuntimeException("Không tìm thấy Category ID: " + dto.getCategoryId()));
-        product.setCategory(category);
+        product.setCategory(categoryReference(dto.getCategoryId()));
 
         // Lấy User (người tạo) từ ID
-        User createdBy = userRepository.findById(dto.getCreatedById())
-                .orElseThrow(() -> new RuntimeException("Không tìm thấy User ID: " + dto.getCreatedById()));
-        product.setCreatedBy(createdBy);
+        product.setCreatedBy(userReference(dto.getCreatedById()));
         
         // Bỏ qua ID (vì đây là tạo mới) và timestamps (tự động tạo)
         return product;
     }
+
+    // Id đã biết tồn tại -> proxy lazy, không SELECT (chỉ cần khóa ngoại); chưa biết -> tra DB như cũ
+    private Category categoryReference(Long id) {
+        if (referenceIdIndex.hasCategory(id)) {
+            return categoryRepository.getReferenceById(id);
+        }
+        return categoryRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy Category ID: " + id));
+    }
+
+    private User userReference(Long id) {
+        if (referenceIdIndex.hasActiveUser(id)) {
+            return userRepository.getReferenceById(id);
+        }
+        return userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy User ID: " + id));
+    }
+
+    // INSERT bị khóa ngoại chặn: chỉ mục tham chiếu đã cũ (category/user vừa bị xóa ở nơi khác).
+    // Gỡ id khỏi chỉ mục và báo cùng lỗi như khi tra DB; vi phạm khác thì giữ nguyên ngoại lệ
+    private RuntimeException missingReference(Product product, ProductDto dto, DataIntegrityViolationException e) {
+        // Trong transaction bao ngoài, entity lỗi vẫn nằm trong persistence context -> gỡ ra trước khi truy vấn
+        entityManager.detach(product);
+        if (!categoryRepository.existsById(dto.getCategoryId())) {
+            referenceIdIndex.categoryRemoved(dto.getCategoryId());
+            return new RuntimeException("Không tìm thấy Category ID: " + dto.getCategoryId(), e);
+        }
+        if (!userRepository.existsById(dto.getCreatedById())) {
+            referenceIdIndex.userRemoved(dto.getCreatedById());
+            return new RuntimeException("Không tìm thấy User ID: " + dto.getCreatedById(), e);
+        }
+        return e;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.flogin.service;
+
+/**
+ * Ném ra khi sản phẩm đã bị người khác sửa sau version client đã đọc (optimistic lock);
+ * được map sang HTTP 409, client đọc lại rồi áp lại thay đổi
+ */
+public class ProductVersionConflictException extends RuntimeException {
+
+    public ProductVersionConflictException(String message) {
+        super(message);
+    }
+}
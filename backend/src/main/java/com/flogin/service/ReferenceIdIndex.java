@@ -0,0 +1,183 @@
+package com.flogin.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * =========================================================================================
+ * CHỈ MỤC ID THAM CHIẾU TRONG BỘ NHỚ (CATEGORY, USER ĐANG HOẠT ĐỘNG)
+ * =========================================================================================
+ * - Tạo sản phẩm chỉ cần khóa ngoại category_id/created_by: id có trong chỉ mục thì ProductService
+ *   gắn tham chiếu lazy (getReferenceById) thay vì SELECT từng dòng -> tạo sản phẩm chỉ còn 1 INSERT.
+ * - Không có trong chỉ mục (chưa dựng xong, user bị khóa, vừa tạo ở node khác) -> tra DB như cũ.
+ * - Chỉ mục cũ (category vừa bị xóa ở node khác) không làm sai dữ liệu: ràng buộc FK chặn INSERT
+ *   và ProductService báo lỗi như khi tra DB.
+ * - CatalogEntityListener/UserEntityListener cập nhật sau khi thay đổi commit; dựng lại định kỳ từ DB,
+ *   thay đổi xảy ra trong lúc dựng được phát lại trước khi hoán đổi (giống ProductSearchIndex).
+ * =========================================================================================
+ */
+@Component
+public class ReferenceIdIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ReferenceIdIndex.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // ReentrantLock thay cho synchronized: giữ lock trong lúc chờ JDBC không ghim (pin) virtual thread
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    /** Ảnh bất biến, hoán đổi nguyên khối; null khi chưa dựng xong. Chỉ ghi khi giữ lock */
+    private volatile Set<Long> categoryIds;
+    private volatile Set<Long> activeUserIds;
+    /** Thay đổi xảy ra trong lúc rebuild() đang chạy (null khi không dựng lại); chỉ truy cập khi giữ lock */
+    private List<Change> changedDuringRebuild;
+
+    private enum Kind { CATEGORY, USER }
+
+    /** present == false nghĩa là gỡ (xóa category, xóa/khóa user) */
+    private record Change(Kind kind, long id, boolean present) {
+    }
+
+    @Autowired
+    public ReferenceIdIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * true = chắc chắn đã thấy category này commit; false = không biết, phải tra DB
+     */
+    public boolean hasCategory(Long id) {
+        Set<Long> ids = categoryIds;
+        return id != null && ids != null && ids.contains(id);
+    }
+
+    /**
+     * true = user tồn tại và đang hoạt động; false = không biết, phải tra DB
+     */
+    public boolean hasActiveUser(Long id) {
+        Set<Long> ids = activeUserIds;
+        return id != null && ids != null && ids.contains(id);
+    }
+
+    /** Gọi sau khi category được tạo (commit) */
+    public void categorySaved(Long id) {
+        apply(Kind.CATEGORY, id, true);
+    }
+
+    /** Gọi sau khi category bị xóa (commit) */
+    public void categoryRemoved(Long id) {
+        apply(Kind.CATEGORY, id, false);
+    }
+
+    /** Gọi sau khi user được tạo/sửa (commit); user bị khóa thì gỡ khỏi chỉ mục */
+    public void userSaved(Long id, boolean active) {
+        apply(Kind.USER, id, active);
+    }
+
+    /** Gọi sau khi user bị xóa (commit) */
+    public void userRemoved(Long id) {
+        apply(Kind.USER, id, false);
+    }
+
+    private void apply(Kind kind, Long id, boolean present) {
+        if (id == null) {
+            return;
+        }
+        Change change = new Change(kind, id, present);
+        lock.lock();
+        try {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(change);
+            }
+            if (kind == Kind.CATEGORY && categoryIds != null) {
+                categoryIds = applied(categoryIds, change);
+            } else if (kind == Kind.USER && activeUserIds != null) {
+                activeUserIds = applied(activeUserIds, change);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Copy-on-write: người đọc không cần lock; ghi hiếm (thêm/xóa category, user)
+    private static Set<Long> applied(Set<Long> ids, Change change) {
+        if (ids.contains(change.id()) == change.present()) {
+            return ids;
+        }
+        Set<Long> next = new HashSet<>(ids);
+        if (change.present()) {
+            next.add(change.id());
+        } else {
+            next.remove(change.id());
+        }
+        return Set.copyOf(next);
+    }
+
+    /**
+     * Dựng lại từ bảng categories/users; chạy lúc khởi động và định kỳ trên thread scheduler
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.reference-index.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            // Mở danh sách phát lại trước khi SELECT: commit trước thời điểm này thì SELECT thấy,
+            // commit sau thì apply() ghi vào danh sách
+            lock.lock();
+            try {
+                changedDuringRebuild = new ArrayList<>();
+            } finally {
+                lock.unlock();
+            }
+
+            Set<Long> categories = new HashSet<>();
+            jdbcTemplate.query("SELECT id FROM categories", (RowCallbackHandler) rs -> categories.add(rs.getLong(1)));
+            Set<Long> users = new HashSet<>();
+            jdbcTemplate.query("SELECT id FROM users WHERE is_active = TRUE",
+                    (RowCallbackHandler) rs -> users.add(rs.getLong(1)));
+
+            lock.lock();
+            try {
+                Set<Long> nextCategories = Set.copyOf(categories);
+                Set<Long> nextUsers = Set.copyOf(users);
+                for (Change change : changedDuringRebuild) {
+                    if (change.kind() == Kind.CATEGORY) {
+                        nextCategories = applied(nextCategories, change);
+                    } else {
+                        nextUsers = applied(nextUsers, change);
+                    }
+                }
+                categoryIds = nextCategories;
+                activeUserIds = nextUsers;
+            } finally {
+                lock.unlock();
+            }
+        } catch (DataAccessException e) {
+            // Giữ chỉ mục cũ (hoặc tra DB nếu chưa có) khi DB chưa sẵn sàng
+            log.warn("Không dựng được chỉ mục id category/user: {}", e.getMessage());
+        } finally {
+            lock.lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.unlock();
+            }
+            rebuildLock.unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return categoryIds != null;
+    }
+}
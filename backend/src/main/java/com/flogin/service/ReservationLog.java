@@ -0,0 +1,150 @@
+package com.flogin.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * =========================================================================================
+ * NHẬT KÝ GHI TRƯỚC (WRITE-AHEAD LOG) CỦA GIỮ HÀNG - FILE CHỈ GHI NỐI
+ * =========================================================================================
+ * - Mỗi thay đổi là một dòng văn bản ghi nối vào cuối file:
+ *     R <id> <productId> <amount> <expiresAtMs>   giữ hàng
+ *     C <id>                                     xác nhận (hàng đã bán)
+ *     X <id>                                     trả lại (client hủy hoặc hết hạn)
+ * - fsync = true: mỗi dòng được force xuống đĩa trước khi trả về (tiến trình / máy chết không mất giữ hàng).
+ * - replay(): đọc lại toàn bộ, R trừ đi C/X -> các giữ hàng còn sống. Dòng cuối ghi dở (không có '\n',
+ *   tiến trình chết giữa chừng) và dòng hỏng bị bỏ qua.
+ * - rewrite(): nén file chỉ còn các giữ hàng còn sống (file tạm + fsync + đổi tên nguyên tử) để file
+ *   không lớn mãi.
+ * - Không thread-safe: StockReservations gọi khi giữ khóa.
+ * =========================================================================================
+ */
+final class ReservationLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationLog.class);
+
+    record Hold(String id, long productId, int amount, long expiresAtMs) {
+    }
+
+    private final Path path;
+    private final boolean fsync;
+    private FileChannel channel;
+    /** Số dòng trong file (để quyết định lúc nén) */
+    private long records;
+
+    ReservationLog(Path path, boolean fsync) throws IOException {
+        this.path = path;
+        this.fsync = fsync;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = open();
+    }
+
+    /**
+     * Các giữ hàng còn sống theo thứ tự ghi (có thể đã quá hạn trong lúc ứng dụng dừng)
+     */
+    List<Hold> replay() throws IOException {
+        Map<String, Hold> live = new LinkedHashMap<>();
+        String content = Files.readString(path, StandardCharsets.UTF_8);
+        int end = content.lastIndexOf('\n');
+        if (end < content.length() - 1) {
+            log.warn("Nhật ký giữ hàng {}: bỏ qua dòng cuối ghi dở", path);
+        }
+        records = 0;
+        if (end >= 0) {
+            for (String line : content.substring(0, end).split("\n")) {
+                records++;
+                String[] fields = line.split(" ");
+                try {
+                    switch (fields[0]) {
+                        case "R" -> live.put(fields[1], new Hold(fields[1], Long.parseLong(fields[2]),
+                                Integer.parseInt(fields[3]), Long.parseLong(fields[4])));
+                        case "C", "X" -> live.remove(fields[1]);
+                        default -> throw new IllegalArgumentException(fields[0]);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Nhật ký giữ hàng {}: bỏ qua dòng hỏng '{}'", path, line);
+                }
+            }
+        }
+        return List.copyOf(live.values());
+    }
+
+    void reserved(Hold hold) throws IOException {
+        append("R " + hold.id() + " " + hold.productId() + " " + hold.amount() + " " + hold.expiresAtMs());
+    }
+
+    void confirmed(String id) throws IOException {
+        append("C " + id);
+    }
+
+    void released(String id) throws IOException {
+        append("X " + id);
+    }
+
+    long records() {
+        return records;
+    }
+
+    /**
+     * Thay file bằng bản chỉ chứa các giữ hàng còn sống
+     */
+    void rewrite(Collection<Hold> live) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        StringBuilder content = new StringBuilder();
+        for (Hold hold : live) {
+            content.append("R ").append(hold.id()).append(' ').append(hold.productId()).append(' ')
+                    .append(hold.amount()).append(' ').append(hold.expiresAtMs()).append('\n');
+        }
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, content.toString());
+            out.force(true);
+        }
+        channel.close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open();
+        records = live.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void append(String line) throws IOException {
+        writeFully(channel, line + "\n");
+        if (fsync) {
+            // Chỉ cần dữ liệu file, không cần metadata (mtime)
+            channel.force(false);
+        }
+        records++;
+    }
+
+    private static void writeFully(FileChannel target, String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.flogin.service;
+
+/**
+ * Ném ra khi trừ quá số hàng còn lại hoặc cộng vượt giới hạn tồn kho (Product.MAX_QUANTITY);
+ * không có gì được ghi. Được map sang HTTP 409
+ */
+public class StockConflictException extends RuntimeException {
+
+    public StockConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,459 @@
+package com.flogin.service;
+
+import com.flogin.dto.StockLevel;
+import com.flogin.dto.StockReservation;
+import com.flogin.entity.Product;
+import com.flogin.security.ServiceBusyException;
+import com.flogin.util.TimingWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * =========================================================================================
+ * GIỮ HÀNG CÓ THỜI HẠN CHO CHECKOUT (BẢNG TRONG BỘ NHỚ + BÁNH XE THỜI GIAN + NHẬT KÝ GHI TRƯỚC)
+ * =========================================================================================
+ * - Giữ hàng chỉ nằm trong bộ nhớ (và nhật ký): reserve / release / hết hạn không chạm DB.
+ *   available = onHand - reserved, với onHand là quantity trong DB được cache theo sản phẩm (đọc một
+ *   lần, bỏ khi sản phẩm thay đổi - listener của CatalogVersions) và reserved là tổng đang giữ.
+ * - reserve: available không đủ -> 409; kiểm tra và ghi giữ hàng trong cùng một lượt giữ lock nên
+ *   các lần giữ đồng thời không giữ quá onHand.
+ * - confirm: câu UPDATE có điều kiện duy nhất của luồng (decrementStock, không bán quá), rồi mới ghi
+ *   nhật ký và xóa giữ hàng. UPDATE lỗi (409 vì hàng đã bị bán trực tiếp, 404, lỗi DB) -> giữ hàng
+ *   còn nguyên, hết hạn như thường. Bán trực tiếp không đi qua bảng này nên có thể lấy mất hàng đang
+ *   giữ; khi đó confirm là nơi phát hiện.
+ * - Hết hạn: TimingWheel (đặt / hủy O(1)), một thread nền gọi expireDue() mỗi tick-ms; không có job
+ *   quét bảng định kỳ.
+ * - Bền vững: mọi thay đổi được ghi nối vào ReservationLog trước khi trả về; khởi động lại thì phát
+ *   lại nhật ký (giữ hàng quá hạn trong lúc dừng hết hạn ở tick đầu tiên) rồi nén file.
+ *   confirm trừ DB trước, ghi nhật ký sau: chết giữa hai bước thì giữ hàng sống lại và chỉ hết hạn
+ *   (DB THIẾU hàng, không bao giờ bán quá).
+ * - Một node: bảng và nhật ký là cục bộ như các chỉ mục trong bộ nhớ khác.
+ * =========================================================================================
+ */
+@Component
+public class StockReservations {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReservations.class);
+
+    private static final int WHEEL_SIZE = 512;
+    // Nén nhật ký khi số dòng vượt quá COMPACT_FACTOR lần số giữ hàng còn sống (+ COMPACT_MIN)
+    private static final int COMPACT_FACTOR = 4;
+    private static final int COMPACT_MIN = 10_000;
+
+    private final ProductService productService;
+    private final CatalogVersions catalogVersions;
+    /** null = chỉ giữ trong bộ nhớ (khởi động lại mất giữ hàng, hàng đang giữ không được trả) */
+    private final Path walPath;
+    private final boolean fsync;
+    private final long tickMs;
+    private final long defaultTtlSeconds;
+    private final long maxTtlSeconds;
+    private final int maxActive;
+    private final LongSupplier clock;
+
+    // ReentrantLock thay cho synchronized: giữ lock trong lúc chờ fsync không ghim (pin) virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Giữ hàng theo id; chỉ truy cập khi giữ lock */
+    private final Map<String, TimingWheel.Timeout<ReservationLog.Hold>> holds = new HashMap<>();
+    /** Giữ hàng đang confirm (UPDATE đang chạy, ngoài lock); vẫn tính vào reserved; chỉ truy cập khi giữ lock */
+    private final Map<String, ReservationLog.Hold> confirming = new HashMap<>();
+    /** Tổng số đang giữ theo sản phẩm; ghi khi giữ lock, đọc không khóa */
+    private final Map<Long, Integer> reservedByProduct = new ConcurrentHashMap<>();
+    /** quantity trong DB theo sản phẩm (tối đa max-active mục); bỏ khi sản phẩm thay đổi */
+    private final Map<Long, Integer> onHand = new ConcurrentHashMap<>();
+    private TimingWheel<ReservationLog.Hold> wheel;
+    private ReservationLog wal;
+    private ScheduledExecutorService expirer;
+
+    private final AtomicLong reservedCount = new AtomicLong();
+    private final AtomicLong confirmedCount = new AtomicLong();
+    private final AtomicLong releasedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    @Autowired
+    public StockReservations(ProductService productService, CatalogVersions catalogVersions,
+                             @Value("${app.product.reservation.wal-path:data/stock-reservations.wal}") String walPath,
+                             @Value("${app.product.reservation.fsync:true}") boolean fsync,
+                             @Value("${app.product.reservation.tick-ms:100}") long tickMs,
+                             @Value("${app.product.reservation.default-ttl-seconds:300}") long defaultTtlSeconds,
+                             @Value("${app.product.reservation.max-ttl-seconds:3600}") long maxTtlSeconds,
+                             @Value("${app.product.reservation.max-active:100000}") int maxActive) {
+        this(productService, catalogVersions, walPath.isBlank() ? null : Path.of(walPath), fsync, tickMs, defaultTtlSeconds,
+                maxTtlSeconds, maxActive, System::currentTimeMillis);
+    }
+
+    StockReservations(ProductService productService, CatalogVersions catalogVersions, Path walPath, boolean fsync,
+                      long tickMs, long defaultTtlSeconds, long maxTtlSeconds, int maxActive, LongSupplier clock) {
+        this.productService = productService;
+        this.catalogVersions = catalogVersions;
+        this.walPath = walPath;
+        this.fsync = fsync;
+        this.tickMs = tickMs;
+        this.defaultTtlSeconds = defaultTtlSeconds;
+        this.maxTtlSeconds = maxTtlSeconds;
+        this.maxActive = maxActive;
+        this.clock = clock;
+        this.wheel = new TimingWheel<>(tickMs, WHEEL_SIZE, clock.getAsLong());
+        catalogVersions.addListener(productId -> {
+            if (productId != null) {
+                onHand.remove(productId);
+            } else {
+                onHand.clear();
+            }
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        recover();
+        expirer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-reservation-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        expirer.scheduleWithFixedDelay(this::expireQuietly, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Mở nhật ký, phát lại các giữ hàng còn sống vào bảng và nén file.
+     * Không đọc được nhật ký -> không khởi động (chạy tiếp sẽ làm mất giữ hàng mà không ai biết)
+     */
+    void recover() {
+        lock.lock();
+        try {
+            wheel = new TimingWheel<>(tickMs, WHEEL_SIZE, clock.getAsLong());
+            holds.clear();
+            confirming.clear();
+            reservedByProduct.clear();
+            if (walPath == null) {
+                log.warn("app.product.reservation.wal-path trống: giữ hàng chỉ nằm trong bộ nhớ, khởi động lại sẽ mất");
+                return;
+            }
+            wal = new ReservationLog(walPath, fsync);
+            List<ReservationLog.Hold> live = wal.replay();
+            for (ReservationLog.Hold hold : live) {
+                // Đã quá hạn trong lúc dừng -> hết hạn ở lần expireDue() đầu tiên
+                track(hold);
+            }
+            // Bỏ các dòng đã chết và dòng cuối ghi dở trước khi ghi nối tiếp
+            wal.rewrite(live);
+            log.info("Khôi phục {} giữ hàng từ {}", live.size(), walPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không mở được nhật ký giữ hàng " + walPath, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Giữ amount đơn vị của sản phẩm trong ttlSeconds (null = mặc định); không ghi DB
+     */
+    public StockReservation reserve(Long productId, int amount, Long ttlSeconds) {
+        if (amount < 1 || amount > Product.MAX_QUANTITY) {
+            throw new IllegalArgumentException("Số lượng phải từ 1 đến " + Product.MAX_QUANTITY);
+        }
+        long ttl = ttlSeconds != null ? ttlSeconds : defaultTtlSeconds;
+        if (ttl < 1 || ttl > maxTtlSeconds) {
+            throw new IllegalArgumentException("Thời gian giữ hàng phải từ 1 đến " + maxTtlSeconds + " giây");
+        }
+        // Không có sản phẩm -> 404; chỉ truy vấn khi chưa có trong cache, và ngoài lock
+        int quantity = onHand(productId);
+
+        ReservationLog.Hold hold = new ReservationLog.Hold(UUID.randomUUID().toString(), productId, amount,
+                clock.getAsLong() + ttl * 1000);
+        lock.lock();
+        try {
+            if (holds.size() + confirming.size() >= maxActive) {
+                throw new ServiceBusyException("Đang giữ quá nhiều đơn hàng, vui lòng thử lại sau");
+            }
+            if (quantity - reserved(productId) < amount) {
+                throw new StockConflictException("Không đủ hàng cho sản phẩm id " + productId);
+            }
+            if (wal != null) {
+                wal.reserved(hold);
+            }
+            track(hold);
+        } catch (IOException e) {
+            throw walFailure(e);
+        } finally {
+            lock.unlock();
+        }
+        reservedCount.incrementAndGet();
+        return toDto(hold);
+    }
+
+    /**
+     * Xác nhận: trừ tồn kho trong DB (một câu UPDATE có điều kiện) rồi xóa giữ hàng.
+     * Không trừ được (409 / 404 / lỗi DB) -> giữ hàng còn nguyên, lỗi được ném tiếp
+     */
+    public void confirm(String id) {
+        ReservationLog.Hold hold;
+        lock.lock();
+        try {
+            find(id);
+            // Ra khỏi bánh xe trong lúc UPDATE chạy (không hết hạn giữa chừng) nhưng vẫn tính vào reserved
+            TimingWheel.Timeout<ReservationLog.Hold> timeout = holds.remove(id);
+            wheel.cancel(timeout);
+            hold = timeout.payload();
+            confirming.put(id, hold);
+        } finally {
+            lock.unlock();
+        }
+
+        boolean sold = false;
+        try {
+            productService.decrementStock(hold.productId(), hold.amount());
+            sold = true;
+        } finally {
+            lock.lock();
+            try {
+                confirming.remove(id);
+                if (sold) {
+                    unreserve(hold);
+                    // Chế độ striped chưa báo thay đổi tới lần flush: đọc lại quantity ở lần sau
+                    onHand.remove(hold.productId());
+                    writeConfirmed(id);
+                } else {
+                    // Đã quá hạn trong lúc chờ -> hết hạn ở tick kế tiếp
+                    holds.put(id, wheel.schedule(hold, hold.expiresAtMs()));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        confirmedCount.incrementAndGet();
+    }
+
+    /**
+     * Hủy giữ hàng: hàng lại bán được ngay (available tăng), không ghi DB
+     */
+    public void release(String id) {
+        lock.lock();
+        try {
+            find(id);
+            if (wal != null) {
+                wal.released(id);
+            }
+            untrack(id);
+        } catch (IOException e) {
+            throw walFailure(e);
+        } finally {
+            lock.unlock();
+        }
+        releasedCount.incrementAndGet();
+    }
+
+    /**
+     * Trả hàng của các giữ hàng đã hết hạn; thread nền gọi mỗi tick-ms.
+     *
+     * @return số giữ hàng hết hạn
+     */
+    public int expireDue() {
+        List<ReservationLog.Hold> due = new ArrayList<>();
+        int expired = 0;
+        lock.lock();
+        try {
+            wheel.advance(clock.getAsLong(), due::add);
+            for (ReservationLog.Hold hold : due) {
+                holds.remove(hold.id());
+                try {
+                    if (wal != null) {
+                        wal.released(hold.id());
+                    }
+                    unreserve(hold);
+                    expired++;
+                } catch (IOException e) {
+                    // Chưa ghi được thì vẫn giữ: đặt lại để thử ở tick sau
+                    log.error("Không ghi được nhật ký giữ hàng: {}", e.getMessage());
+                    holds.put(hold.id(), wheel.schedule(hold, hold.expiresAtMs()));
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.unlock();
+        }
+        expiredCount.addAndGet(expired);
+        return expired;
+    }
+
+    /**
+     * Số đơn vị đang giữ của sản phẩm; đọc từ bộ nhớ, không khóa, không truy vấn
+     */
+    public int reserved(Long productId) {
+        return reservedByProduct.getOrDefault(productId, 0);
+    }
+
+    /**
+     * Tồn kho của sản phẩm: onHand từ cache (truy vấn DB chỉ khi chưa có), available = onHand - reserved.
+     * Hàng đang giữ đã bị bán trực tiếp thì available = 0
+     */
+    public StockLevel stockLevel(Long productId) {
+        int quantity = onHand(productId);
+        int reserved = reserved(productId);
+        return new StockLevel(productId, Math.max(0, quantity - reserved), reserved, quantity);
+    }
+
+    public int activeReservations() {
+        lock.lock();
+        try {
+            return holds.size() + confirming.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getReservedCount() {
+        return reservedCount.get();
+    }
+
+    public long getConfirmedCount() {
+        return confirmedCount.get();
+    }
+
+    public long getReleasedCount() {
+        return releasedCount.get();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * Dừng thread hết hạn và đóng nhật ký; giữ hàng còn sống được khôi phục ở lần khởi động sau
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (expirer != null) {
+            expirer.shutdownNow();
+        }
+        lock.lock();
+        try {
+            if (wal != null) {
+                wal.close();
+            }
+        } catch (IOException e) {
+            log.warn("Không đóng được nhật ký giữ hàng: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void expireQuietly() {
+        try {
+            expireDue();
+        } catch (RuntimeException e) {
+            // Giữ hàng chưa hết hạn được vẫn ở trong bảng/nhật ký; lần sau thử lại
+            log.warn("Lỗi khi trả hàng giữ quá hạn: {}", e.getMessage());
+        }
+    }
+
+    // Gọi khi giữ lock
+    private void track(ReservationLog.Hold hold) {
+        holds.put(hold.id(), wheel.schedule(hold, hold.expiresAtMs()));
+        reservedByProduct.merge(hold.productId(), hold.amount(), Integer::sum);
+    }
+
+    // Gọi khi giữ lock
+    private ReservationLog.Hold untrack(String id) {
+        TimingWheel.Timeout<ReservationLog.Hold> timeout = holds.remove(id);
+        wheel.cancel(timeout);
+        unreserve(timeout.payload());
+        return timeout.payload();
+    }
+
+    // Gọi khi giữ lock
+    private void unreserve(ReservationLog.Hold hold) {
+        reservedByProduct.computeIfPresent(hold.productId(),
+                (productId, reserved) -> reserved == hold.amount() ? null : reserved - hold.amount());
+    }
+
+    // Gọi khi giữ lock
+    private void find(String id) {
+        if (id == null || !holds.containsKey(id)) {
+            throw new RuntimeException("Không tìm thấy giữ hàng " + id + " (không tồn tại hoặc đã hết hạn)");
+        }
+    }
+
+    // Gọi khi giữ lock
+    private void compactIfNeeded() {
+        if (wal == null || wal.records() <= (long) COMPACT_FACTOR * holds.size() + COMPACT_MIN) {
+            return;
+        }
+        List<ReservationLog.Hold> live = new ArrayList<>(holds.size() + confirming.size());
+        for (TimingWheel.Timeout<ReservationLog.Hold> timeout : holds.values()) {
+            live.add(timeout.payload());
+        }
+        live.addAll(confirming.values());
+        try {
+            wal.rewrite(live);
+        } catch (IOException e) {
+            // File cũ vẫn đúng (chỉ dài hơn); thử lại ở lần sau
+            log.warn("Không nén được nhật ký giữ hàng: {}", e.getMessage());
+        }
+    }
+
+    // Gọi khi giữ lock. DB đã trừ: lỗi nhật ký không làm hỏng lần bán, chỉ để giữ hàng sống lại sau
+    // khởi động lại và hết hạn (DB thiếu hàng, không bán quá)
+    private void writeConfirmed(String id) {
+        if (wal == null) {
+            return;
+        }
+        try {
+            wal.confirmed(id);
+        } catch (IOException e) {
+            log.error("Không ghi được nhật ký xác nhận giữ hàng {}: {}", id, e.getMessage());
+        }
+    }
+
+    // quantity trong DB; lần đầu đọc theo khóa chính (không có -> 404). Chỉ giữ lại nếu không có thay
+    // đổi nào commit trong lúc đọc (như CatalogVersions.rememberProduct)
+    private int onHand(Long productId) {
+        Integer cached = onHand.get(productId);
+        if (cached != null) {
+            return cached;
+        }
+        long seenCatalogVersion = catalogVersions.catalogVersion();
+        int quantity = productService.getProductById(productId).getSoLuong();
+        if (catalogVersions.catalogVersion() == seenCatalogVersion && onHand.size() < maxActive) {
+            onHand.put(productId, quantity);
+            if (catalogVersions.catalogVersion() != seenCatalogVersion) {
+                onHand.remove(productId, quantity);
+            }
+        }
+        return quantity;
+    }
+
+    private static ServiceBusyException walFailure(IOException e) {
+        log.error("Không ghi được nhật ký giữ hàng: {}", e.getMessage());
+        return new ServiceBusyException("Không ghi được nhật ký giữ hàng, vui lòng thử lại sau");
+    }
+
+    private static StockReservation toDto(ReservationLog.Hold hold) {
+        return new StockReservation(hold.id(), hold.productId(), hold.amount(),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(hold.expiresAtMs()), ZoneId.systemDefault()));
+    }
+}
@@ -0,0 +1,12 @@
+package com.flogin.service;
+
+/**
+ * Ném ra khi cursor đồng bộ cũ hơn thời gian giữ tombstone: không còn biết chắc sản phẩm nào
+ * đã bị xóa, client phải tải lại toàn bộ; được map sang HTTP 410
+ */
+public class SyncCursorExpiredException extends RuntimeException {
+
+    public SyncCursorExpiredException(String message) {
+        super(message);
+    }
+}
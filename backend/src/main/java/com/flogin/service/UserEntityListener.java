@@ -0,0 +1,68 @@
+package com.flogin.service;
+
+import com.flogin.entity.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import static com.flogin.util.TransactionCallbacks.afterCommit;
+
+/**
+ * JPA listener cho User:
+ * - Đưa username mới vào UsernameBloomFilter ngay sau khi INSERT/UPDATE commit, không chờ lần dựng lại định kỳ
+ *   (@PostPersist chạy lúc flush, trước commit: lần dựng lại đang chạy chưa thấy dòng mới)
+ * - Xóa mục tương ứng trong CredentialCache sau khi thay đổi User (đổi mật khẩu, role, khóa, xóa) commit:
+ *   xóa lúc flush thì lần đăng nhập đồng thời vẫn đọc được dòng cũ đã commit và cache lại nó
+ * - Cập nhật ReferenceIdIndex (user đang hoạt động) sau commit: tạo sản phẩm không cần SELECT người tạo
+ * - Gắn vào User qua META-INF/orm.xml: entity không phụ thuộc tầng service
+ */
+@Component
+public class UserEntityListener {
+
+    private final ObjectProvider<UsernameBloomFilter> usernameBloomFilter;
+    private final ObjectProvider<CredentialCache> credentialCache;
+    private final ObjectProvider<ReferenceIdIndex> referenceIdIndex;
+
+    public UserEntityListener(ObjectProvider<UsernameBloomFilter> usernameBloomFilter,
+                              ObjectProvider<CredentialCache> credentialCache,
+                              ObjectProvider<ReferenceIdIndex> referenceIdIndex) {
+        this.usernameBloomFilter = usernameBloomFilter;
+        this.credentialCache = credentialCache;
+        this.referenceIdIndex = referenceIdIndex;
+    }
+
+    @PostPersist
+    public void onCreated(User user) {
+        String username = user.getUsername();
+        Long userId = user.getId();
+        boolean active = user.isActive();
+        afterCommit(() -> {
+            usernameBloomFilter.ifAvailable(filter -> filter.add(username));
+            referenceIdIndex.ifAvailable(index -> index.userSaved(userId, active));
+        });
+    }
+
+    @PostUpdate
+    public void onUpdated(User user) {
+        String username = user.getUsername();
+        Long userId = user.getId();
+        boolean active = user.isActive();
+        afterCommit(() -> {
+            usernameBloomFilter.ifAvailable(filter -> filter.add(username));
+            credentialCache.ifAvailable(cache -> cache.invalidate(userId, username));
+            referenceIdIndex.ifAvailable(index -> index.userSaved(userId, active));
+        });
+    }
+
+    @PostRemove
+    public void onRemoved(User user) {
+        Long userId = user.getId();
+        String username = user.getUsername();
+        afterCommit(() -> {
+            credentialCache.ifAvailable(cache -> cache.invalidate(userId, username));
+            referenceIdIndex.ifAvailable(index -> index.userRemoved(userId));
+        });
+    }
+}
@@ -0,0 +1,201 @@
+package com.flogin.service;
+
+import com.flogin.util.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * =========================================================================================
+ * BLOOM FILTER TÊN ĐĂNG NHẬP (NEGATIVE LOOKUP TRƯỚC KHI TRUY VẤN UserRepository)
+ * =========================================================================================
+ * - Phần lớn lưu lượng đăng nhập là username không tồn tại; filter trả lời "chắc chắn
+ *   không có" mà không cần truy vấn MySQL.
+ * - Dựng lúc khởi động bằng cách stream bảng users (JDBC fetch size), dựng lại định kỳ
+ *   để loại tên đã xóa và mở rộng khi số user tăng.
+ * - User mới được thêm ngay qua UserEntityListener, sau khi transaction INSERT đã commit.
+ * - Tên được thêm trong lúc đang dựng lại được ghi nhận riêng và phát lại vào filter mới
+ *   sau khi hoán đổi, nên không có âm tính giả quanh thời điểm hoán đổi.
+ * - Chưa dựng xong -> fail-open (coi như có thể tồn tại) để không chặn nhầm người dùng.
+ * - So khớp không phân biệt hoa/thường và dấu, giống collation mặc định của MySQL.
+ * =========================================================================================
+ */
+@Component
+public class UsernameBloomFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(UsernameBloomFilter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long minExpectedInsertions;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter active;
+    /** Tên được add() trong lúc rebuild() đang chạy (null khi không dựng lại) */
+    private volatile Queue<String> addedDuringRebuild;
+    // ReentrantLock thay cho synchronized: giữ lock trong lúc chờ JDBC không ghim (pin) virtual thread
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private final AtomicLong rejectedLookups = new AtomicLong();
+    private final AtomicLong passedLookups = new AtomicLong();
+    private final AtomicLong rebuildCount = new AtomicLong();
+    private volatile long lastRebuildMillis;
+    private volatile long lastRebuildUsers;
+    private volatile LocalDateTime lastRebuildAt;
+
+    @Autowired
+    public UsernameBloomFilter(JdbcTemplate jdbcTemplate,
+                               @Value("${app.auth.username-filter.expected-insertions:100000}") long minExpectedInsertions,
+                               @Value("${app.auth.username-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.minExpectedInsertions = minExpectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * false nếu username chắc chắn không tồn tại trong bảng users
+     */
+    public boolean mightContain(String username) {
+        BloomFilter filter = active;
+        if (filter == null || username == null) {
+            return true;
+        }
+        if (filter.mightContain(normalize(username))) {
+            passedLookups.incrementAndGet();
+            return true;
+        }
+        rejectedLookups.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Ghi nhận username mới (gọi sau khi transaction INSERT user đã commit).
+     * Thứ tự đọc ngược với rebuild(): ghi vào hàng đợi phát lại trước, đọc active sau.
+     * Nếu đọc được filter cũ thì tên đã nằm trong hàng đợi trước khi rebuild() phát lại nó.
+     */
+    public void add(String username) {
+        if (username == null) {
+            return;
+        }
+        String key = normalize(username);
+        Queue<String> replay = addedDuringRebuild;
+        if (replay != null) {
+            replay.add(key);
+        }
+        BloomFilter current = active;
+        if (current != null) {
+            current.add(key);
+        }
+    }
+
+    /**
+     * Dựng lại filter từ bảng users; chạy lúc khởi động và định kỳ trên thread scheduler
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.auth.username-filter.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        rebuildLock.lock();
+        long start = System.currentTimeMillis();
+        try {
+            Long userCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+            long count = userCount != null ? userCount : 0;
+            // Dự phòng gấp đôi để filter không bão hòa trước lần dựng lại kế tiếp
+            BloomFilter next = new BloomFilter(Math.max(minExpectedInsertions, count * 2), falsePositiveRate);
+            // Mở hàng đợi trước khi SELECT: tên commit trước thời điểm này thì SELECT thấy,
+            // tên commit sau thì add() ghi vào hàng đợi
+            Queue<String> replay = new ConcurrentLinkedQueue<>();
+            addedDuringRebuild = replay;
+
+            AtomicLong streamed = new AtomicLong();
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement("SELECT username FROM users",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(1000);
+                return statement;
+            }, resultSet -> {
+                next.add(normalize(resultSet.getString(1)));
+                streamed.incrementAndGet();
+            });
+
+            active = next;
+            addedDuringRebuild = null;
+            // add() nào còn đọc được filter cũ đã kịp ghi tên vào hàng đợi trước đó
+            String key;
+            while ((key = replay.poll()) != null) {
+                next.add(key);
+            }
+            lastRebuildUsers = streamed.get();
+            lastRebuildAt = LocalDateTime.now();
+            lastRebuildMillis = System.currentTimeMillis() - start;
+            rebuildCount.incrementAndGet();
+        } catch (DataAccessException e) {
+            // Giữ filter cũ (hoặc fail-open nếu chưa có) khi DB chưa sẵn sàng
+            log.warn("Không dựng được Bloom filter username: {}", e.getMessage());
+        } finally {
+            addedDuringRebuild = null;
+            rebuildLock.unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return active != null;
+    }
+
+    /**
+     * Số liệu cho Actuator endpoint /actuator/usernamefilter
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        BloomFilter filter = active;
+        stats.put("ready", filter != null);
+        if (filter != null) {
+            stats.put("bits", filter.getBitCount());
+            stats.put("memoryBytes", filter.getBitCount() / 8);
+            stats.put("hashFunctions", filter.getHashFunctions());
+            stats.put("capacity", filter.getExpectedInsertions());
+            stats.put("insertions", filter.getInsertions());
+            stats.put("configuredFalsePositiveRate", falsePositiveRate);
+            stats.put("estimatedFalsePositiveRate", filter.estimatedFalsePositiveRate());
+        }
+        stats.put("rejectedLookups", rejectedLookups.get());
+        stats.put("passedLookups", passedLookups.get());
+        stats.put("rebuildCount", rebuildCount.get());
+        stats.put("lastRebuildAt", lastRebuildAt);
+        stats.put("lastRebuildDurationMs", lastRebuildMillis);
+        stats.put("lastRebuildUsers", lastRebuildUsers);
+        return stats;
+    }
+
+    /**
+     * Gộp các biến thể mà MySQL coi là bằng nhau; gộp dư chỉ làm tăng dương tính giả,
+     * không bao giờ gây âm tính giả
+     */
+    static String normalize(String username) {
+        boolean ascii = true;
+        for (int i = 0; i < username.length() && ascii; i++) {
+            ascii = username.charAt(i) < 0x80;
+        }
+        String folded = ascii
+                ? username
+                : Normalizer.normalize(username, Normalizer.Form.NFD)
+                        .replaceAll("\\p{M}+", "")
+                        .replace('đ', 'd')
+                        .replace('Đ', 'D');
+        return folded.stripTrailing().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,101 @@
+package com.flogin.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * =========================================================================================
+ * HÀNG ĐỢI VÒNG KHÔNG KHÓA (BOUNDED MULTI-PRODUCER / SINGLE-CONSUMER RING BUFFER)
+ * =========================================================================================
+ * - Nhiều thread ghi (offer) đồng thời bằng CAS trên con trỏ tail, không dùng lock.
+ * - Mỗi ô có một số thứ tự (sequence) để consumer biết ô đã được ghi xong hay chưa.
+ * - Chỉ được phép có MỘT thread đọc (poll).
+ * - Dung lượng được làm tròn lên lũy thừa của 2 để tính chỉ số bằng phép AND.
+ * =========================================================================================
+ */
+public final class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    public MpscRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2");
+        }
+        int capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Thêm phần tử vào hàng đợi.
+     *
+     * @return false nếu hàng đợi đã đầy
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("Element must not be null");
+        }
+        long position = tail.get();
+        int index;
+        while (true) {
+            index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+        buffer.set(index, element);
+        sequences.set(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Lấy phần tử đầu hàng đợi (chỉ gọi từ thread consumer duy nhất).
+     *
+     * @return null nếu hàng đợi rỗng
+     */
+    public E poll() {
+        long position = head.get();
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = buffer.get(index);
+        buffer.set(index, null);
+        sequences.set(index, position + mask + 1);
+        head.lazySet(position + 1);
+        return element;
+    }
+
+    /**
+     * Số phần tử hiện có (gần đúng khi đang có thread ghi đồng thời)
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,109 @@
+package com.flogin.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * =========================================================================================
+ * CACHE ẢNH CHỤP BẤT BIẾN, LÀM MỚI NỀN (READ-MOSTLY SNAPSHOT CACHE)
+ * =========================================================================================
+ * - Mỗi khóa giữ một giá trị bất biến; đọc chỉ là một lần get() trên ConcurrentHashMap.
+ * - refreshAsync() dựng lại mọi khóa trên MỘT thread nền rồi thay từng giá trị bằng replace():
+ *   trong lúc dựng, người đọc vẫn nhận ảnh cũ, không bao giờ chờ.
+ * - Nhiều lần refreshAsync() liên tiếp gộp thành một lượt; lần gọi đến khi lượt đang chạy
+ *   xếp thêm đúng một lượt nữa, nên thay đổi cuối cùng luôn được phản ánh.
+ * - Số khóa có giới hạn (truyền vào lúc get): vượt giới hạn -> null, bên gọi tự tính như thường.
+ * - Lỗi khi dựng lại một khóa: giữ ảnh cũ của khóa đó, đếm vào getFailures().
+ * =========================================================================================
+ */
+public final class SnapshotCache<K, V> {
+
+    private final Map<K, V> snapshots = new ConcurrentHashMap<>();
+    private final Function<K, V> builder;
+    private final ExecutorService refresher;
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public SnapshotCache(String threadName, Function<K, V> builder) {
+        this.builder = builder;
+        // Một thread, hàng đợi không giới hạn nhưng refreshPending bảo đảm tối đa 1 tác vụ chờ
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        this.refresher = executor;
+    }
+
+    /**
+     * Ảnh hiện có của key; chưa có thì dựng ngay trên thread gọi (lần đầu duy nhất).
+     * null nếu đã đủ maxKeys khóa khác
+     */
+    public V get(K key, int maxKeys) {
+        V snapshot = snapshots.get(key);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        if (snapshots.size() >= maxKeys) {
+            return null;
+        }
+        V built = builder.apply(key);
+        V raced = snapshots.putIfAbsent(key, built);
+        return raced != null ? raced : built;
+    }
+
+    /**
+     * Yêu cầu dựng lại mọi khóa trên thread nền; trả về ngay
+     */
+    public void refreshAsync() {
+        if (!refreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(this::refreshAll);
+        } catch (RejectedExecutionException e) {
+            // Đã shutdown
+            refreshPending.set(false);
+        }
+    }
+
+    private void refreshAll() {
+        // Hạ cờ TRƯỚC khi đọc DB: thay đổi commit trong lúc dựng sẽ xếp thêm một lượt
+        refreshPending.set(false);
+        for (K key : snapshots.keySet()) {
+            try {
+                snapshots.replace(key, builder.apply(key));
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+            }
+        }
+        refreshes.incrementAndGet();
+    }
+
+    public int size() {
+        return snapshots.size();
+    }
+
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,286 @@
+package com.flogin.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * =========================================================================================
+ * BỘ GOM TRỪ TỒN KHO THEO KÝ QUỸ (ESCROW) CHO SẢN PHẨM BÁN CHẠY
+ * =========================================================================================
+ * - Lần trừ đầu tiên của một sản phẩm rút một khối (blockSize) khỏi DB bằng một câu UPDATE có điều
+ *   kiện (Store.take); các lần trừ sau chỉ giảm số dư ký quỹ trong bộ nhớ, không chạm DB.
+ * - Không bao giờ bán quá: số dư ký quỹ luôn là hàng ĐÃ trừ khỏi DB. DB không còn đủ một khối thì
+ *   rút đúng số đang cần; không đủ nữa -> từ chối, và nhớ sản phẩm đã hết hàng để các lần trừ sau
+ *   từ chối ngay không chạm DB (xóa ở lần flush, cộng hàng, ghi tuyệt đối kế tiếp).
+ * - flush() định kỳ trả số dư chưa bán về DB (Store.add): nhiều lần trừ nhỏ trên một sản phẩm
+ *   thành khoảng hai câu UPDATE mỗi chu kỳ; giữa hai lần flush, quantity trong DB thấp hơn thực tế
+ *   tối đa một khối mỗi sản phẩm. Dừng ứng dụng (shutdown) cũng flush.
+ * - Sọc khóa (lock striping): sản phẩm được băm vào một trong `stripes` ReentrantLock, mỗi sọc giữ
+ *   số dư của các sản phẩm thuộc nó. Sản phẩm khác sọc không chờ nhau; cùng sản phẩm thì các lần rút
+ *   khối được tuần tự hóa (không dồn nhiều câu UPDATE cùng lúc lên một dòng nóng).
+ * - Cộng hàng: trả số dư về DB trước rồi cộng trong cùng lượt giữ khóa, để giới hạn tồn kho được
+ *   kiểm tra trên đúng tổng số hàng.
+ * - Trả về không được (add = false: vượt giới hạn, lỗi DB) mà sản phẩm vẫn tồn tại -> giữ nguyên số dư,
+ *   lần flush sau trả lại (failedReturns đếm số lần). Chỉ bỏ số dư khi sản phẩm không còn.
+ * - Store.take/add không làm gì thêm ngoài câu UPDATE: các sản phẩm đã ghi xuống DB được đánh dấu và
+ *   báo một lần ở cuối flush (Store.changed), sau khi đã nhả mọi khóa sọc.
+ * - Tiến trình chết giữa hai lần flush: số dư đang giữ không được trả về (DB báo thiếu, không bao giờ thừa).
+ * =========================================================================================
+ */
+public final class StockAccumulator {
+
+    /**
+     * Nơi lưu tồn kho thật (DB). Cả hai thao tác là một câu UPDATE có điều kiện, trả về false nếu
+     * không áp dụng được (không đủ hàng / vượt giới hạn / không tồn tại)
+     */
+    public interface Store {
+
+        boolean take(long productId, int amount);
+
+        boolean add(long productId, int amount);
+
+        /** Chỉ gọi khi add trả về false, để biết số dư còn chỗ trả về hay không */
+        boolean exists(long productId);
+
+        /**
+         * Gọi ở cuối mỗi flush, không giữ khóa sọc nào, với các sản phẩm đã take/add thành công
+         * kể từ lần trước (vô hiệu hóa cache, thống kê...)
+         */
+        default void changed(Collection<Long> productIds) {
+        }
+    }
+
+    /** Trạng thái của các sản phẩm băm vào một sọc; chỉ truy cập khi giữ lock */
+    private static final class Stripe {
+        // ReentrantLock thay cho synchronized: giữ lock trong lúc chờ JDBC không ghim (pin) virtual thread
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<Long, Integer> balances = new HashMap<>();
+        final Set<Long> soldOut = new HashSet<>();
+    }
+
+    private final Store store;
+    private final int blockSize;
+    private final Stripe[] stripes;
+    private final ScheduledExecutorService flusher;
+
+    private final AtomicLong localDecrements = new AtomicLong();
+    private final AtomicLong takes = new AtomicLong();
+    private final AtomicLong returns = new AtomicLong();
+    private final AtomicLong failedReturns = new AtomicLong();
+    // Sản phẩm có quantity trong DB đã đổi, chờ báo ở lần flush kế tiếp
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+
+    public StockAccumulator(Store store, int blockSize, int stripes, long flushIntervalMs) {
+        if (blockSize < 1 || stripes < 1) {
+            throw new IllegalArgumentException("blockSize và stripes phải lớn hơn 0");
+        }
+        this.store = store;
+        this.blockSize = blockSize;
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        if (flushIntervalMs > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "stock-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Trừ amount; false nếu DB không còn đủ hàng (hoặc không có sản phẩm này)
+     */
+    public boolean decrement(long productId, int amount) {
+        Stripe stripe = stripeOf(productId);
+        stripe.lock.lock();
+        try {
+            int balance = stripe.balances.getOrDefault(productId, 0);
+            if (balance >= amount) {
+                stripe.balances.put(productId, balance - amount);
+                localDecrements.incrementAndGet();
+                return true;
+            }
+            if (stripe.soldOut.contains(productId)) {
+                return false;
+            }
+            // Thiếu: rút thêm một khối (ít nhất đủ cho lần trừ này); DB không đủ khối thì rút đúng phần thiếu
+            int needed = amount - balance;
+            int claim = Math.max(needed, blockSize);
+            if (!store.take(productId, claim)) {
+                if (claim == needed || !store.take(productId, needed)) {
+                    // Lần trừ nhỏ hơn vẫn có thể đủ từ số dư còn lại, nên chỉ đánh dấu khi trừ 1 đơn vị cũng không đủ
+                    if (needed == 1) {
+                        stripe.soldOut.add(productId);
+                    }
+                    return false;
+                }
+                claim = needed;
+            }
+            takes.incrementAndGet();
+            changed.add(productId);
+            stripe.balances.put(productId, balance + claim - amount);
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Cộng amount (nhập hàng): trả số dư ký quỹ về DB rồi cộng thẳng vào DB.
+     * false nếu tổng vượt giới hạn (hoặc không có sản phẩm này); số dư đã trả vẫn nằm ở DB,
+     * số dư chưa trả được vẫn giữ trong ký quỹ
+     */
+    public boolean increment(long productId, int amount) {
+        Stripe stripe = stripeOf(productId);
+        stripe.lock.lock();
+        try {
+            giveBack(stripe, productId);
+            stripe.soldOut.remove(productId);
+            // Số dư chưa trả được nghĩa là DB + ký quỹ đã chạm giới hạn: cộng thêm chắc chắn vượt
+            if (stripe.balances.containsKey(productId) || !store.add(productId, amount)) {
+                return false;
+            }
+            changed.add(productId);
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Bỏ số dư ký quỹ mà không trả về DB: gọi sau khi quantity bị ghi tuyệt đối (PUT/PATCH) hoặc
+     * sản phẩm bị xóa, vì số dư thuộc về giá trị cũ
+     */
+    public void discard(long productId) {
+        Stripe stripe = stripeOf(productId);
+        stripe.lock.lock();
+        try {
+            stripe.balances.remove(productId);
+            stripe.soldOut.remove(productId);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Trả mọi số dư về DB và quên các đánh dấu hết hàng (DB có thể đã được nhập hàng từ nơi khác).
+     * Mỗi sọc được giữ khóa trong lúc trả để không lần trừ nào thấy DB thiếu phần hàng đang trên đường trả về.
+     * Xong mọi sọc mới báo Store.changed một lần cho các sản phẩm đã ghi xuống DB
+     */
+    public void flush() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                for (Long productId : new ArrayList<>(stripe.balances.keySet())) {
+                    giveBack(stripe, productId);
+                }
+                stripe.soldOut.clear();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        publishChanges();
+    }
+
+    // Gọi khi giữ khóa sọc của productId. Lỗi DB (exception) -> số dư vẫn còn, lần flush sau trả lại
+    private void giveBack(Stripe stripe, long productId) {
+        Integer balance = stripe.balances.get(productId);
+        if (balance != null && balance > 0) {
+            if (store.add(productId, balance)) {
+                returns.incrementAndGet();
+                changed.add(productId);
+            } else if (store.exists(productId)) {
+                // Vượt giới hạn tồn kho: giữ số dư (vẫn bán được từ ký quỹ), thử trả lại ở lần flush sau
+                failedReturns.incrementAndGet();
+                return;
+            }
+            // Còn lại: sản phẩm đã bị xóa, không còn gì để trả
+        }
+        stripe.balances.remove(productId);
+    }
+
+    private void publishChanges() {
+        if (changed.isEmpty()) {
+            return;
+        }
+        List<Long> productIds = new ArrayList<>();
+        for (Iterator<Long> it = changed.iterator(); it.hasNext(); ) {
+            productIds.add(it.next());
+            it.remove();
+        }
+        store.changed(productIds);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Số dư chưa trả vẫn nằm trong bộ nhớ, lần flush sau thử lại
+        }
+    }
+
+    private Stripe stripeOf(long productId) {
+        return stripes[Math.floorMod(Long.hashCode(productId) * 0x9E3779B9, stripes.length)];
+    }
+
+    /**
+     * Tổng số dư đang giữ (hàng đã trừ khỏi DB nhưng chưa bán)
+     */
+    public long heldUnits() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                for (int balance : stripe.balances.values()) {
+                    total += balance;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return total;
+    }
+
+    public long getLocalDecrements() {
+        return localDecrements.get();
+    }
+
+    public long getTakes() {
+        return takes.get();
+    }
+
+    public long getReturns() {
+        return returns.get();
+    }
+
+    public long getFailedReturns() {
+        return failedReturns.get();
+    }
+
+    /**
+     * Dừng flush định kỳ rồi trả nốt số dư về DB (số dư không trả được thì mất cùng tiến trình)
+     */
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flush();
+    }
+}
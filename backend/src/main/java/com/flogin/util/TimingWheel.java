@@ -0,0 +1,141 @@
+package com.flogin.util;
+
+import java.util.function.Consumer;
+
+/**
+ * =========================================================================================
+ * BÁNH XE THỜI GIAN (HASHED TIMING WHEEL) CHO HẠN GIỜ SỐ LƯỢNG LỚN
+ * =========================================================================================
+ * - Vòng gồm wheelSize ô, mỗi ô ứng với tickMs; hạn giờ được băm vào ô của tick hết hạn, kèm số vòng
+ *   quay còn phải chờ (rounds). Đặt / hủy hạn giờ O(1) (danh sách liên kết đôi trong ô), không có
+ *   hàng đợi ưu tiên O(log n) hay quét toàn bộ như job dọn dẹp định kỳ.
+ * - advance(now) đi qua các tick đã trôi qua: mỗi tick chỉ xem một ô, hạn giờ hết vòng thì được báo.
+ * - Không bao giờ báo sớm (hạn giờ làm tròn LÊN tick); báo muộn tối đa một tick + chu kỳ gọi advance.
+ * - Không thread-safe: người dùng tự giữ khóa khi gọi mọi phương thức.
+ * =========================================================================================
+ */
+public final class TimingWheel<T> {
+
+    /**
+     * Hạn giờ đã đặt; giữ lại để hủy (cancel)
+     */
+    public static final class Timeout<T> {
+        private final T payload;
+        private final long deadlineMs;
+        private long rounds;
+        private int bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private boolean scheduled;
+
+        private Timeout(T payload, long deadlineMs) {
+            this.payload = payload;
+            this.deadlineMs = deadlineMs;
+        }
+
+        public T payload() {
+            return payload;
+        }
+
+        public long deadlineMs() {
+            return deadlineMs;
+        }
+    }
+
+    private final long tickMs;
+    private final Timeout<T>[] buckets;
+    private final int mask;
+    /** Tick cuối cùng đã xử lý: mọi hạn giờ có tick <= tick đã được báo */
+    private long tick;
+    private int size;
+
+    /**
+     * @param wheelSize số ô, làm tròn lên lũy thừa của 2
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMs, int wheelSize, long nowMs) {
+        if (tickMs < 1 || wheelSize < 1) {
+            throw new IllegalArgumentException("tickMs và wheelSize phải lớn hơn 0");
+        }
+        int capacity = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickMs = tickMs;
+        this.buckets = (Timeout<T>[]) new Timeout[capacity];
+        this.mask = capacity - 1;
+        this.tick = Math.floorDiv(nowMs, tickMs);
+    }
+
+    /**
+     * Đặt hạn giờ; deadline đã qua -> báo ở lần advance kế tiếp
+     */
+    public Timeout<T> schedule(T payload, long deadlineMs) {
+        Timeout<T> timeout = new Timeout<>(payload, deadlineMs);
+        // Làm tròn lên: hết hạn ở tick đầu tiên không sớm hơn deadline
+        long deadlineTick = Math.max(-Math.floorDiv(-deadlineMs, tickMs), tick + 1);
+        timeout.rounds = (deadlineTick - tick - 1) / buckets.length;
+        timeout.bucket = (int) (deadlineTick & mask);
+        timeout.next = buckets[timeout.bucket];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        buckets[timeout.bucket] = timeout;
+        timeout.scheduled = true;
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Hủy hạn giờ; false nếu đã hết hạn hoặc đã hủy trước đó
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout == null || !timeout.scheduled) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    /**
+     * Xử lý các tick đến thời điểm nowMs, báo từng hạn giờ hết hạn cho onExpired.
+     *
+     * @return số hạn giờ hết hạn
+     */
+    public int advance(long nowMs, Consumer<? super T> onExpired) {
+        long target = Math.floorDiv(nowMs, tickMs);
+        int expired = 0;
+        while (tick < target) {
+            tick++;
+            Timeout<T> timeout = buckets[(int) (tick & mask)];
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                if (timeout.rounds == 0) {
+                    unlink(timeout);
+                    expired++;
+                    onExpired.accept(timeout.payload);
+                } else {
+                    timeout.rounds--;
+                }
+                timeout = next;
+            }
+        }
+        return expired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.scheduled = false;
+        size--;
+    }
+}
@@ -0,0 +1,36 @@
+package com.flogin.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * =========================================================================================
+ * CHẠY TÁC VỤ SAU KHI TRANSACTION COMMIT
+ * =========================================================================================
+ * - Dùng cho việc làm mới cache / index / ảnh chụp sau khi thay đổi đã commit: làm lúc flush thì
+ *   request đồng thời vẫn đọc được dòng cũ đã commit và cache lại nó; rollback thì không làm gì.
+ * - Không có transaction đang chạy (gọi từ ngoài @Transactional) -> chạy ngay.
+ * =========================================================================================
+ */
+public final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    /**
+     * Chạy action sau khi transaction hiện tại commit (bỏ qua nếu rollback);
+     * không có transaction thì chạy ngay
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,388 @@
+package com.flogin.util;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * =========================================================================================
+ * CHỈ MỤC ĐẢO TRIGRAM (INVERTED TRIGRAM INDEX) CHO TÌM KIẾM CHUỖI CON
+ * =========================================================================================
+ * - Mỗi tên được gộp dấu + chữ thường (fold), rồi cắt thành các trigram (3 ký tự liên tiếp);
+ *   mỗi trigram trỏ tới danh sách id đã sắp xếp tăng dần (posting list).
+ * - Bảng chữ cái sau khi fold chỉ còn a-z, 0-9, khoảng trắng, một ký hiệu "khác" và dấu
+ *   đầu tên -> trigram là chỉ số trong mảng cố định 39^3 phần tử, không cần HashMap, không boxing.
+ * - Truy vấn: giao các posting list (bắt đầu từ list ngắn nhất), rồi kiểm tra lại chuỗi con
+ *   trên tên đã fold để loại khớp giả (trigram đúng nhưng sai thứ tự / ký tự "khác").
+ * - Xếp hạng: khớp đầu tên > khớp đầu một từ > khớp giữa từ; cùng hạng thì id nhỏ (sản phẩm
+ *   cũ hơn) trước. Hạng được quét lần lượt theo id tăng dần nên đủ limit là dừng: query phổ biến
+ *   ("tai nghe" khớp hàng chục nghìn tên) không phải duyệt hết ứng viên.
+ * - KHÔNG an toàn đa luồng: bên gọi tự đồng bộ (ProductSearchIndex dùng ReadWriteLock).
+ * =========================================================================================
+ */
+public final class TrigramIndex {
+
+    /** a-z (0-25), 0-9 (26-35), khoảng trắng (36), ký tự khác (37), đầu tên (38) */
+    private static final int ALPHABET = 39;
+    private static final int SPACE = 36;
+    private static final int OTHER = 37;
+    private static final int START = 38;
+    private static final char START_MARK = '^';
+
+    private static final int TIER_NAME_START = 0;
+    private static final int TIER_WORD_START = 1;
+    private static final int TIER_INSIDE_WORD = 2;
+    private static final int TRIGRAMS = ALPHABET * ALPHABET * ALPHABET;
+
+    /** Ước lượng overhead của một phần tử HashMap<Integer, String> trên JVM 64-bit (compressed oops) */
+    private static final long NAME_ENTRY_OVERHEAD = 32 + 16 + 24 + 16;
+
+    private final Postings[] postings = new Postings[TRIGRAMS];
+    /** id -> tên đã fold, dùng để gỡ trigram cũ khi cập nhật/xóa và để kiểm tra lại chuỗi con */
+    private final Map<Integer, String> names;
+    private long postingCount;
+    private long nameChars;
+
+    public TrigramIndex() {
+        this(16);
+    }
+
+    public TrigramIndex(int expectedDocuments) {
+        this.names = new HashMap<>(Math.max(16, (int) (expectedDocuments / 0.75f) + 1));
+    }
+
+    /**
+     * Thêm mới hoặc thay tên của id (tên cũ bị gỡ khỏi chỉ mục)
+     */
+    public void put(long id, String name) {
+        int doc = toDoc(id);
+        String folded = fold(name);
+        String previous = names.put(doc, folded);
+        if (previous != null) {
+            if (previous.equals(folded)) {
+                return;
+            }
+            unindex(doc, previous);
+        }
+        nameChars += folded.length();
+        for (int trigram : documentTrigrams(folded)) {
+            Postings list = postings[trigram];
+            if (list == null) {
+                list = postings[trigram] = new Postings();
+            }
+            if (list.add(doc)) {
+                postingCount++;
+            }
+        }
+    }
+
+    public void remove(long id) {
+        int doc = toDoc(id);
+        String previous = names.remove(doc);
+        if (previous != null) {
+            unindex(doc, previous);
+        }
+    }
+
+    /**
+     * Tối đa limit id có tên chứa query (sau khi fold), đã xếp hạng.
+     * Query 2 ký tự chỉ khớp đầu từ; query dưới 2 ký tự trả rỗng
+     */
+    public long[] search(String query, int limit) {
+        if (query == null || limit <= 0) {
+            return new long[0];
+        }
+        String folded = fold(query);
+        if (folded.length() < 2) {
+            return new long[0];
+        }
+        int[] trigrams = folded.length() >= 3 ? queryTrigrams(folded) : new int[0];
+        int first = symbol(folded.charAt(0));
+        int second = symbol(folded.charAt(1));
+
+        long[] result = new long[Math.min(limit, names.size())];
+        // Mỗi hạng là một lượt quét riêng theo id tăng dần -> đủ limit là dừng, không cần duyệt hết ứng viên.
+        // Hạng 0/1 thêm trigram "^ab"/" ab" vào phép giao nên chỉ duyệt tên bắt đầu/có từ bắt đầu bằng query
+        int found = collect(result, 0, trigrams, code(START, first, second), TIER_NAME_START, folded);
+        if (found < result.length) {
+            found = collect(result, found, trigrams, code(SPACE, first, second), TIER_WORD_START, folded);
+        }
+        if (found < result.length && trigrams.length > 0) {
+            found = collect(result, found, trigrams, -1, TIER_INSIDE_WORD, folded);
+        }
+        return found == result.length ? result : Arrays.copyOf(result, found);
+    }
+
+    /**
+     * Giao các posting list (bắt đầu từ list ngắn nhất), giữ id có hạng đúng bằng tier
+     */
+    private int collect(long[] result, int found, int[] trigrams, int extra, int tier, String folded) {
+        int count = trigrams.length + (extra >= 0 ? 1 : 0);
+        Postings[] lists = new Postings[count];
+        for (int i = 0; i < trigrams.length; i++) {
+            lists[i] = postings[trigrams[i]];
+        }
+        if (extra >= 0) {
+            lists[count - 1] = postings[extra];
+        }
+        for (Postings list : lists) {
+            if (list == null || list.size == 0) {
+                return found;
+            }
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+        Postings smallest = lists[0];
+        int[] cursors = new int[count];
+        candidates:
+        for (int i = 0; i < smallest.size && found < result.length; i++) {
+            int doc = smallest.ids[i];
+            for (int l = 1; l < count; l++) {
+                // Các list đều tăng dần -> con trỏ chỉ tiến, tổng chi phí tuyến tính theo list ngắn nhất
+                int position = lists[l].seek(doc, cursors[l]);
+                if (position < 0) {
+                    cursors[l] = -position - 1;
+                    continue candidates;
+                }
+                cursors[l] = position;
+            }
+            // Kiểm tra lại trên tên: trigram đủ nhưng có thể sai thứ tự hoặc trùng ký hiệu "khác"
+            if (tierOf(names.get(doc), folded) == tier) {
+                result[found++] = doc;
+            }
+        }
+        return found;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public boolean contains(long id) {
+        return id >= 0 && id <= Integer.MAX_VALUE && names.containsKey((int) id);
+    }
+
+    /** Số trigram khác nhau đang có posting list khác rỗng */
+    public int trigramCount() {
+        int count = 0;
+        for (Postings list : postings) {
+            if (list != null && list.size > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long postingCount() {
+        return postingCount;
+    }
+
+    /**
+     * Ước lượng heap đang dùng: posting list (theo dung lượng mảng, không theo số phần tử)
+     * + bảng id -> tên đã fold + mảng trigram cố định
+     */
+    public long estimatedMemoryBytes() {
+        long bytes = 16 + 4L * TRIGRAMS;
+        for (Postings list : postings) {
+            if (list != null) {
+                bytes += 32 + 16 + 4L * list.ids.length;
+            }
+        }
+        bytes += names.size() * NAME_ENTRY_OVERHEAD + nameChars;
+        // Bảng băm của HashMap: 4 byte mỗi ô, hệ số tải 0.75
+        bytes += 4L * (long) (names.size() / 0.75f);
+        return bytes;
+    }
+
+    /**
+     * Gộp dấu tiếng Việt (NFD, bỏ dấu kết hợp, đ -> d), chữ thường, mọi ký tự không phải
+     * chữ/số thành một khoảng trắng, bỏ khoảng trắng đầu/cuối.
+     * "  Bàn PHÍM-cơ Đẹp " -> "ban phim co dep"
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        boolean ascii = true;
+        for (int i = 0; i < text.length() && ascii; i++) {
+            ascii = text.charAt(i) < 0x80;
+        }
+        String decomposed = ascii ? text : Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (c == 'đ' || c == 'Đ') {
+                c = 'd';
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && out.length() > 0) {
+                    out.append(' ');
+                }
+                pendingSpace = false;
+                out.append(c < 0x80 ? (char) (c | (c >= 'A' && c <= 'Z' ? 0x20 : 0)) : Character.toLowerCase(c));
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return out.toString();
+    }
+
+    // --- TRIGRAM ---
+
+    /**
+     * Trigram của tài liệu, đệm dấu đầu tên và khoảng trắng cuối: "^ab" đánh dấu tên bắt đầu bằng "ab",
+     * " ab" đánh dấu một từ bắt đầu bằng "ab" -> xếp hạng và query 2 ký tự đi thẳng qua posting list
+     */
+    private static int[] documentTrigrams(String folded) {
+        if (folded.isEmpty()) {
+            return new int[0];
+        }
+        return distinctTrigrams(START_MARK + folded + " ");
+    }
+
+    private static int[] queryTrigrams(String folded) {
+        return distinctTrigrams(folded);
+    }
+
+    private static int[] distinctTrigrams(String text) {
+        if (text.length() < 3) {
+            return new int[0];
+        }
+        int[] codes = new int[text.length() - 2];
+        int a = symbol(text.charAt(0));
+        int b = symbol(text.charAt(1));
+        for (int i = 2; i < text.length(); i++) {
+            int c = symbol(text.charAt(i));
+            codes[i - 2] = code(a, b, c);
+            a = b;
+            b = c;
+        }
+        Arrays.sort(codes);
+        int distinct = 0;
+        for (int i = 0; i < codes.length; i++) {
+            if (i == 0 || codes[i] != codes[i - 1]) {
+                codes[distinct++] = codes[i];
+            }
+        }
+        return Arrays.copyOf(codes, distinct);
+    }
+
+    private static int symbol(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= '0' && c <= '9') {
+            return 26 + c - '0';
+        }
+        if (c == ' ') {
+            return SPACE;
+        }
+        // fold() biến mọi ký tự không phải chữ/số thành khoảng trắng -> '^' chỉ có thể là dấu đầu tên
+        return c == START_MARK ? START : OTHER;
+    }
+
+    private static int code(int a, int b, int c) {
+        return (a * ALPHABET + b) * ALPHABET + c;
+    }
+
+    /** Hạng tốt nhất của query trong tên, -1 nếu không chứa */
+    private static int tierOf(String name, String query) {
+        int position = name.indexOf(query);
+        if (position < 0) {
+            return -1;
+        }
+        if (position == 0) {
+            return TIER_NAME_START;
+        }
+        for (; position >= 0; position = name.indexOf(query, position + 1)) {
+            if (name.charAt(position - 1) == ' ') {
+                return TIER_WORD_START;
+            }
+        }
+        return TIER_INSIDE_WORD;
+    }
+
+    private void unindex(int doc, String folded) {
+        nameChars -= folded.length();
+        for (int trigram : documentTrigrams(folded)) {
+            Postings list = postings[trigram];
+            if (list != null && list.remove(doc)) {
+                postingCount--;
+                if (list.size == 0) {
+                    postings[trigram] = null;
+                }
+            }
+        }
+    }
+
+    private static int toDoc(long id) {
+        if (id < 0 || id > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Id ngoài phạm vi chỉ mục: " + id);
+        }
+        return (int) id;
+    }
+
+    /**
+     * Danh sách id tăng dần; id mới (AUTO_INCREMENT) gần như luôn lớn nhất nên add() là append
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        boolean add(int id) {
+            if (size == 0 || id > ids[size - 1]) {
+                grow();
+                ids[size++] = id;
+                return true;
+            }
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return false;
+            }
+            int insert = -index - 1;
+            grow();
+            System.arraycopy(ids, insert, ids, insert + 1, size - insert);
+            ids[insert] = id;
+            size++;
+            return true;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            // Thu nhỏ khi chỉ còn dùng 1/4 để bộ nhớ báo cáo không giữ mãi đỉnh cũ
+            if (ids.length > 16 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, ids.length / 2);
+            }
+            return true;
+        }
+
+        /**
+         * Galloping search từ vị trí from: chỉ số của id nếu có, ngược lại -(điểm chèn) - 1
+         */
+        int seek(int id, int from) {
+            int bound = 1;
+            int low = from;
+            while (low + bound < size && ids[low + bound] < id) {
+                low += bound;
+                bound <<= 1;
+            }
+            return Arrays.binarySearch(ids, low, Math.min(size, low + bound + 1), id);
+        }
+
+        private void grow() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length + (ids.length >> 1) + 1);
+            }
+        }
+    }
+}
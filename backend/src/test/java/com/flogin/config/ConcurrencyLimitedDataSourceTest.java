@@ -0,0 +1,162 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) UNIT TEST - CONCURRENCY LIMITED DATASOURCE
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Không bao giờ giữ quá max-concurrent kết nối cùng lúc.
+ * - Hết acquire-timeout thì ném SQLTransientConnectionException và đếm rejected.
+ * - close() trả permit đúng một lần (close hai lần không làm tăng permit).
+ * - Lỗi khi lấy kết nối từ pool gốc cũng trả lại permit.
+ * - Kết nối lồng nhau (thread đã giữ kết nối) lấy từ phần dự phòng: không tự khóa khi hết permit thường,
+ *   phần dự phòng cũng có giới hạn, thread khác không dùng được nó.
+ * =========================================================================================
+ */
+
+package com.flogin.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ConcurrencyLimitedDataSource Unit Tests")
+class ConcurrencyLimitedDataSourceTest {
+
+    private DataSource target;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        target = mock(DataSource.class);
+        when(target.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+    }
+
+    @Test
+    @DisplayName("TC1: Hết permit -> chờ tới timeout rồi ném SQLTransientConnectionException")
+    void testTimeoutWhenExhausted() throws SQLException {
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(target, 2, 50);
+        Connection first = dataSource.getConnection();
+        dataSource.getConnection();
+        assertEquals(2, dataSource.getActive());
+
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        assertEquals(1, dataSource.getRejected());
+
+        first.close();
+        assertNotNull(dataSource.getConnection());
+        verify(target, times(3)).getConnection();
+    }
+
+    @Test
+    @DisplayName("TC2: close() hai lần chỉ trả một permit và vẫn gọi close của kết nối gốc")
+    void testDoubleCloseReleasesOnce() throws SQLException {
+        Connection raw = mock(Connection.class);
+        when(target.getConnection()).thenReturn(raw);
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(target, 1, 50);
+
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        connection.close();
+
+        assertEquals(0, dataSource.getActive());
+        verify(raw, times(2)).close();
+
+        dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+    }
+
+    @Test
+    @DisplayName("TC3: Pool gốc ném lỗi -> permit được trả lại")
+    void testReleaseOnTargetFailure() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("pool down"));
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(target, 1, 50);
+
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertEquals(0, dataSource.getActive());
+        assertEquals(0, dataSource.getRejected());
+    }
+
+    @Test
+    @DisplayName("TC4: 32 thread đồng thời -> số kết nối mở cùng lúc không vượt giới hạn")
+    void testCapsConcurrency() throws Exception {
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(target, 4, 5000);
+        AtomicInteger open = new AtomicInteger();
+        AtomicInteger maxOpen = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 20; j++) {
+                        try (Connection ignored = dataSource.getConnection()) {
+                            maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+                            Thread.yield();
+                            open.decrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(maxOpen.get() <= 4, "max open = " + maxOpen.get());
+        assertEquals(0, dataSource.getActive());
+        assertEquals(0, dataSource.getRejected());
+    }
+
+    @Test
+    @DisplayName("TC5: Hết permit thường -> kết nối lồng nhau vẫn lấy được từ phần dự phòng, thread khác thì không")
+    void testNestedConnectionUsesReserve() throws Exception {
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(target, 1, 1, 50);
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try (Connection outer = dataSource.getConnection()) {
+            // Như Hibernate lấy khối id trong lúc transaction vẫn giữ kết nối
+            Connection nested = dataSource.getConnection();
+            assertEquals(1, dataSource.getActive());
+            assertThrows(SQLTransientConnectionException.class, dataSource::getConnection, "Dự phòng chỉ có 1");
+
+            Future<?> otherThread = other.submit(() -> dataSource.getConnection());
+            ExecutionException rejectedOther = assertThrows(ExecutionException.class,
+                    () -> otherThread.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(SQLTransientConnectionException.class, rejectedOther.getCause());
+
+            nested.close();
+            dataSource.getConnection().close();
+            assertNotNull(outer);
+        } finally {
+            other.shutdownNow();
+        }
+
+        assertEquals(0, dataSource.getActive());
+        assertEquals(2, dataSource.getRejected());
+        // Không còn giữ kết nối -> lần sau lại lấy permit thường
+        try (Connection again = dataSource.getConnection()) {
+            assertNotNull(again);
+            assertEquals(1, dataSource.getActive());
+        }
+    }
+}
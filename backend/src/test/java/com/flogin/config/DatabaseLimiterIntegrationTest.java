@@ -0,0 +1,107 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) INTEGRATION TEST - GIỚI HẠN KẾT NỐI DB (END-TO-END)
+ * =========================================================================================
+ * I. MỤC TIÊU:
+ * - Limiter bật với max-concurrent=1, một request khác giữ kết nối -> request cần DB hết thời gian chờ.
+ * - Đăng nhập trả 503 + Retry-After (không phải 401 "sai mật khẩu").
+ * - Đọc sản phẩm trả 503 + Retry-After (không phải 400).
+ * - Trả kết nối thì các request lại chạy bình thường.
+ * =========================================================================================
+ */
+
+package com.flogin.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flogin.dto.LoginRequest;
+import com.flogin.entity.User;
+import com.flogin.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:db_limiter_e2e;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+        "app.db.concurrency-limit.enabled=true",
+        "app.db.concurrency-limit.max-concurrent=1",
+        "app.db.concurrency-limit.acquire-timeout-ms=100",
+        "app.auth.token.required=false",
+        "app.rate-limit.enabled=false",
+        // Giữ hàng chỉ trong bộ nhớ: test không ghi nhật ký vào thư mục làm việc
+        "app.product.reservation.wal-path="
+})
+@AutoConfigureMockMvc
+@DisplayName("Database Limiter End-to-End Tests")
+class DatabaseLimiterIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    @DisplayName("TC1: Hết permit DB -> đăng nhập và đọc sản phẩm trả 503 kèm Retry-After")
+    void testLimiterTimeoutReturns503() throws Exception {
+        assertInstanceOf(ConcurrencyLimitedDataSource.class, dataSource);
+        userRepository.save(new User("limited", "$2a$10$hash", "limited@flogin.com", "Limited", User.Role.USER));
+        String login = objectMapper.writeValueAsString(new LoginRequest("limited", "Test123"));
+
+        // Permit do request khác giữ: cùng thread thì lần lấy sau được tính là kết nối lồng nhau (dự phòng)
+        ExecutorService otherRequest = Executors.newSingleThreadExecutor();
+        try (Connection held = otherRequest.submit(() -> dataSource.getConnection()).get(5, TimeUnit.SECONDS)) {
+            assertNotNull(held);
+
+            mockMvc.perform(post("/api/auth/login")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(login))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"));
+
+            mockMvc.perform(get("/api/products/1"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"));
+        } finally {
+            otherRequest.shutdown();
+        }
+
+        assertTrue(((ConcurrencyLimitedDataSource) dataSource).getRejected() >= 2);
+        // Kết nối đã trả -> quay lại hành vi nghiệp vụ bình thường
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(login))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/products/999999"))
+                .andExpect(status().isNotFound());
+    }
+}
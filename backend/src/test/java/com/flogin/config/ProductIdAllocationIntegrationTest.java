@@ -0,0 +1,134 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) INTEGRATION TEST - CẤP KHỐI ID KHI BẬT GIỚI HẠN KẾT NỐI DB
+ * =========================================================================================
+ * I. MỤC TIÊU:
+ * - Hibernate lấy khối id (id_generators) trên kết nối thứ hai trong lúc request vẫn giữ kết nối đầu.
+ * - Pool nhỏ, nhiều thread tạo sản phẩm (từng cái và theo batch) cùng lúc, qua nhiều lần cấp khối:
+ *   không lần nào hết thời gian chờ kết nối (limiter rejected = 0), mọi id khác nhau.
+ * =========================================================================================
+ */
+
+package com.flogin.config;
+
+import com.flogin.dto.ProductBatchResult;
+import com.flogin.dto.ProductDto;
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import com.flogin.entity.User;
+import com.flogin.repository.CategoryRepository;
+import com.flogin.repository.ProductRepository;
+import com.flogin.repository.UserRepository;
+import com.flogin.service.ProductService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:id_allocation_e2e;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+        // 3 permit cho request + 1 kết nối dự phòng
+        "spring.datasource.hikari.maximum-pool-size=4",
+        "app.db.concurrency-limit.enabled=true",
+        "app.db.concurrency-limit.reserved-connections=1",
+        "app.db.concurrency-limit.acquire-timeout-ms=5000",
+        "app.product.reservation.wal-path="
+})
+@DisplayName("Product Id Allocation Under DB Limiter Tests")
+class ProductIdAllocationIntegrationTest {
+
+    private static final int THREADS = 12;
+    private static final int CREATES_PER_THREAD = 30;
+    private static final int BATCH_SIZE = 20;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    @DisplayName("TC1: 12 thread tạo sản phẩm đồng thời trên pool 4 kết nối -> không bị từ chối, id không trùng")
+    void testConcurrentCreatesNeverStarveIdAllocation() throws Exception {
+        ConcurrencyLimitedDataSource limiter = assertInstanceOf(ConcurrencyLimitedDataSource.class, dataSource);
+        Long userId = userRepository.save(
+                new User("creator", "$2a$10$hash", "creator@flogin.com", "Creator", User.Role.ADMIN)).getId();
+        Long categoryId = categoryRepository.save(new Category("Concurrent")).getId();
+        long before = productRepository.count();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<Long> ids = new ArrayList<>();
+                    for (int i = 0; i < CREATES_PER_THREAD; i++) {
+                        ids.add(productService.createProduct(dto("Sản phẩm " + thread + "-" + i, categoryId, userId)).getId());
+                    }
+                    // Batch: 20 INSERT trong một transaction, có thể đi qua ranh giới khối id
+                    List<ProductDto> batch = new ArrayList<>();
+                    for (int i = 0; i < BATCH_SIZE; i++) {
+                        batch.add(dto("Lô " + thread + "-" + i, categoryId, userId));
+                    }
+                    ProductBatchResult result = productService.batchUpsert(batch);
+                    assertEquals(BATCH_SIZE, result.created(), () -> String.valueOf(result.items()));
+                    result.items().forEach(item -> ids.add(item.id()));
+                    return ids;
+                }));
+            }
+            start.countDown();
+
+            Set<Long> ids = new HashSet<>();
+            for (Future<List<Long>> future : futures) {
+                ids.addAll(future.get(120, TimeUnit.SECONDS));
+            }
+
+            int expected = THREADS * (CREATES_PER_THREAD + BATCH_SIZE);
+            assertEquals(expected, ids.size(), "Mọi id phải khác nhau");
+            // Đủ nhiều lần cấp khối (50 id / khối) trong lúc các thread khác giữ hết permit
+            assertTrue(expected > 10 * Product.ID_ALLOCATION_SIZE);
+            assertEquals(before + expected, productRepository.count());
+            assertEquals(0, limiter.getRejected());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ProductDto dto(String name, Long categoryId, Long userId) {
+        return new ProductDto(null, name, new BigDecimal("10.00"), 1, null, categoryId, userId);
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) UNIT TEST - RATE LIMIT FILTER
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Cho phép đúng capacity request liên tiếp rồi trả 429 kèm Retry-After.
+ * - Token được nạp lại theo thời gian; mỗi IP và mỗi route có bucket riêng.
+ * - Route không cấu hình và preflight OPTIONS không bị giới hạn.
+ * - Route so khớp theo segment: /api/products không áp cho /api/productsX.
+ * * II. MỤC TIÊU BỘ NHỚ:
+ * - Số bucket không vượt max-clients; bucket đã đầy lại được dọn.
+ * - Khi đầy, bucket dự phòng tách theo dải mạng (/24 IPv4, /64 IPv6).
+ * =========================================================================================
+ */
+
+package com.flogin.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RateLimitFilter Unit Tests")
+class RateLimitFilterTest {
+
+    private static final String[] RULES = {"/api/auth/login:3:1", "/api/products:10:10"};
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicLong now;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+    }
+
+    private RateLimitFilter newFilter(int maxClients) {
+        return new RateLimitFilter(true, RULES, maxClients, meterRegistry, now::get);
+    }
+
+    private MockHttpServletResponse send(RateLimitFilter filter, String method, String path, String ip)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(ip);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    @Test
+    @DisplayName("TC1: Vượt capacity -> 429 kèm Retry-After, nạp lại sau 1 giây")
+    void testLimitAndRefill() throws Exception {
+        RateLimitFilter filter = newFilter(100);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, send(filter, "POST", "/api/auth/login", "10.0.0.1").getStatus());
+        }
+
+        MockHttpServletResponse rejected = send(filter, "POST", "/api/auth/login", "10.0.0.1");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertEquals(1.0, meterRegistry.counter("flogin.rate_limit.rejected", "route", "/api/auth/login").count());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(200, send(filter, "POST", "/api/auth/login", "10.0.0.1").getStatus());
+        assertEquals(429, send(filter, "POST", "/api/auth/login", "10.0.0.1").getStatus());
+    }
+
+    @Test
+    @DisplayName("TC2: IP khác và route khác có bucket riêng")
+    void testSeparateBuckets() throws Exception {
+        RateLimitFilter filter = newFilter(100);
+        for (int i = 0; i < 3; i++) {
+            send(filter, "POST", "/api/auth/login", "10.0.0.1");
+        }
+
+        assertEquals(429, send(filter, "POST", "/api/auth/login", "10.0.0.1").getStatus());
+        assertEquals(200, send(filter, "POST", "/api/auth/login", "10.0.0.2").getStatus());
+        assertEquals(200, send(filter, "GET", "/api/products/1", "10.0.0.1").getStatus());
+    }
+
+    @Test
+    @DisplayName("TC3: Route không cấu hình và OPTIONS không bị giới hạn")
+    void testUnlimitedRoutes() throws Exception {
+        RateLimitFilter filter = newFilter(100);
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(200, send(filter, "GET", "/actuator/health", "10.0.0.1").getStatus());
+            assertEquals(200, send(filter, "OPTIONS", "/api/auth/login", "10.0.0.1").getStatus());
+        }
+        assertEquals(0, filter.getTrackedClients());
+    }
+
+    @Test
+    @DisplayName("TC4: Không vượt max-clients; IP mới khi đầy dùng chung bucket dự phòng của dải /24")
+    void testBoundedClients() throws Exception {
+        RateLimitFilter filter = newFilter(10);
+        for (int i = 0; i < 10; i++) {
+            send(filter, "POST", "/api/auth/login", "10.0.0." + i);
+        }
+
+        // Bucket dự phòng của dải 10.0.0.0/24 chỉ có 3 lượt cho tất cả IP mới trong dải
+        for (int i = 10; i < 13; i++) {
+            assertEquals(200, send(filter, "POST", "/api/auth/login", "10.0.0." + i).getStatus());
+        }
+        assertEquals(429, send(filter, "POST", "/api/auth/login", "10.0.0.13").getStatus());
+        // Dải mạng khác không bị vạ lây
+        assertEquals(200, send(filter, "POST", "/api/auth/login", "192.168.7.1").getStatus());
+        assertEquals(10, filter.getTrackedClients());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        filter.evictIdle();
+        assertEquals(0, filter.getTrackedClients());
+    }
+
+    @Test
+    @DisplayName("TC5: Tắt rate limit -> mọi request đều qua")
+    void testDisabled() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(false, RULES, 100, meterRegistry, now::get);
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(200, send(filter, "POST", "/api/auth/login", "10.0.0.1").getStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("TC6: Route so khớp theo segment, không theo tiền tố chuỗi")
+    void testSegmentMatching() throws Exception {
+        RateLimitFilter filter = newFilter(100);
+        for (int i = 0; i < 10; i++) {
+            send(filter, "GET", "/api/products/" + i, "10.0.0.1");
+        }
+
+        assertEquals(429, send(filter, "GET", "/api/products", "10.0.0.1").getStatus());
+        assertEquals(200, send(filter, "GET", "/api/productsX", "10.0.0.1").getStatus());
+        assertEquals(200, send(filter, "POST", "/api/auth/login-history", "10.0.0.1").getStatus());
+        assertTrue(RateLimitFilter.matchesSegments("/api/products/export", "/api/products"));
+        assertFalse(RateLimitFilter.matchesSegments("/api/products-old", "/api/products"));
+    }
+
+    @Test
+    @DisplayName("TC7: Dải mạng dự phòng: /24 với IPv4, /64 với IPv6")
+    void testNetworkOf() {
+        assertEquals("10.0.0", RateLimitFilter.networkOf("10.0.0.42"));
+        assertEquals(RateLimitFilter.networkOf("2001:db8:0:1::1"), RateLimitFilter.networkOf("2001:db8:0:1:ffff::2"));
+        assertEquals(RateLimitFilter.networkOf("2001:0db8:0000:0001:0:0:0:9"), RateLimitFilter.networkOf("2001:db8:0:1::1"));
+        assertNotEquals(RateLimitFilter.networkOf("2001:db8:0:1::1"), RateLimitFilter.networkOf("2001:db8:0:2::1"));
+    }
+}
@@ -16,6 +16,7 @@ package com.flogin.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flogin.dto.LoginRequest;
 import com.flogin.dto.LoginResponse;
+import com.flogin.security.TokenService;
 import com.flogin.service.AuthService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -24,6 +25,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -46,6 +48,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * - Error handling
  */
 @WebMvcTest(AuthController.class)
+// RateLimitFilter cũng được nạp; tắt để các test gửi nhiều request liên tiếp không bị 429
+@TestPropertySource(properties = "app.rate-limit.enabled=false")
 @DisplayName("AuthController Integration Tests")
 class AuthControllerIntegrationTest {
 
@@ -58,6 +62,10 @@ class AuthControllerIntegrationTest {
         @MockBean
         private AuthService authService;
 
+        // TokenAuthenticationFilter được nạp cùng WebMvcTest nên cần bean TokenService
+        @MockBean
+        private TokenService tokenService;
+
         private LoginRequest validRequest;
         private LoginResponse successResponse;
 
@@ -3,6 +3,9 @@ package com.flogin.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flogin.dto.LoginRequest;
 import com.flogin.dto.LoginResponse;
+import com.flogin.security.ServiceBusyException;
+import com.flogin.security.TokenService;
+import com.flogin.security.TooManyAttemptsException;
 import com.flogin.service.AuthService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,15 +14,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(AuthController.class)
+// RateLimitFilter cũng được nạp; tắt để các test gửi nhiều request liên tiếp không bị 429
+@TestPropertySource(properties = "app.rate-limit.enabled=false")
 @DisplayName("AuthController Mock Tests")
 class AuthControllerMockTest {
 
@@ -32,6 +39,10 @@ class AuthControllerMockTest {
     @MockBean
     private AuthService authService;
 
+    // TokenAuthenticationFilter được nạp cùng WebMvcTest nên cần bean TokenService
+    @MockBean
+    private TokenService tokenService;
+
     private LoginRequest validLoginRequest;
     private LoginResponse successResponse;
 
@@ -273,4 +284,32 @@ class AuthControllerMockTest {
 
         verify(authService, never()).authenticate(any());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("TC18: Pool BCrypt quá tải -> 503 kèm Retry-After")
+    void testLoginServiceBusy() throws Exception {
+        when(authService.authenticate(any(LoginRequest.class)))
+                .thenThrow(new ServiceBusyException("Hệ thống đang bận, vui lòng thử lại sau!"));
+
+        mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(validLoginRequest)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.token").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("TC19: Sai quá nhiều lần -> 429 kèm Retry-After")
+    void testLoginTooManyAttempts() throws Exception {
+        when(authService.authenticate(any(LoginRequest.class)))
+                .thenThrow(new TooManyAttemptsException("Bạn đã đăng nhập sai quá nhiều lần, vui lòng thử lại sau!", 120));
+
+        mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(validLoginRequest)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "120"))
+                .andExpect(jsonPath("$.token").doesNotExist());
+    }
+}
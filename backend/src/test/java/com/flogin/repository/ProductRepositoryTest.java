@@ -0,0 +1,236 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) REPOSITORY TEST - PRODUCT REPOSITORY
+ * =========================================================================================
+ * I. MỤC TIÊU PHÂN TRANG KEYSET:
+ * - Đi hết các trang theo từng khóa sắp xếp (id, created_at, price, name), cả asc và desc,
+ *   ghép lại đúng bằng danh sách sắp xếp đầy đủ: không trùng, không sót.
+ * - Giá trị khóa trùng nhau (cùng giá, cùng tên) vẫn phân trang ổn định nhờ id.
+ * * II. MỤC TIÊU PHÂN TRANG OFFSET:
+ * - findDtosBy(Pageable) trả Slice với hasNext đúng.
+ * * III. MỤC TIÊU DTO PROJECTION (Hibernate statistics):
+ * - Danh sách, theo id, keyset, offset: mỗi lần đọc đúng 1 câu SQL, 0 entity được nạp.
+ * - So sánh: đường entity (findAll) nạp N entity vào persistence context.
+ * - Mỗi cột của constructor ProductDto nhận đúng giá trị (id, tên, giá, số lượng, mô tả,
+ *   category, người tạo) trên mọi đường đọc.
+ * * IV. MỤC TIÊU EXPORT:
+ * - Fetch size chọn theo từng truy vấn: MySQL stream từng dòng (Integer.MIN_VALUE, không cần
+ *   useCursorFetch trên URL), driver khác dùng EXPORT_FETCH_SIZE.
+ * =========================================================================================
+ */
+
+package com.flogin.repository;
+
+import com.flogin.dto.ProductDto;
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import com.flogin.entity.User;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// application.properties cố định dialect MySQL -> đổi sang H2 cho database nhúng
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@DisplayName("ProductRepository Tests")
+class ProductRepositoryTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User("admin", "$2a$10$hash", "admin@flogin.com", "Admin", User.Role.ADMIN);
+        entityManager.persist(user);
+        Category category = new Category("Electronics");
+        entityManager.persist(category);
+
+        // Giá và tên lặp lại để kiểm tra phá hòa bằng id
+        for (int i = 0; i < 23; i++) {
+            productRepository.save(new Product("Sản phẩm " + (i % 7), new BigDecimal((i % 5 + 1) + "000.00"),
+                    i, category, user));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private List<Long> walk(ProductSort sort, boolean descending, int pageSize) {
+        List<Long> ids = new ArrayList<>();
+        Object afterValue = null;
+        Long afterId = null;
+        while (true) {
+            List<ProductRepositoryCustom.Row> page =
+                    productRepository.findDtoPageAfter(sort, descending, afterValue, afterId, pageSize);
+            page.forEach(row -> ids.add(row.product().getId()));
+            if (page.size() < pageSize) {
+                return ids;
+            }
+            ProductRepositoryCustom.Row last = page.get(page.size() - 1);
+            afterValue = last.sortValue();
+            afterId = last.product().getId();
+        }
+    }
+
+    private List<Long> expected(ProductSort sort, boolean descending) {
+        Comparator<Product> order = switch (sort) {
+            case ID -> Comparator.comparing(Product::getId);
+            case CREATED_AT -> Comparator.comparing(Product::getCreatedAt).thenComparing(Product::getId);
+            case PRICE -> Comparator.comparing(Product::getPrice).thenComparing(Product::getId);
+            case NAME -> Comparator.comparing(Product::getName).thenComparing(Product::getId);
+        };
+        return productRepository.findAll().stream()
+                .sorted(descending ? order.reversed() : order)
+                .map(Product::getId)
+                .toList();
+    }
+
+    @Test
+    @DisplayName("TC1: Keyset theo mọi khóa và chiều sắp xếp -> không trùng, không sót")
+    void testKeysetWalkMatchesFullSort() {
+        for (ProductSort sort : ProductSort.values()) {
+            for (boolean descending : new boolean[]{false, true}) {
+                List<Long> walked = walk(sort, descending, 4);
+                assertEquals(expected(sort, descending), walked, sort + (descending ? " desc" : " asc"));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("TC2: Trang đầu chỉ lấy đúng limit dòng")
+    void testFirstPageLimit() {
+        List<ProductRepositoryCustom.Row> page = productRepository.findDtoPageAfter(ProductSort.PRICE, true, null, null, 5);
+
+        assertEquals(5, page.size());
+        assertEquals(new BigDecimal("5000.00"), page.get(0).product().getGia());
+        assertEquals(new BigDecimal("5000.00"), page.get(0).sortValue());
+    }
+
+    @Test
+    @DisplayName("TC3: Offset dùng Slice, hasNext đúng ở trang cuối")
+    void testOffsetSlice() {
+        Slice<ProductDto> middle = productRepository.findDtosBy(PageRequest.of(1, 10, Sort.by("id")));
+        Slice<ProductDto> last = productRepository.findDtosBy(PageRequest.of(2, 10, Sort.by("id")));
+
+        assertEquals(10, middle.getNumberOfElements());
+        assertTrue(middle.hasNext());
+        assertEquals(3, last.getNumberOfElements());
+        assertFalse(last.hasNext());
+    }
+
+    @Test
+    @DisplayName("TC4: DTO projection - 1 câu SQL, không nạp entity; đường entity nạp đủ N entity")
+    void testProjectionLoadsNoEntities() {
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        Long firstId = productRepository.findAllDtos().get(0).getId();
+        entityManager.clear();
+
+        statistics.clear();
+        List<ProductDto> all = productRepository.findAllDtos();
+        ProductDto one = productRepository.findDtoById(firstId).orElseThrow();
+        productRepository.findDtoPageAfter(ProductSort.NAME, false, null, null, 10);
+        productRepository.findDtosBy(PageRequest.of(1, 10, Sort.by("id")));
+
+        assertEquals(23, all.size());
+        assertEquals(firstId, one.getId());
+        assertNotNull(one.getCategoryId());
+        assertNotNull(one.getCreatedById());
+        assertEquals(4, statistics.getPrepareStatementCount(), "Mỗi lần đọc đúng 1 câu SQL");
+        assertEquals(0, statistics.getEntityLoadCount(), "Projection không được nạp entity");
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+
+        // Đường cũ: findAll + convertToDto nạp từng Product vào persistence context
+        statistics.clear();
+        productRepository.findAll();
+        assertEquals(23, statistics.getEntityLoadCount());
+        assertEquals(23, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    @DisplayName("TC5: Export chọn fetch size theo dialect và đọc đủ theo thứ tự id")
+    void testExportFetchSizePerDialect() {
+        assertEquals(Integer.MIN_VALUE, ProductRepositoryImpl.exportFetchSize(new MySQLDialect()));
+        assertEquals(ProductRepository.EXPORT_FETCH_SIZE, ProductRepositoryImpl.exportFetchSize(new H2Dialect()));
+
+        List<Long> ids;
+        try (var products = productRepository.streamAllOrderById()) {
+            ids = products.map(Product::getId).toList();
+        }
+        assertEquals(productRepository.findAllDtos().stream().map(ProductDto::getId).toList(), ids);
+    }
+
+    @Test
+    @DisplayName("TC6: DTO projection gán đúng từng cột vào đúng field trên mọi đường đọc")
+    void testProjectionMapsEveryField() {
+        User owner = new User("owner", "$2a$10$hash", "owner@flogin.com", "Owner", User.Role.USER);
+        entityManager.persist(owner);
+        Category category = new Category("Accessories");
+        entityManager.persist(category);
+        // Giá trị khác hẳn dữ liệu setUp để phát hiện cột bị lệch
+        Product saved = productRepository.save(new Product("Bàn phím cơ", new BigDecimal("1234.50"), 77,
+                "Switch đỏ", category, owner));
+        entityManager.flush();
+        entityManager.clear();
+
+        ProductDto expected = new ProductDto();
+        expected.setId(saved.getId());
+        expected.setTen("Bàn phím cơ");
+        expected.setGia(new BigDecimal("1234.50"));
+        expected.setSoLuong(77);
+        expected.setMoTa("Switch đỏ");
+        expected.setCategoryId(category.getId());
+        expected.setCreatedById(owner.getId());
+        expected.setVersion(0L);
+
+        assertEquals(expected, productRepository.findDtoById(saved.getId()).orElseThrow());
+        assertEquals(expected, last(productRepository.findAllDtos()));
+        assertEquals(expected, last(productRepository.findDtosBy(PageRequest.of(0, 100, Sort.by("id"))).getContent()));
+        assertEquals(expected, productRepository.findDtoPageAfter(ProductSort.ID, true, null, null, 1)
+                .get(0).product());
+        assertEquals(expected, productRepository.findVersionedDtoById(saved.getId()).orElseThrow().product());
+    }
+
+    @Test
+    @DisplayName("TC7: Đọc kèm version - updated_at của dòng, sửa sản phẩm thì version tăng, id lạ -> rỗng")
+    void testFindVersionedDtoById() {
+        Long id = productRepository.findAllDtos().get(0).getId();
+        ProductRepositoryCustom.Versioned before = productRepository.findVersionedDtoById(id).orElseThrow();
+        assertNotNull(before.updatedAt());
+        assertEquals(id, before.product().getId());
+
+        Product product = productRepository.findById(id).orElseThrow();
+        product.setTen("Đổi tên");
+        entityManager.flush();
+        entityManager.clear();
+
+        ProductRepositoryCustom.Versioned after = productRepository.findVersionedDtoById(id).orElseThrow();
+        assertEquals("Đổi tên", after.product().getTen());
+        assertTrue(after.updatedAt().isAfter(before.updatedAt()));
+        assertTrue(productRepository.findVersionedDtoById(-1L).isEmpty());
+    }
+
+    private static ProductDto last(List<ProductDto> products) {
+        return products.get(products.size() - 1);
+    }
+}
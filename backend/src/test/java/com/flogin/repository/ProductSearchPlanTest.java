@@ -0,0 +1,242 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) REPOSITORY TEST - TÌM KIẾM SẢN PHẨM (EXPLAIN)
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Chỉ bộ lọc được gửi mới có trong WHERE; kết quả đúng với lọc trên toàn bộ dữ liệu.
+ * - Tên tìm theo tiền tố, ký tự % và _ trong từ khóa được escape.
+ * * II. MỤC TIÊU KẾ HOẠCH THỰC THI (EXPLAIN trên H2):
+ * - Từng bộ lọc và mọi tổ hợp bộ lọc đều đi qua index (idx_name / idx_category / idx_price),
+ *   không có tableScan.
+ * =========================================================================================
+ */
+
+package com.flogin.repository;
+
+import com.flogin.dto.ProductDto;
+import com.flogin.entity.Category;
+import com.flogin.entity.User;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+// CREATE INDEX / ANALYZE tự commit trong H2 -> không chạy trong transaction rollback của @DataJpaTest,
+// dữ liệu được nạp một lần và dùng chung cho mọi test của lớp
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("ProductRepository Search Plan Tests")
+class ProductSearchPlanTest {
+
+    private static final int PRODUCTS = 5_000;
+    private static final int CATEGORIES = 50;
+
+    @TestConfiguration
+    static class SqlCaptureConfig {
+
+        @Bean
+        SqlCapture sqlCapture() {
+            return new SqlCapture();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer sqlCaptureCustomizer(SqlCapture sqlCapture) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, sqlCapture);
+        }
+    }
+
+    /**
+     * Ghi lại câu SQL cuối cùng Hibernate sinh ra để chạy EXPLAIN trên đúng câu đó
+     */
+    static class SqlCapture implements StatementInspector {
+        private volatile String last;
+
+        @Override
+        public String inspect(String sql) {
+            last = sql;
+            return sql;
+        }
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private SqlCapture sqlCapture;
+
+    private JdbcTemplate jdbcTemplate;
+    private List<Long> categoryIds;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        categoryIds = categoryRepository.findAll().stream().map(Category::getId).sorted().toList();
+        if (!categoryIds.isEmpty()) {
+            return;
+        }
+        User user = userRepository.save(
+                new User("admin", "$2a$10$hash", "admin@flogin.com", "Admin", User.Role.ADMIN));
+        List<Category> categories = new ArrayList<>();
+        for (int c = 0; c < CATEGORIES; c++) {
+            categories.add(new Category("Danh mục " + c));
+        }
+        categoryIds = categoryRepository.saveAll(categories).stream().map(Category::getId).toList();
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String[] prefixes = {"Laptop", "Chuột", "Bàn phím", "Màn hình", "Tai nghe", "Loa", "Ổ cứng", "Cáp"};
+        List<Object[]> rows = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            // products.id không còn AUTO_INCREMENT (Product cấp id qua id_generators) -> tự gán id
+            rows.add(new Object[]{i + 1L, prefixes[i % prefixes.length] + " " + i, BigDecimal.valueOf(i * 100L + 99, 2),
+                    i % 100, categoryIds.get(i % CATEGORIES), user.getId(), now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO products (id, name, price, quantity, category_id, created_by, "
+                + "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        jdbcTemplate.batchUpdate(
+                // Tên index trong H2 là duy nhất trên cả schema: categories.idx_name đã chiếm tên "idx_name"
+                // nên index tên sản phẩm (MySQL: products.idx_name) được tạo lại với tên riêng
+                "CREATE INDEX IF NOT EXISTS idx_products_name ON products(name)",
+                // Cập nhật thống kê để H2 ước lượng độ chọn lọc của từng index
+                "ANALYZE");
+    }
+
+    private List<ProductDto> search(String name, Long categoryId, String minPrice, String maxPrice) {
+        return productRepository.searchDtos(new ProductRepositoryCustom.SearchCriteria(name, categoryId,
+                minPrice != null ? new BigDecimal(minPrice) : null,
+                maxPrice != null ? new BigDecimal(maxPrice) : null), 0, 20);
+    }
+
+    /**
+     * EXPLAIN đúng câu SQL vừa chạy; bỏ phần OFFSET/FETCH (chỉ giới hạn số dòng, không đổi cách truy cập)
+     */
+    private String explainLast(Object... args) {
+        String sql = sqlCapture.last.replaceAll("(?is)\\s+(offset \\? rows\\s+)?fetch first \\? rows only\\s*$", "");
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, args).toUpperCase();
+    }
+
+    private static void assertUsesIndex(String plan, String... anyOf) {
+        assertFalse(plan.contains("TABLESCAN"), "Không được quét toàn bảng:\n" + plan);
+        for (String index : anyOf) {
+            if (plan.contains("PUBLIC." + index)) {
+                return;
+            }
+        }
+        fail("Kế hoạch không dùng index nào trong " + List.of(anyOf) + ":\n" + plan);
+    }
+
+    private List<Long> expectedIds(Predicate<ProductDto> filter, Comparator<ProductDto> order) {
+        return productRepository.findAllDtos().stream().filter(filter).sorted(order).limit(20)
+                .map(ProductDto::getId).toList();
+    }
+
+    private static List<Long> ids(List<ProductDto> products) {
+        return products.stream().map(ProductDto::getId).toList();
+    }
+
+    @Test
+    @DisplayName("TC1: Lọc theo từng điều kiện riêng -> dùng đúng index của cột đó")
+    void testSingleFilterPlans() {
+        Long category = categoryIds.get(7);
+
+        search("Laptop 1", null, null, null);
+        assertUsesIndex(explainLast("Laptop 1%"), "IDX_PRODUCTS_NAME");
+
+        search(null, category, null, null);
+        assertUsesIndex(explainLast(category), "IDX_CATEGORY");
+
+        search(null, null, "10.00", null);
+        assertUsesIndex(explainLast(new BigDecimal("10.00")), "IDX_PRICE");
+
+        search(null, null, null, "10.00");
+        assertUsesIndex(explainLast(new BigDecimal("10.00")), "IDX_PRICE");
+
+        search(null, null, "10.00", "20.00");
+        String plan = explainLast(new BigDecimal("10.00"), new BigDecimal("20.00"));
+        assertUsesIndex(plan, "IDX_PRICE");
+        assertFalse(plan.contains(" IS NULL"), "Không còn mẫu (:param IS NULL OR ...)");
+    }
+
+    @Test
+    @DisplayName("TC2: Mọi tổ hợp bộ lọc -> dùng một trong các index của bộ lọc đã gửi")
+    void testCombinedFilterPlans() {
+        Long category = categoryIds.get(3);
+        BigDecimal min = new BigDecimal("10.00");
+        BigDecimal max = new BigDecimal("12.00");
+
+        search("Loa", category, null, null);
+        assertUsesIndex(explainLast("Loa%", category), "IDX_PRODUCTS_NAME", "IDX_CATEGORY");
+
+        search("Loa", null, "10.00", "12.00");
+        assertUsesIndex(explainLast("Loa%", min, max), "IDX_PRODUCTS_NAME", "IDX_PRICE");
+
+        search(null, category, "10.00", "12.00");
+        assertUsesIndex(explainLast(category, min, max), "IDX_CATEGORY", "IDX_PRICE");
+
+        search("Loa", category, "10.00", "12.00");
+        assertUsesIndex(explainLast("Loa%", category, min, max), "IDX_PRODUCTS_NAME", "IDX_CATEGORY", "IDX_PRICE");
+    }
+
+    @Test
+    @DisplayName("TC3: Kết quả khớp lọc trên toàn bộ dữ liệu, sắp theo cột của index đang lọc")
+    void testResultsMatchFilters() {
+        Long category = categoryIds.get(5);
+        BigDecimal min = new BigDecimal("5.00");
+        BigDecimal max = new BigDecimal("30.00");
+        Comparator<ProductDto> byName = Comparator.comparing(ProductDto::getTen).thenComparing(ProductDto::getId);
+        Comparator<ProductDto> byPrice = Comparator.comparing(ProductDto::getGia).thenComparing(ProductDto::getId);
+
+        assertEquals(expectedIds(p -> p.getTen().startsWith("Tai nghe"), byName),
+                ids(search("Tai nghe", null, null, null)));
+        assertEquals(expectedIds(p -> p.getCategoryId().equals(category), Comparator.comparing(ProductDto::getId)),
+                ids(search(null, category, null, null)));
+        assertEquals(expectedIds(p -> p.getGia().compareTo(min) >= 0 && p.getGia().compareTo(max) <= 0
+                        && p.getCategoryId().equals(category), byPrice),
+                ids(search(null, category, "5.00", "30.00")));
+        assertEquals(20, search(null, null, null, null).size());
+    }
+
+    @Test
+    @DisplayName("TC4: Ký tự đại diện trong từ khóa được escape, không khớp tràn")
+    void testLikeWildcardsEscaped() {
+        jdbcTemplate.update("UPDATE products SET name = ? WHERE id = ?", "100% cotton_x!", productRepository
+                .findAllDtos().get(0).getId());
+
+        assertTrue(search("%", null, null, null).isEmpty(), "% là ký tự thường, không phải đại diện");
+        assertEquals(1, search("100% cotton_", null, null, null).size());
+        assertEquals(1, search("100% cotton_x!", null, null, null).size());
+        assertTrue(search("100_", null, null, null).isEmpty());
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) REPOSITORY TEST - USER REPOSITORY
+ * =========================================================================================
+ * I. MỤC TIÊU:
+ * - Projection findCredentialsByUsername trả đúng các cột cần cho đăng nhập.
+ * - Kết quả không phải entity: Hibernate statistics xác nhận 1 câu SQL, 0 entity được nạp,
+ *   persistence context vẫn rỗng (đối chứng: findByUsername nạp 1 entity).
+ * - updatePassword chỉ thay hash khi hash hiện tại vẫn là hash cũ (rehash không ghi đè mật khẩu mới).
+ * =========================================================================================
+ */
+
+package com.flogin.repository;
+
+import com.flogin.entity.User;
+import com.flogin.security.UserCredentials;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// application.properties cố định dialect MySQL -> đổi sang H2 cho database nhúng
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@DisplayName("UserRepository Tests")
+class UserRepositoryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    @DisplayName("TC1: Projection credentials chỉ chứa cột cần cho đăng nhập")
+    void testFindCredentialsByUsername() {
+        User user = new User("admin", "$2a$10$hash", "admin@flogin.com", "Admin", User.Role.ADMIN);
+        user.setIsActive(false);
+        userRepository.saveAndFlush(user);
+        entityManager.clear();
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.clear();
+
+        Optional<UserCredentials> credentials = userRepository.findCredentialsByUsername("admin");
+
+        assertTrue(credentials.isPresent());
+        assertEquals(user.getId(), credentials.get().id());
+        assertEquals("$2a$10$hash", credentials.get().passwordHash());
+        assertEquals(User.Role.ADMIN, credentials.get().role());
+        assertFalse(credentials.get().active());
+        assertEquals(1, statistics.getPrepareStatementCount(), "Đúng 1 câu SQL");
+        assertEquals(0, statistics.getEntityLoadCount(), "Projection không được nạp entity");
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+        assertTrue(userRepository.findCredentialsByUsername("ghost").isEmpty());
+
+        // Đối chứng: đọc entity thì statistics phải thấy 1 entity được nạp
+        statistics.clear();
+        userRepository.findByUsername("admin");
+        assertEquals(1, statistics.getEntityLoadCount());
+        assertEquals(1, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    @DisplayName("TC2: Rehash chỉ ghi khi hash chưa đổi - không ghi đè mật khẩu vừa đổi")
+    void testUpdatePasswordGuardedByOldHash() {
+        User user = userRepository.saveAndFlush(
+                new User("admin", "plain-old", "admin@flogin.com", "Admin", User.Role.ADMIN));
+        // Mật khẩu được đổi trong lúc rehash cho mật khẩu cũ đang chạy
+        assertEquals(1, userRepository.updatePassword(user.getId(), "plain-old", "$2a$10$changed"));
+
+        assertEquals(0, userRepository.updatePassword(user.getId(), "plain-old", "$2a$10$rehashOfOld"));
+        // Lần đăng nhập song song thứ hai cũng không ghi đè
+        assertEquals(0, userRepository.updatePassword(user.getId(), "plain-old", "$2a$10$rehashOfOld2"));
+        entityManager.clear();
+
+        assertEquals("$2a$10$changed", userRepository.findCredentialsByUsername("admin").orElseThrow().passwordHash());
+    }
+}
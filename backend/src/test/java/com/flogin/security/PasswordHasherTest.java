@@ -0,0 +1,95 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) UNIT TEST - PASSWORD HASHER
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - BCrypt băm/xác minh đúng; mật khẩu plain text cũ vẫn so khớp được.
+ * - Phát hiện hash cần băm lại (plain text hoặc cost khác cấu hình).
+ * * II. MỤC TIÊU TẢI:
+ * - Pool đầy thì từ chối ngay bằng ServiceBusyException thay vì xếp hàng vô hạn.
+ * =========================================================================================
+ */
+
+package com.flogin.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PasswordHasher Unit Tests")
+class PasswordHasherTest {
+
+    @Test
+    @DisplayName("TC1: Băm và xác minh mật khẩu BCrypt")
+    void testHashAndMatch() {
+        PasswordHasher hasher = new PasswordHasher(4, 1, 8, 5000);
+
+        String hash = hasher.hash("Test123");
+
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(hasher.matches("Test123", hash));
+        assertFalse(hasher.matches("test123", hash));
+        assertFalse(hasher.matches(null, hash));
+        hasher.shutdown();
+    }
+
+    @Test
+    @DisplayName("TC2: Mật khẩu plain text cũ vẫn so khớp và cần băm lại")
+    void testLegacyPlainTextPassword() {
+        PasswordHasher hasher = new PasswordHasher(4, 1, 8, 5000);
+
+        assertTrue(hasher.matches("admin123", "admin123"));
+        assertFalse(hasher.matches("admin1234", "admin123"));
+        assertTrue(hasher.needsRehash("admin123"));
+        hasher.shutdown();
+    }
+
+    @Test
+    @DisplayName("TC3: Đổi cost factor -> hash cũ cần băm lại")
+    void testNeedsRehashWhenCostChanges() {
+        PasswordHasher oldCost = new PasswordHasher(4, 1, 8, 5000);
+        PasswordHasher newCost = new PasswordHasher(5, 1, 8, 5000);
+        String hash = oldCost.hash("Test123");
+
+        assertFalse(oldCost.needsRehash(hash));
+        assertTrue(newCost.needsRehash(hash));
+        assertTrue(newCost.matches("Test123", hash), "Hash cost cũ vẫn phải xác minh được");
+        oldCost.shutdown();
+        newCost.shutdown();
+    }
+
+    @Test
+    @DisplayName("TC4: Pool quá tải -> ServiceBusyException ngay lập tức")
+    void testRejectWhenSaturated() throws Exception {
+        PasswordHasher hasher = new PasswordHasher(4, 1, 1, 5000);
+        String hash = hasher.hash("Test123");
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        hasher.rehashAsync("busy", h -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        hasher.rehashAsync("queued", h -> { }); // Lấp đầy hàng đợi (1 chỗ)
+
+        long start = System.nanoTime();
+        assertThrows(ServiceBusyException.class, () -> hasher.matches("Test123", hash));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "Phải từ chối ngay, không chờ");
+
+        release.countDown();
+        hasher.shutdown();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) UNIT TEST - TOKEN SERVICE
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Token phát hành ra phải xác minh được và giữ đúng thông tin người dùng.
+ * - Token bị sửa, hết hạn hoặc ký bằng khóa đã bị loại khỏi vòng khóa đều bị từ chối.
+ * * II. MỤC TIÊU ĐỒNG THỜI:
+ * - Nhiều thread cùng xác minh một token (dùng chung pool Mac) đều nhận kết quả đúng.
+ * - Chi phí mỗi lần xác minh được đo bằng JMH (TokenServiceBenchmark), không đo trong unit test.
+ * =========================================================================================
+ */
+
+package com.flogin.security;
+
+import com.flogin.entity.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TokenService Unit Tests")
+class TokenServiceTest {
+
+    private static final long HOUR = 3600;
+
+    @Test
+    @DisplayName("TC1: Token phát hành xác minh được với đầy đủ thông tin")
+    void testIssueAndVerify() {
+        TokenService tokenService = new TokenService(new SigningKeyRing("secret", HOUR, 1), HOUR);
+
+        String token = tokenService.issueToken(7L, "test.user_123", User.Role.ADMIN);
+        TokenPrincipal principal = tokenService.verify(token).orElseThrow();
+
+        assertEquals(7L, principal.userId());
+        assertEquals("test.user_123", principal.username());
+        assertEquals(User.Role.ADMIN, principal.role());
+    }
+
+    @Test
+    @DisplayName("TC2: Token bị sửa payload hoặc chữ ký bị từ chối")
+    void testTamperedTokenRejected() {
+        TokenService tokenService = new TokenService(new SigningKeyRing("secret", HOUR, 1), HOUR);
+        String token = tokenService.issueToken(1L, "testuser", User.Role.USER);
+        String[] parts = token.split("\\.");
+
+        String forgedPayload = tokenService.issueToken(1L, "admin", User.Role.ADMIN).split("\\.")[1];
+        assertTrue(tokenService.verify(parts[0] + "." + forgedPayload + "." + parts[2]).isEmpty());
+        assertTrue(tokenService.verify(token.substring(0, token.length() - 2) + "AA").isEmpty());
+        assertTrue(tokenService.verify("dummy-token-for-testuser").isEmpty());
+        assertTrue(tokenService.verify("").isEmpty());
+        assertTrue(tokenService.verify(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("TC3: Token hết hạn bị từ chối")
+    void testExpiredTokenRejected() {
+        AtomicLong now = new AtomicLong(1_000_000_000L);
+        SigningKeyRing keyRing = new SigningKeyRing("secret", HOUR, 1, now::get);
+        TokenService tokenService = new TokenService(keyRing, 60, now::get);
+
+        String token = tokenService.issueToken(1L, "testuser", User.Role.USER);
+        assertTrue(tokenService.verify(token).isPresent());
+
+        now.addAndGet(61_000L);
+        assertTrue(tokenService.verify(token).isEmpty());
+    }
+
+    @Test
+    @DisplayName("TC4: Xoay khóa - khóa cũ còn trong vòng giữ lại vẫn xác minh được")
+    void testKeyRotation() {
+        AtomicLong now = new AtomicLong(0L);
+        SigningKeyRing keyRing = new SigningKeyRing("secret", 60, 1, now::get);
+        TokenService tokenService = new TokenService(keyRing, 10 * HOUR, now::get);
+
+        String token = tokenService.issueToken(1L, "testuser", User.Role.USER);
+
+        now.set(60_000L); // Sang chu kỳ khóa kế tiếp
+        assertTrue(tokenService.verify(token).isPresent());
+        assertNotEquals(token.split("\\.")[0],
+                tokenService.issueToken(1L, "testuser", User.Role.USER).split("\\.")[0]);
+
+        now.set(120_000L); // Khóa đầu tiên đã ra khỏi vòng giữ lại
+        assertTrue(tokenService.verify(token).isEmpty());
+    }
+
+    @Test
+    @DisplayName("TC5: Hai node cùng secret xác minh token của nhau, khác secret thì không")
+    void testSharedSecretAcrossNodes() {
+        TokenService nodeA = new TokenService(new SigningKeyRing("shared", HOUR, 1), HOUR);
+        TokenService nodeB = new TokenService(new SigningKeyRing("shared", HOUR, 1), HOUR);
+        TokenService other = new TokenService(new SigningKeyRing("other", HOUR, 1), HOUR);
+
+        String token = nodeA.issueToken(1L, "testuser", User.Role.USER);
+
+        assertTrue(nodeB.verify(token).isPresent());
+        assertTrue(other.verify(token).isEmpty());
+    }
+
+    @Test
+    @DisplayName("TC6: Xác minh đồng thời từ nhiều thread đều thành công")
+    void testConcurrentVerification() throws Exception {
+        TokenService tokenService = new TokenService(new SigningKeyRing("secret", HOUR, 2), HOUR);
+        String token = tokenService.issueToken(1L, "testuser", User.Role.USER);
+
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int threads = Math.max(2, cpus);
+        int iterations = 10_000;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    for (int i = 0; i < iterations; i++) {
+                        if (tokenService.verify(token).isEmpty()) {
+                            throw new AssertionError("Token hợp lệ bị từ chối");
+                        }
+                    }
+                    return null;
+                });
+            }
+
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
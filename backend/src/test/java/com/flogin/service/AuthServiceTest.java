@@ -15,20 +15,32 @@ package com.flogin.service;
 
 import com.flogin.dto.LoginRequest;
 import com.flogin.dto.LoginResponse;
+import com.flogin.entity.LoginHistory;
 import com.flogin.entity.User;
 import com.flogin.repository.UserRepository;
+import com.flogin.security.PasswordHasher;
+import com.flogin.security.SigningKeyRing;
+import com.flogin.security.TokenPrincipal;
+import com.flogin.security.TokenService;
+import com.flogin.security.TooManyAttemptsException;
+import com.flogin.security.UserCredentials;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -49,6 +61,30 @@ class AuthServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    // Dùng TokenService thật để kiểm tra token ký HMAC có xác minh được hay không
+    @Spy
+    private TokenService tokenService = new TokenService(
+        new SigningKeyRing("test-secret", 3600, 1), 3600);
+
+    @Mock
+    private LoginHistoryWriter loginHistoryWriter;
+
+    // Cost thấp để test chạy nhanh
+    @Spy
+    private PasswordHasher passwordHasher = new PasswordHasher(4, 1, 16, 5000);
+
+    // Chưa dựng -> fail-open, mọi username đều đi tiếp xuống repository
+    @Spy
+    private UsernameBloomFilter usernameBloomFilter = new UsernameBloomFilter(null, 1000, 0.01);
+
+    @Spy
+    private CredentialCache credentialCache = new CredentialCache(1000, 300, new SimpleMeterRegistry());
+
+    // Không có DB fallback; 5 lần sai/username, 50 lần sai/IP trong 15 phút
+    @Spy
+    private LoginAttemptTracker loginAttemptTracker = new LoginAttemptTracker(
+        null, new SimpleMeterRegistry(), 900_000, 15, 5, 50, 1000, System::currentTimeMillis);
+
     @InjectMocks
     private AuthService authService;
 
@@ -74,8 +110,8 @@ class AuthServiceTest {
     void testAuthenticateSuccess() {
         // Arrange
         LoginRequest request = new LoginRequest("testuser", "Test123");
-        when(userRepository.findByUsername("testuser"))
-            .thenReturn(Optional.of(testUser));
+        when(userRepository.findCredentialsByUsername("testuser"))
+            .thenAnswer(invocation -> Optional.of(UserCredentials.from(testUser)));
 
         // Act
         LoginResponse response = authService.authenticate(request);
@@ -85,11 +121,12 @@ class AuthServiceTest {
         assertEquals("Đăng nhập thành công", response.message(), 
                     "Message phải là 'Đăng nhập thành công'");
         assertNotNull(response.token(), "Token không được null");
-        assertTrue(response.token().startsWith("dummy-token-for-"), 
-                  "Token phải bắt đầu với 'dummy-token-for-'");
+        assertEquals("testuser",
+                    tokenService.verify(response.token()).orElseThrow().username(),
+                    "Token phải xác minh được và chứa đúng username");
         
         // Verify repository được gọi đúng 1 lần
-        verify(userRepository, times(1)).findByUsername("testuser");
+        verify(userRepository, times(1)).findCredentialsByUsername("testuser");
     }
 
     // ============================================
@@ -101,7 +138,7 @@ class AuthServiceTest {
     void testAuthenticateUsernameNotFound() {
         // Arrange
         LoginRequest request = new LoginRequest("wronguser", "Test123");
-        when(userRepository.findByUsername("wronguser"))
+        when(userRepository.findCredentialsByUsername("wronguser"))
             .thenReturn(Optional.empty());
 
         // Act & Assert
@@ -115,7 +152,7 @@ class AuthServiceTest {
                     exception.getMessage(),
                     "Error message phải chính xác");
         
-        verify(userRepository, times(1)).findByUsername("wronguser");
+        verify(userRepository, times(1)).findCredentialsByUsername("wronguser");
     }
 
     // ============================================
@@ -127,8 +164,8 @@ class AuthServiceTest {
     void testAuthenticateWrongPassword() {
         // Arrange
         LoginRequest request = new LoginRequest("testuser", "WrongPassword123");
-        when(userRepository.findByUsername("testuser"))
-            .thenReturn(Optional.of(testUser));
+        when(userRepository.findCredentialsByUsername("testuser"))
+            .thenAnswer(invocation -> Optional.of(UserCredentials.from(testUser)));
 
         // Act & Assert
         RuntimeException exception = assertThrows(
@@ -141,7 +178,7 @@ class AuthServiceTest {
                     exception.getMessage(),
                     "Error message phải chính xác");
         
-        verify(userRepository, times(1)).findByUsername("testuser");
+        verify(userRepository, times(1)).findCredentialsByUsername("testuser");
     }
 
     // ============================================
@@ -154,8 +191,8 @@ class AuthServiceTest {
         // Arrange
         testUser.setIsActive(false); // Khóa tài khoản
         LoginRequest request = new LoginRequest("testuser", "Test123");
-        when(userRepository.findByUsername("testuser"))
-            .thenReturn(Optional.of(testUser));
+        when(userRepository.findCredentialsByUsername("testuser"))
+            .thenAnswer(invocation -> Optional.of(UserCredentials.from(testUser)));
 
         // Act & Assert
         RuntimeException exception = assertThrows(
@@ -168,7 +205,7 @@ class AuthServiceTest {
                     exception.getMessage(),
                     "Error message phải là 'Tài khoản của bạn đã bị khóa!'");
         
-        verify(userRepository, times(1)).findByUsername("testuser");
+        verify(userRepository, times(1)).findCredentialsByUsername("testuser");
     }
 
     // ============================================
@@ -180,7 +217,7 @@ class AuthServiceTest {
     void testAuthenticateEmptyUsername() {
         // Arrange
         LoginRequest request = new LoginRequest("", "Test123");
-        when(userRepository.findByUsername(""))
+        when(userRepository.findCredentialsByUsername(""))
             .thenReturn(Optional.empty());
 
         // Act & Assert
@@ -192,7 +229,7 @@ class AuthServiceTest {
         assertEquals("Sai tên tài khoản hoặc mật khẩu!", 
                     exception.getMessage());
         
-        verify(userRepository, times(1)).findByUsername("");
+        verify(userRepository, times(1)).findCredentialsByUsername("");
     }
 
     // ============================================
@@ -204,8 +241,8 @@ class AuthServiceTest {
     void testAuthenticateEmptyPassword() {
         // Arrange
         LoginRequest request = new LoginRequest("testuser", "");
-        when(userRepository.findByUsername("testuser"))
-            .thenReturn(Optional.of(testUser));
+        when(userRepository.findCredentialsByUsername("testuser"))
+            .thenAnswer(invocation -> Optional.of(UserCredentials.from(testUser)));
 
         // Act & Assert
         RuntimeException exception = assertThrows(
@@ -227,8 +264,8 @@ class AuthServiceTest {
         // Arrange
         testUser.setUsername("test.user_123");
         LoginRequest request = new LoginRequest("test.user_123", "Test123");
-        when(userRepository.findByUsername("test.user_123"))
-            .thenReturn(Optional.of(testUser));
+        when(userRepository.findCredentialsByUsername("test.user_123"))
+            .thenAnswer(invocation -> Optional.of(UserCredentials.from(testUser)));
 
         // Act
         LoginResponse response = authService.authenticate(request);
@@ -236,7 +273,8 @@ class AuthServiceTest {
         // Assert
         assertNotNull(response);
         assertEquals("Đăng nhập thành công", response.message());
-        assertTrue(response.token().contains("test.user_123"));
+        assertEquals("test.user_123",
+                    tokenService.verify(response.token()).orElseThrow().username());
     }
 
     // ============================================
@@ -249,8 +287,8 @@ class AuthServiceTest {
         // Arrange
         testUser.setUsername("abc");
         LoginRequest request = new LoginRequest("abc", "Test123");
-        when(userRepository.findByUsername("abc"))
-            .thenReturn(Optional.of(testUser));
+        when(userRepository.findCredentialsByUsername("abc"))
+            .thenAnswer(invocation -> Optional.of(UserCredentials.from(testUser)));
 
         // Act
         LoginResponse response = authService.authenticate(request);
@@ -270,8 +308,8 @@ class AuthServiceTest {
         // Arrange
         testUser.setPassword("Pass12");
         LoginRequest request = new LoginRequest("testuser", "Pass12");
-        when(userRepository.findByUsername("testuser"))
-            .thenReturn(Optional.of(testUser));
+        when(userRepository.findCredentialsByUsername("testuser"))
+            .thenAnswer(invocation -> Optional.of(UserCredentials.from(testUser)));
 
         // Act
         LoginResponse response = authService.authenticate(request);
@@ -291,8 +329,8 @@ class AuthServiceTest {
         // Arrange
         testUser.setPassword("Test123");
         LoginRequest request = new LoginRequest("testuser", "test123"); // lowercase
-        when(userRepository.findByUsername("testuser"))
-            .thenReturn(Optional.of(testUser));
+        when(userRepository.findCredentialsByUsername("testuser"))
+            .thenAnswer(invocation -> Optional.of(UserCredentials.from(testUser)));
 
         // Act & Assert
         RuntimeException exception = assertThrows(
@@ -313,7 +351,7 @@ class AuthServiceTest {
     void testAuthenticateNullUsername() {
         // Arrange
         LoginRequest request = new LoginRequest(null, "Test123");
-        when(userRepository.findByUsername(null))
+        when(userRepository.findCredentialsByUsername(null))
             .thenReturn(Optional.empty());
 
         // Act & Assert
@@ -330,16 +368,21 @@ class AuthServiceTest {
     void testTokenGeneration() {
         // Arrange
         LoginRequest request = new LoginRequest("testuser", "Test123");
-        when(userRepository.findByUsername("testuser"))
-            .thenReturn(Optional.of(testUser));
+        when(userRepository.findCredentialsByUsername("testuser"))
+            .thenAnswer(invocation -> Optional.of(UserCredentials.from(testUser)));
 
         // Act
         LoginResponse response = authService.authenticate(request);
 
         // Assert
         assertNotNull(response.token());
-        assertEquals("dummy-token-for-testuser", response.token(),
-                    "Token format phải là 'dummy-token-for-{username}'");
+        assertEquals(3, response.token().split("\\.").length,
+                    "Token format phải là '{kid}.{payload}.{signature}'");
+
+        TokenPrincipal principal = tokenService.verify(response.token()).orElseThrow();
+        assertEquals(1L, principal.userId());
+        assertEquals("testuser", principal.username());
+        assertEquals(User.Role.USER, principal.role());
     }
 
     // ============================================
@@ -351,8 +394,9 @@ class AuthServiceTest {
     void testMultipleLoginAttempts() {
         // Arrange
         LoginRequest request = new LoginRequest("testuser", "Test123");
-        when(userRepository.findByUsername("testuser"))
-            .thenReturn(Optional.of(testUser));
+        testUser.setPassword(passwordHasher.hash("Test123"));
+        when(userRepository.findCredentialsByUsername("testuser"))
+            .thenAnswer(invocation -> Optional.of(UserCredentials.from(testUser)));
 
         // Act - Login 3 lần
         LoginResponse response1 = authService.authenticate(request);
@@ -364,8 +408,8 @@ class AuthServiceTest {
         assertNotNull(response2);
         assertNotNull(response3);
         
-        // Verify repository được gọi 3 lần
-        verify(userRepository, times(3)).findByUsername("testuser");
+        // Verify repository chỉ được gọi 1 lần, 2 lần sau lấy từ CredentialCache
+        verify(userRepository, times(1)).findCredentialsByUsername("testuser");
     }
 
     // ============================================
@@ -377,7 +421,7 @@ class AuthServiceTest {
     void testAuthenticateUsernameWithSpaces() {
         // Arrange
         LoginRequest request = new LoginRequest("test user", "Test123");
-        when(userRepository.findByUsername("test user"))
+        when(userRepository.findCredentialsByUsername("test user"))
             .thenReturn(Optional.empty());
 
         // Act & Assert
@@ -394,7 +438,7 @@ class AuthServiceTest {
     void testAuthenticateRepositoryReturnsEmpty() {
         // Arrange
         LoginRequest request = new LoginRequest("nonexistent", "Test123");
-        when(userRepository.findByUsername(anyString()))
+        when(userRepository.findCredentialsByUsername(anyString()))
             .thenReturn(Optional.empty());
 
         // Act & Assert
@@ -404,6 +448,157 @@ class AuthServiceTest {
         );
 
         assertTrue(exception.getMessage().contains("Sai tên tài khoản"));
-        verify(userRepository, times(1)).findByUsername("nonexistent");
+        verify(userRepository, times(1)).findCredentialsByUsername("nonexistent");
+    }
+
+    // ============================================
+    // TEST CASE 16: Ghi lịch sử đăng nhập
+    // ============================================
+
+    @Test
+    @DisplayName("TC16: Ghi lịch sử thành công/thất bại vào hàng đợi bất đồng bộ")
+    void testLoginHistoryRecorded() {
+        // Arrange
+        when(userRepository.findCredentialsByUsername("testuser"))
+            .thenAnswer(invocation -> Optional.of(UserCredentials.from(testUser)));
+
+        // Act
+        authService.authenticate(new LoginRequest("testuser", "Test123"));
+        assertThrows(RuntimeException.class,
+                    () -> authService.authenticate(new LoginRequest("testuser", "WrongPass")));
+
+        // Assert
+        verify(loginHistoryWriter, times(1)).record(argThat(h ->
+            h.isSuccessful() && testUser.getId().equals(h.getUser().getId())));
+        verify(loginHistoryWriter, times(1)).record(argThat(h ->
+            h.isFailed() && LoginHistory.FailureReason.INVALID_PASSWORD.equals(h.getFailureReason())));
+    }
+
+    // ============================================
+    // TEST CASE 17: Mật khẩu đã băm BCrypt
+    // ============================================
+
+    @Test
+    @DisplayName("TC17: Login với mật khẩu BCrypt, không băm lại khi cost không đổi")
+    void testAuthenticateBcryptPassword() {
+        // Arrange
+        testUser.setPassword(passwordHasher.hash("Test123"));
+        when(userRepository.findCredentialsByUsername("testuser"))
+            .thenAnswer(invocation -> Optional.of(UserCredentials.from(testUser)));
+
+        // Act
+        LoginResponse response = authService.authenticate(new LoginRequest("testuser", "Test123"));
+
+        // Assert
+        assertEquals("Đăng nhập thành công", response.message());
+        assertThrows(RuntimeException.class,
+                    () -> authService.authenticate(new LoginRequest("testuser", "Test1234")));
+        verify(passwordHasher, never()).rehashAsync(anyString(), any());
+    }
+
+    // ============================================
+    // TEST CASE 18: Băm lại mật khẩu plain text
+    // ============================================
+
+    @Test
+    @DisplayName("TC18: Mật khẩu plain text được băm lại sau khi đăng nhập thành công")
+    void testLegacyPasswordRehashedOnLogin() {
+        // Arrange
+        when(userRepository.findCredentialsByUsername("testuser"))
+            .thenAnswer(invocation -> Optional.of(UserCredentials.from(testUser)));
+
+        // Act
+        authService.authenticate(new LoginRequest("testuser", "Test123"));
+
+        // Assert
+        verify(userRepository, timeout(5000)).updatePassword(eq(1L), eq("Test123"),
+            argThat(hash -> hash.startsWith("$2a$04$") && passwordHasher.matches("Test123", hash)));
+    }
+
+    // ============================================
+    // TEST CASE 19: Bloom filter chặn username không tồn tại
+    // ============================================
+
+    @Test
+    @DisplayName("TC19: Username chắc chắn không tồn tại -> không truy vấn database")
+    void testUnknownUsernameSkipsRepository() {
+        // Arrange
+        doReturn(false).when(usernameBloomFilter).mightContain("ghost");
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                    () -> authService.authenticate(new LoginRequest("ghost", "Test123")));
+        assertEquals("Sai tên tài khoản hoặc mật khẩu!", exception.getMessage());
+        verify(userRepository, never()).findCredentialsByUsername(anyString());
+        verify(loginHistoryWriter, times(1)).record(argThat(h ->
+            LoginHistory.FailureReason.USERNAME_NOT_FOUND.equals(h.getFailureReason())));
+    }
+
+    // ============================================
+    // TEST CASE 20: Cache credentials bị invalidate
+    // ============================================
+
+    @Test
+    @DisplayName("TC20: User bị khóa sau khi đã cache -> invalidate, lần sau đọc lại từ database")
+    void testDeactivatedUserInvalidatesCache() {
+        // Arrange
+        testUser.setPassword(passwordHasher.hash("Test123"));
+        when(userRepository.findCredentialsByUsername("testuser"))
+            .thenAnswer(invocation -> Optional.of(UserCredentials.from(testUser)));
+        authService.authenticate(new LoginRequest("testuser", "Test123"));
+
+        // Act: giống UserEntityListener.onUpdated sau khi lưu isActive = false
+        testUser.setIsActive(false);
+        credentialCache.invalidate(testUser.getId(), testUser.getUsername());
+
+        // Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                    () -> authService.authenticate(new LoginRequest("testuser", "Test123")));
+        assertEquals("Tài khoản của bạn đã bị khóa!", exception.getMessage());
+        verify(userRepository, times(2)).findCredentialsByUsername("testuser");
+    }
+
+    // ============================================
+    // TEST CASE 21: Khóa tạm sau nhiều lần sai
+    // ============================================
+
+    @Test
+    @DisplayName("TC21: Sai 5 lần -> lần thứ 6 bị từ chối, không kiểm tra mật khẩu")
+    void testLockoutAfterTooManyFailures() {
+        // Arrange
+        when(userRepository.findCredentialsByUsername("testuser"))
+            .thenAnswer(invocation -> Optional.of(UserCredentials.from(testUser)));
+        for (int i = 0; i < 5; i++) {
+            assertThrows(RuntimeException.class,
+                    () -> authService.authenticate(new LoginRequest("testuser", "WrongPass")));
+        }
+
+        // Act & Assert: kể cả mật khẩu đúng cũng bị chặn
+        TooManyAttemptsException exception = assertThrows(TooManyAttemptsException.class,
+                    () -> authService.authenticate(new LoginRequest("testuser", "Test123")));
+        assertTrue(exception.getRetryAfterSeconds() > 0);
+        verify(passwordHasher, times(5)).matches(anyString(), anyString());
+        verify(loginHistoryWriter, times(1)).record(argThat(h ->
+            LoginHistory.FailureReason.TOO_MANY_ATTEMPTS.equals(h.getFailureReason())));
+    }
+
+    @Test
+    @DisplayName("TC22: Đăng nhập thành công xóa bộ đếm của username")
+    void testSuccessResetsFailureCounter() {
+        // Arrange
+        when(userRepository.findCredentialsByUsername("testuser"))
+            .thenAnswer(invocation -> Optional.of(UserCredentials.from(testUser)));
+        for (int i = 0; i < 4; i++) {
+            assertThrows(RuntimeException.class,
+                    () -> authService.authenticate(new LoginRequest("testuser", "WrongPass")));
+        }
+
+        // Act
+        authService.authenticate(new LoginRequest("testuser", "Test123"));
+
+        // Assert: lại được phép sai thêm mà chưa bị khóa
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                    () -> authService.authenticate(new LoginRequest("testuser", "WrongPass")));
+        assertEquals("Sai tên tài khoản hoặc mật khẩu!", exception.getMessage());
     }
-}
\ No newline at end of file
+}
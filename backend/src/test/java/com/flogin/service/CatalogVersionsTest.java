@@ -0,0 +1,112 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) UNIT TEST - VERSION DANH MỤC (ETAG)
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Version đọc từ DB được ghi nhớ; thay đổi commit -> version sản phẩm bị gỡ, version danh mục tăng.
+ * - Lần đọc chồng lên một thay đổi (đọc giá trị cũ) không được ghi nhớ giá trị cũ.
+ * - Số sản phẩm được ghi nhớ có giới hạn.
+ * - updated_at -> version theo micro giây (khớp DATETIME(6)).
+ * - CatalogEntityListener: Product -> productChanged(id), Category -> catalogChanged().
+ * =========================================================================================
+ */
+
+package com.flogin.service;
+
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CatalogVersions Unit Tests")
+class CatalogVersionsTest {
+
+    @Test
+    @DisplayName("TC1: Ghi nhớ version; sửa sản phẩm -> gỡ version, tăng version danh mục")
+    void testRememberAndInvalidate() {
+        CatalogVersions versions = new CatalogVersions(100);
+        long catalog = versions.catalogVersion();
+
+        versions.rememberProduct(1L, 111L, catalog);
+        versions.rememberProduct(2L, 222L, catalog);
+        assertEquals(111L, versions.productVersion(1L));
+
+        versions.productChanged(1L);
+
+        assertNull(versions.productVersion(1L));
+        assertEquals(222L, versions.productVersion(2L));
+        assertEquals(catalog + 1, versions.catalogVersion());
+
+        versions.catalogChanged();
+        assertNull(versions.productVersion(2L));
+        assertEquals(catalog + 2, versions.catalogVersion());
+    }
+
+    @Test
+    @DisplayName("TC2: Thay đổi commit trong lúc đọc -> giá trị đọc được (có thể cũ) không được ghi nhớ")
+    void testConcurrentChangeIsNotRemembered() {
+        CatalogVersions versions = new CatalogVersions(100);
+        long seenBeforeQuery = versions.catalogVersion();
+
+        // Truy vấn đọc được updated_at cũ, rồi thay đổi commit trước khi kịp ghi nhớ
+        versions.productChanged(1L);
+        versions.rememberProduct(1L, 111L, seenBeforeQuery);
+
+        assertNull(versions.productVersion(1L));
+        assertEquals(0, versions.trackedProducts());
+    }
+
+    @Test
+    @DisplayName("TC3: Đủ giới hạn -> không ghi nhớ sản phẩm mới, sản phẩm đã có vẫn cập nhật được")
+    void testBounded() {
+        CatalogVersions versions = new CatalogVersions(2);
+        long catalog = versions.catalogVersion();
+
+        versions.rememberProduct(1L, 1L, catalog);
+        versions.rememberProduct(2L, 2L, catalog);
+        versions.rememberProduct(3L, 3L, catalog);
+        versions.rememberProduct(2L, 20L, catalog);
+
+        assertNull(versions.productVersion(3L));
+        assertEquals(20L, versions.productVersion(2L));
+        assertEquals(2, versions.trackedProducts());
+    }
+
+    @Test
+    @DisplayName("TC4: updated_at -> micro giây; null -> 0")
+    void testVersionOf() {
+        assertEquals(1_700_000_000_123_456L,
+                CatalogVersions.versionOf(LocalDateTime.of(2023, 11, 14, 22, 13, 20, 123_456_789)));
+        assertEquals(0L, CatalogVersions.versionOf(null));
+    }
+
+    @Test
+    @DisplayName("TC5: Listener - Product gỡ đúng id, Category làm mới toàn bộ danh mục (không transaction -> chạy ngay)")
+    void testEntityListener() {
+        CatalogVersions versions = new CatalogVersions(100);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("catalogVersions", versions));
+        CatalogEntityListener listener = new CatalogEntityListener(beanFactory.getBeanProvider(CatalogVersions.class),
+                beanFactory.getBeanProvider(ReferenceIdIndex.class));
+        long catalog = versions.catalogVersion();
+        versions.rememberProduct(1L, 1L, catalog);
+        versions.rememberProduct(2L, 2L, catalog);
+        Product product = new Product();
+        product.setId(1L);
+
+        listener.onChanged(product);
+
+        assertNull(versions.productVersion(1L));
+        assertEquals(2L, versions.productVersion(2L));
+
+        listener.onChanged(new Category("Phụ kiện"));
+
+        assertNull(versions.productVersion(2L));
+        assertEquals(catalog + 2, versions.catalogVersion());
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) UNIT TEST - CREDENTIAL CACHE
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Hit/miss đúng, không phân biệt hoa/thường; hết TTL thì coi như miss.
+ * - Invalidate theo id và theo username; đổi tên không để lại mục cũ.
+ * - Lần đọc DB bắt đầu trước khi invalidate thì kết quả (có thể đã cũ) không được cache.
+ * * II. MỤC TIÊU BỘ NHỚ:
+ * - Không vượt quá max-entries; mục được đọc gần đây được giữ lại (CLOCK).
+ * - Metrics hits/misses/evictions phản ánh đúng hoạt động.
+ * =========================================================================================
+ */
+
+package com.flogin.service;
+
+import com.flogin.entity.User;
+import com.flogin.security.UserCredentials;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CredentialCache Unit Tests")
+class CredentialCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicLong now;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        now = new AtomicLong();
+    }
+
+    private CredentialCache newCache(int maxEntries) {
+        return new CredentialCache(maxEntries, TimeUnit.SECONDS.toNanos(60), meterRegistry, now::get);
+    }
+
+    private static UserCredentials credentials(long id, String username) {
+        return new UserCredentials(id, username, "$2a$10$hash" + id, User.Role.USER, true);
+    }
+
+    @Test
+    @DisplayName("TC1: Hit/miss và không phân biệt hoa/thường")
+    void testHitAndMiss() {
+        CredentialCache cache = newCache(10);
+
+        assertNull(cache.get("admin"));
+        cache.put("Admin", credentials(1, "admin"), cache.beginLoad());
+
+        assertEquals(1L, cache.get("ADMIN").id());
+        assertEquals(1.0, meterRegistry.counter("flogin.credential_cache.hits").count());
+        assertEquals(1.0, meterRegistry.counter("flogin.credential_cache.misses").count());
+    }
+
+    @Test
+    @DisplayName("TC2: Hết TTL -> miss và đếm eviction expired")
+    void testExpiry() {
+        CredentialCache cache = newCache(10);
+        cache.put("admin", credentials(1, "admin"), cache.beginLoad());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+
+        assertNull(cache.get("admin"));
+        assertEquals(0, cache.size());
+        assertEquals(1.0, meterRegistry.counter("flogin.credential_cache.evictions", "cause", "expired").count());
+    }
+
+    @Test
+    @DisplayName("TC3: Invalidate theo id (đổi mật khẩu) và theo username")
+    void testInvalidate() {
+        CredentialCache cache = newCache(10);
+        cache.put("admin", credentials(1, "admin"), cache.beginLoad());
+        cache.put("user1", credentials(2, "user1"), cache.beginLoad());
+
+        cache.invalidate(1L, null);
+        cache.invalidate(null, "USER1");
+
+        assertNull(cache.get("admin"));
+        assertNull(cache.get("user1"));
+        assertEquals(2.0, meterRegistry.counter("flogin.credential_cache.evictions", "cause", "invalidated").count());
+    }
+
+    @Test
+    @DisplayName("TC4: Tên nhập khác tên thật (ngoài hoa/thường) -> không cache")
+    void testDoesNotCacheCollationAlias() {
+        CredentialCache cache = newCache(10);
+
+        cache.put("ádmin", credentials(1, "admin"), cache.beginLoad());
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("TC5: Đổi tên -> mục username cũ bị xóa")
+    void testRenameDropsOldKey() {
+        CredentialCache cache = newCache(10);
+        cache.put("oldname", credentials(1, "oldname"), cache.beginLoad());
+
+        cache.put("newname", credentials(1, "newname"), cache.beginLoad());
+
+        assertNull(cache.get("oldname"));
+        assertNotNull(cache.get("newname"));
+    }
+
+    @Test
+    @DisplayName("TC6: Không vượt max-entries, mục đọc gần đây được giữ lại")
+    void testSizeBoundWithClockEviction() {
+        CredentialCache cache = newCache(100);
+        for (int i = 0; i < 100; i++) {
+            cache.put("user" + i, credentials(i, "user" + i), cache.beginLoad());
+        }
+        cache.get("user0");
+
+        for (int i = 100; i < 10_000; i++) {
+            cache.put("user" + i, credentials(i, "user" + i), cache.beginLoad());
+            if (i % 50 == 0) {
+                cache.get("user0");
+            }
+            assertTrue(cache.size() <= 100, "Vượt max-entries: " + cache.size());
+        }
+
+        assertNotNull(cache.get("user0"), "Mục được đọc thường xuyên phải còn trong cache");
+        assertEquals(9_900.0,
+                meterRegistry.counter("flogin.credential_cache.evictions", "cause", "size").count());
+    }
+
+    @Test
+    @DisplayName("TC7: max-entries = 0 -> tắt cache")
+    void testDisabled() {
+        CredentialCache cache = newCache(0);
+
+        cache.put("admin", credentials(1, "admin"), cache.beginLoad());
+
+        assertNull(cache.get("admin"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("TC8: Đọc DB bắt đầu trước khi invalidate -> không cache dòng cũ")
+    void testLoadStartedBeforeInvalidationIsNotCached() {
+        CredentialCache cache = newCache(10);
+
+        // Lần đăng nhập đọc dòng active=true, trong lúc đó tài khoản bị khóa và commit
+        long staleLoad = cache.beginLoad();
+        cache.invalidate(1L, "admin");
+        cache.put("admin", credentials(1, "admin"), staleLoad);
+
+        assertNull(cache.get("admin"));
+
+        // Lần đọc bắt đầu sau khi invalidate thì được cache bình thường
+        cache.put("admin", credentials(1, "admin"), cache.beginLoad());
+        assertNotNull(cache.get("admin"));
+    }
+
+    @Test
+    @DisplayName("TC9: Invalidate theo id chặn cả lần đọc bằng tên cũ (user vừa đổi tên)")
+    void testInvalidationByIdBlocksOldUsername() {
+        CredentialCache cache = newCache(10);
+
+        long staleLoad = cache.beginLoad();
+        cache.invalidate(1L, "newname");
+        cache.put("oldname", credentials(1, "oldname"), staleLoad);
+
+        assertNull(cache.get("oldname"));
+        // Key khác, id khác không bị ảnh hưởng (trừ khi trùng stripe)
+        cache.put("user2", credentials(2, "user2"), staleLoad);
+        assertNotNull(cache.get("user2"));
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) UNIT TEST - THỐNG KÊ TỒN KHO TRONG BỘ NHỚ
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Chưa đối soát lần nào -> ServiceBusyException (503), không trả số 0 sai.
+ * - Sau đối soát, số liệu khớp đúng COUNT / SUM(price * quantity) trên DB (BigDecimal chính xác).
+ * - Tạo/sửa (đổi category, giá, số lượng)/xóa cập nhật tăng dần, khớp lại với DB sau cùng thay đổi.
+ * - Thay đổi commit trong lúc đang đối soát không bị mất; DB bị sửa ngoài ứng dụng -> đối soát sửa lệch.
+ * - reconcileAsync(): đối soát nền, nhiều lần gọi liên tiếp gộp lại.
+ * - Đọc không truy vấn DB (trả cùng một đối tượng cho tới lần thay đổi sau).
+ * * II. MÔI TRƯỜNG:
+ * - H2 in-memory + JdbcTemplate thật để kiểm tra câu GROUP BY.
+ * =========================================================================================
+ */
+
+package com.flogin.service;
+
+import com.flogin.dto.InventoryStats;
+import com.flogin.security.ServiceBusyException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+@DisplayName("InventoryStatistics Unit Tests")
+class InventoryStatisticsTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:inventory_statistics;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS products");
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "category_id BIGINT NOT NULL, price DECIMAL(12, 2) NOT NULL, quantity INT NOT NULL)");
+        for (int i = 0; i < 300; i++) {
+            // Giá có phần lẻ để phát hiện sai số kiểu double
+            jdbcTemplate.update("INSERT INTO products (category_id, price, quantity) VALUES (?, ?, ?)",
+                    i % 3 + 1L, new BigDecimal("19999.99").add(new BigDecimal(i)), i % 7);
+        }
+    }
+
+    /** Số liệu tính thẳng trên DB để so sánh */
+    private InventoryStats fromDatabase() {
+        InventoryStatistics fresh = new InventoryStatistics(jdbcTemplate);
+        fresh.reconcile();
+        return fresh.getStats();
+    }
+
+    private static void assertSameStats(InventoryStats expected, InventoryStats actual) {
+        assertEquals(expected.totalProducts(), actual.totalProducts());
+        assertEquals(0, expected.totalValue().compareTo(actual.totalValue()),
+                expected.totalValue() + " != " + actual.totalValue());
+        assertEquals(expected.categories().size(), actual.categories().size());
+        for (int i = 0; i < expected.categories().size(); i++) {
+            InventoryStats.CategoryStats e = expected.categories().get(i);
+            InventoryStats.CategoryStats a = actual.categories().get(i);
+            assertEquals(e.categoryId(), a.categoryId());
+            assertEquals(e.products(), a.products());
+            assertEquals(0, e.value().compareTo(a.value()), "category " + e.categoryId());
+        }
+    }
+
+    @Test
+    @DisplayName("TC1: Chưa đối soát -> ServiceBusyException; thay đổi trước đó không lỗi")
+    void testNotReadyBeforeReconcile() {
+        InventoryStatistics statistics = new InventoryStatistics(jdbcTemplate);
+        statistics.changed(null, new InventoryStatistics.Contribution(1L, BigDecimal.TEN));
+
+        assertThrows(ServiceBusyException.class, statistics::getStats);
+    }
+
+    @Test
+    @DisplayName("TC2: Đối soát khớp COUNT / SUM(price * quantity) trên DB, chính xác tới đồng")
+    void testReconcileMatchesDatabase() {
+        InventoryStatistics statistics = new InventoryStatistics(jdbcTemplate);
+        statistics.reconcile();
+
+        InventoryStats stats = statistics.getStats();
+
+        assertEquals(300, stats.totalProducts());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT SUM(price * quantity) FROM products", BigDecimal.class)
+                .compareTo(stats.totalValue()));
+        assertEquals(List.of(1L, 2L, 3L), stats.categories().stream().map(InventoryStats.CategoryStats::categoryId).toList());
+        assertEquals(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products WHERE category_id = 2", Long.class),
+                stats.categories().get(1).products());
+        assertNotNull(stats.reconciledAt());
+        assertSame(stats, statistics.getStats(), "Đọc lại không dựng lại số liệu");
+    }
+
+    @Test
+    @DisplayName("TC3: Tạo/sửa (đổi category)/xóa cập nhật tăng dần, khớp DB sau cùng thay đổi")
+    void testIncrementalChanges() {
+        InventoryStatistics statistics = new InventoryStatistics(jdbcTemplate);
+        statistics.reconcile();
+
+        // Tạo sản phẩm mới ở category mới
+        jdbcTemplate.update("INSERT INTO products (id, category_id, price, quantity) VALUES (1000, 9, 0.01, 3)");
+        InventoryStatistics.Contribution created = new InventoryStatistics.Contribution(9L, new BigDecimal("0.03"));
+        statistics.changed(null, created);
+        // Sửa: chuyển sản phẩm 1 (category 1, 19999.99 x 0) sang category 2 với giá/số lượng mới
+        jdbcTemplate.update("UPDATE products SET category_id = 2, price = 12.34, quantity = 5 WHERE id = 1");
+        statistics.changed(new InventoryStatistics.Contribution(1L, new BigDecimal("0.00")),
+                new InventoryStatistics.Contribution(2L, new BigDecimal("61.70")));
+        // Xóa sản phẩm 2 (category 2, 20000.99 x 1)
+        jdbcTemplate.update("DELETE FROM products WHERE id = 2");
+        statistics.changed(new InventoryStatistics.Contribution(2L, new BigDecimal("20000.99")), null);
+
+        assertSameStats(fromDatabase(), statistics.getStats());
+        assertEquals(4, statistics.getStats().categories().size());
+
+        // Xóa sản phẩm duy nhất của category 9 -> category biến mất như GROUP BY
+        jdbcTemplate.update("DELETE FROM products WHERE id = 1000");
+        statistics.changed(created, null);
+        assertSameStats(fromDatabase(), statistics.getStats());
+    }
+
+    @Test
+    @DisplayName("TC4: Thay đổi commit trong lúc đối soát (SELECT không thấy) vẫn có trong số liệu mới")
+    void testChangesDuringReconcileAreReplayed() {
+        AtomicBoolean injected = new AtomicBoolean();
+        JdbcTemplate racing = spy(jdbcTemplate);
+        InventoryStatistics[] holder = new InventoryStatistics[1];
+        doAnswer(invocation -> {
+            invocation.callRealMethod();
+            if (injected.compareAndSet(false, true)) {
+                // Commit sau khi SELECT đã đọc xong: chỉ danh sách phát lại giữ được thay đổi này
+                jdbcTemplate.update("INSERT INTO products (id, category_id, price, quantity) VALUES (2000, 1, 5, 2)");
+                holder[0].changed(null, new InventoryStatistics.Contribution(1L, new BigDecimal("10")));
+            }
+            return null;
+        }).when(racing).query(anyString(), any(RowCallbackHandler.class));
+
+        InventoryStatistics statistics = new InventoryStatistics(racing);
+        holder[0] = statistics;
+        statistics.reconcile();
+
+        assertSameStats(fromDatabase(), statistics.getStats());
+        assertEquals(301, statistics.getStats().totalProducts());
+    }
+
+    @Test
+    @DisplayName("TC5: DB bị sửa ngoài ứng dụng -> đối soát sau thay bằng số liệu DB, đếm lần sửa lệch")
+    void testReconcileCorrectsDrift() {
+        InventoryStatistics statistics = new InventoryStatistics(jdbcTemplate);
+        statistics.reconcile();
+        statistics.reconcile();
+        assertEquals(0, statistics.getDriftCorrections());
+
+        jdbcTemplate.update("UPDATE products SET quantity = quantity + 1 WHERE category_id = 3");
+        statistics.reconcile();
+
+        assertSameStats(fromDatabase(), statistics.getStats());
+        assertEquals(1, statistics.getDriftCorrections());
+        assertEquals(3, statistics.getReconcileCount());
+    }
+
+    @Test
+    @DisplayName("TC6: Xóa không biết phần đóng góp -> reconcileAsync đối soát trên thread nền, gọi dồn dập gộp lượt")
+    void testReconcileAsync() throws InterruptedException {
+        InventoryStatistics statistics = new InventoryStatistics(jdbcTemplate);
+        statistics.reconcile();
+
+        jdbcTemplate.update("DELETE FROM products WHERE id <= 10");
+        for (int i = 0; i < 20; i++) {
+            statistics.reconcileAsync();
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (statistics.getStats().totalProducts() != 290 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertSameStats(fromDatabase(), statistics.getStats());
+        // 20 lần gọi gộp lại: mỗi lúc chỉ một lượt đang chạy và tối đa một lượt chờ
+        assertTrue(statistics.getReconcileCount() <= 5, "reconciles=" + statistics.getReconcileCount());
+        statistics.shutdown();
+    }
+}
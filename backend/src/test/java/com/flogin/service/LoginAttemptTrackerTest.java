@@ -0,0 +1,206 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) UNIT TEST - LOGIN ATTEMPT TRACKER
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Khóa khi vượt ngưỡng theo username hoặc theo IP; tự mở khi lần sai trượt khỏi cửa sổ.
+ * - Username gộp hoa/thường và dấu; đăng nhập thành công xóa bộ đếm username.
+ * - DB chỉ được hỏi trong giai đoạn khởi động, mỗi username một lần.
+ * * II. MỤC TIÊU BỘ NHỚ / ĐỒNG THỜI:
+ * - Số key bị giới hạn; key không hoạt động bị dọn.
+ * - Nhiều thread cùng ghi không mất lần đếm nào.
+ * =========================================================================================
+ */
+
+package com.flogin.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LoginAttemptTracker Unit Tests")
+class LoginAttemptTrackerTest {
+
+    private static final long WINDOW = TimeUnit.MINUTES.toMillis(15);
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicLong now;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        now = new AtomicLong(1_700_000_000_000L);
+    }
+
+    private LoginAttemptTracker newTracker(BiFunction<String, LocalDateTime, Long> fallback, int maxKeys) {
+        return new LoginAttemptTracker(fallback, meterRegistry, WINDOW, 15, 5, 20, maxKeys, now::get);
+    }
+
+    @Test
+    @DisplayName("TC1: Vượt ngưỡng username -> khóa, hết cửa sổ -> mở")
+    void testUsernameLockoutSlidesOut() {
+        LoginAttemptTracker tracker = newTracker(null, 1000);
+        for (int i = 0; i < 4; i++) {
+            tracker.recordFailure("admin", "10.0.0.1");
+        }
+        assertEquals(0, tracker.retryAfterSeconds("admin", "10.0.0.1"));
+
+        now.addAndGet(TimeUnit.MINUTES.toMillis(5));
+        tracker.recordFailure("admin", "10.0.0.1");
+        long retryAfter = tracker.retryAfterSeconds("admin", "10.0.0.2");
+        // Lần sai cũ nhất (cách đây 5 phút) hết hạn sau ~10 phút nữa
+        assertTrue(retryAfter > TimeUnit.MINUTES.toSeconds(9) && retryAfter <= TimeUnit.MINUTES.toSeconds(10),
+                "Retry-After không hợp lý: " + retryAfter);
+
+        now.addAndGet(TimeUnit.MINUTES.toMillis(10) + 1);
+        assertEquals(0, tracker.retryAfterSeconds("admin", "10.0.0.2"));
+    }
+
+    @Test
+    @DisplayName("TC2: Username gộp hoa/thường và dấu tiếng Việt")
+    void testUsernameNormalization() {
+        LoginAttemptTracker tracker = newTracker(null, 1000);
+
+        tracker.recordFailure("Admin", null);
+        tracker.recordFailure("ADMIN", null);
+        tracker.recordFailure("ádmin", null);
+        tracker.recordFailure("admin", null);
+        tracker.recordFailure("Ádmin ", null);
+
+        assertTrue(tracker.retryAfterSeconds("admin", null) > 0);
+    }
+
+    @Test
+    @DisplayName("TC3: Một IP thử nhiều username -> khóa theo IP")
+    void testIpLockout() {
+        LoginAttemptTracker tracker = newTracker(null, 1000);
+        for (int i = 0; i < 20; i++) {
+            tracker.recordFailure("user" + i, "10.0.0.9");
+        }
+
+        assertTrue(tracker.retryAfterSeconds("someone-else", "10.0.0.9") > 0);
+        assertEquals(0, tracker.retryAfterSeconds("someone-else", "10.0.0.10"));
+    }
+
+    @Test
+    @DisplayName("TC4: Thành công xóa bộ đếm username, giữ bộ đếm IP")
+    void testSuccessResetsUsernameOnly() {
+        LoginAttemptTracker tracker = newTracker(null, 1000);
+        for (int i = 0; i < 5; i++) {
+            tracker.recordFailure("admin", "10.0.0.1");
+        }
+
+        tracker.recordSuccess("admin");
+
+        assertEquals(0, tracker.retryAfterSeconds("admin", null));
+    }
+
+    @Test
+    @DisplayName("TC5: DB chỉ được hỏi khi vừa khởi động, mỗi username một lần")
+    void testColdStartFallback() {
+        AtomicInteger queries = new AtomicInteger();
+        LoginAttemptTracker tracker = newTracker((username, since) -> {
+            queries.incrementAndGet();
+            return "admin".equals(username) ? 7L : 0L;
+        }, 1000);
+
+        assertTrue(tracker.retryAfterSeconds("admin", null) > 0, "Số lần sai trong DB phải được tính");
+        tracker.retryAfterSeconds("admin", null);
+        assertEquals(0, tracker.retryAfterSeconds("user1", null));
+        assertEquals(2, queries.get());
+
+        now.addAndGet(WINDOW);
+        assertEquals(0, tracker.retryAfterSeconds("user2", null));
+        assertEquals(2, queries.get(), "Sau một cửa sổ không được truy vấn DB nữa");
+        assertEquals(2.0, meterRegistry.counter("flogin.login_attempts.fallback_queries").count());
+    }
+
+    @Test
+    @DisplayName("TC6: Thành công lúc khởi động không bị DB nạp lại số lần sai cũ")
+    void testSuccessDuringColdStartIsNotReseeded() {
+        AtomicInteger queries = new AtomicInteger();
+        LoginAttemptTracker tracker = newTracker((username, since) -> {
+            queries.incrementAndGet();
+            return 7L;
+        }, 1000);
+
+        tracker.recordSuccess("admin");
+
+        assertEquals(0, tracker.retryAfterSeconds("admin", null));
+        assertEquals(0, queries.get());
+    }
+
+    @Test
+    @DisplayName("TC7: Số key bị giới hạn, key không hoạt động bị dọn")
+    void testBoundedKeysAndIdleEviction() {
+        LoginAttemptTracker tracker = newTracker(null, 320);
+        for (int i = 0; i < 5_000; i++) {
+            tracker.recordFailure("user" + i, "10.1." + (i / 256) + "." + (i % 256));
+        }
+        assertTrue(tracker.getTrackedKeys() <= 320, "Vượt giới hạn key: " + tracker.getTrackedKeys());
+
+        now.addAndGet(WINDOW);
+        tracker.evictIdle();
+
+        assertEquals(0, tracker.getTrackedKeys());
+    }
+
+    @Test
+    @DisplayName("TC9: Stripe đầy -> kim CLOCK loại key idle trước, key đang bị khóa được giữ")
+    void testClockEvictionPrefersIdleKeys() {
+        LoginAttemptTracker tracker = newTracker(null, 320);
+        for (int i = 0; i < 2_000; i++) {
+            tracker.recordFailure("old" + i, null);
+        }
+        now.addAndGet(WINDOW);
+
+        // Không gọi evictIdle(): chỗ trống phải đến từ lượt quét giới hạn khi tạo key mới
+        for (int v = 0; v < 8; v++) {
+            for (int i = 0; i < 5; i++) {
+                tracker.recordFailure("victim" + v, null);
+            }
+        }
+        for (int v = 0; v < 8; v++) {
+            assertTrue(tracker.retryAfterSeconds("victim" + v, null) > 0, "victim" + v + " phải còn bị khóa");
+        }
+
+        now.addAndGet(TimeUnit.MINUTES.toMillis(1));
+        for (int i = 0; i < 5_000; i++) {
+            tracker.recordFailure("spray" + i, null);
+        }
+        assertTrue(tracker.getTrackedKeys() <= 320, "Vượt giới hạn key: " + tracker.getTrackedKeys());
+        assertTrue(meterRegistry.get("flogin.login_attempts.evicted").counter().count() >= 6_000);
+    }
+
+    @Test
+    @DisplayName("TC8: Nhiều thread cùng ghi không mất lần đếm")
+    void testConcurrentRecording() throws Exception {
+        LoginAttemptTracker tracker = new LoginAttemptTracker(null, meterRegistry, WINDOW, 15, 4_000, 0, 1000, now::get);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    tracker.recordFailure("admin", null);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertTrue(tracker.retryAfterSeconds("admin", null) > 0, "Phải đếm đủ 4000 lần");
+        tracker.recordSuccess("admin");
+        tracker.recordFailure("admin", null);
+        assertEquals(0, tracker.retryAfterSeconds("admin", null));
+    }
+}
@@ -0,0 +1,266 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) UNIT TEST - LOGIN HISTORY WRITER
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Ghi theo lô khi đủ batch-size hoặc khi hết flush-interval.
+ * - Backpressure: DROP đếm số bản ghi bị bỏ, BLOCK không làm mất dữ liệu.
+ * - Khi shutdown phải ghi hết các bản ghi còn trong hàng đợi.
+ * - record() trả true thì bản ghi phải được ghi, kể cả khi chạy đua với shutdown.
+ * - Lỗi bất kỳ khi ghi một lô không được làm chết thread nền.
+ * * II. MÔI TRƯỜNG:
+ * - Dùng H2 in-memory + JdbcTemplate thật để kiểm tra câu lệnh INSERT theo lô.
+ * =========================================================================================
+ */
+
+package com.flogin.service;
+
+import com.flogin.entity.LoginHistory;
+import com.flogin.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DisplayName("LoginHistoryWriter Unit Tests")
+class LoginHistoryWriterTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private LoginHistoryWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:login_history_writer;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS login_history");
+        jdbcTemplate.execute("CREATE TABLE login_history ("
+                + "id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT, username VARCHAR(50) NOT NULL, "
+                + "ip_address VARCHAR(45), user_agent VARCHAR(255), is_success BOOLEAN NOT NULL, "
+                + "failure_reason VARCHAR(255), login_time TIMESTAMP NOT NULL)");
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("TC1: Ghi theo lô khi đủ batch-size")
+    void testFlushOnBatchSize() throws Exception {
+        writer = newWriter(jdbcTemplate, 1024, 10, 60_000, LoginHistoryWriter.OverflowPolicy.DROP);
+        writer.start();
+
+        for (int i = 0; i < 25; i++) {
+            assertTrue(writer.record(failure("user" + i)));
+        }
+
+        // 2 lô đầy được ghi ngay, không chờ hết flush-interval 60 giây
+        awaitTrue(() -> countRows() == 20);
+        assertEquals(20, countRows());
+
+        writer.shutdown();
+        assertEquals(25, countRows());
+        assertEquals(25.0, meterRegistry.counter("flogin.login_history.written").count());
+        assertTrue(meterRegistry.timer("flogin.login_history.flush").count() >= 3);
+    }
+
+    @Test
+    @DisplayName("TC2: Ghi theo thời gian khi lô chưa đầy")
+    void testFlushOnInterval() throws Exception {
+        writer = newWriter(jdbcTemplate, 1024, 100, 100, LoginHistoryWriter.OverflowPolicy.DROP);
+        writer.start();
+
+        User user = new User("testuser", "Test123", "test@example.com");
+        user.setId(null);
+        writer.record(LoginHistory.createSuccessHistory(user, "127.0.0.1", "JUnit"));
+        writer.record(failure("ghost"));
+
+        awaitTrue(() -> countRows() == 2);
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM login_history WHERE is_success = TRUE AND ip_address = '127.0.0.1'", Integer.class));
+    }
+
+    @Test
+    @DisplayName("TC3: Shutdown ghi hết các bản ghi còn trong hàng đợi")
+    void testDrainOnShutdown() throws Exception {
+        writer = newWriter(jdbcTemplate, 1024, 1000, 60_000, LoginHistoryWriter.OverflowPolicy.DROP);
+        writer.start();
+
+        for (int i = 0; i < 50; i++) {
+            writer.record(failure("user" + i));
+        }
+        writer.shutdown();
+
+        assertEquals(50, countRows());
+        assertEquals(0, writer.getQueueDepth());
+        assertFalse(writer.record(failure("late")), "Writer đã dừng thì không nhận thêm bản ghi");
+    }
+
+    @Test
+    @DisplayName("TC4: DROP - hàng đợi đầy thì bỏ bản ghi và tăng bộ đếm")
+    @SuppressWarnings("unchecked")
+    void testDropWhenFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        JdbcTemplate slowJdbc = mock(JdbcTemplate.class);
+        when(slowJdbc.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    release.await(5, TimeUnit.SECONDS);
+                    return new int[0][];
+                });
+
+        writer = newWriter(slowJdbc, 4, 1, 10, LoginHistoryWriter.OverflowPolicy.DROP);
+        writer.start();
+
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (writer.record(failure("user" + i))) {
+                accepted++;
+            }
+        }
+        double dropped = meterRegistry.counter("flogin.login_history.dropped").count();
+        release.countDown();
+
+        // Tối đa 4 bản ghi trong hàng đợi + 1 bản ghi đang được ghi
+        assertTrue(accepted <= 5, "accepted=" + accepted);
+        assertEquals(10 - accepted, (int) dropped);
+    }
+
+    @Test
+    @DisplayName("TC5: BLOCK - nhiều thread ghi đồng thời không mất bản ghi")
+    void testConcurrentProducersWithBlockPolicy() throws Exception {
+        writer = newWriter(jdbcTemplate, 64, 50, 20, LoginHistoryWriter.OverflowPolicy.BLOCK);
+        writer.start();
+
+        int producers = 4;
+        int perProducer = 500;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int id = p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!writer.record(failure("p" + id + "-" + i))) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writer.shutdown();
+
+        assertEquals(producers * perProducer, countRows());
+        assertEquals(producers * perProducer,
+                jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT username) FROM login_history", Integer.class));
+    }
+
+    @Test
+    @DisplayName("TC6: Lô lỗi bởi RuntimeException bất kỳ -> thread nền vẫn ghi các lô sau")
+    @SuppressWarnings("unchecked")
+    void testWorkerSurvivesUnexpectedException() throws Exception {
+        JdbcTemplate flakyJdbc = spy(jdbcTemplate);
+        AtomicBoolean failed = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (failed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Lỗi ngoài DataAccessException");
+            }
+            return invocation.callRealMethod();
+        }).when(flakyJdbc).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+
+        writer = newWriter(flakyJdbc, 1024, 5, 60_000, LoginHistoryWriter.OverflowPolicy.DROP);
+        writer.start();
+
+        for (int i = 0; i < 5; i++) {
+            writer.record(failure("lost" + i));
+        }
+        awaitTrue(() -> meterRegistry.counter("flogin.login_history.failed").count() == 5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(writer.record(failure("kept" + i)));
+        }
+        awaitTrue(() -> countRows() == 5);
+
+        assertEquals(5, countRows());
+        assertEquals(5.0, meterRegistry.counter("flogin.login_history.failed").count());
+    }
+
+    @Test
+    @DisplayName("TC7: record() chạy đua với shutdown -> mọi bản ghi đã nhận (true) đều được ghi")
+    void testNoAcceptedRecordLostDuringShutdown() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            jdbcTemplate.execute("DELETE FROM login_history");
+            LoginHistoryWriter racing = newWriter(jdbcTemplate, 4096, 50, 5, LoginHistoryWriter.OverflowPolicy.DROP);
+            racing.start();
+
+            AtomicInteger accepted = new AtomicInteger();
+            CountDownLatch started = new CountDownLatch(4);
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                int id = p;
+                Thread thread = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 500; i++) {
+                        if (racing.record(failure("r" + id + "-" + i))) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            started.await();
+            racing.shutdown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(accepted.get(), countRows(), "Vòng " + round);
+        }
+    }
+
+    private LoginHistoryWriter newWriter(JdbcTemplate jdbc, int capacity, int batchSize, long flushIntervalMs,
+                                         LoginHistoryWriter.OverflowPolicy policy) {
+        return new LoginHistoryWriter(jdbc, meterRegistry, capacity, batchSize, flushIntervalMs, policy, 1000);
+    }
+
+    private static LoginHistory failure(String username) {
+        return LoginHistory.createFailureHistory(username, "10.0.0.1", "k6",
+                LoginHistory.FailureReason.USERNAME_NOT_FOUND);
+    }
+
+    private int countRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM login_history", Integer.class);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
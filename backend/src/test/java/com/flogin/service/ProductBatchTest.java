@@ -0,0 +1,218 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) TEST TẠO/CẬP NHẬT HÀNG LOẠT (POST /api/products/batch)
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Phần tử lỗi được báo riêng (index + lý do), phần tử hợp lệ vẫn được ghi.
+ * - Sửa sản phẩm trong batch giống updateProduct; phần tử lỗi không để lại thay đổi nào.
+ * - IdGeneratorInitializer đẩy next_val lên trên MAX(id) hiện có, không bao giờ hạ xuống.
+ * * II. MỤC TIÊU HIỆU NĂNG (H2, 500 sản phẩm):
+ * - INSERT được gom JDBC batch: số câu lệnh chuẩn bị gửi DB ít hơn ít nhất 10 lần so với
+ *   gọi createProduct lần lượt (trên MySQL mỗi câu lệnh là một round trip).
+ * =========================================================================================
+ */
+
+package com.flogin.service;
+
+import com.flogin.config.IdGeneratorInitializer;
+import com.flogin.dto.ProductBatchResult;
+import com.flogin.dto.ProductDto;
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import com.flogin.entity.User;
+import com.flogin.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.stat=WARN"
+})
+@Import({ProductService.class, ProductSearchIndex.class, CatalogVersions.class, ProductChangeFeed.class,
+        InventoryStatistics.class, ReferenceIdIndex.class, IdGeneratorInitializer.class,
+        JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+@DisplayName("ProductService Batch Upsert Tests")
+class ProductBatchTest {
+
+    private static final int PRODUCTS = 500;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private IdGeneratorInitializer idGeneratorInitializer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Category category;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("admin", "$2a$10$hash", "admin@flogin.com", "Admin", User.Role.ADMIN);
+        entityManager.persist(user);
+        category = new Category("Electronics");
+        entityManager.persist(category);
+        entityManager.flush();
+    }
+
+    private ProductDto dto(Long id, String name, String price, int quantity) {
+        return new ProductDto(id, name, new BigDecimal(price), quantity, null, category.getId(), user.getId());
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    @Test
+    @DisplayName("TC1: 500 sản phẩm - batch gửi ít câu lệnh hơn ít nhất 10 lần so với gọi createProduct lần lượt")
+    void testBatchedInsertsUseFarFewerStatements() {
+        List<ProductDto> dtos = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            dtos.add(dto(null, "Sản phẩm lô " + i, "1000.00", i % 100));
+        }
+
+        // Mỗi createProduct là một request riêng: flush + clear mô phỏng transaction/persistence context mới
+        Statistics statistics = statistics();
+        for (ProductDto dto : dtos) {
+            productService.createProduct(dto);
+            entityManager.flush();
+            entityManager.clear();
+        }
+        long loopStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        ProductBatchResult result = productService.batchUpsert(dtos);
+        entityManager.flush();
+        long batchStatements = statistics.getPrepareStatementCount();
+
+        assertEquals(PRODUCTS, result.created());
+        assertEquals(0, result.failed());
+        assertEquals(PRODUCTS, result.items().stream().map(ProductBatchResult.Item::id).distinct().count());
+        assertEquals(2L * PRODUCTS, productRepository.count());
+        assertTrue(loopStatements >= PRODUCTS, "loop=" + loopStatements);
+        assertTrue(batchStatements * 10 <= loopStatements,
+                "batch=" + batchStatements + " loop=" + loopStatements);
+    }
+
+    @Test
+    @DisplayName("TC2: Phần tử lỗi báo riêng theo index, phần tử hợp lệ vẫn được tạo/sửa")
+    void testPerItemErrors() {
+        Product existing = productRepository.save(new Product("Bàn phím cơ", new BigDecimal("1800000.00"), 10,
+                category, user));
+        entityManager.flush();
+
+        ProductDto missingCategory = dto(null, "Chuột không dây", "250000.00", 5);
+        missingCategory.setCategoryId(999_999L);
+        List<ProductDto> dtos = List.of(
+                dto(null, "Tai nghe", "500000.00", 3),
+                missingCategory,
+                dto(existing.getId(), "Bàn phím cơ v2", "1900000.00", 8),
+                dto(existing.getId(), "ab", "1.00", 1),
+                dto(123_456L, "Loa bluetooth", "700000.00", 2),
+                dto(null, "Cáp", "-5.00", 1));
+
+        ProductBatchResult result = productService.batchUpsert(dtos);
+
+        assertEquals(1, result.created());
+        assertEquals(1, result.updated());
+        assertEquals(4, result.failed());
+        List<ProductBatchResult.Item> items = result.items();
+        assertEquals(ProductBatchResult.Status.CREATED, items.get(0).status());
+        assertNotNull(items.get(0).id());
+        assertEquals(ProductBatchResult.Status.FAILED, items.get(1).status());
+        assertTrue(items.get(1).error().contains("Category"));
+        assertEquals(ProductBatchResult.Status.UPDATED, items.get(2).status());
+        // Cùng id lần thứ hai -> lỗi, không ghi đè thay đổi của lần đầu
+        assertEquals(ProductBatchResult.Status.FAILED, items.get(3).status());
+        assertTrue(items.get(4).error().contains("123456"));
+        assertEquals(ProductBatchResult.Status.FAILED, items.get(5).status());
+        assertTrue(items.get(5).error().contains("Price"));
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(i, items.get(i).index());
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        Product reloaded = productRepository.findById(existing.getId()).orElseThrow();
+        assertEquals("Bàn phím cơ v2", reloaded.getTen());
+        assertEquals(8, reloaded.getSoLuong());
+        assertEquals(2, productRepository.count());
+    }
+
+    @Test
+    @DisplayName("TC3: Batch rỗng hoặc quá giới hạn -> IllegalArgumentException")
+    void testRejectsEmptyOrOversizedBatch() {
+        assertThrows(IllegalArgumentException.class, () -> productService.batchUpsert(List.of()));
+        List<ProductDto> tooMany = new ArrayList<>();
+        for (int i = 0; i <= 1000; i++) {
+            tooMany.add(dto(null, "Sản phẩm " + i, "1.00", 1));
+        }
+        assertThrows(IllegalArgumentException.class, () -> productService.batchUpsert(tooMany));
+    }
+
+    @Test
+    @DisplayName("TC4: IdGeneratorInitializer - next_val vượt MAX(id) thêm một khối, chạy lại không hạ xuống")
+    void testIdGeneratorStaysAboveExistingIds() {
+        jdbcTemplate.update("INSERT INTO products (id, name, price, quantity, category_id, created_by, created_at) "
+                + "VALUES (5000, 'Nhập tay', 1.00, 1, ?, ?, CURRENT_TIMESTAMP)", category.getId(), user.getId());
+
+        idGeneratorInitializer.initialize();
+        long nextVal = jdbcTemplate.queryForObject("SELECT next_val FROM id_generators WHERE name = 'products'",
+                Long.class);
+        assertEquals(5000 + Product.ID_ALLOCATION_SIZE + 1, nextVal);
+
+        jdbcTemplate.update("UPDATE id_generators SET next_val = 90000 WHERE name = 'products'");
+        idGeneratorInitializer.initialize();
+        assertEquals(90000L, jdbcTemplate.queryForObject(
+                "SELECT next_val FROM id_generators WHERE name = 'products'", Long.class));
+
+        jdbcTemplate.update("DELETE FROM id_generators WHERE name = 'products'");
+        idGeneratorInitializer.initialize();
+        assertEquals(5000 + Product.ID_ALLOCATION_SIZE + 1, jdbcTemplate.queryForObject(
+                "SELECT next_val FROM id_generators WHERE name = 'products'", Long.class));
+    }
+
+    @Test
+    @DisplayName("TC5: Id cấp theo khối không trùng nhau giữa các lần gọi")
+    void testGeneratedIdsAreUnique() {
+        HashSet<Long> ids = new HashSet<>();
+        for (int round = 0; round < 3; round++) {
+            List<ProductDto> dtos = new ArrayList<>();
+            for (int i = 0; i < Product.ID_ALLOCATION_SIZE + 7; i++) {
+                dtos.add(dto(null, "Sản phẩm " + round + "-" + i, "1.00", 1));
+            }
+            productService.batchUpsert(dtos).items().forEach(item -> assertTrue(ids.add(item.id())));
+        }
+        assertEquals(3 * (Product.ID_ALLOCATION_SIZE + 7), ids.size());
+    }
+}
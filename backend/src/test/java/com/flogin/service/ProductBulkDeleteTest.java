@@ -0,0 +1,199 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) TEST XÓA SẢN PHẨM THEO TẬP (DELETE /api/products)
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Xóa theo danh sách id: id trùng/không tồn tại bị bỏ qua, trả về số dòng thực sự bị xóa.
+ * - Xóa theo bộ lọc (categoryId, createdBefore): chỉ đúng các dòng khớp, kể cả khi nhiều khối.
+ * - Mỗi sản phẩm bị xóa có đúng một tombstone (delta sync).
+ * - Thiếu điều kiện, vừa id vừa bộ lọc, quá giới hạn id -> IllegalArgumentException (400).
+ * * II. MỤC TIÊU HIỆU NĂNG (đếm câu lệnh JDBC bằng Hibernate Statistics):
+ * - Xóa một id: 1 câu DELETE (+ 1 INSERT tombstone), không SELECT; id lạ -> chỉ 1 câu DELETE, 404.
+ * - Xóa ~1000 id: vài câu lệnh mỗi khối 500 (SELECT ... FOR UPDATE, DELETE ... IN, batch tombstone),
+ *   không phải vài câu lệnh cho mỗi sản phẩm.
+ * =========================================================================================
+ */
+
+package com.flogin.service;
+
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import com.flogin.entity.User;
+import com.flogin.repository.ProductRepository;
+import com.flogin.repository.ProductTombstoneRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.stat=WARN"
+})
+@Import({ProductService.class, ProductSearchIndex.class, CatalogVersions.class, ProductChangeFeed.class,
+        InventoryStatistics.class, ReferenceIdIndex.class, JacksonAutoConfiguration.class,
+        ValidationAutoConfiguration.class})
+@DisplayName("ProductService Bulk Delete Tests")
+class ProductBulkDeleteTest {
+
+    // 700 sản phẩm category "Electronics" (300 đầu tạo năm 2020) + 500 sản phẩm category "Books"
+    private static final int ELECTRONICS = 700;
+    private static final int OLD_ELECTRONICS = 300;
+    private static final int BOOKS = 500;
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2021, 1, 1, 0, 0);
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Category electronics;
+    private Category books;
+    private List<Long> electronicsIds;
+    private List<Long> bookIds;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User("admin", "$2a$10$hash", "admin@flogin.com", "Admin", User.Role.ADMIN);
+        entityManager.persist(user);
+        electronics = new Category("Electronics");
+        entityManager.persist(electronics);
+        books = new Category("Books");
+        entityManager.persist(books);
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < ELECTRONICS; i++) {
+            products.add(new Product("Thiết bị " + i, new BigDecimal("100.00"), 2, electronics, user));
+        }
+        for (int i = 0; i < BOOKS; i++) {
+            products.add(new Product("Sách " + i, new BigDecimal("50.00"), 1, books, user));
+        }
+        List<Product> saved = productRepository.saveAll(products);
+        electronicsIds = saved.subList(0, ELECTRONICS).stream().map(Product::getId).toList();
+        bookIds = saved.subList(ELECTRONICS, saved.size()).stream().map(Product::getId).toList();
+        entityManager.flush();
+        entityManager.createQuery("UPDATE Product p SET p.createdAt = :old WHERE p.id IN :ids")
+                .setParameter("old", LocalDateTime.of(2020, 6, 1, 0, 0))
+                .setParameter("ids", electronicsIds.subList(0, OLD_ELECTRONICS))
+                .executeUpdate();
+        entityManager.clear();
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    @Test
+    @DisplayName("TC1: Xóa một id -> 1 DELETE + 1 INSERT tombstone, không SELECT; id lạ -> 1 câu lệnh, 404")
+    void testSingleDeleteIsOneStatement() {
+        Long id = bookIds.get(0);
+
+        Statistics statistics = statistics();
+        productService.deleteProduct(id);
+        entityManager.flush();
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertFalse(productRepository.existsById(id));
+        assertTrue(tombstoneRepository.existsById(id));
+
+        statistics.clear();
+        RuntimeException missing = assertThrows(RuntimeException.class, () -> productService.deleteProduct(999_999L));
+        entityManager.flush();
+
+        assertTrue(missing.getMessage().contains("Không tìm thấy sản phẩm"));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, tombstoneRepository.count());
+    }
+
+    @Test
+    @DisplayName("TC2: Xóa 1000 id (kèm id trùng, id lạ) -> đếm đúng, tombstone đủ, vài câu lệnh mỗi khối")
+    void testDeleteByIdsInChunks() {
+        List<Long> ids = new ArrayList<>(electronicsIds.subList(0, 600));
+        ids.addAll(List.of(999_998L, 999_999L));
+        ids.addAll(bookIds.subList(0, 390));
+        ids.addAll(electronicsIds.subList(0, 8));
+
+        Statistics statistics = statistics();
+        int deleted = productService.deleteProducts(ids, null, null);
+        entityManager.flush();
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals(990, deleted);
+        assertEquals(ELECTRONICS + BOOKS - 990, productRepository.count());
+        assertEquals(990, tombstoneRepository.count());
+        assertFalse(tombstoneRepository.existsById(999_999L));
+        // 992 id khác nhau -> 2 khối; mỗi khối SELECT ... FOR UPDATE + DELETE + batch INSERT tombstone
+        // (xóa lần lượt từng sản phẩm: ít nhất 2 câu lệnh mỗi sản phẩm, gần 2000)
+        assertEquals(2 * 3, statements);
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    @DisplayName("TC3: Xóa theo bộ lọc -> chỉ đúng các dòng khớp; nhiều khối vẫn xóa hết")
+    void testDeleteByFilter() {
+        int oldElectronics = productService.deleteProducts(null, electronics.getId(), CUTOFF);
+
+        assertEquals(OLD_ELECTRONICS, oldElectronics);
+        for (Long id : electronicsIds.subList(0, OLD_ELECTRONICS)) {
+            assertTrue(tombstoneRepository.existsById(id));
+        }
+        assertTrue(productRepository.existsById(electronicsIds.get(OLD_ELECTRONICS)));
+
+        // Không còn sản phẩm nào tạo trước mốc -> 0, không lỗi
+        assertEquals(0, productService.deleteProducts(List.of(), null, CUTOFF));
+
+        // 500 sách = đúng một khối: vòng lặp phải đọc thêm một khối rỗng rồi dừng
+        assertEquals(BOOKS, productService.deleteProducts(null, books.getId(), null));
+        assertEquals(ELECTRONICS - OLD_ELECTRONICS, productRepository.count());
+
+        // Chỉ lọc createdBefore: 400 thiết bị còn lại
+        assertEquals(ELECTRONICS - OLD_ELECTRONICS,
+                productService.deleteProducts(null, null, LocalDateTime.now().plusDays(1)));
+        assertEquals(0, productRepository.count());
+        assertEquals(ELECTRONICS + BOOKS, tombstoneRepository.count());
+    }
+
+    @Test
+    @DisplayName("TC4: Thiếu điều kiện, vừa id vừa bộ lọc, quá giới hạn id -> IllegalArgumentException")
+    void testRejectsInvalidRequests() {
+        assertThrows(IllegalArgumentException.class, () -> productService.deleteProducts(null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> productService.deleteProducts(List.of(), null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.deleteProducts(List.of(bookIds.get(0)), books.getId(), null));
+        List<Long> tooMany = new ArrayList<>();
+        for (long i = 1; i <= 1001; i++) {
+            tooMany.add(i);
+        }
+        assertThrows(IllegalArgumentException.class, () -> productService.deleteProducts(tooMany, null, null));
+
+        assertEquals(ELECTRONICS + BOOKS, productRepository.count());
+        assertEquals(0, tombstoneRepository.count());
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) TEST - ĐỒNG BỘ THAY ĐỔI SẢN PHẨM (DELTA SYNC)
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Không cursor -> đi hết danh mục theo trang, không trùng, không sót.
+ * - Từ cursor: chỉ sản phẩm được sửa và id bị xóa sau đó, trộn đúng thứ tự (thời điểm, id).
+ * - Trang cuối lùi cursor settle-ms: thay đổi gần đây được gửi lại lần sau (bắt commit muộn).
+ * - Cursor cũ hơn thời gian giữ tombstone -> SyncCursorExpiredException (410); cursor hỏng -> 400.
+ * - Dọn tombstone chỉ xóa bản ghi quá hạn.
+ * * II. MÔI TRƯỜNG:
+ * - H2 + repository thật; đồng hồ cố định qua constructor package-private.
+ * =========================================================================================
+ */
+
+package com.flogin.service;
+
+import com.flogin.dto.ProductChanges;
+import com.flogin.dto.ProductDto;
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import com.flogin.entity.User;
+import com.flogin.repository.ProductRepository;
+import com.flogin.repository.ProductTombstoneRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@DisplayName("ProductChangeFeed Tests")
+class ProductChangeFeedTest {
+
+    private static final long SETTLE_MS = 5_000;
+    private static final long RETENTION_MS = Duration.ofDays(7).toMillis();
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private List<Long> ids;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User("admin", "$2a$10$hash", "admin@flogin.com", "Admin", User.Role.ADMIN);
+        entityManager.persist(user);
+        Category category = new Category("Electronics");
+        entityManager.persist(category);
+        ids = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            ids.add(productRepository.save(new Product("Sản phẩm " + i, new BigDecimal("1000.00"), i, category, user))
+                    .getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /** Đồng hồ lệch offset so với hiện tại */
+    private ProductChangeFeed feed(long settleMs, Duration offset) {
+        Clock clock = Clock.fixed(Instant.now().plus(offset), ZoneId.systemDefault());
+        return new ProductChangeFeed(productRepository, tombstoneRepository, settleMs, RETENTION_MS, 500, clock);
+    }
+
+    /** Gọi liên tiếp khi hasMore, gom mọi trang; trả trang cuối */
+    private ProductChanges drain(ProductChangeFeed feed, String since, int size,
+                                 List<Long> updated, List<Long> deleted) {
+        ProductChanges changes;
+        String cursor = since;
+        do {
+            changes = feed.getChanges(cursor, size);
+            assertTrue(changes.updated().size() + changes.deleted().size() <= size);
+            changes.updated().stream().map(ProductDto::getId).forEach(updated::add);
+            deleted.addAll(changes.deleted());
+            cursor = changes.nextCursor();
+        } while (changes.hasMore());
+        return changes;
+    }
+
+    @Test
+    @DisplayName("TC1: Không cursor -> đồng bộ toàn bộ theo trang, không trùng, không sót")
+    void testFullSyncWalksWholeCatalog() {
+        List<Long> updated = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+
+        ProductChanges last = drain(feed(0, Duration.ZERO), null, 5, updated, deleted);
+
+        assertEquals(ids, updated);
+        assertTrue(deleted.isEmpty());
+        assertFalse(last.hasMore());
+        assertNotNull(last.nextCursor());
+    }
+
+    @Test
+    @DisplayName("TC2: Từ cursor -> chỉ sản phẩm vừa sửa và id vừa xóa, trộn theo thứ tự thời gian")
+    void testDeltaAfterCursor() throws InterruptedException {
+        ProductChangeFeed feed = feed(0, Duration.ofMillis(1));
+        String cursor = drain(feed, null, 100, new ArrayList<>(), new ArrayList<>()).nextCursor();
+        Thread.sleep(5);
+
+        // Xóa 2 sản phẩm (kèm tombstone như ProductService.deleteProduct), rồi sửa 1 sản phẩm
+        productRepository.deleteById(ids.get(3));
+        feed.recordDeletion(ids.get(3));
+        productRepository.deleteById(ids.get(7));
+        feed.recordDeletion(ids.get(7));
+        entityManager.flush();
+        Thread.sleep(5);
+        Product product = productRepository.findById(ids.get(10)).orElseThrow();
+        product.setTen("Sản phẩm đã sửa");
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Long> updated = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        ProductChangeFeed now = feed(0, Duration.ofMillis(1));
+        ProductChanges first = now.getChanges(cursor, 2);
+        drain(now, cursor, 1, updated, deleted);
+
+        assertEquals(List.of(ids.get(3), ids.get(7)), first.deleted(), "Xóa trước sửa -> trang 1 chỉ có xóa");
+        assertTrue(first.updated().isEmpty());
+        assertTrue(first.hasMore());
+        assertEquals(List.of(ids.get(10)), updated);
+        assertEquals(List.of(ids.get(3), ids.get(7)), deleted);
+    }
+
+    @Test
+    @DisplayName("TC3: Trang cuối lùi cursor settle-ms -> thay đổi gần đây được gửi lại lần sau")
+    void testFinalCursorLagsBySettleWindow() {
+        // Đồng hồ đi trước 2 giây, settle 5 giây: mọi sản phẩm vừa tạo nằm trong cửa sổ chưa chắc chắn
+        ProductChangeFeed feed = feed(SETTLE_MS, Duration.ofSeconds(2));
+        String cursor = drain(feed, null, 100, new ArrayList<>(), new ArrayList<>()).nextCursor();
+
+        List<Long> resent = new ArrayList<>();
+        drain(feed, cursor, 100, resent, new ArrayList<>());
+        assertEquals(ids, resent);
+
+        // Ra khỏi cửa sổ -> không gửi lại nữa
+        ProductChangeFeed later = feed(SETTLE_MS, Duration.ofSeconds(30));
+        String settled = drain(later, cursor, 100, new ArrayList<>(), new ArrayList<>()).nextCursor();
+        ProductChanges none = later.getChanges(settled, 100);
+        assertTrue(none.updated().isEmpty());
+        assertFalse(none.hasMore());
+    }
+
+    @Test
+    @DisplayName("TC4: Cursor quá hạn giữ tombstone -> 410; cursor hỏng hoặc size < 1 -> IllegalArgumentException")
+    void testInvalidCursors() {
+        String cursor = feed(0, Duration.ZERO).currentCursor();
+
+        assertThrows(SyncCursorExpiredException.class,
+                () -> feed(0, Duration.ofDays(8)).getChanges(cursor, 10));
+        assertThrows(IllegalArgumentException.class, () -> feed(0, Duration.ZERO).getChanges("broken", 10));
+        assertThrows(IllegalArgumentException.class, () -> feed(0, Duration.ZERO).getChanges(cursor, 0));
+        assertEquals(cursor, ProductChangeCursor.decode(cursor).encode());
+    }
+
+    @Test
+    @DisplayName("TC5: Dọn tombstone chỉ xóa bản ghi cũ hơn thời gian giữ")
+    void testPurgeTombstones() {
+        ProductChangeFeed feed = feed(0, Duration.ZERO);
+        feed.recordDeletion(ids.get(0));
+        feed.recordDeletion(ids.get(1));
+        entityManager.flush();
+
+        feed.purgeTombstones();
+        assertEquals(2, tombstoneRepository.count());
+
+        feed(0, Duration.ofDays(8)).purgeTombstones();
+        assertEquals(0, tombstoneRepository.count());
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) TEST XUẤT DANH MỤC SẢN PHẨM (STREAMING EXPORT)
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Xuất đủ mọi sản phẩm theo thứ tự id, mỗi sản phẩm một dòng.
+ * * II. MỤC TIÊU BỘ NHỚ (H2 với 100.000 sản phẩm):
+ * - Persistence context không bao giờ giữ quá EXPORT_FETCH_SIZE entity.
+ * - Heap sau GC gần như không đổi từ đầu đến cuối lượt xuất (không tăng theo số dòng).
+ * =========================================================================================
+ */
+
+package com.flogin.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flogin.dto.ProductDto;
+import com.flogin.entity.Category;
+import com.flogin.entity.User;
+import com.flogin.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// LAZY_QUERY_EXECUTION: H2 đọc kết quả theo cursor thay vì nạp cả result set như MySQL useCursorFetch
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product_export;LAZY_QUERY_EXECUTION=1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ProductService.class, ProductSearchIndex.class, CatalogVersions.class, ProductChangeFeed.class,
+        InventoryStatistics.class, ReferenceIdIndex.class, JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+@DisplayName("ProductService Streaming Export Tests")
+class ProductExportTest {
+
+    private static final int PRODUCTS = 100_000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private void insertProducts(int count) {
+        User user = new User("admin", "$2a$10$hash", "admin@flogin.com", "Admin", User.Role.ADMIN);
+        entityManager.persist(user);
+        Category category = new Category("Electronics");
+        entityManager.persist(category);
+        entityManager.flush();
+        entityManager.clear();
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(10_000);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (int i = 1; i <= count; i++) {
+            // products.id không còn AUTO_INCREMENT (Product cấp id qua id_generators) -> tự gán id
+            rows.add(new Object[]{(long) i, "Sản phẩm " + i, BigDecimal.valueOf(i, 2).add(BigDecimal.ONE), i % 1000,
+                    "Mô tả sản phẩm số " + i, category.getId(), user.getId(), now, now});
+            if (rows.size() == 10_000 || i == count) {
+                jdbcTemplate.batchUpdate("INSERT INTO products (id, name, price, quantity, description, "
+                        + "category_id, created_by, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    @DisplayName("TC1: Xuất 100.000 sản phẩm - persistence context giới hạn, heap không tăng theo số dòng")
+    void testExportKeepsHeapFlat() throws IOException {
+        insertProducts(PRODUCTS);
+        Session session = entityManager.unwrap(Session.class);
+        CountingOutputStream out = new CountingOutputStream();
+        // CSV dùng toPlainString; toString() của BigDecimal tự cache chuỗi vào chính object mà H2 in-memory
+        // đang giữ, làm heap của database tăng theo số dòng dù ứng dụng không giữ gì
+        ProductExportFormat.RowWriter csv = ProductExportFormat.CSV.open(out, new ObjectMapper());
+
+        long[] heap = new long[2];
+        int[] maxManaged = new int[1];
+        long[] lastId = {0};
+        long exported = productService.exportProducts(new ProductExportFormat.RowWriter() {
+            private int rows;
+
+            @Override
+            public void write(ProductDto product) throws IOException {
+                assertTrue(product.getId() > lastId[0], "Phải xuất theo thứ tự id");
+                lastId[0] = product.getId();
+                csv.write(product);
+                maxManaged[0] = Math.max(maxManaged[0], session.getStatistics().getEntityCount());
+                rows++;
+                if (rows == PRODUCTS / 10) {
+                    heap[0] = usedHeapAfterGc();
+                } else if (rows == PRODUCTS) {
+                    heap[1] = usedHeapAfterGc();
+                }
+            }
+
+            @Override
+            public void finish() throws IOException {
+                csv.finish();
+            }
+        });
+
+        assertEquals(PRODUCTS, exported);
+        assertEquals(PRODUCTS + 1, out.lines, "Header + mỗi sản phẩm một dòng");
+        assertTrue(maxManaged[0] <= ProductRepository.EXPORT_FETCH_SIZE,
+                "Persistence context giữ tối đa " + maxManaged[0] + " entity");
+        // 90.000 entity + DTO bị giữ lại sẽ tốn hàng chục MB; cho phép dao động nhỏ của GC
+        long growth = heap[1] - heap[0];
+        assertTrue(growth < 4L * 1024 * 1024, "Heap tăng " + growth / 1024 + " KB giữa 10% và 100% lượt xuất");
+    }
+
+    /**
+     * Output stream bỏ dữ liệu, chỉ đếm số dòng
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        long lines;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) TEST SỬA MỘT PHẦN + OPTIMISTIC LOCK (PATCH /api/products/{id})
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - PATCH chỉ ghi các trường gửi lên, tăng version, đặt updated_at (nguồn ETag).
+ * - version gửi lên lệch DB -> ProductVersionConflictException (409), không ghi gì; id lạ -> 404.
+ * - Đường entity (PUT): @Version chặn ghi đè khi dòng đã bị sửa sau lúc đọc; @DynamicUpdate chỉ
+ *   ghi cột thay đổi.
+ * * II. MỤC TIÊU HIỆU NĂNG (đếm SQL thật bằng StatementInspector):
+ * - PATCH tên/mô tả: đúng 1 câu lệnh (UPDATE ... WHERE id = ? AND version = ?), không SELECT.
+ * - PATCH giá/số lượng: cũng đúng 1 câu UPDATE, không SELECT ... FOR UPDATE (thống kê tồn kho đối soát nền).
+ * =========================================================================================
+ */
+
+package com.flogin.service;
+
+import com.flogin.dto.ProductDto;
+import com.flogin.dto.ProductPatch;
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import com.flogin.entity.User;
+import com.flogin.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.flogin.service.ProductPatchTest$SqlRecorder"
+})
+@Import({ProductService.class, ProductSearchIndex.class, CatalogVersions.class, ProductChangeFeed.class,
+        InventoryStatistics.class, ReferenceIdIndex.class, JacksonAutoConfiguration.class,
+        ValidationAutoConfiguration.class})
+@DisplayName("ProductService PATCH / Optimistic Lock Tests")
+class ProductPatchTest {
+
+    /** Ghi lại mọi câu SQL Hibernate gửi đi (khai báo qua hibernate.session_factory.statement_inspector) */
+    public static class SqlRecorder implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            // Bỏ comment "/* ... */" (hibernate.use_sql_comments) và xuống dòng (format_sql) để so khớp đầu câu lệnh
+            STATEMENTS.add(sql.replaceFirst("(?s)^\\s*/\\*.*?\\*/", "").replaceAll("\\s+", " ").trim().toLowerCase());
+            return sql;
+        }
+    }
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Product product;
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User("admin", "$2a$10$hash", "admin@flogin.com", "Admin", User.Role.ADMIN);
+        entityManager.persist(user);
+        category = new Category("Electronics");
+        entityManager.persist(category);
+        product = productRepository.save(new Product("Bàn phím cơ", new BigDecimal("1800000.00"), 10,
+                "Switch đỏ", category, user));
+        entityManager.flush();
+        entityManager.clear();
+        SqlRecorder.STATEMENTS.clear();
+    }
+
+    private Product reload() {
+        entityManager.clear();
+        return productRepository.findById(product.getId()).orElseThrow();
+    }
+
+    @Test
+    @DisplayName("TC1: PATCH tên -> đúng 1 câu UPDATE có điều kiện version, chỉ cột gửi lên, version tăng")
+    void testNameOnlyPatchIsSingleStatement() {
+        LocalDateTime updatedAt = productService.patchProduct(product.getId(),
+                new ProductPatch("Bàn phím cơ v2", null, null, null, null, 0L));
+
+        assertEquals(1, SqlRecorder.STATEMENTS.size(), SqlRecorder.STATEMENTS.toString());
+        String update = SqlRecorder.STATEMENTS.get(0);
+        assertTrue(update.startsWith("update products set name=?"), update);
+        assertFalse(update.contains("price") || update.contains("quantity"), update);
+        assertTrue(update.contains("version=?"), update);
+
+        Product reloaded = reload();
+        assertEquals("Bàn phím cơ v2", reloaded.getTen());
+        assertEquals(10, reloaded.getSoLuong());
+        assertEquals("Switch đỏ", reloaded.getDescription());
+        assertEquals(1L, reloaded.getVersion());
+        assertEquals(updatedAt, reloaded.getUpdatedAt());
+    }
+
+    @Test
+    @DisplayName("TC2: PATCH số lượng -> đúng 1 câu UPDATE, không khóa dòng trước; không gửi version vẫn ghi được")
+    void testInventoryPatchIsSingleStatement() {
+        productService.patchProduct(product.getId(), new ProductPatch(null, null, 3, null, null, null));
+
+        assertEquals(1, SqlRecorder.STATEMENTS.size(), SqlRecorder.STATEMENTS.toString());
+        assertTrue(SqlRecorder.STATEMENTS.get(0).startsWith("update products set quantity=?"),
+                SqlRecorder.STATEMENTS.get(0));
+        Product reloaded = reload();
+        assertEquals(3, reloaded.getSoLuong());
+        assertEquals("Bàn phím cơ", reloaded.getTen());
+        assertEquals(1L, reloaded.getVersion());
+    }
+
+    @Test
+    @DisplayName("TC3: version cũ -> 409 không ghi gì; id lạ -> 404; patch rỗng/không hợp lệ -> 400")
+    void testConflictsAndErrors() {
+        productService.patchProduct(product.getId(), new ProductPatch("Tên mới", null, null, null, null, 0L));
+
+        assertThrows(ProductVersionConflictException.class, () -> productService.patchProduct(product.getId(),
+                new ProductPatch("Ghi đè", null, null, null, null, 0L)));
+        assertThrows(ProductVersionConflictException.class, () -> productService.patchProduct(product.getId(),
+                new ProductPatch(null, new BigDecimal("1.00"), null, null, null, 0L)));
+        RuntimeException missing = assertThrows(RuntimeException.class, () -> productService.patchProduct(999_999L,
+                new ProductPatch("Không có", null, null, null, null, null)));
+        assertEquals("Không tìm thấy sản phẩm với id: 999999", missing.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> productService.patchProduct(product.getId(),
+                new ProductPatch(null, null, null, null, null, 1L)));
+        assertThrows(IllegalArgumentException.class, () -> productService.patchProduct(product.getId(),
+                new ProductPatch("ab", null, -1, null, null, 1L)));
+
+        Product reloaded = reload();
+        assertEquals("Tên mới", reloaded.getTen());
+        assertEquals(new BigDecimal("1800000.00"), reloaded.getGia());
+        assertEquals(1L, reloaded.getVersion());
+    }
+
+    @Test
+    @DisplayName("TC4: Đường entity - dòng bị sửa sau lúc đọc -> optimistic lock; PUT gửi version cũ -> 409")
+    void testEntityPathIsVersioned() {
+        Product loaded = productRepository.findById(product.getId()).orElseThrow();
+        // Người khác sửa và commit trong lúc entity đang được giữ
+        productService.patchProduct(product.getId(), new ProductPatch("Người khác sửa", null, null, null, null, null));
+        loaded.setSoLuong(99);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> productRepository.saveAndFlush(loaded));
+
+        entityManager.clear();
+        ProductDto stale = new ProductDto(product.getId(), "PUT", new BigDecimal("1.00"), 1, null, null, null, 0L);
+        assertThrows(ProductVersionConflictException.class, () -> productService.updateProduct(product.getId(), stale));
+    }
+
+    @Test
+    @DisplayName("TC5: @DynamicUpdate - UPDATE của đường entity chỉ chứa cột thay đổi")
+    void testDynamicUpdate() {
+        Product loaded = productRepository.findById(product.getId()).orElseThrow();
+        SqlRecorder.STATEMENTS.clear();
+        loaded.setSoLuong(11);
+        entityManager.flush();
+
+        String update = SqlRecorder.STATEMENTS.stream().filter(sql -> sql.startsWith("update products"))
+                .findFirst().orElseThrow();
+        assertTrue(update.contains("quantity=?"), update);
+        assertFalse(update.contains("name=?") || update.contains("price=?") || update.contains("description=?"),
+                update);
+        assertTrue(update.contains("where id=? and version=?"), update);
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) UNIT TEST - CHỈ MỤC TÌM KIẾM TÊN SẢN PHẨM (TRIGRAM)
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Chưa dựng xong -> ServiceBusyException (503), không trả rỗng sai.
+ * - Gộp dấu tiếng Việt + hoa/thường: "ban phim", "BÀN PHÍM", "bàn phím" cho cùng kết quả.
+ * - Kết quả khớp đúng tìm chuỗi con trên toàn bộ dữ liệu, xếp hạng đầu tên > đầu từ > giữa từ.
+ * - Tạo/sửa/xóa sau khi dựng được phản ánh ngay; thay đổi trong lúc dựng lại không bị mất.
+ * - Thống kê (bộ nhớ, số trigram) cho Actuator.
+ * * II. MÔI TRƯỜNG:
+ * - Dùng H2 in-memory + JdbcTemplate thật để kiểm tra truy vấn stream bảng products.
+ * =========================================================================================
+ */
+
+package com.flogin.service;
+
+import com.flogin.security.ServiceBusyException;
+import com.flogin.util.TrigramIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+@DisplayName("ProductSearchIndex Unit Tests")
+class ProductSearchIndexTest {
+
+    private static final String[] NAMES = {"Bàn phím cơ", "Chuột không dây", "Màn hình cong", "Tai nghe",
+            "Loa bluetooth", "Ổ cứng SSD", "Cáp sạc", "Đèn bàn"};
+
+    private JdbcTemplate jdbcTemplate;
+    private List<String> names;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:product_search_index;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS products");
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "name VARCHAR(100) NOT NULL)");
+        names = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            String name = NAMES[i % NAMES.length] + " " + i;
+            names.add(name);
+            rows.add(new Object[]{name});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO products (name) VALUES (?)", rows);
+    }
+
+    /** Kết quả mong đợi: quét tuần tự toàn bộ tên (id = vị trí + 1) */
+    private List<Long> scan(String query) {
+        String folded = TrigramIndex.fold(query);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (TrigramIndex.fold(names.get(i)).contains(folded)) {
+                ids.add(i + 1L);
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    @DisplayName("TC1: Chưa dựng chỉ mục -> ServiceBusyException, cập nhật trước đó không lỗi")
+    void testNotReadyBeforeBuild() {
+        ProductSearchIndex index = new ProductSearchIndex(jdbcTemplate);
+        index.index(1L, "Bàn phím");
+        index.remove(1L);
+
+        assertFalse(index.isReady());
+        assertThrows(ServiceBusyException.class, () -> index.search("ban", 10));
+        assertEquals(false, index.getStats().get("ready"));
+    }
+
+    @Test
+    @DisplayName("TC2: Gộp dấu và hoa/thường, kết quả khớp quét toàn bộ dữ liệu")
+    void testAccentFoldedSubstringSearch() {
+        ProductSearchIndex index = new ProductSearchIndex(jdbcTemplate);
+        index.rebuild();
+
+        assertEquals("ban phim co dep", TrigramIndex.fold("  Bàn PHÍM-cơ Đẹp "));
+        List<Long> expected = scan("bàn phím");
+        assertEquals(625, expected.size());
+        for (String query : List.of("ban phim", "BÀN PHÍM", "bàn phím", "Ban Phim")) {
+            List<Long> found = index.search(query, 10_000);
+            assertEquals(expected.size(), found.size(), query);
+            assertTrue(found.containsAll(expected), query);
+        }
+        // Query nhiều từ: trigram chứa khoảng trắng nối hai từ cũng phải khớp
+        assertEquals(scan("khong day").size(), index.search("KHÔNG DÂY", 10_000).size());
+        assertEquals(scan("ssd 12").size(), index.search("ssd 12", 10_000).size());
+        assertTrue(index.search("xyz", 10).isEmpty());
+        assertTrue(index.search("b", 10).isEmpty(), "Dưới 2 ký tự không tra chỉ mục");
+    }
+
+    @Test
+    @DisplayName("TC3: Xếp hạng đầu tên > đầu từ > giữa từ, cùng hạng thì id nhỏ trước; limit được tôn trọng")
+    void testRanking() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Bộ sạc nhanh");
+        index.put(2, "Cáp sạc");
+        index.put(3, "Sạc dự phòng 20000mAh");
+        index.put(4, "Sạc");
+        index.put(5, "Túi nylon sacchi");
+        index.put(6, "Túi Hisac");
+
+        assertArrayEquals(new long[]{3, 4, 1, 2, 5, 6}, index.search("sạc", 10));
+        assertArrayEquals(new long[]{3, 4}, index.search("sac", 2));
+        // 2 ký tự: chỉ khớp đầu từ ("sacchi" có, "hisac" và "nylon" thì không)
+        assertArrayEquals(new long[]{3, 4, 1, 2, 5}, index.search("sa", 10));
+        assertEquals(0, index.search("lo", 10).length);
+        // Cùng một tên khớp nhiều chỗ -> lấy hạng tốt nhất, không trả trùng
+        index.put(7, "Bisac sạc");
+        assertArrayEquals(new long[]{3, 4, 1, 2, 5, 7, 6}, index.search("sac", 10));
+    }
+
+    @Test
+    @DisplayName("TC4: Tạo/đổi tên/xóa sau khi dựng được phản ánh ngay")
+    void testIncrementalUpdates() {
+        ProductSearchIndex index = new ProductSearchIndex(jdbcTemplate);
+        index.rebuild();
+
+        index.index(9001L, "Bàn di chuột gaming");
+        assertEquals(List.of(9001L), index.search("gaming", 10));
+
+        index.index(9001L, "Bàn di chuột văn phòng");
+        assertTrue(index.search("gaming", 10).isEmpty(), "Trigram của tên cũ phải được gỡ");
+        assertEquals(List.of(9001L), index.search("van phong", 10));
+
+        index.index(1L, "Tai nghe chống ồn");
+        assertFalse(index.search("ban phim", 10_000).contains(1L));
+        assertTrue(index.search("chong on", 10).contains(1L));
+
+        index.remove(9001L);
+        assertTrue(index.search("van phong", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("TC5: Thay đổi commit trong lúc đang dựng lại (SELECT không thấy) vẫn có trong chỉ mục mới")
+    void testChangesDuringRebuildAreReplayed() {
+        AtomicBoolean injected = new AtomicBoolean();
+        JdbcTemplate racing = spy(jdbcTemplate);
+        ProductSearchIndex[] holder = new ProductSearchIndex[1];
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            invocation.callRealMethod();
+            if (injected.compareAndSet(false, true)) {
+                // Commit sau khi SELECT đã đọc xong: chỉ danh sách phát lại giữ được các thay đổi này
+                holder[0].index(77_777L, "Máy lọc không khí");
+                holder[0].remove(2L);
+            }
+            assertNotNull(handler);
+            return null;
+        }).when(racing).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        ProductSearchIndex index = new ProductSearchIndex(racing);
+        holder[0] = index;
+        index.rebuild();
+
+        assertEquals(List.of(77_777L), index.search("may loc", 10));
+        assertFalse(index.search("chuot khong day", 10_000).contains(2L));
+        assertEquals(5000L, index.getStats().get("lastRebuildProducts"));
+    }
+
+    @Test
+    @DisplayName("TC6: Thống kê cho Actuator - số sản phẩm, trigram, bộ nhớ ước lượng")
+    void testStats() {
+        ProductSearchIndex index = new ProductSearchIndex(jdbcTemplate);
+        index.rebuild();
+        index.search("loa", 10);
+
+        Map<String, Object> stats = index.getStats();
+
+        assertEquals(true, stats.get("ready"));
+        assertEquals(5000, stats.get("products"));
+        assertTrue((Integer) stats.get("trigrams") > 50);
+        assertTrue((Long) stats.get("postings") > 5000);
+        long memory = (Long) stats.get("memoryBytes");
+        assertTrue(memory > 5000L * 20 && memory < 20L * 1024 * 1024, "memoryBytes=" + memory);
+        assertEquals(1L, stats.get("queries"));
+        assertEquals(1L, stats.get("rebuildCount"));
+    }
+}
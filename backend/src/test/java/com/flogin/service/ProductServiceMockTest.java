@@ -31,6 +31,16 @@ class ProductServiceMockTest {
     private CategoryRepository categoryRepository;
     @Mock
     private UserRepository userRepository;
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+    @Mock
+    private CatalogVersions catalogVersions;
+    @Mock
+    private ProductChangeFeed productChangeFeed;
+    @Mock
+    private InventoryStatistics inventoryStatistics;
+    @Mock
+    private ReferenceIdIndex referenceIdIndex;
 
     @InjectMocks
     private ProductService productService;
@@ -73,7 +83,7 @@ class ProductServiceMockTest {
     @Test
     @DisplayName("Test getProductById - Thành công")
     void testGetProductById_Success() {
-        when(productRepository.findById(1L)).thenReturn(Optional.of(mockProduct));
+        when(productRepository.findDtoById(1L)).thenReturn(Optional.of(mockProductDto));
 
         ProductDto result = productService.getProductById(1L);
 
@@ -81,27 +91,27 @@ class ProductServiceMockTest {
         assertEquals("Laptop", result.getTen());
         assertEquals(1L, result.getId());
         
-        verify(productRepository, times(1)).findById(1L);
+        verify(productRepository, times(1)).findDtoById(1L);
+        verify(productRepository, never()).findById(anyLong());
     }
 
     @Test
     @DisplayName("Test getProductById - Thất bại (Không tìm thấy)")
     void testGetProductById_NotFound() {
-        when(productRepository.findById(99L)).thenReturn(Optional.empty());
+        when(productRepository.findDtoById(99L)).thenReturn(Optional.empty());
 
         assertThrows(RuntimeException.class, () -> {
             productService.getProductById(99L);
         });
         
-        verify(productRepository, times(1)).findById(99L);
+        verify(productRepository, times(1)).findDtoById(99L);
     }
 
     @Test
     @DisplayName("Test getAllProducts - Thành công (Có dữ liệu)")
     void testGetAllProducts_Success_WithData() {
-        Product product2 = new Product("Mouse", new BigDecimal("500000"), 50, mockCategory, mockUser);
-        product2.setId(2L);
-        when(productRepository.findAll()).thenReturn(List.of(mockProduct, product2));
+        ProductDto product2 = new ProductDto(2L, "Mouse", new BigDecimal("500000"), 50, null, 1L, 1L);
+        when(productRepository.findAllDtos()).thenReturn(List.of(mockProductDto, product2));
 
         List<ProductDto> results = productService.getAllProducts();
 
@@ -110,20 +120,21 @@ class ProductServiceMockTest {
         assertEquals("Laptop", results.get(0).getTen());
         assertEquals("Mouse", results.get(1).getTen());
 
-        verify(productRepository, times(1)).findAll();
+        verify(productRepository, times(1)).findAllDtos();
+        verify(productRepository, never()).findAll();
     }
 
     @Test
     @DisplayName("Test getAllProducts - Thành công (Rỗng)")
     void testGetAllProducts_Success_Empty() {
-        when(productRepository.findAll()).thenReturn(Collections.emptyList());
+        when(productRepository.findAllDtos()).thenReturn(Collections.emptyList());
 
         List<ProductDto> results = productService.getAllProducts();
 
         assertNotNull(results);
         assertTrue(results.isEmpty());
         
-        verify(productRepository, times(1)).findAll();
+        verify(productRepository, times(1)).findAllDtos();
     }
 
     @Test
@@ -276,26 +287,24 @@ class ProductServiceMockTest {
     @Test
     @DisplayName("Test deleteProduct - Thành công")
     void testDeleteProduct_Success() {
-        when(productRepository.existsById(1L)).thenReturn(true);
-        doNothing().when(productRepository).deleteById(1L); 
+        when(productRepository.deleteRowById(1L)).thenReturn(1);
 
         productService.deleteProduct(1L);
 
-        verify(productRepository, times(1)).existsById(1L);
-        verify(productRepository, times(1)).deleteById(1L);
+        verify(productRepository, times(1)).deleteRowById(1L);
+        verify(productRepository, never()).findById(anyLong());
     }
 
     @Test
     @DisplayName("Test deleteProduct - Thất bại (Không tìm thấy)")
     void testDeleteProduct_Failure_NotFound() {
-        when(productRepository.existsById(99L)).thenReturn(false);
+        when(productRepository.deleteRowById(99L)).thenReturn(0);
 
         assertThrows(RuntimeException.class, () -> {
             productService.deleteProduct(99L);
         });
 
-        verify(productRepository, times(1)).existsById(99L);
-        verify(productRepository, never()).deleteById(anyLong());
+        verify(productRepository, times(1)).deleteRowById(99L);
     }
     
     @Test
@@ -13,28 +13,55 @@
 
 package com.flogin.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flogin.dto.ProductBatchResult;
 import com.flogin.dto.ProductDto;
+import com.flogin.dto.ProductPage;
+import com.flogin.dto.ProductPatch;
 import com.flogin.entity.Category;
 import com.flogin.entity.Product;
 import com.flogin.entity.User;
 import com.flogin.repository.CategoryRepository;
 import com.flogin.repository.ProductRepository;
+import com.flogin.repository.ProductRepositoryCustom;
+import com.flogin.repository.ProductSort;
 import com.flogin.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
@@ -62,6 +89,30 @@ class ProductServiceTest {
         @Mock
         private CategoryRepository categoryRepository;
 
+        @Mock
+        private ProductSearchIndex productSearchIndex;
+
+        @Mock
+        private CatalogVersions catalogVersions;
+
+        @Mock
+        private ProductChangeFeed productChangeFeed;
+
+        @Mock
+        private InventoryStatistics inventoryStatistics;
+
+        @Mock
+        private ReferenceIdIndex referenceIdIndex;
+
+        @Mock
+        private PlatformTransactionManager transactionManager;
+
+        @Spy
+        private ObjectMapper objectMapper = new ObjectMapper();
+
+        @Spy
+        private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
         @InjectMocks
         private ProductService productService;
 
@@ -99,6 +150,12 @@ class ProductServiceTest {
                 testProductDto.setSoLuong(10);
                 testProductDto.setCategoryId(1L);
                 testProductDto.setCreatedById(1L);
+
+                // @InjectMocks không xử lý @Value
+                ReflectionTestUtils.setField(productService, "defaultPageSize", 10);
+                ReflectionTestUtils.setField(productService, "maxPageSize", 100);
+                ReflectionTestUtils.setField(productService, "maxSnapshotViews", 16);
+                ReflectionTestUtils.setField(productService, "maxBatchItems", 1000);
         }
 
         // ============================================
@@ -218,16 +275,11 @@ class ProductServiceTest {
         @DisplayName("TC6: Lấy tất cả sản phẩm thành công")
         void testGetAllProductsSuccess() {
                 // Arrange
-                Product product2 = new Product();
-                product2.setId(2L);
-                product2.setTen("Mouse");
-                product2.setGia(new BigDecimal("200000"));
-                product2.setSoLuong(50);
-                product2.setCategory(testCategory);
-                product2.setCreatedBy(testUser);
+                ProductDto product1 = new ProductDto(1L, "Laptop Dell", new BigDecimal("15000000"), 10, null, 1L, 1L);
+                ProductDto product2 = new ProductDto(2L, "Mouse", new BigDecimal("200000"), 50, null, 1L, 1L);
 
-                when(productRepository.findAll())
-                                .thenReturn(Arrays.asList(testProduct, product2));
+                when(productRepository.findAllDtos())
+                                .thenReturn(Arrays.asList(product1, product2));
 
                 // Act
                 List<ProductDto> result = productService.getAllProducts();
@@ -238,14 +290,16 @@ class ProductServiceTest {
                 assertEquals("Laptop Dell", result.get(0).getTen());
                 assertEquals("Mouse", result.get(1).getTen());
 
-                verify(productRepository, times(1)).findAll();
+                // Đọc bằng projection, không nạp entity
+                verify(productRepository, times(1)).findAllDtos();
+                verify(productRepository, never()).findAll();
         }
 
         @Test
         @DisplayName("TC7: Lấy danh sách rỗng khi không có sản phẩm")
         void testGetAllProductsEmpty() {
                 // Arrange
-                when(productRepository.findAll())
+                when(productRepository.findAllDtos())
                                 .thenReturn(Arrays.asList());
 
                 // Act
@@ -254,15 +308,16 @@ class ProductServiceTest {
                 // Assert
                 assertNotNull(result);
                 assertTrue(result.isEmpty());
-                verify(productRepository, times(1)).findAll();
+                verify(productRepository, times(1)).findAllDtos();
         }
 
         @Test
         @DisplayName("TC8: Lấy sản phẩm theo ID thành công")
         void testGetProductByIdSuccess() {
                 // Arrange
-                when(productRepository.findById(1L))
-                                .thenReturn(Optional.of(testProduct));
+                when(productRepository.findDtoById(1L))
+                                .thenReturn(Optional.of(new ProductDto(1L, "Laptop Dell",
+                                                new BigDecimal("15000000"), 10, null, 1L, 1L)));
 
                 // Act
                 ProductDto result = productService.getProductById(1L);
@@ -273,14 +328,15 @@ class ProductServiceTest {
                 assertEquals("Laptop Dell", result.getTen());
                 assertEquals(new BigDecimal("15000000"), result.getGia());
 
-                verify(productRepository, times(1)).findById(1L);
+                verify(productRepository, times(1)).findDtoById(1L);
+                verify(productRepository, never()).findById(anyLong());
         }
 
         @Test
         @DisplayName("TC9: Lấy sản phẩm theo ID thất bại - Không tồn tại")
         void testGetProductByIdNotFound() {
                 // Arrange
-                when(productRepository.findById(999L))
+                when(productRepository.findDtoById(999L))
                                 .thenReturn(Optional.empty());
 
                 // Act & Assert
@@ -290,7 +346,7 @@ class ProductServiceTest {
 
                 assertTrue(exception.getMessage().contains("Không tìm thấy sản phẩm"));
                 assertTrue(exception.getMessage().contains("999"));
-                verify(productRepository, times(1)).findById(999L);
+                verify(productRepository, times(1)).findDtoById(999L);
         }
 
         // ============================================
@@ -414,27 +470,26 @@ class ProductServiceTest {
         // ============================================
 
         @Test
-        @DisplayName("TC14: Xóa sản phẩm thành công")
+        @DisplayName("TC14: Xóa sản phẩm thành công - một câu DELETE, không nạp sản phẩm trước")
         void testDeleteProductSuccess() {
                 // Arrange
-                when(productRepository.existsById(1L))
-                                .thenReturn(true);
-                doNothing().when(productRepository).deleteById(1L);
+                when(productRepository.deleteRowById(1L)).thenReturn(1);
 
                 // Act
                 productService.deleteProduct(1L);
 
                 // Assert
-                verify(productRepository, times(1)).existsById(1L);
-                verify(productRepository, times(1)).deleteById(1L);
+                verify(productRepository, times(1)).deleteRowById(1L);
+                verify(productRepository, never()).findById(anyLong());
+                verify(productRepository, never()).existsById(anyLong());
+                verify(productChangeFeed).recordDeletion(1L);
         }
 
         @Test
         @DisplayName("TC15: Xóa sản phẩm thất bại - Product không tồn tại")
         void testDeleteProductNotFound() {
-                // Arrange
-                when(productRepository.existsById(999L))
-                                .thenReturn(false);
+                // Arrange: DELETE không xóa dòng nào
+                when(productRepository.deleteRowById(999L)).thenReturn(0);
 
                 // Act & Assert
                 RuntimeException exception = assertThrows(
@@ -444,8 +499,8 @@ class ProductServiceTest {
                 assertTrue(exception.getMessage().contains("Không tìm thấy sản phẩm"));
                 assertTrue(exception.getMessage().contains("999"));
 
-                verify(productRepository, times(1)).existsById(999L);
-                verify(productRepository, never()).deleteById(anyLong());
+                verify(productRepository, times(1)).deleteRowById(999L);
+                verifyNoInteractions(productChangeFeed, productSearchIndex);
         }
 
         // ============================================
@@ -523,8 +578,9 @@ class ProductServiceTest {
         @DisplayName("TC19: Verify DTO conversion từ Entity")
         void testConvertToDtoCorrectly() {
                 // Arrange
-                when(productRepository.findById(1L))
-                                .thenReturn(Optional.of(testProduct));
+                when(productRepository.findDtoById(1L))
+                                .thenReturn(Optional.of(new ProductDto(1L, "Laptop Dell",
+                                                new BigDecimal("15000000"), 10, null, 1L, 1L)));
 
                 // Act
                 ProductDto result = productService.getProductById(1L);
@@ -543,6 +599,8 @@ class ProductServiceTest {
         @DisplayName("TC20: Test multiple operations trên cùng một product")
         void testMultipleOperationsOnSameProduct() {
                 // Arrange
+                when(productRepository.findDtoById(1L))
+                                .thenReturn(Optional.of(testProductDto));
                 when(productRepository.findById(1L))
                                 .thenReturn(Optional.of(testProduct));
                 // when(categoryRepository.findById(1L))
@@ -563,7 +621,502 @@ class ProductServiceTest {
                 // Assert
                 assertNotNull(result1);
                 assertNotNull(result2);
-                verify(productRepository, times(2)).findById(1L);
+                // Đọc qua projection, chỉ update mới nạp entity
+                verify(productRepository, times(1)).findDtoById(1L);
+                verify(productRepository, times(1)).findById(1L);
                 verify(productRepository, times(1)).save(any(Product.class));
         }
-}
\ No newline at end of file
+
+        // ============================================
+        // PAGINATION TESTS
+        // ============================================
+
+        @Test
+        @DisplayName("TC21: Keyset - lấy dư 1 dòng, trả cursor trỏ tới sản phẩm cuối trang")
+        void testGetProductsPageReturnsCursor() {
+                // Arrange
+                when(productRepository.findDtoPageAfter(ProductSort.PRICE, true, null, null, 3))
+                                .thenReturn(Arrays.asList(
+                                                row(1L, "Laptop Dell", "15000000"),
+                                                row(2L, "Mouse", "200000"),
+                                                row(3L, "Keyboard", "200000")));
+
+                // Act
+                ProductPage page = productService.getProductsPage(null, 2, "price", "desc");
+
+                // Assert
+                assertEquals(2, page.items().size());
+                assertTrue(page.hasNext());
+                ProductCursor cursor = ProductCursor.decode(page.nextCursor());
+                assertEquals(ProductSort.PRICE, cursor.sort());
+                assertTrue(cursor.descending());
+                assertEquals(new BigDecimal("200000"), cursor.lastValue());
+                assertEquals(2L, cursor.lastId());
+        }
+
+        @Test
+        @DisplayName("TC22: Keyset - cursor quyết định thứ tự, size vượt max bị giới hạn")
+        void testGetProductsPageWithCursor() {
+                // Arrange
+                String token = new ProductCursor(ProductSort.NAME, false, "Laptop: Dell", 7L).encode();
+                when(productRepository.findDtoPageAfter(ProductSort.NAME, false, "Laptop: Dell", 7L, 101))
+                                .thenReturn(Arrays.asList(new ProductRepositoryCustom.Row(
+                                                new ProductDto(8L, "Laptop: HP", new BigDecimal("1"), 1, null, 1L, 1L),
+                                                "Laptop: HP")));
+
+                // Act - sort/direction trong request bị bỏ qua khi có cursor
+                ProductPage page = productService.getProductsPage(token, 5000, "price", "desc");
+
+                // Assert
+                assertEquals(1, page.items().size());
+                assertFalse(page.hasNext());
+                assertNull(page.nextCursor());
+        }
+
+        @Test
+        @DisplayName("TC23: Keyset - cursor hỏng, sort/direction/size sai -> IllegalArgumentException")
+        void testGetProductsPageInvalidInput() {
+                assertThrows(IllegalArgumentException.class,
+                                () -> productService.getProductsPage("not-a-cursor", null, null, null));
+                assertThrows(IllegalArgumentException.class,
+                                () -> productService.getProductsPage(null, null, "stock", null));
+                assertThrows(IllegalArgumentException.class,
+                                () -> productService.getProductsPage(null, null, null, "up"));
+                assertThrows(IllegalArgumentException.class,
+                                () -> productService.getProductsPage(null, 0, null, null));
+                verify(productRepository, never()).findDtoPageAfter(any(), anyBoolean(), any(), any(), anyInt());
+        }
+
+        @Test
+        @DisplayName("TC24: Offset - dùng Slice (không COUNT), sắp xếp phụ theo id")
+        void testGetProductsByOffset() {
+                // Arrange
+                PageRequest request = PageRequest.of(3, 10, Sort.by(Sort.Direction.ASC, "createdAt", "id"));
+                when(productRepository.findDtosBy(request))
+                                .thenReturn(new SliceImpl<>(Arrays.asList(testProductDto), request, true));
+
+                // Act
+                ProductPage page = productService.getProductsByOffset(3, null, "created_at", null);
+
+                // Assert
+                assertEquals(1, page.items().size());
+                assertTrue(page.hasNext());
+                assertNull(page.nextCursor());
+                verify(productRepository, never()).findAll(any(Pageable.class));
+        }
+
+        @Test
+        @DisplayName("TC25: Search - chỉ chuyển bộ lọc được gửi, lấy dư 1 dòng để biết trang sau")
+        void testSearchProducts() {
+                // Arrange
+                ProductRepositoryCustom.SearchCriteria criteria = new ProductRepositoryCustom.SearchCriteria(
+                                "Lap", null, new BigDecimal("100"), null);
+                when(productRepository.searchDtos(criteria, 20, 11))
+                                .thenReturn(Collections.nCopies(11, testProductDto));
+
+                // Act
+                ProductPage page = productService.searchProducts("Lap", null, new BigDecimal("100"), null, 2, null);
+
+                // Assert
+                assertEquals(10, page.items().size());
+                assertTrue(page.hasNext());
+                assertNull(page.nextCursor());
+        }
+
+        @Test
+        @DisplayName("TC26: Search - khoảng giá ngược hoặc trang âm -> IllegalArgumentException")
+        void testSearchProductsInvalidArguments() {
+                assertThrows(IllegalArgumentException.class, () -> productService.searchProducts(
+                                null, null, new BigDecimal("10"), new BigDecimal("1"), null, null));
+                assertThrows(IllegalArgumentException.class,
+                                () -> productService.searchProducts(null, null, null, null, -1, null));
+                verify(productRepository, never()).searchDtos(any(), anyInt(), anyInt());
+        }
+
+        @Test
+        @DisplayName("TC27: Search q - giữ thứ tự xếp hạng của chỉ mục, chỉ đọc id của trang, bỏ id đã xóa")
+        void testSearchProductsByText() {
+                // Arrange: trang 1 (size 2) cần 5 id đầu để biết còn trang sau
+                when(productSearchIndex.search("ban phim", 5)).thenReturn(List.of(9L, 4L, 7L, 3L, 8L));
+                ProductDto seven = new ProductDto(7L, "Bàn phím cơ", new BigDecimal("500000"), 1, null, 1L, 1L);
+                when(productRepository.findDtosByIdIn(List.of(7L, 3L))).thenReturn(List.of(seven));
+
+                // Act
+                ProductPage page = productService.searchProductsByText("ban phim", 1, 2);
+
+                // Assert: id 3 không còn trong DB -> bị bỏ, thứ tự theo chỉ mục
+                assertEquals(List.of(7L), page.items().stream().map(ProductDto::getId).toList());
+                assertTrue(page.hasNext());
+                assertThrows(IllegalArgumentException.class,
+                                () -> productService.searchProductsByText("ban", -1, null));
+        }
+
+        @Test
+        @DisplayName("TC28: Tạo/sửa/xóa sản phẩm -> cập nhật chỉ mục tìm kiếm theo tên; xóa ghi tombstone")
+        void testMutationsUpdateSearchIndex() {
+                // Arrange
+                when(categoryRepository.findById(1L)).thenReturn(Optional.of(testCategory));
+                when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+                when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+                when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+                when(productRepository.deleteRowById(1L)).thenReturn(1);
+
+                // Act
+                productService.createProduct(testProductDto);
+                productService.updateProduct(1L, testProductDto);
+                productService.deleteProduct(1L);
+
+                // Assert: không có transaction -> cập nhật ngay
+                verify(productSearchIndex, times(2)).index(1L, "Laptop Dell");
+                verify(productSearchIndex).remove(1L);
+                verify(productChangeFeed).recordDeletion(1L);
+        }
+
+        @Test
+        @DisplayName("TC29: Đọc kèm version - ghi nhớ version với version danh mục lấy trước khi truy vấn")
+        void testGetVersionedProductRemembersVersion() {
+                // Arrange
+                LocalDateTime updatedAt = LocalDateTime.of(2024, 1, 1, 0, 0, 0, 5_000);
+                when(catalogVersions.catalogVersion()).thenReturn(42L);
+                when(productRepository.findVersionedDtoById(1L)).thenReturn(
+                                Optional.of(new ProductRepositoryCustom.Versioned(testProductDto, updatedAt)));
+                when(productRepository.findVersionedDtoById(2L)).thenReturn(Optional.empty());
+
+                // Act
+                ProductRepositoryCustom.Versioned result = productService.getVersionedProduct(1L);
+
+                // Assert
+                assertSame(testProductDto, result.product());
+                verify(catalogVersions).rememberProduct(1L, CatalogVersions.versionOf(updatedAt), 42L);
+                assertThrows(RuntimeException.class, () -> productService.getVersionedProduct(2L));
+                verify(catalogVersions, never()).rememberProduct(eq(2L), anyLong(), anyLong());
+        }
+
+        @Test
+        @DisplayName("TC30: Ảnh chụp trang đầu - dựng một lần, gzip giải nén ra đúng JSON; danh mục đổi -> trả ảnh cũ, dựng lại nền")
+        void testListSnapshotStaleWhileRevalidate() throws Exception {
+                // Arrange
+                when(catalogVersions.catalogVersion()).thenReturn(5L);
+                when(productRepository.findDtoPageAfter(any(), anyBoolean(), any(), any(), anyInt()))
+                                .thenReturn(Arrays.asList(row(1L, "Laptop Dell", "15000000"), row(2L, "Mouse", "200000")));
+
+                // Act
+                ProductListSnapshot first = productService.getListSnapshot(1, null, null);
+                ProductListSnapshot again = productService.getListSnapshot(1, null, null);
+
+                // Assert: đọc lần hai không truy vấn, không serialize lại
+                assertSame(first, again);
+                assertEquals(5L, first.version());
+                assertTrue(first.hasNext());
+                assertNotNull(first.nextCursor());
+                JsonNode items = objectMapper.readTree(first.json());
+                assertEquals(1, items.size());
+                assertEquals("Laptop Dell", items.get(0).get("ten").asText());
+                try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(first.gzip()))) {
+                        assertArrayEquals(first.json(), in.readAllBytes());
+                }
+                verify(productRepository, times(1)).findDtoPageAfter(any(), anyBoolean(), any(), any(), anyInt());
+
+                // Danh mục đổi -> lần đọc này vẫn nhận ảnh cũ (không chờ), ảnh mới được hoán đổi sau
+                when(catalogVersions.catalogVersion()).thenReturn(6L);
+                assertSame(first, productService.getListSnapshot(1, null, null));
+                long deadline = System.currentTimeMillis() + 5_000;
+                ProductListSnapshot refreshed = first;
+                while (refreshed.version() != 6L && System.currentTimeMillis() < deadline) {
+                        Thread.sleep(10);
+                        refreshed = productService.getListSnapshot(1, null, null);
+                }
+                assertEquals(6L, refreshed.version());
+                assertArrayEquals(first.json(), refreshed.json());
+
+                // Vượt số cách xem được giữ -> null, controller tự truy vấn như thường
+                ReflectionTestUtils.setField(productService, "maxSnapshotViews", 1);
+                assertNull(productService.getListSnapshot(2, null, null));
+                productService.shutdown();
+        }
+
+        @Test
+        @DisplayName("TC31: Tạo/sửa -> báo thống kê tồn kho phần đóng góp trước và sau; xóa một id -> đối soát nền")
+        void testMutationsUpdateInventoryStatistics() {
+                // Arrange
+                Category books = new Category();
+                books.setId(2L);
+                books.setName("Books");
+                testProductDto.setCategoryId(2L);
+                testProductDto.setSoLuong(3);
+                when(categoryRepository.findById(2L)).thenReturn(Optional.of(books));
+                when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+                when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+                when(productRepository.save(any(Product.class))).thenAnswer(invocation -> {
+                        Product saved = invocation.getArgument(0);
+                        saved.setId(1L);
+                        return saved;
+                });
+                InventoryStatistics.Contribution electronics10 =
+                                new InventoryStatistics.Contribution(1L, new BigDecimal("150000000"));
+                InventoryStatistics.Contribution books3 =
+                                new InventoryStatistics.Contribution(2L, new BigDecimal("45000000"));
+
+                when(productRepository.deleteRowById(1L)).thenReturn(1);
+
+                // Act
+                productService.createProduct(testProductDto);
+                productService.updateProduct(1L, testProductDto);
+                productService.deleteProduct(1L);
+
+                // Assert: không có transaction -> cập nhật ngay; DELETE không đọc giá/số lượng trước
+                verify(inventoryStatistics).changed(null, books3);
+                verify(inventoryStatistics).changed(electronics10, books3);
+                verify(inventoryStatistics).reconcileAsync();
+                verifyNoMoreInteractions(inventoryStatistics);
+        }
+
+        @Test
+        @DisplayName("TC32: Batch - nạp category/user/sản phẩm một lần, chỉ lưu phần tử hợp lệ, lỗi báo theo index")
+        void testBatchUpsertReportsPerItemErrors() {
+                // Arrange
+                ProductDto invalidPrice = new ProductDto(null, "Chuột", new BigDecimal("0"), 1, null, 1L, 1L);
+                ProductDto unknownUser = new ProductDto(null, "Tai nghe", new BigDecimal("1000"), 1, null, 1L, 9L);
+                ProductDto update = new ProductDto(1L, "Laptop Dell XPS", new BigDecimal("20000000"), 5, null, null, null);
+                when(categoryRepository.findAllById(any())).thenReturn(List.of(testCategory));
+                when(userRepository.findAllById(any())).thenReturn(List.of(testUser));
+                when(productRepository.findAllById(any())).thenReturn(List.of(testProduct));
+                when(productRepository.saveAll(anyList())).thenAnswer(invocation -> {
+                        List<Product> saved = invocation.getArgument(0);
+                        saved.forEach(product -> product.setId(100L));
+                        return saved;
+                });
+
+                // Act
+                ProductBatchResult result = productService.batchUpsert(
+                                Arrays.asList(testProductDto, invalidPrice, unknownUser, update));
+
+                // Assert
+                assertEquals(1, result.created());
+                assertEquals(1, result.updated());
+                assertEquals(2, result.failed());
+                assertEquals(new ProductBatchResult.Item(0, 100L, ProductBatchResult.Status.CREATED, null),
+                                result.items().get(0));
+                assertEquals("Price must be greater than 0", result.items().get(1).error());
+                assertEquals("Không tìm thấy User ID: 9", result.items().get(2).error());
+                assertEquals(ProductBatchResult.Status.UPDATED, result.items().get(3).status());
+                assertEquals("Laptop Dell XPS", testProduct.getTen());
+                assertEquals(testCategory, testProduct.getCategory());
+                verify(productRepository).saveAll(argThat(products -> ((List<Product>) products).size() == 1));
+                verify(categoryRepository, never()).findById(anyLong());
+                verify(productSearchIndex).index(100L, "Laptop Dell");
+                verify(productSearchIndex).index(1L, "Laptop Dell XPS");
+        }
+
+        @Test
+        @DisplayName("TC33: Category/người tạo có trong ReferenceIdIndex -> gắn tham chiếu, không findById")
+        void testCreateProductUsesReferences() {
+                // Arrange
+                when(referenceIdIndex.hasCategory(1L)).thenReturn(true);
+                when(referenceIdIndex.hasActiveUser(1L)).thenReturn(true);
+                when(categoryRepository.getReferenceById(1L)).thenReturn(testCategory);
+                when(userRepository.getReferenceById(1L)).thenReturn(testUser);
+                when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // Act
+                ProductDto result = productService.createProduct(testProductDto);
+
+                // Assert
+                assertEquals(1L, result.getCategoryId());
+                assertEquals(1L, result.getCreatedById());
+                verify(categoryRepository, never()).findById(anyLong());
+                verify(userRepository, never()).findById(anyLong());
+        }
+
+        @Test
+        @DisplayName("TC34: Chỉ mục cũ (category đã bị xóa) -> FK chặn INSERT, báo 'Không tìm thấy Category ID' và gỡ id")
+        void testCreateProductWithStaleReference() {
+                // Arrange
+                ReflectionTestUtils.setField(productService, "entityManager", mock(EntityManager.class));
+                when(referenceIdIndex.hasCategory(1L)).thenReturn(true);
+                when(referenceIdIndex.hasActiveUser(1L)).thenReturn(true);
+                when(categoryRepository.getReferenceById(1L)).thenReturn(testCategory);
+                when(userRepository.getReferenceById(1L)).thenReturn(testUser);
+                when(productRepository.save(any(Product.class)))
+                                .thenThrow(new DataIntegrityViolationException("fk_product_category"));
+                when(categoryRepository.existsById(1L)).thenReturn(false);
+
+                // Act
+                RuntimeException exception = assertThrows(RuntimeException.class,
+                                () -> productService.createProduct(testProductDto));
+
+                // Assert
+                assertEquals("Không tìm thấy Category ID: 1", exception.getMessage());
+                verify(referenceIdIndex).categoryRemoved(1L);
+                verify(productSearchIndex, never()).index(any(), any());
+        }
+
+        @Test
+        @DisplayName("TC35: PATCH số lượng -> một UPDATE có điều kiện version, không đọc trước; thống kê đối soát nền, ETag, ảnh chụp được cập nhật")
+        void testPatchProductUpdatesDerivedState() {
+                // Arrange
+                when(productRepository.patch(eq(1L), any(ProductPatch.class), isNull(), eq(4L), any(LocalDateTime.class)))
+                                .thenReturn(1);
+                ProductPatch patch = new ProductPatch(null, null, 3, null, null, 4L);
+
+                // Act
+                LocalDateTime updatedAt = productService.patchProduct(1L, patch);
+
+                // Assert
+                assertEquals(0, updatedAt.getNano() % 1000, "updated_at cắt về micro giây");
+                verify(inventoryStatistics).reconcileAsync();
+                verify(inventoryStatistics, never()).changed(any(), any());
+                verify(catalogVersions).productChanged(1L);
+                verify(productSearchIndex, never()).index(any(), any());
+                verify(productRepository, never()).findById(any());
+                verify(productRepository, never()).existsById(any());
+        }
+
+        @Test
+        @DisplayName("TC36: PATCH với version cũ -> UPDATE có điều kiện không khớp dòng nào -> ProductVersionConflictException")
+        void testPatchProductVersionConflict() {
+                // Arrange
+                when(productRepository.patch(eq(1L), any(ProductPatch.class), isNull(), eq(4L), any(LocalDateTime.class)))
+                                .thenReturn(0);
+                when(productRepository.existsById(1L)).thenReturn(true);
+
+                // Act & Assert
+                assertThrows(ProductVersionConflictException.class, () -> productService.patchProduct(1L,
+                                new ProductPatch(null, new BigDecimal("1000"), null, null, null, 4L)));
+                verifyNoInteractions(inventoryStatistics);
+                verify(catalogVersions, never()).productChanged(any());
+        }
+
+        @Test
+        @DisplayName("TC37: Xóa hàng loạt theo id -> khóa + DELETE theo khối 500, tombstone, cập nhật chỉ mục/thống kê")
+        void testDeleteProductsByIdsInChunks() {
+                // Arrange: 600 id -> 2 khối; id 600 không tồn tại
+                ReflectionTestUtils.setField(productService, "entityManager", mock(EntityManager.class));
+                List<Long> ids = new ArrayList<>();
+                for (long id = 1; id <= 600; id++) {
+                        ids.add(id);
+                }
+                when(productRepository.lockForRemoval(anyCollection())).thenAnswer(invocation -> {
+                        Collection<Long> chunk = invocation.getArgument(0);
+                        return chunk.stream().filter(id -> id < 600)
+                                        .map(id -> new ProductRepositoryCustom.Removal(id, 1L, new BigDecimal("10"), 2))
+                                        .toList();
+                });
+
+                // Act
+                int deleted = productService.deleteProducts(ids, null, null);
+
+                // Assert
+                assertEquals(599, deleted);
+                verify(productRepository, times(2)).lockForRemoval(anyCollection());
+                verify(productRepository, times(2)).deleteRowsByIdIn(anyCollection());
+                verify(productChangeFeed, times(2)).recordDeletions(anyCollection());
+                verify(productRepository, never()).deleteRowById(anyLong());
+                // Danh sách id (có giới hạn) -> một transaction cho cả lô
+                verify(transactionManager, times(1)).getTransaction(any());
+                verify(transactionManager, times(1)).commit(any());
+                // Không có transaction thật -> cập nhật ngay; ETag danh mục tăng một lần cho cả lô
+                verify(catalogVersions, times(1)).catalogChanged();
+                verify(productSearchIndex).remove(599L);
+                verify(productSearchIndex, never()).remove(600L);
+                verify(inventoryStatistics, times(599))
+                                .changed(new InventoryStatistics.Contribution(1L, new BigDecimal("20")), null);
+                verify(inventoryStatistics, never()).reconcileAsync();
+        }
+
+        @Test
+        @DisplayName("TC38: Xóa hàng loạt theo bộ lọc -> đọc khối kế tiếp sau id cuối, dừng khi khối chưa đầy")
+        void testDeleteProductsByFilterWalksChunks() {
+                // Arrange
+                ReflectionTestUtils.setField(productService, "entityManager", mock(EntityManager.class));
+                LocalDateTime cutoff = LocalDateTime.of(2024, 1, 1, 0, 0);
+                ProductRepositoryCustom.DeleteCriteria criteria = new ProductRepositoryCustom.DeleteCriteria(3L, cutoff);
+                List<ProductRepositoryCustom.Removal> full = new ArrayList<>();
+                for (long id = 1; id <= ProductService.DELETE_CHUNK_SIZE; id++) {
+                        full.add(new ProductRepositoryCustom.Removal(id, 3L, BigDecimal.ONE, 1));
+                }
+                when(productRepository.lockForRemoval(criteria, null, ProductService.DELETE_CHUNK_SIZE)).thenReturn(full);
+                when(productRepository.lockForRemoval(criteria, (long) ProductService.DELETE_CHUNK_SIZE,
+                                ProductService.DELETE_CHUNK_SIZE))
+                                .thenReturn(List.of(new ProductRepositoryCustom.Removal(9000L, 3L, BigDecimal.ONE, 1)));
+
+                // Act
+                int deleted = productService.deleteProducts(null, 3L, cutoff);
+
+                // Assert
+                assertEquals(ProductService.DELETE_CHUNK_SIZE + 1, deleted);
+                verify(productRepository, times(2)).lockForRemoval(eq(criteria), any(), anyInt());
+                verify(productRepository).deleteRowsByIdIn(List.of(9000L));
+                verify(productSearchIndex).remove(9000L);
+                // Mỗi khối một transaction, cập nhật sau commit theo từng khối
+                verify(transactionManager, times(2)).getTransaction(any());
+                verify(transactionManager, times(2)).commit(any());
+                verify(catalogVersions, times(2)).catalogChanged();
+        }
+
+        @Test
+        @DisplayName("TC39: Trừ tồn kho -> một UPDATE có điều kiện, không đọc trước; ETag gỡ, thống kê đối soát nền")
+        void testDecrementStockSingleStatement() {
+                // Arrange
+                when(productRepository.adjustStock(eq(1L), eq(-3), any(LocalDateTime.class))).thenReturn(1);
+
+                // Act
+                productService.decrementStock(1L, 3);
+
+                // Assert
+                verify(productRepository, never()).findById(any());
+                verify(productRepository, never()).existsById(any());
+                verify(catalogVersions).productChanged(1L);
+                verify(inventoryStatistics).reconcileAsync();
+        }
+
+        @Test
+        @DisplayName("TC40: Trừ/cộng không áp dụng được -> 409 nếu sản phẩm tồn tại, 404 nếu không; amount < 1 -> 400")
+        void testStockAdjustmentFailures() {
+                // Arrange
+                when(productRepository.adjustStock(anyLong(), anyInt(), any(LocalDateTime.class))).thenReturn(0);
+                when(productRepository.existsById(1L)).thenReturn(true);
+                when(productRepository.existsById(99L)).thenReturn(false);
+
+                // Act & Assert
+                assertThrows(StockConflictException.class, () -> productService.decrementStock(1L, 5));
+                assertThrows(StockConflictException.class, () -> productService.incrementStock(1L, Product.MAX_QUANTITY));
+                RuntimeException missing = assertThrows(RuntimeException.class, () -> productService.decrementStock(99L, 1));
+                assertFalse(missing instanceof StockConflictException);
+                assertTrue(missing.getMessage().contains("Không tìm thấy sản phẩm"));
+                assertThrows(IllegalArgumentException.class, () -> productService.decrementStock(1L, 0));
+                assertThrows(IllegalArgumentException.class,
+                                () -> productService.incrementStock(1L, Product.MAX_QUANTITY + 1));
+                verify(productRepository, times(3)).adjustStock(anyLong(), anyInt(), any(LocalDateTime.class));
+                verifyNoInteractions(catalogVersions, inventoryStatistics);
+        }
+
+        @Test
+        @DisplayName("TC41: Xóa theo bộ lọc lỗi ở khối thứ hai -> khối đầu đã commit, chỉ khối lỗi rollback")
+        void testDeleteProductsByFilterCommitsEachChunk() {
+                // Arrange
+                ReflectionTestUtils.setField(productService, "entityManager", mock(EntityManager.class));
+                LocalDateTime cutoff = LocalDateTime.of(2024, 1, 1, 0, 0);
+                ProductRepositoryCustom.DeleteCriteria criteria = new ProductRepositoryCustom.DeleteCriteria(null, cutoff);
+                List<ProductRepositoryCustom.Removal> full = new ArrayList<>();
+                for (long id = 1; id <= ProductService.DELETE_CHUNK_SIZE; id++) {
+                        full.add(new ProductRepositoryCustom.Removal(id, 3L, BigDecimal.ONE, 1));
+                }
+                when(productRepository.lockForRemoval(criteria, null, ProductService.DELETE_CHUNK_SIZE)).thenReturn(full);
+                when(productRepository.lockForRemoval(criteria, (long) ProductService.DELETE_CHUNK_SIZE,
+                                ProductService.DELETE_CHUNK_SIZE))
+                                .thenThrow(new DataIntegrityViolationException("lock timeout"));
+
+                // Act & Assert
+                assertThrows(DataIntegrityViolationException.class, () -> productService.deleteProducts(null, null, cutoff));
+                verify(transactionManager, times(1)).commit(any());
+                verify(transactionManager, times(1)).rollback(any());
+                verify(productRepository, times(1)).deleteRowsByIdIn(anyCollection());
+                verify(productSearchIndex).remove(1L);
+        }
+
+        private static ProductRepositoryCustom.Row row(Long id, String name, String price) {
+                ProductDto dto = new ProductDto(id, name, new BigDecimal(price), 1, null, 1L, 1L);
+                return new ProductRepositoryCustom.Row(dto, dto.getGia());
+        }
+}
@@ -0,0 +1,275 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) TEST TRỪ/CỘNG TỒN KHO ĐỒNG THỜI (POST /api/products/{id}/stock/...)
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Hàng nghìn lần trừ đồng thời trên một sản phẩm: đúng bằng số hàng có thành công, phần còn lại
+ *   StockConflictException, quantity cuối cùng = 0 (không bao giờ bán quá) - ở cả hai chế độ direct, striped.
+ * - Cộng vượt MAX_QUANTITY -> StockConflictException, không ghi gì; sản phẩm không tồn tại -> 404;
+ *   amount < 1 -> IllegalArgumentException.
+ * - Chế độ striped: DB thấp hơn thực tế tối đa một khối cho đến khi flush; ghi số lượng tuyệt đối
+ *   (PATCH) bỏ số dư ký quỹ cũ.
+ * - Chế độ striped: trả ký quỹ về DB bị từ chối (vượt MAX_QUANTITY) -> số dư được giữ, trả lại ở lần
+ *   flush sau; ETag danh mục chỉ đổi ở flush, không đổi trong lúc trừ/cộng.
+ * * II. GHI CHÚ:
+ * - Mỗi lần trừ/cộng là một transaction riêng đã commit -> lớp test chạy ngoài transaction của
+ *   @DataJpaTest và tự dọn dữ liệu.
+ * =========================================================================================
+ */
+
+package com.flogin.service;
+
+import com.flogin.dto.ProductPatch;
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import com.flogin.entity.User;
+import com.flogin.repository.CategoryRepository;
+import com.flogin.repository.ProductRepository;
+import com.flogin.repository.UserRepository;
+import com.flogin.util.StockAccumulator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// showSql = false: in hàng chục nghìn câu SQL ra console chiếm phần lớn thời gian chạy
+@DataJpaTest(showSql = false, properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "logging.level.org.hibernate.SQL=WARN",
+        "app.product.stats.async-reconcile-delay-ms=60000"
+})
+@Import({ProductService.class, ProductSearchIndex.class, CatalogVersions.class, ProductChangeFeed.class,
+        InventoryStatistics.class, ReferenceIdIndex.class, JacksonAutoConfiguration.class,
+        ValidationAutoConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("ProductService Stock Concurrency Tests")
+class ProductStockConcurrencyTest {
+
+    private static final int STOCK = 1_000;
+    private static final int REQUESTS = 4_000;
+    private static final int THREADS = 64;
+    private static final int BLOCK_SIZE = 50;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.save(
+                new User("admin", "$2a$10$hash", "admin@flogin.com", "Admin", User.Role.ADMIN));
+        Category category = categoryRepository.save(new Category("Electronics"));
+        productId = productRepository.save(
+                new Product("Tai nghe", new BigDecimal("10.00"), STOCK, category, user)).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        StockAccumulator accumulator = (StockAccumulator) ReflectionTestUtils.getField(productService, "stockAccumulator");
+        if (accumulator != null) {
+            accumulator.shutdown();
+            ReflectionTestUtils.setField(productService, "stockAccumulator", null);
+        }
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    // Chuyển ProductService sang chế độ striped (flush bằng tay để kiểm tra từng bước)
+    private StockAccumulator useStriped() {
+        ReflectionTestUtils.setField(productService, "stockMode", "striped");
+        ReflectionTestUtils.setField(productService, "stockBlockSize", BLOCK_SIZE);
+        ReflectionTestUtils.setField(productService, "stockStripes", 8);
+        ReflectionTestUtils.setField(productService, "stockFlushIntervalMs", 0L);
+        ReflectionTestUtils.invokeMethod(productService, "initStockMode");
+        ReflectionTestUtils.setField(productService, "stockMode", "direct");
+        return (StockAccumulator) ReflectionTestUtils.getField(productService, "stockAccumulator");
+    }
+
+    private int quantity() {
+        return productRepository.findById(productId).orElseThrow().getQuantity();
+    }
+
+    // REQUESTS lần trừ 1 đơn vị từ THREADS thread; trả về số lần thành công, kiểm tra phần còn lại là 409
+    private int decrementConcurrently() throws Exception {
+        AtomicInteger conflicts = new AtomicInteger();
+        AtomicInteger succeeded = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            tasks.add(() -> {
+                try {
+                    productService.decrementStock(productId, 1);
+                    succeeded.incrementAndGet();
+                } catch (StockConflictException e) {
+                    conflicts.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                // Lỗi khác 409 (deadlock, timeout khóa...) làm test thất bại tại đây
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+        assertEquals(REQUESTS, succeeded.get() + conflicts.get());
+        return succeeded.get();
+    }
+
+    @Test
+    @DisplayName("TC1: Direct - 4000 lần trừ đồng thời trên 1000 hàng -> đúng 1000 thành công, quantity = 0")
+    void testDirectNeverOversells() throws Exception {
+        assertEquals(STOCK, decrementConcurrently());
+        assertEquals(0, quantity());
+
+        assertThrows(StockConflictException.class, () -> productService.decrementStock(productId, 1));
+        assertEquals(0, quantity());
+    }
+
+    @Test
+    @DisplayName("TC2: Striped - 4000 lần trừ đồng thời -> đúng 1000 thành công; flush xong quantity = 0")
+    void testStripedNeverOversells() throws Exception {
+        StockAccumulator accumulator = useStriped();
+
+        assertEquals(STOCK, decrementConcurrently());
+        accumulator.flush();
+
+        assertEquals(0, quantity());
+        assertEquals(0, accumulator.heldUnits());
+        // Phần lớn lần trừ không chạm DB: mỗi khối một câu UPDATE
+        assertTrue(accumulator.getTakes() <= STOCK / BLOCK_SIZE + THREADS,
+                "takes = " + accumulator.getTakes());
+    }
+
+    @Test
+    @DisplayName("TC3: Striped - DB lệch tối đa một khối đến khi flush; cộng hàng và PATCH số lượng xử lý ký quỹ")
+    void testStripedEscrowLifecycle() {
+        StockAccumulator accumulator = useStriped();
+
+        for (int i = 0; i < 10; i++) {
+            productService.decrementStock(productId, 1);
+        }
+        assertEquals(STOCK - BLOCK_SIZE, quantity());
+        assertEquals(BLOCK_SIZE - 10, accumulator.heldUnits());
+
+        accumulator.flush();
+        assertEquals(STOCK - 10, quantity());
+        assertEquals(0, accumulator.heldUnits());
+
+        // Cộng hàng: trả ký quỹ rồi cộng -> DB đúng tổng
+        productService.decrementStock(productId, 3);
+        productService.incrementStock(productId, 5);
+        assertEquals(STOCK - 10 - 3 + 5, quantity());
+        assertEquals(0, accumulator.heldUnits());
+
+        // Ghi tuyệt đối: số dư ký quỹ thuộc giá trị cũ bị bỏ, không được trả về lúc flush
+        productService.decrementStock(productId, 1);
+        productService.patchProduct(productId, new ProductPatch(null, null, 500, null, null, null));
+        accumulator.flush();
+        assertEquals(500, quantity());
+
+        // Còn ít hơn một khối -> rút đúng số cần
+        productService.patchProduct(productId, new ProductPatch(null, null, 7, null, null, null));
+        productService.decrementStock(productId, 7);
+        assertThrows(StockConflictException.class, () -> productService.decrementStock(productId, 1));
+        accumulator.flush();
+        assertEquals(0, quantity());
+    }
+
+    @Test
+    @DisplayName("TC4: Cộng vượt 99,999 -> 409 không ghi; id lạ -> 404; amount < 1 -> 400")
+    void testIncrementLimitAndErrors() {
+        productService.incrementStock(productId, Product.MAX_QUANTITY - STOCK);
+        assertEquals(Product.MAX_QUANTITY, quantity());
+
+        assertThrows(StockConflictException.class, () -> productService.incrementStock(productId, 1));
+        assertEquals(Product.MAX_QUANTITY, quantity());
+
+        RuntimeException missing = assertThrows(RuntimeException.class,
+                () -> productService.decrementStock(999_999L, 1));
+        assertFalse(missing instanceof StockConflictException);
+        assertTrue(missing.getMessage().contains("Không tìm thấy sản phẩm"));
+
+        assertThrows(IllegalArgumentException.class, () -> productService.decrementStock(productId, 0));
+        assertThrows(IllegalArgumentException.class, () -> productService.incrementStock(productId, -5));
+    }
+
+    @Test
+    @DisplayName("TC5: Striped - trả ký quỹ vượt 99,999 -> giữ số dư, cộng hàng 409; DB giảm thì flush sau trả đủ")
+    void testStripedKeepsBalanceWhenReturnRejected() {
+        StockAccumulator accumulator = useStriped();
+        productService.decrementStock(productId, 1);
+        assertEquals(BLOCK_SIZE - 1, accumulator.heldUnits());
+        // Ghi thẳng DB (không qua ProductService, như một node khác): DB chạm giới hạn
+        productRepository.adjustStock(productId, Product.MAX_QUANTITY - quantity(), LocalDateTime.now());
+
+        accumulator.flush();
+        assertEquals(Product.MAX_QUANTITY, quantity());
+        assertEquals(BLOCK_SIZE - 1, accumulator.heldUnits());
+        assertEquals(1, accumulator.getFailedReturns());
+
+        // Còn ký quỹ chưa trả -> cộng thêm chắc chắn vượt giới hạn; số dư vẫn bán được
+        assertThrows(StockConflictException.class, () -> productService.incrementStock(productId, 1));
+        productService.decrementStock(productId, 1);
+        assertEquals(BLOCK_SIZE - 2, accumulator.heldUnits());
+
+        productRepository.adjustStock(productId, -100, LocalDateTime.now());
+        accumulator.flush();
+        assertEquals(Product.MAX_QUANTITY - 100 + BLOCK_SIZE - 2, quantity());
+        assertEquals(0, accumulator.heldUnits());
+    }
+
+    @Test
+    @DisplayName("TC6: Striped - rút khối và cộng hàng không đổi ETag ngay; flush đổi một lần")
+    void testStripedInvalidatesOncePerFlush() {
+        StockAccumulator accumulator = useStriped();
+        long before = catalogVersions.catalogVersion();
+
+        productService.decrementStock(productId, 1);
+        productService.incrementStock(productId, 5);
+        assertEquals(before, catalogVersions.catalogVersion());
+
+        accumulator.flush();
+        assertEquals(before + 1, catalogVersions.catalogVersion());
+        accumulator.flush();
+        assertEquals(before + 1, catalogVersions.catalogVersion());
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) TEST - CHỈ MỤC ID THAM CHIẾU (CATEGORY, USER ĐANG HOẠT ĐỘNG)
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Dựng từ DB: mọi category, chỉ user đang hoạt động; chưa dựng -> không biết gì (tra DB).
+ * - Tạo/xóa/khóa sau khi dựng được phản ánh ngay; thay đổi trong lúc dựng lại không bị mất.
+ * - Lưu/xóa Category qua JPA -> listener (gắn bằng META-INF/orm.xml) cập nhật chỉ mục sau commit, không trước.
+ * * II. MỤC TIÊU HIỆU NĂNG:
+ * - Tạo sản phẩm khi category/người tạo đã có trong chỉ mục: đúng 1 câu lệnh SQL (INSERT),
+ *   không SELECT category/user (đếm bằng Hibernate Statistics).
+ * =========================================================================================
+ */
+
+package com.flogin.service;
+
+import com.flogin.dto.ProductDto;
+import com.flogin.entity.Category;
+import com.flogin.entity.User;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.stat=WARN"
+})
+@Import({ProductService.class, ProductSearchIndex.class, CatalogVersions.class, ProductChangeFeed.class,
+        InventoryStatistics.class, ReferenceIdIndex.class, JacksonAutoConfiguration.class,
+        ValidationAutoConfiguration.class})
+@DisplayName("ReferenceIdIndex Tests")
+class ReferenceIdIndexTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ReferenceIdIndex referenceIdIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Category category;
+    private User user;
+    private User inactive;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("admin", "$2a$10$hash", "admin@flogin.com", "Admin", User.Role.ADMIN);
+        entityManager.persist(user);
+        inactive = new User("locked", "$2a$10$hash", "locked@flogin.com", "Locked", User.Role.USER);
+        inactive.setIsActive(false);
+        entityManager.persist(inactive);
+        category = new Category("Electronics");
+        entityManager.persist(category);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private ProductDto dto(String name) {
+        return new ProductDto(null, name, new BigDecimal("1000.00"), 1, null, category.getId(), user.getId());
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    @Test
+    @DisplayName("TC1: Category/người tạo có trong chỉ mục -> tạo sản phẩm tốn đúng 1 INSERT")
+    void testCreateCostsSingleInsert() {
+        referenceIdIndex.rebuild();
+        // Lần tạo đầu lấy khối id từ id_generators; đo từ lần thứ hai (đường thường)
+        productService.createProduct(dto("Sản phẩm khởi động"));
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = statistics();
+        ProductDto created = productService.createProduct(dto("Bàn phím cơ"));
+        entityManager.flush();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityInsertCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(category.getId(), created.getCategoryId());
+        assertEquals(user.getId(), created.getCreatedById());
+    }
+
+    @Test
+    @DisplayName("TC2: Chưa dựng / không có trong chỉ mục -> tra DB như cũ (id không tồn tại vẫn báo lỗi)")
+    void testFallsBackToLookup() {
+        ReferenceIdIndex empty = new ReferenceIdIndex(jdbcTemplate);
+        assertFalse(empty.isReady());
+        assertFalse(empty.hasCategory(category.getId()));
+
+        // Chỉ mục của context chưa dựng (không có @Scheduled trong test) -> SELECT category + user
+        Statistics statistics = statistics();
+        productService.createProduct(dto("Chuột không dây"));
+        entityManager.flush();
+        assertEquals(3, statistics.getPrepareStatementCount());
+
+        ProductDto missing = dto("Tai nghe");
+        missing.setCategoryId(999_999L);
+        RuntimeException error = assertThrows(RuntimeException.class, () -> productService.createProduct(missing));
+        assertEquals("Không tìm thấy Category ID: 999999", error.getMessage());
+    }
+
+    @Test
+    @DisplayName("TC3: Dựng từ DB chỉ lấy user đang hoạt động; tạo/xóa/khóa sau đó được phản ánh ngay")
+    void testRebuildAndIncrementalUpdates() {
+        ReferenceIdIndex index = new ReferenceIdIndex(jdbcTemplate);
+        index.categorySaved(42L);
+        assertFalse(index.hasCategory(42L), "Chưa dựng thì cập nhật chỉ được bỏ qua");
+
+        index.rebuild();
+
+        assertTrue(index.isReady());
+        assertTrue(index.hasCategory(category.getId()));
+        assertTrue(index.hasActiveUser(user.getId()));
+        assertFalse(index.hasActiveUser(inactive.getId()));
+        assertFalse(index.hasCategory(null));
+
+        index.categorySaved(42L);
+        index.userSaved(inactive.getId(), true);
+        index.userSaved(user.getId(), false);
+        index.categoryRemoved(category.getId());
+
+        assertTrue(index.hasCategory(42L));
+        assertFalse(index.hasCategory(category.getId()));
+        assertTrue(index.hasActiveUser(inactive.getId()));
+        assertFalse(index.hasActiveUser(user.getId()));
+
+        index.userRemoved(inactive.getId());
+        assertFalse(index.hasActiveUser(inactive.getId()));
+    }
+
+    @Test
+    @DisplayName("TC4: Thay đổi commit trong lúc đang dựng lại (SELECT không thấy) vẫn có trong chỉ mục mới")
+    void testChangesDuringRebuildAreReplayed() {
+        AtomicBoolean injected = new AtomicBoolean();
+        JdbcTemplate racing = spy(jdbcTemplate);
+        ReferenceIdIndex[] holder = new ReferenceIdIndex[1];
+        doAnswer(invocation -> {
+            invocation.callRealMethod();
+            if (injected.compareAndSet(false, true)) {
+                // Commit sau khi SELECT categories đã đọc xong: chỉ danh sách phát lại giữ được các thay đổi này
+                holder[0].categorySaved(77L);
+                holder[0].categoryRemoved(category.getId());
+            }
+            return null;
+        }).when(racing).query(eq("SELECT id FROM categories"), any(RowCallbackHandler.class));
+
+        ReferenceIdIndex index = new ReferenceIdIndex(racing);
+        holder[0] = index;
+        index.rebuild();
+
+        assertTrue(index.hasCategory(77L));
+        assertFalse(index.hasCategory(category.getId()));
+        assertTrue(index.hasActiveUser(user.getId()));
+    }
+
+    @Test
+    @DisplayName("TC5: Lưu/xóa Category qua JPA -> listener cập nhật chỉ mục sau khi commit")
+    void testEntityListenerUpdatesIndexAfterCommit() {
+        referenceIdIndex.rebuild();
+        Category created = new Category("Phụ kiện");
+        entityManager.persist(created);
+        entityManager.flush();
+        assertFalse(referenceIdIndex.hasCategory(created.getId()), "Chưa commit thì chưa được thêm");
+
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        assertTrue(referenceIdIndex.hasCategory(created.getId()));
+
+        // Xóa qua JPA (@PostRemove) rồi dọn các dòng đã commit để test khác không thấy
+        TestTransaction.start();
+        entityManager.remove(entityManager.find(Category.class, created.getId()));
+        entityManager.flush();
+        jdbcTemplate.update("DELETE FROM categories");
+        jdbcTemplate.update("DELETE FROM users");
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        assertFalse(referenceIdIndex.hasCategory(created.getId()));
+    }
+}
@@ -0,0 +1,264 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) UNIT TEST - GIỮ HÀNG CÓ THỜI HẠN (RESERVATIONS)
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Giữ / hủy / hết hạn không ghi DB; chỉ xác nhận trừ tồn kho (decrementStock) đúng một lần.
+ * - Không đủ hàng (onHand - đang giữ < amount) -> 409, không có giữ hàng nào.
+ * - Xác nhận lỗi (409, lỗi DB) -> giữ hàng còn nguyên, thử lại / hủy / hết hạn như thường; incrementStock
+ *   lỗi cũng không ảnh hưởng vì không bao giờ được gọi.
+ * - Hết hạn theo bánh xe thời gian: không sớm hơn hạn, không muộn quá một tick.
+ * - Số đang giữ theo sản phẩm (reserved) đọc từ bộ nhớ, khớp với các giữ hàng còn sống.
+ * - onHand đọc DB một lần rồi cache; sản phẩm thay đổi (CatalogVersions) -> đọc lại.
+ * * II. MỤC TIÊU BỀN VỮNG (NHẬT KÝ GHI TRƯỚC):
+ * - Khởi động lại: phát lại nhật ký -> đúng các giữ hàng còn sống; giữ hàng quá hạn trong lúc dừng
+ *   được trả ở tick đầu tiên; dòng cuối ghi dở bị bỏ qua; file được nén.
+ * =========================================================================================
+ */
+
+package com.flogin.service;
+
+import com.flogin.dto.ProductDto;
+import com.flogin.dto.StockLevel;
+import com.flogin.dto.StockReservation;
+import com.flogin.security.ServiceBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("StockReservations Unit Tests")
+class StockReservationsTest {
+
+    private static final long TICK_MS = 100;
+    private static final long START = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private final AtomicLong now = new AtomicLong(START);
+    private ProductService productService;
+    private CatalogVersions catalogVersions;
+    private Path wal;
+    private StockReservations reservations;
+
+    @BeforeEach
+    void setUp() {
+        productService = mock(ProductService.class);
+        catalogVersions = new CatalogVersions(100);
+        stock(1L, 10);
+        stock(2L, 200);
+        wal = dir.resolve("reservations.wal");
+        reservations = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reservations.shutdown();
+    }
+
+    // Như lúc khởi động ứng dụng, nhưng không có thread nền: test tự gọi expireDue()
+    private StockReservations open() {
+        StockReservations opened = new StockReservations(productService, catalogVersions, wal, false, TICK_MS, 300,
+                3600, 100, now::get);
+        opened.recover();
+        return opened;
+    }
+
+    private StockReservations restart() {
+        reservations.shutdown();
+        reservations = open();
+        return reservations;
+    }
+
+    private void stock(Long productId, int quantity) {
+        lenient().when(productService.getProductById(productId))
+                .thenReturn(new ProductDto(productId, "Tai nghe", new BigDecimal("10.00"), quantity, null, 1L, 1L, 0L));
+    }
+
+    @Test
+    @DisplayName("TC1: Giữ hàng không ghi DB; xác nhận trừ tồn kho một lần; xác nhận lần hai -> 'Không tìm thấy giữ hàng'")
+    void testReserveAndConfirm() {
+        StockReservation reservation = reservations.reserve(1L, 3, 60L);
+
+        verify(productService, never()).decrementStock(anyLong(), anyInt());
+        assertEquals(3, reservations.reserved(1L));
+        assertEquals(1, reservations.activeReservations());
+
+        reservations.confirm(reservation.id());
+
+        verify(productService).decrementStock(1L, 3);
+        assertEquals(0, reservations.reserved(1L));
+        RuntimeException again = assertThrows(RuntimeException.class, () -> reservations.confirm(reservation.id()));
+        assertTrue(again.getMessage().contains("Không tìm thấy giữ hàng"));
+
+        // Hết hạn sau khi đã xác nhận: không còn gì
+        now.addAndGet(120_000);
+        assertEquals(0, reservations.expireDue());
+        verify(productService, times(1)).decrementStock(anyLong(), anyInt());
+        verify(productService, never()).incrementStock(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("TC2: Hủy giữ hàng -> không ghi DB, hàng lại bán được; reserved theo từng sản phẩm")
+    void testRelease() {
+        StockReservation first = reservations.reserve(1L, 2, null);
+        reservations.reserve(1L, 5, null);
+        reservations.reserve(2L, 1, null);
+        assertEquals(7, reservations.reserved(1L));
+        assertEquals(1, reservations.reserved(2L));
+        assertThrows(StockConflictException.class, () -> reservations.reserve(1L, 4, null));
+
+        reservations.release(first.id());
+
+        assertEquals(5, reservations.reserved(1L));
+        reservations.reserve(1L, 4, null);
+        assertThrows(RuntimeException.class, () -> reservations.release(first.id()));
+        verify(productService, never()).incrementStock(anyLong(), anyInt());
+        verify(productService, never()).decrementStock(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("TC3: Hết hạn không sớm hơn hạn, không muộn quá một tick; không ghi DB")
+    void testExpiry() {
+        reservations.reserve(1L, 4, 60L);
+        reservations.reserve(1L, 1, 120L);
+
+        now.set(START + 60_000 - 1);
+        assertEquals(0, reservations.expireDue());
+        now.set(START + 60_000 + TICK_MS);
+        assertEquals(1, reservations.expireDue());
+        assertEquals(1, reservations.reserved(1L));
+
+        now.set(START + 120_000 + TICK_MS);
+        assertEquals(1, reservations.expireDue());
+        assertEquals(0, reservations.reserved(1L));
+        assertEquals(2, reservations.getExpiredCount());
+        assertEquals(0, reservations.expireDue());
+        verify(productService, never()).incrementStock(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("TC4: Khởi động lại -> khôi phục giữ hàng còn sống; quá hạn trong lúc dừng hết hạn ở tick đầu; file được nén")
+    void testRecoverAfterRestart() throws Exception {
+        StockReservation confirmed = reservations.reserve(1L, 1, 60L);
+        StockReservation released = reservations.reserve(1L, 2, 60L);
+        StockReservation live = reservations.reserve(1L, 3, 600L);
+        StockReservation expiring = reservations.reserve(2L, 4, 60L);
+        reservations.confirm(confirmed.id());
+        reservations.release(released.id());
+        // Tiến trình chết giữa lúc ghi một dòng
+        Files.writeString(wal, "R dang-ghi 9 1", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        now.addAndGet(90_000);
+        StockReservations restarted = restart();
+
+        assertEquals(2, restarted.activeReservations());
+        assertEquals(3, restarted.reserved(1L));
+        assertEquals(4, restarted.reserved(2L));
+        assertEquals(List.of("R " + live.id() + " 1 3 " + (START + 600_000),
+                        "R " + expiring.id() + " 2 4 " + (START + 60_000)),
+                Files.readAllLines(wal));
+
+        // Giữ hàng quá hạn trong lúc dừng -> hết hạn ở tick đầu tiên
+        now.addAndGet(TICK_MS);
+        assertEquals(1, restarted.expireDue());
+        assertEquals(0, restarted.reserved(2L));
+        restarted.confirm(live.id());
+
+        // Đã hết hạn/xác nhận rồi thì lần khởi động sau không còn gì
+        assertEquals(0, restart().activeReservations());
+        verify(productService).decrementStock(1L, 1);
+        verify(productService).decrementStock(1L, 3);
+        verify(productService, times(2)).decrementStock(anyLong(), anyInt());
+        verify(productService, never()).incrementStock(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("TC5: Không đủ hàng -> 409, không giữ; amount/ttl ngoài giới hạn -> 400; quá số giữ hàng tối đa -> 503")
+    void testRejectedReservations() throws Exception {
+        assertThrows(StockConflictException.class, () -> reservations.reserve(1L, 11, null));
+        assertEquals(0, reservations.activeReservations());
+        assertEquals(0, Files.size(wal));
+
+        assertThrows(IllegalArgumentException.class, () -> reservations.reserve(1L, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> reservations.reserve(1L, 1, 0L));
+        assertThrows(IllegalArgumentException.class, () -> reservations.reserve(1L, 1, 3601L));
+
+        for (int i = 0; i < 100; i++) {
+            reservations.reserve(2L, 1, null);
+        }
+        assertThrows(ServiceBusyException.class, () -> reservations.reserve(2L, 1, null));
+        assertEquals(100, reservations.reserved(2L));
+        verify(productService, never()).decrementStock(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("TC6: Tồn kho: onHand = quantity, available = onHand - đang giữ; đọc DB một lần")
+    void testStockLevel() {
+        reservations.reserve(1L, 2, null);
+
+        assertEquals(new StockLevel(1L, 8, 2, 10), reservations.stockLevel(1L));
+        assertEquals(new StockLevel(1L, 8, 2, 10), reservations.stockLevel(1L));
+        verify(productService, times(1)).getProductById(1L);
+    }
+
+    @Test
+    @DisplayName("TC7: Xác nhận lỗi (409 / lỗi DB) -> giữ hàng còn nguyên; incrementStock lỗi không làm mất hàng")
+    void testConfirmFailureKeepsHold() {
+        doThrow(new StockConflictException("Không đủ hàng cho sản phẩm id 1"))
+                .doThrow(new RuntimeException("Connection reset"))
+                .doNothing()
+                .when(productService).decrementStock(1L, 3);
+        // Hủy / hết hạn không được dựa vào cộng tồn kho
+        doThrow(new StockConflictException("Tồn kho không được vượt quá 99999"))
+                .when(productService).incrementStock(anyLong(), anyInt());
+        StockReservation first = reservations.reserve(1L, 3, 60L);
+        StockReservation second = reservations.reserve(1L, 3, 60L);
+
+        assertThrows(StockConflictException.class, () -> reservations.confirm(first.id()));
+        assertThrows(RuntimeException.class, () -> reservations.confirm(first.id()));
+        assertEquals(6, reservations.reserved(1L));
+        assertEquals(2, reservations.activeReservations());
+        assertEquals(0, reservations.getConfirmedCount());
+
+        // Lần thứ ba thành công
+        reservations.confirm(first.id());
+        assertEquals(3, reservations.reserved(1L));
+
+        reservations.release(second.id());
+        assertEquals(0, reservations.reserved(1L));
+        assertEquals(0, reservations.activeReservations());
+        verify(productService, times(3)).decrementStock(1L, 3);
+        verify(productService, never()).incrementStock(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("TC8: Sản phẩm thay đổi (CatalogVersions) -> onHand đọc lại; bán trực tiếp lấy mất hàng đang giữ -> available = 0")
+    void testOnHandRefreshedOnProductChange() {
+        reservations.reserve(1L, 4, null);
+        assertEquals(new StockLevel(1L, 6, 4, 10), reservations.stockLevel(1L));
+
+        stock(1L, 3);
+        catalogVersions.productChanged(1L);
+        assertEquals(new StockLevel(1L, 0, 4, 3), reservations.stockLevel(1L));
+        assertThrows(StockConflictException.class, () -> reservations.reserve(1L, 1, null));
+
+        stock(1L, 20);
+        catalogVersions.catalogChanged();
+        assertEquals(new StockLevel(1L, 16, 4, 20), reservations.stockLevel(1L));
+        verify(productService, times(3)).getProductById(1L);
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) UNIT TEST - USER ENTITY LISTENER
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Trong transaction: chỉ cập nhật Bloom filter / xóa CredentialCache sau khi commit, rollback thì bỏ qua.
+ * - Ngoài transaction: cập nhật ngay.
+ * =========================================================================================
+ */
+
+package com.flogin.service;
+
+import com.flogin.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DisplayName("UserEntityListener Unit Tests")
+class UserEntityListenerTest {
+
+    private UsernameBloomFilter bloomFilter;
+    private CredentialCache credentialCache;
+    private UserEntityListener listener;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        bloomFilter = mock(UsernameBloomFilter.class);
+        credentialCache = mock(CredentialCache.class);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("usernameBloomFilter", bloomFilter);
+        beanFactory.addBean("credentialCache", credentialCache);
+        listener = new UserEntityListener(beanFactory.getBeanProvider(UsernameBloomFilter.class),
+                beanFactory.getBeanProvider(CredentialCache.class), beanFactory.getBeanProvider(ReferenceIdIndex.class));
+
+        user = new User("newcomer", "$2a$10$hash", "new@flogin.com");
+        user.setId(7L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("TC1: INSERT trong transaction -> thêm vào Bloom filter sau commit, không phải lúc flush")
+    void testBloomFilterUpdatedAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        listener.onCreated(user);
+        verify(bloomFilter, never()).add(anyString());
+
+        TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        verify(bloomFilter).add("newcomer");
+    }
+
+    @Test
+    @DisplayName("TC2: Rollback -> không thêm gì")
+    void testRollbackSkipsUpdate() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        listener.onCreated(user);
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(bloomFilter, never()).add(anyString());
+    }
+
+    @Test
+    @DisplayName("TC3: Không có transaction -> thêm ngay")
+    void testNoTransactionRunsImmediately() {
+        listener.onCreated(user);
+
+        verify(bloomFilter).add("newcomer");
+    }
+
+    @Test
+    @DisplayName("TC4: UPDATE/DELETE trong transaction -> xóa CredentialCache sau commit, không phải lúc flush")
+    void testCacheInvalidatedAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        listener.onUpdated(user);
+        listener.onRemoved(user);
+        verify(credentialCache, never()).invalidate(any(), any());
+
+        TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        verify(credentialCache, times(2)).invalidate(7L, "newcomer");
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * =========================================================================================
+ * DANH SÁCH KIỂM TRA (CHECKLIST) UNIT TEST - USERNAME BLOOM FILTER
+ * =========================================================================================
+ * I. MỤC TIÊU LOGIC:
+ * - Chưa dựng xong -> fail-open (mọi username đều "có thể tồn tại").
+ * - Sau khi dựng: không bao giờ âm tính giả, username lạ bị loại gần như toàn bộ.
+ * - User thêm sau khi dựng (listener) được nhận ngay; hoa/thường và dấu được gộp.
+ * - User thêm trong lúc đang dựng lại (SELECT không thấy) vẫn có mặt trong filter mới.
+ * * II. MÔI TRƯỜNG:
+ * - Dùng H2 in-memory + JdbcTemplate thật để kiểm tra truy vấn stream bảng users.
+ * =========================================================================================
+ */
+
+package com.flogin.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+@DisplayName("UsernameBloomFilter Unit Tests")
+class UsernameBloomFilterTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:username_bloom_filter;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS users");
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "username VARCHAR(50) NOT NULL UNIQUE)");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            rows.add(new Object[]{"user" + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (username) VALUES (?)", rows);
+    }
+
+    @Test
+    @DisplayName("TC1: Chưa dựng filter -> fail-open")
+    void testFailOpenBeforeBuild() {
+        UsernameBloomFilter filter = new UsernameBloomFilter(jdbcTemplate, 1000, 0.01);
+
+        assertFalse(filter.isReady());
+        assertTrue(filter.mightContain("anything"));
+    }
+
+    @Test
+    @DisplayName("TC2: Không âm tính giả, username lạ bị loại theo đúng tỉ lệ cấu hình")
+    void testNoFalseNegativesAndLowFalsePositives() {
+        UsernameBloomFilter filter = new UsernameBloomFilter(jdbcTemplate, 1000, 0.01);
+        filter.rebuild();
+
+        assertTrue(filter.isReady());
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(filter.mightContain("user" + i), "Âm tính giả: user" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain("ghost" + i)) {
+                falsePositives++;
+            }
+        }
+        // Dung lượng gấp đôi số user -> tỉ lệ thực tế thấp hơn nhiều so với 1%
+        assertTrue(falsePositives < 200, "Quá nhiều dương tính giả: " + falsePositives);
+    }
+
+    @Test
+    @DisplayName("TC3: User thêm sau khi dựng được nhận ngay, không cần dựng lại")
+    void testAddAfterBuild() {
+        UsernameBloomFilter filter = new UsernameBloomFilter(jdbcTemplate, 1000, 0.01);
+        filter.rebuild();
+
+        filter.add("newcomer");
+
+        assertTrue(filter.mightContain("newcomer"));
+    }
+
+    @Test
+    @DisplayName("TC4: Gộp hoa/thường, dấu tiếng Việt và khoảng trắng cuối như collation MySQL")
+    void testNormalization() {
+        jdbcTemplate.update("INSERT INTO users (username) VALUES (?)", "Nguyễn.Đức");
+        UsernameBloomFilter filter = new UsernameBloomFilter(jdbcTemplate, 1000, 0.01);
+        filter.rebuild();
+
+        assertTrue(filter.mightContain("nguyen.duc"));
+        assertTrue(filter.mightContain("USER42 "));
+        assertEquals("nguyen.duc", UsernameBloomFilter.normalize("Nguyễn.Đức"));
+    }
+
+    @Test
+    @DisplayName("TC5: Thống kê cho Actuator")
+    void testStats() {
+        UsernameBloomFilter filter = new UsernameBloomFilter(jdbcTemplate, 1000, 0.01);
+        filter.rebuild();
+        filter.mightContain("user1");
+        filter.mightContain("definitely-not-a-user");
+
+        Map<String, Object> stats = filter.getStats();
+
+        assertEquals(true, stats.get("ready"));
+        assertEquals(5000L, stats.get("lastRebuildUsers"));
+        assertEquals(10000L, stats.get("capacity"));
+        assertEquals(1L, stats.get("rebuildCount"));
+        assertEquals(1L, stats.get("passedLookups"));
+        assertTrue((double) stats.get("estimatedFalsePositiveRate") < 0.01);
+    }
+
+    @Test
+    @DisplayName("TC6: DB lỗi khi dựng lại -> giữ filter cũ")
+    void testRebuildFailureKeepsPreviousFilter() {
+        UsernameBloomFilter filter = new UsernameBloomFilter(jdbcTemplate, 1000, 0.01);
+        filter.rebuild();
+        jdbcTemplate.execute("DROP TABLE users");
+
+        filter.rebuild();
+
+        assertTrue(filter.isReady());
+        assertTrue(filter.mightContain("user1"));
+        assertEquals(1L, filter.getStats().get("rebuildCount"));
+    }
+
+    @Test
+    @DisplayName("TC7: Tên được thêm khi SELECT của lần dựng lại đang chạy vẫn có trong filter mới")
+    void testAddDuringRebuildIsReplayed() {
+        JdbcTemplate spyJdbc = spy(jdbcTemplate);
+        UsernameBloomFilter filter = new UsernameBloomFilter(spyJdbc, 1000, 0.01);
+        filter.rebuild();
+        // User commit sau khi SELECT đã chụp dữ liệu -> chỉ tới được filter qua add()
+        doAnswer(invocation -> {
+            filter.add("late.user");
+            return invocation.callRealMethod();
+        }).when(spyJdbc).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        filter.rebuild();
+
+        assertEquals(2L, filter.getStats().get("rebuildCount"));
+        assertTrue(filter.mightContain("late.user"));
+    }
+
+    @Test
+    @DisplayName("TC8: add() chạy song song với nhiều lần dựng lại -> không âm tính giả")
+    void testNoFalseNegativeAcrossSwaps() throws Exception {
+        UsernameBloomFilter filter = new UsernameBloomFilter(jdbcTemplate, 1000, 0.001);
+        filter.rebuild();
+
+        AtomicBoolean done = new AtomicBoolean();
+        Thread rebuilder = new Thread(() -> {
+            while (!done.get()) {
+                filter.rebuild();
+            }
+        });
+        rebuilder.start();
+        List<String> added = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            String name = "fresh" + i;
+            // Như listener: INSERT commit xong mới add()
+            jdbcTemplate.update("INSERT INTO users (username) VALUES (?)", name);
+            filter.add(name);
+            added.add(name);
+        }
+        done.set(true);
+        rebuilder.join();
+
+        for (String name : added) {
+            assertTrue(filter.mightContain(name), "Âm tính giả sau khi hoán đổi filter: " + name);
+        }
+    }
+}
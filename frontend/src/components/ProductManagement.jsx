@@ -5,9 +5,27 @@ import * as productService from '../service/productService';
 import ProductForm from './ProductForm';
 import './ProductManagement.css';
 
+// Áp một trang thay đổi vào danh sách đang hiển thị: bỏ sản phẩm đã xoá, thay sản phẩm đã sửa tại chỗ.
+// Sản phẩm mới chỉ được nối khi đã tải hết các trang (chưa hết thì sẽ tới qua "Tải thêm").
+const applyChanges = (current, changes, allPagesLoaded) => {
+    const deleted = new Set(changes.deleted);
+    const updated = new Map(changes.updated.map(product => [product.id, product]));
+    const next = current
+        .filter(product => !deleted.has(product.id))
+        .map(product => {
+            const changed = updated.get(product.id);
+            updated.delete(product.id);
+            return changed || product;
+        });
+    return allPagesLoaded ? [...next, ...updated.values()] : next;
+};
+
 const ProductManagement = () => {
     const [products, setProducts] = useState([]);
+    const [nextCursor, setNextCursor] = useState(null); // null = đã hết trang
+    const [changesCursor, setChangesCursor] = useState(null); // điểm đồng bộ thay đổi tiếp theo
     const [loading, setLoading] = useState(false);
+    const [loadingMore, setLoadingMore] = useState(false);
     const [error, setError] = useState(null);
 
     // State cho Modal (Form)
@@ -18,13 +36,15 @@ const ProductManagement = () => {
     const [showDeleteModal, setShowDeleteModal] = useState(false);
     const [productToDelete, setProductToDelete] = useState(null);
 
-    // Load data
+    // Load data: tải lại từ trang đầu (sau khi mount, thêm, sửa, xoá)
     const loadProducts = async () => {
         setLoading(true);
         setError(null);
         try {
-            const data = await productService.getAllProducts();
-            setProducts(data);
+            const page = await productService.getProductsPage();
+            setProducts(page.items);
+            setNextCursor(page.nextCursor);
+            setChangesCursor(page.changesCursor || null);
         } catch (err) {
             setError('Không thể tải danh sách sản phẩm.');
         } finally {
@@ -32,6 +52,44 @@ const ProductManagement = () => {
         }
     };
 
+    // Tải trang kế tiếp theo cursor backend trả về và nối vào danh sách
+    const loadMore = async () => {
+        if (!nextCursor) return;
+        setLoadingMore(true);
+        setError(null);
+        try {
+            const page = await productService.getProductsPage(nextCursor);
+            setProducts(current => [...current, ...page.items]);
+            setNextCursor(page.nextCursor);
+        } catch (err) {
+            setError('Không thể tải thêm sản phẩm.');
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
+    // Sau khi thêm/sửa/xoá: chỉ tải phần thay đổi (kể cả của người khác) thay vì tải lại danh sách.
+    // Không có cursor hoặc đồng bộ lỗi (ví dụ cursor quá hạn -> 410) thì tải lại từ trang đầu.
+    const syncChanges = async () => {
+        if (!changesCursor) {
+            loadProducts();
+            return;
+        }
+        try {
+            let cursor = changesCursor;
+            let changes;
+            do {
+                changes = await productService.getProductChanges(cursor);
+                const page = changes;
+                setProducts(current => applyChanges(current, page, nextCursor === null));
+                cursor = changes.nextCursor;
+            } while (changes.hasMore);
+            setChangesCursor(cursor);
+        } catch (err) {
+            loadProducts();
+        }
+    };
+
     // Chạy loadProducts khi component mount
     useEffect(() => {
         loadProducts();
@@ -64,7 +122,7 @@ const ProductManagement = () => {
                 await productService.createProduct(productData);
             }
             handleCloseFormModal();
-            loadProducts(); // Tải lại danh sách
+            syncChanges(); // Chỉ tải phần thay đổi
         } catch (err) {
             setError('Lưu sản phẩm thất bại.');
             handleCloseFormModal();
@@ -87,7 +145,7 @@ const ProductManagement = () => {
         try {
             await productService.deleteProduct(productToDelete.id);
             handleCloseDeleteModal();
-            loadProducts(); // Tải lại danh sách
+            syncChanges(); // Chỉ tải phần thay đổi
         } catch (err) {
             setError('Xoá sản phẩm thất bại.');
             handleCloseDeleteModal();
@@ -152,6 +210,14 @@ const ProductManagement = () => {
                 </Table>
             )}
 
+            {!loading && nextCursor && (
+                <div className="text-center mb-3">
+                    <Button variant="outline-primary" onClick={loadMore} disabled={loadingMore}>
+                        {loadingMore ? 'Đang tải...' : 'Tải thêm'}
+                    </Button>
+                </div>
+            )}
+
             {/* Modal cho Add/Edit Form */}
             <Modal show={showFormModal} onHide={handleCloseFormModal} centered>
                 <Modal.Header closeButton>
@@ -2,9 +2,12 @@ import React from 'react';
 import ReactDOM from 'react-dom/client';
 import { BrowserRouter } from 'react-router-dom';
 import App from './App.jsx';
+import { installAuthInterceptor } from './service/authInterceptor';
 import './index.css';
 import 'bootstrap/dist/css/bootstrap.min.css';
 
+installAuthInterceptor();
+
 ReactDOM.createRoot(document.getElementById('root')).render(
   <React.StrictMode>
     <BrowserRouter>
@@ -0,0 +1,32 @@
+// src/service/authInterceptor.js
+import axios from 'axios';
+
+const TOKEN_KEY = 'authToken';
+
+// Gắn header Authorization: Bearer <token> cho mọi request của axios.
+// Backend bắt buộc token cho /api/products và /api/categories (app.auth.token.required=true).
+export const installAuthInterceptor = (client = axios) => {
+    client.interceptors.request.use((config) => {
+        const token = localStorage.getItem(TOKEN_KEY);
+        if (token) {
+            config.headers = config.headers || {};
+            config.headers.Authorization = `Bearer ${token}`;
+        }
+        return config;
+    });
+
+    // Token hết hạn / không hợp lệ -> xoá token và quay về trang đăng nhập
+    client.interceptors.response.use(
+        (response) => response,
+        (error) => {
+            const url = error.config?.url || '';
+            if (error.response?.status === 401 && !url.includes('/api/auth/')) {
+                localStorage.removeItem(TOKEN_KEY);
+                if (window.location.pathname !== '/') {
+                    window.location.assign('/');
+                }
+            }
+            return Promise.reject(error);
+        }
+    );
+};
@@ -3,58 +3,34 @@ import axios from 'axios';
 
 const API_URL = 'http://localhost:8080/api/products'; // URL Backend
 
-// <<< SỬA 1: Đồng bộ hóa tên thuộc tính (key) để khớp với component
-const mockProducts = [
-  {
-    id: 1,
-    ten: "Laptop Pro X1", // <-- Đã sửa (từ name)
-    moTa: "Laptop cấu hình mạnh, màn hình 4K, 16GB RAM, 1TB SSD.", // <-- Đã sửa (từ description)
-    gia: 35000000,        // <-- Đã sửa (từ price)
-    danhMuc: "Electronics", // <-- Đã sửa (từ category)
-    hinhAnh: "https://via.placeholder.com/300x200?text=Laptop+Pro+X1", // <-- Đã sửa (từ imageUrl)
-    soLuong: 50           // <-- Đã sửa (từ stock)
-  },
-  {
-    id: 2,
-    ten: "Bàn phím cơ K10",
-    moTa: "Bàn phím cơ Blue switch, full-size 104 phím, LED RGB.",
-    gia: 1800000,
-    danhMuc: "Accessories",
-    hinhAnh: "https://via.placeholder.com/300x200?text=Keyboard+K10",
-    soLuong: 120
-  },
-  {
-    id: 3,
-    ten: "Chuột quang không dây M720",
-    moTa: "Chuột không dây đa thiết bị, kết nối Bluetooth và USB Receiver.",
-    gia: 850000,
-    danhMuc: "Accessories",
-    hinhAnh: "https://via.placeholder.com/300x200?text=Mouse+M720",
-    soLuong: 75
-  },
-  {
-    id: 4,
-    ten: "Màn hình UltraWide 34 inch",
-    moTa: "Màn hình cong 34 inch, tỷ lệ 21:9, tần số quét 144Hz.",
-    gia: 12500000,
-    danhMuc: "Electronics",
-    hinhAnh: "https://via.placeholder.com/300x200?text=Monitor+34+Inch",
-    soLuong: 20
-  }
-];
+export const PAGE_SIZE = 20;
 
-// (GET) Lấy tất cả sản phẩm
-// <<< SỬA 2: Thêm logic try...catch để dùng mock data làm dự phòng
-export const getAllProducts = async () => {
+// (GET) Lấy MỘT trang sản phẩm. UI giữ cursor và gọi lại khi người dùng muốn xem thêm;
+// trang sau nằm trong header X-Next-Cursor. Lỗi được ném cho component hiển thị, không thay bằng dữ liệu mẫu.
+// changesCursor (header X-Changes-Cursor): điểm bắt đầu getProductChanges cho danh sách vừa tải
+export const getProductsPage = async (cursor = null, size = PAGE_SIZE) => {
     try {
-        // Cố gắng gọi API thật
-        const response = await axios.get(API_URL);
-        return response.data; // Trả về dữ liệu thật nếu thành công
+        const response = await axios.get(API_URL, { params: { size, cursor: cursor || undefined } });
+        return {
+            items: response.data,
+            nextCursor: response.headers?.['x-next-cursor'] || null,
+            changesCursor: response.headers?.['x-changes-cursor'] || null,
+        };
     } catch (error) {
-        // Nếu API lỗi (ví dụ: backend chưa chạy), trả về dữ liệu mẫu
-        console.warn("API Error: Không thể kết nối tới máy chủ. Sử dụng dữ liệu mẫu (mock data).");
-        console.error(error);
-        return Promise.resolve(mockProducts); // Trả về dữ liệu mẫu
+        console.error("Error fetching products:", error);
+        throw error;
+    }
+};
+
+// (GET) Thay đổi sau cursor: { updated: [...sản phẩm], deleted: [...id], hasMore, nextCursor }.
+// hasMore = gọi lại ngay với nextCursor. Cursor quá hạn -> lỗi 410, UI tải lại toàn bộ.
+export const getProductChanges = async (since) => {
+    try {
+        const response = await axios.get(`${API_URL}/changes`, { params: { since } });
+        return response.data;
+    } catch (error) {
+        console.error("Error fetching product changes:", error);
+        throw error;
     }
 };
 
@@ -26,6 +26,9 @@ const MOCK_CATEGORIES = [
   { id: 2, name: 'Accessories' },
 ];
 
+// Một trang từ productService.getProductsPage; nextCursor = null nghĩa là hết trang
+const page = (items, nextCursor = null) => ({ items, nextCursor });
+
 const NEW_PRODUCT_DATA = { 
   ten: 'Chuột Gaming', 
   gia: 750000, 
@@ -43,13 +46,13 @@ describe('Product Mock Tests (5.2.1)', () => {
     jest.resetAllMocks();
   });
 
-  // --- 1. Test cho READ (All) - (getAllProducts) ---
+  // --- 1. Test cho READ (All) - (getProductsPage) ---
   describe('Mock: Read (All) - ProductManagement', () => {
 
     // Yêu cầu b) Test success scenario
     test('TC1: Hiển thị danh sách sản phẩm khi API mock thành công', async () => {
       // Chuẩn bị mock
-      productService.getAllProducts.mockResolvedValue(MOCK_PRODUCTS);
+      productService.getProductsPage.mockResolvedValue(page(MOCK_PRODUCTS));
       productService.getAllCategories.mockResolvedValue(MOCK_CATEGORIES); // Cần cho form
 
       render(<ProductManagement />);
@@ -60,13 +63,13 @@ describe('Product Mock Tests (5.2.1)', () => {
       expect(screen.getByText('35,000,000 VNĐ')).toBeInTheDocument();
 
       // Yêu cầu c) Verify mock call
-      expect(productService.getAllProducts).toHaveBeenCalledTimes(1);
+      expect(productService.getProductsPage).toHaveBeenCalledTimes(1);
     });
 
     // Yêu cầu b) Test failure scenario
-    test('TC2: Hiển thị lỗi khi API mock getAllProducts thất bại', async () => {
+    test('TC2: Hiển thị lỗi khi API mock getProductsPage thất bại', async () => {
       // Chuẩn bị mock
-      productService.getAllProducts.mockRejectedValue(new Error('API Error'));
+      productService.getProductsPage.mockRejectedValue(new Error('API Error'));
       
       render(<ProductManagement />);
 
@@ -74,7 +77,7 @@ describe('Product Mock Tests (5.2.1)', () => {
       expect(await screen.findByText('Không thể tải danh sách sản phẩm.')).toBeInTheDocument();
       
       // Yêu cầu c) Verify mock call
-      expect(productService.getAllProducts).toHaveBeenCalledTimes(1);
+      expect(productService.getProductsPage).toHaveBeenCalledTimes(1);
     });
   });
 
@@ -117,7 +120,7 @@ describe('Product Mock Tests (5.2.1)', () => {
     // Yêu cầu b) Test success scenario
     test('TC5: Mock Create product thành công và tải lại danh sách', async () => {
       // Chuẩn bị mock
-      productService.getAllProducts.mockResolvedValue(MOCK_PRODUCTS);
+      productService.getProductsPage.mockResolvedValue(page(MOCK_PRODUCTS));
       productService.getAllCategories.mockResolvedValue(MOCK_CATEGORIES);
       productService.createProduct.mockResolvedValue(CREATED_PRODUCT); // Mock CREATE
 
@@ -136,7 +139,7 @@ describe('Product Mock Tests (5.2.1)', () => {
       await userEvent.selectOptions(within(modal).getByLabelText(/Category/i), screen.getByRole('option', { name: /Electronics/i }));
 
       // Mock cho lần gọi loadProducts() thứ 2 (sau khi save)
-      productService.getAllProducts.mockResolvedValue([...MOCK_PRODUCTS, CREATED_PRODUCT]);
+      productService.getProductsPage.mockResolvedValue(page([...MOCK_PRODUCTS, CREATED_PRODUCT]));
 
       // Lưu
       await userEvent.click(within(modal).getByRole('button', { name: /Lưu/i }));
@@ -158,7 +161,7 @@ describe('Product Mock Tests (5.2.1)', () => {
     // Yêu cầu b) Test success scenario
     test('TC6: Mock Update product thành công và tải lại danh sách', async () => {
       // Chuẩn bị mock
-      productService.getAllProducts.mockResolvedValue(MOCK_PRODUCTS);
+      productService.getProductsPage.mockResolvedValue(page(MOCK_PRODUCTS));
       productService.getAllCategories.mockResolvedValue(MOCK_CATEGORIES);
       const UPDATED_PRODUCT = { ...MOCK_PRODUCTS[0], ten: 'Laptop Siêu Cấp' };
       productService.updateProduct.mockResolvedValue(UPDATED_PRODUCT); // Mock UPDATE
@@ -177,7 +180,7 @@ describe('Product Mock Tests (5.2.1)', () => {
       await userEvent.type(tenInput, 'Laptop Siêu Cấp');
 
       // Mock loadProducts (lần 2)
-      productService.getAllProducts.mockResolvedValue([UPDATED_PRODUCT, MOCK_PRODUCTS[1]]);
+      productService.getProductsPage.mockResolvedValue(page([UPDATED_PRODUCT, MOCK_PRODUCTS[1]]));
 
       // Lưu
       await userEvent.click(within(modal).getByRole('button', { name: /Lưu/i }));
@@ -203,7 +206,7 @@ describe('Product Mock Tests (5.2.1)', () => {
     // Yêu cầu b) Test success scenario
     test('TC7: Mock Delete product thành công và tải lại danh sách', async () => {
       // Chuẩn bị mock
-      productService.getAllProducts.mockResolvedValueOnce(MOCK_PRODUCTS); // Lần load đầu
+      productService.getProductsPage.mockResolvedValueOnce(page(MOCK_PRODUCTS)); // Lần load đầu
       productService.deleteProduct.mockResolvedValue({}); // Mock DELETE
       
       render(<ProductManagement />);
@@ -219,7 +222,7 @@ describe('Product Mock Tests (5.2.1)', () => {
       expect(within(modal).getByText('Laptop Pro X1')).toBeInTheDocument();
 
       // Mock loadProducts (lần 2) - chỉ còn 1 item
-      productService.getAllProducts.mockResolvedValueOnce([MOCK_PRODUCTS[1]]); 
+      productService.getProductsPage.mockResolvedValueOnce(page([MOCK_PRODUCTS[1]])); 
     
       // Bấm nút "Xoá" trong modal
       await userEvent.click(within(modal).getByRole('button', { name: 'Xoá' }));
@@ -240,7 +243,7 @@ describe('Product Mock Tests (5.2.1)', () => {
     // Yêu cầu b) Test failure scenario
     test('TC8: Mock Delete product thất bại và hiển thị lỗi', async () => {
       // Chuẩn bị mock
-      productService.getAllProducts.mockResolvedValue(MOCK_PRODUCTS);
+      productService.getProductsPage.mockResolvedValue(page(MOCK_PRODUCTS));
       productService.deleteProduct.mockRejectedValue(new Error('Delete API Error')); // Mock FAIl
 
       render(<ProductManagement />);
@@ -12,19 +12,21 @@ const MOCK_PRODUCTS = [
     { id: 2, ten: 'Bàn phím cơ K10', gia: 1800000, soLuong: 120 },
 ];
 const MOCK_CATEGORIES = [{ id: 1, name: 'Electronics' }];
+// Một trang từ productService.getProductsPage; nextCursor = null nghĩa là hết trang
+const page = (items, nextCursor = null, changesCursor = null) => ({ items, nextCursor, changesCursor });
 
 describe('a) ProductList Integration (ProductManagement Component)', () => {
 
     beforeEach(() => {
         jest.resetAllMocks();
         
-        productService.getAllProducts.mockResolvedValue(MOCK_PRODUCTS);
+        productService.getProductsPage.mockResolvedValue(page(MOCK_PRODUCTS));
         productService.getAllCategories.mockResolvedValue(MOCK_CATEGORIES);
         productService.deleteProduct.mockResolvedValue({});
     });
 
     test('a.1 - Hiển thị trạng thái "Đang tải..." ban đầu', () => {
-        productService.getAllProducts.mockImplementation(() => new Promise(() => {}));
+        productService.getProductsPage.mockImplementation(() => new Promise(() => {}));
         render(<ProductManagement />);
         
         // Chỉ cần kiểm tra text "Đang tải..." là đủ
@@ -42,15 +44,15 @@ describe('a) ProductList Integration (ProductManagement Component)', () => {
     });
 
     test('a.3 - Hiển thị thông báo lỗi khi API tải danh sách thất bại', async () => {
-        productService.getAllProducts.mockRejectedValue(new Error('API Error'));
+        productService.getProductsPage.mockRejectedValue(new Error('API Error'));
         render(<ProductManagement />);
         expect(await screen.findByText('Không thể tải danh sách sản phẩm.')).toBeInTheDocument();
         expect(screen.queryByText('Đang tải...')).not.toBeInTheDocument();
     });
 
     test('a.4 - Tích hợp Xoá (Delete): Mở modal, xác nhận, gọi API và tải lại danh sách', async () => {
-        productService.getAllProducts.mockResolvedValueOnce(MOCK_PRODUCTS);
-        productService.getAllProducts.mockResolvedValueOnce([MOCK_PRODUCTS[1]]);
+        productService.getProductsPage.mockResolvedValueOnce(page(MOCK_PRODUCTS));
+        productService.getProductsPage.mockResolvedValueOnce(page([MOCK_PRODUCTS[1]]));
 
         render(<ProductManagement />);
         
@@ -73,4 +75,43 @@ describe('a) ProductList Integration (ProductManagement Component)', () => {
         expect(screen.queryByText('Laptop Pro X1')).not.toBeInTheDocument();
         expect(screen.getByText('Bàn phím cơ K10')).toBeInTheDocument(); 
     });
-});
\ No newline at end of file
+
+    test('a.5 - Tải thêm: chỉ tải trang kế tiếp theo cursor khi người dùng bấm', async () => {
+        productService.getProductsPage.mockResolvedValueOnce(page([MOCK_PRODUCTS[0]], 'cursor-2'));
+        productService.getProductsPage.mockResolvedValueOnce(page([MOCK_PRODUCTS[1]]));
+
+        render(<ProductManagement />);
+
+        expect(await screen.findByText('Laptop Pro X1')).toBeInTheDocument();
+        expect(screen.queryByText('Bàn phím cơ K10')).not.toBeInTheDocument();
+        expect(productService.getProductsPage).toHaveBeenCalledTimes(1);
+
+        await userEvent.click(screen.getByRole('button', { name: 'Tải thêm' }));
+
+        expect(await screen.findByText('Bàn phím cơ K10')).toBeInTheDocument();
+        expect(screen.getByText('Laptop Pro X1')).toBeInTheDocument();
+        expect(productService.getProductsPage).toHaveBeenLastCalledWith('cursor-2');
+        expect(screen.queryByRole('button', { name: 'Tải thêm' })).not.toBeInTheDocument();
+    });
+
+    test('a.6 - Đồng bộ thay đổi: sau khi xoá chỉ tải phần thay đổi theo X-Changes-Cursor, không tải lại danh sách', async () => {
+        productService.getProductsPage.mockResolvedValue(page(MOCK_PRODUCTS, null, 'sync-1'));
+        productService.getProductChanges
+            .mockResolvedValueOnce({ updated: [{ ...MOCK_PRODUCTS[1], ten: 'Bàn phím cơ K20' }], deleted: [], hasMore: true, nextCursor: 'sync-2' })
+            .mockResolvedValueOnce({ updated: [{ id: 3, ten: 'Chuột không dây', gia: 250000, soLuong: 5 }], deleted: [1], hasMore: false, nextCursor: 'sync-3' });
+
+        render(<ProductManagement />);
+
+        expect(await screen.findByText('Laptop Pro X1')).toBeInTheDocument();
+        await userEvent.click(screen.getAllByRole('button', { name: /Xoá/i })[0]);
+        const modal = await screen.findByRole('dialog');
+        await userEvent.click(within(modal).getByRole('button', { name: 'Xoá' }));
+
+        expect(await screen.findByText('Chuột không dây')).toBeInTheDocument();
+        expect(screen.getByText('Bàn phím cơ K20')).toBeInTheDocument();
+        expect(screen.queryByText('Laptop Pro X1')).not.toBeInTheDocument();
+        expect(productService.getProductChanges).toHaveBeenNthCalledWith(1, 'sync-1');
+        expect(productService.getProductChanges).toHaveBeenNthCalledWith(2, 'sync-2');
+        expect(productService.getProductsPage).toHaveBeenCalledTimes(1);
+    });
+});
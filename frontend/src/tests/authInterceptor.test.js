@@ -0,0 +1,59 @@
+// src/tests/authInterceptor.test.js
+
+import { installAuthInterceptor } from '../service/authInterceptor';
+
+// Client giả: chỉ ghi lại các handler mà interceptor đăng ký
+const createClient = () => {
+  const client = {
+    interceptors: {
+      request: { use: jest.fn((onFulfilled) => { client.onRequest = onFulfilled; }) },
+      response: { use: jest.fn((onFulfilled, onRejected) => { client.onResponseError = onRejected; }) },
+    },
+  };
+  return client;
+};
+
+describe('authInterceptor', () => {
+  beforeEach(() => {
+    localStorage.clear();
+  });
+
+  test('TC1: Có token -> gắn header Authorization: Bearer', () => {
+    const client = createClient();
+    installAuthInterceptor(client);
+    localStorage.setItem('authToken', 'abc.def');
+
+    const config = client.onRequest({ url: '/api/products', headers: {} });
+
+    expect(config.headers.Authorization).toBe('Bearer abc.def');
+  });
+
+  test('TC2: Chưa đăng nhập -> không gắn header', () => {
+    const client = createClient();
+    installAuthInterceptor(client);
+
+    const config = client.onRequest({ url: '/api/products', headers: {} });
+
+    expect(config.headers.Authorization).toBeUndefined();
+  });
+
+  test('TC3: API trả 401 -> xoá token và ném lỗi lại cho caller', async () => {
+    const client = createClient();
+    installAuthInterceptor(client);
+    localStorage.setItem('authToken', 'expired');
+    const error = { config: { url: '/api/products' }, response: { status: 401 } };
+
+    await expect(client.onResponseError(error)).rejects.toBe(error);
+    expect(localStorage.getItem('authToken')).toBeNull();
+  });
+
+  test('TC4: Đăng nhập sai (401 từ /api/auth/login) -> không đụng tới token', async () => {
+    const client = createClient();
+    installAuthInterceptor(client);
+    localStorage.setItem('authToken', 'still-valid');
+    const error = { config: { url: 'http://localhost:8080/api/auth/login' }, response: { status: 401 } };
+
+    await expect(client.onResponseError(error)).rejects.toBe(error);
+    expect(localStorage.getItem('authToken')).toBe('still-valid');
+  });
+});
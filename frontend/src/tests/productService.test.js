@@ -0,0 +1,54 @@
+// src/tests/productService.test.js
+
+import axios from 'axios';
+import { getProductChanges, getProductsPage } from '../service/productService';
+
+jest.mock('axios');
+
+describe('productService.getProductsPage', () => {
+  beforeEach(() => {
+    jest.resetAllMocks();
+    jest.spyOn(console, 'error').mockImplementation(() => {});
+  });
+
+  afterEach(() => {
+    console.error.mockRestore();
+  });
+
+  test('TC1: Trang đầu -> không gửi cursor, trả cursor trang sau từ header', async () => {
+    axios.get.mockResolvedValue({ data: [{ id: 1 }], headers: { 'x-next-cursor': 'abc', 'x-changes-cursor': 'sync' } });
+
+    const page = await getProductsPage();
+
+    expect(axios.get).toHaveBeenCalledTimes(1);
+    expect(axios.get.mock.calls[0][1].params.cursor).toBeUndefined();
+    expect(page).toEqual({ items: [{ id: 1 }], nextCursor: 'abc', changesCursor: 'sync' });
+  });
+
+  test('TC2: Có cursor -> chỉ gọi đúng một request cho trang đó', async () => {
+    axios.get.mockResolvedValue({ data: [{ id: 2 }], headers: {} });
+
+    const page = await getProductsPage('abc');
+
+    expect(axios.get).toHaveBeenCalledTimes(1);
+    expect(axios.get.mock.calls[0][1].params.cursor).toBe('abc');
+    expect(page.nextCursor).toBeNull();
+  });
+
+  test('TC3: API lỗi -> ném lỗi cho UI, không trả dữ liệu mẫu', async () => {
+    axios.get.mockRejectedValue(new Error('Network Error'));
+
+    await expect(getProductsPage()).rejects.toThrow('Network Error');
+  });
+
+  test('TC4: Đồng bộ thay đổi -> gửi since, trả nguyên trang thay đổi', async () => {
+    const changes = { updated: [{ id: 2 }], deleted: [1], hasMore: false, nextCursor: 'next' };
+    axios.get.mockResolvedValue({ data: changes, headers: {} });
+
+    const result = await getProductChanges('sync');
+
+    expect(axios.get.mock.calls[0][0]).toMatch(/\/api\/products\/changes$/);
+    expect(axios.get.mock.calls[0][1].params.since).toBe('sync');
+    expect(result).toEqual(changes);
+  });
+});
@@ -1,12 +1,23 @@
 import http from 'k6/http';
 import { check, sleep } from 'k6';
+import { Counter, Trend } from 'k6/metrics';
 
+// -----------------------------------------------------------------
+// Đo hiệu quả ETag / If-None-Match trên các API đọc danh mục.
+// Chạy 2 lần rồi so sánh data_received, http_req_duration, read_body_bytes:
+//   k6 run -e USERNAME=admin -e PASSWORD=... -e CONDITIONAL=false products-test.js   (baseline)
+//   k6 run -e USERNAME=admin -e PASSWORD=... products-test.js                        (gửi If-None-Match)
+// PRODUCT_ID: sản phẩm được đọc lặp lại (mặc định 1)
+// -----------------------------------------------------------------
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const CONDITIONAL = __ENV.CONDITIONAL !== 'false';
+const PRODUCT_ID = __ENV.PRODUCT_ID || '1';
 
 export const options = {
   stages: [
-    { duration: '30s', target: 100 }, 
-    { duration: '1m', target: 100 }, 
-    { duration: '10s', target: 0 },   
+    { duration: '30s', target: 100 },
+    { duration: '1m', target: 100 },
+    { duration: '10s', target: 0 },
   ],
   thresholds: {
     // API lấy sản phẩm phải nhanh hơn
@@ -16,14 +27,57 @@ export const options = {
   },
 };
 
-export default function () {
+// Tách thời gian phản hồi 200 và 304 để thấy chênh lệch khi không đọc DB / không serialize JSON
+const fullDuration = new Trend('read_200_duration', true);
+const notModifiedDuration = new Trend('read_304_duration', true);
+const notModified = new Counter('read_304_count');
+const bodyBytes = new Counter('read_body_bytes');
 
-  const res = http.get('http://localhost:8080/api/products');
+// /api/products bắt buộc Bearer token -> đăng nhập một lần, mọi VU dùng chung
+export function setup() {
+  const res = http.post(`${BASE_URL}/api/auth/login`,
+    JSON.stringify({ username: __ENV.USERNAME, password: __ENV.PASSWORD }),
+    { headers: { 'Content-Type': 'application/json' } });
+  check(res, { 'Login status is 200': (r) => r.status === 200 });
+  return { token: res.json('token') };
+}
 
-  check(res, {
-    'Get Products API status is 200': (r) => r.status === 200,
-    'Get Products response time is fast': (r) => r.timings.duration < 500,
-  });
+// ETag cuối cùng theo URL, riêng cho từng VU (giống cache của một trình duyệt)
+const etags = {};
+
+function conditionalGet(url, token) {
+  const headers = { Authorization: `Bearer ${token}` };
+  if (CONDITIONAL && etags[url]) {
+    headers['If-None-Match'] = etags[url];
+  }
+  const res = http.get(url, { headers });
+  if (res.headers.Etag) {
+    etags[url] = res.headers.Etag;
+  }
+  if (res.status === 304) {
+    notModified.add(1);
+    notModifiedDuration.add(res.timings.duration);
+  } else {
+    fullDuration.add(res.timings.duration);
+  }
+  bodyBytes.add(res.body ? res.body.length : 0);
+  return res;
+}
+
+export default function (data) {
+  const urls = [
+    `${BASE_URL}/api/products`,
+    `${BASE_URL}/api/products/${PRODUCT_ID}`,
+    `${BASE_URL}/api/categories`,
+  ];
+
+  for (const url of urls) {
+    const res = conditionalGet(url, data.token);
+    check(res, {
+      'Get Products API status is 200/304': (r) => r.status === 200 || r.status === 304,
+      'Get Products response time is fast': (r) => r.timings.duration < 500,
+    });
+  }
 
   sleep(1);
-}
\ No newline at end of file
+}